@@ -112,8 +112,15 @@ public class ClawX2T {
     options.addOption("fp", "force-pure", false,
         "exit the translator if a PURE subroutine/function " +
             "has to be transformed.");
+    options.addOption("bin", "binary-ir", false,
+        "write the XcodeML output and module files in binary format.");
     options.addOption("r", "report", true,
-        "generate the transformation report.");
+        "generate the transformation report and its kernel information in "
+            + "JSON format next to it.");
+    options.addOption("ti", "timing", false,
+        "instrument the generated parallel regions with calls to the "
+            + "claw_timing module. The region mapping is written next to the "
+            + "report.");
     options.addOption("script", "python-script", true,
         "Python optimisation script to apply (requires Jython)");
     return options;
@@ -287,6 +294,16 @@ public class ClawX2T {
       Configuration.get().setForcePure();
     }
 
+    // Binary intermediate representation option
+    if(cmd.hasOption("bin")) {
+      Configuration.get().setBinaryIr();
+    }
+
+    // Timing instrumentation option
+    if(cmd.hasOption("ti")) {
+      Configuration.get().setTimingInstrumentation();
+    }
+
     ClawTranslatorDriver translatorDriver;
 
     // Call the translator driver to apply transformation on XcodeML/F
@@ -6,24 +6,79 @@ package claw.shenron.transformation;
 
 import claw.shenron.translator.Translator;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * An independent transformation group applies each transformation without
  * checking with any other transformation in the pipeline.
  *
+ * When the group is created with a parallelism greater than one, the
+ * transformations that are local to a function definition are partitioned by
+ * their outermost function definition and the partitions are applied
+ * concurrently on a thread pool. Transformations in the same partition are
+ * still applied one by one in their original order.
+ *
+ * All partitions share the same document. Concurrent transformations must
+ * respect the following rules:
+ * - Nodes of their own function definition can be read without lock.
+ * - Every modification of the DOM goes through Xnode, XcodeML node creation
+ * and import, or the declaration, symbol and type tables. These operations
+ * are serialised on the document lock (Xnode#lock()). A sequence of
+ * operations that must be atomic takes the lock explicitly.
+ * - Lookups in the type table and hash generation are lock-free.
+ * - Module files are loaded once through the module cache and modified under
+ * the lock of their own document.
+ * Transformations modifying nodes outside of their function definition in a
+ * way that depends on other partitions are not function local.
+ *
  * @author clementval
  */
 
 public class IndependentTransformationGroup extends TransformationGroup {
 
+  private final int _parallelism;
+
   /**
    * IndependentTransformationGroup ctor
    *
    * @param name A friendly name to describe the transformation group.
    */
   public IndependentTransformationGroup(String name) {
+    this(name, 1);
+  }
+
+  /**
+   * IndependentTransformationGroup ctor
+   *
+   * @param name        A friendly name to describe the transformation group.
+   * @param parallelism Maximum number of function definitions transformed
+   *                    concurrently. 1 applies all transformations
+   *                    sequentially.
+   */
+  public IndependentTransformationGroup(String name, int parallelism) {
     super(name);
+    _parallelism = parallelism;
+  }
+
+  /**
+   * Get the maximum number of function definitions transformed concurrently.
+   *
+   * @return Parallelism of the group.
+   */
+  public int getParallelism() {
+    return _parallelism;
   }
 
   /**
@@ -32,7 +87,52 @@ public class IndependentTransformationGroup extends TransformationGroup {
   public void applyTranslations(XcodeProgram xcodeml, Translator translator)
       throws Exception
   {
+    if(_parallelism <= 1 || count() <= 1) {
+      apply(xcodeml, translator, getTransformations());
+      return;
+    }
+
+    // Partition the transformations by their outermost function definition
+    List<Transformation> shared = new ArrayList<>();
+    Map<Xnode, List<Transformation>> partitions = new LinkedHashMap<>();
     for(Transformation trans : getTransformations()) {
+      Xnode fctDef = getFunctionScope(trans);
+      if(fctDef == null) {
+        shared.add(trans);
+      } else {
+        if(!partitions.containsKey(fctDef)) {
+          partitions.put(fctDef, new ArrayList<Transformation>());
+        }
+        partitions.get(fctDef).add(trans);
+      }
+    }
+
+    if(partitions.size() <= 1) {
+      apply(xcodeml, translator, getTransformations());
+      return;
+    }
+
+    // Transformations not bound to a function are applied first
+    apply(xcodeml, translator, shared);
+    applyConcurrently(xcodeml, translator,
+        new ArrayList<>(partitions.values()));
+  }
+
+  /**
+   * Apply the given transformations one by one.
+   *
+   * @param xcodeml         The XcodeML on which the transformations are
+   *                        applied.
+   * @param translator      The translator used to applied the
+   *                        transformations.
+   * @param transformations Transformations to be applied in order.
+   * @throws Exception If one transformation cannot be applied.
+   */
+  private void apply(XcodeProgram xcodeml, Translator translator,
+                     List<Transformation> transformations)
+      throws Exception
+  {
+    for(Transformation trans : transformations) {
       try {
         trans.transform(xcodeml, translator, null);
         if(trans.isTransformed()) {
@@ -47,4 +147,74 @@ public class IndependentTransformationGroup extends TransformationGroup {
       }
     }
   }
+
+  /**
+   * Apply each partition of transformations on a thread pool. All
+   * partitions are awaited and the first failure, in partition order, is
+   * rethrown so the reported error does not depend on thread scheduling.
+   *
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param translator The translator used to applied the transformations.
+   * @param partitions Independent partitions of transformations.
+   * @throws Exception If one transformation cannot be applied.
+   */
+  private void applyConcurrently(final XcodeProgram xcodeml,
+                                 final Translator translator,
+                                 List<List<Transformation>> partitions)
+      throws Exception
+  {
+    ExecutorService pool = Executors.newFixedThreadPool(
+        Math.min(_parallelism, partitions.size()));
+    try {
+      List<Future<Void>> results = new ArrayList<>();
+      for(final List<Transformation> partition : partitions) {
+        results.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            apply(xcodeml, translator, partition);
+            return null;
+          }
+        }));
+      }
+
+      Throwable failure = null;
+      for(Future<Void> result : results) {
+        try {
+          result.get();
+        } catch(ExecutionException ex) {
+          if(failure == null) {
+            failure = ex.getCause();
+          }
+        }
+      }
+
+      if(failure instanceof Exception) {
+        throw (Exception) failure;
+      } else if(failure instanceof Error) {
+        throw (Error) failure;
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Get the outermost function definition in which a function local
+   * transformation is applied. Nested function definitions are part of the
+   * same partition as their host.
+   *
+   * @param trans Transformation to locate.
+   * @return The outermost function definition node. Null if the
+   * transformation is not function local or cannot be located.
+   */
+  private Xnode getFunctionScope(Transformation trans) {
+    if(!trans.isFunctionLocal() || trans.getDirective() == null
+        || trans.getDirective().getPragma() == null)
+    {
+      return null;
+    }
+    List<Xnode> fctDefs = trans.getDirective().getPragma().
+        matchAllAncestor(Xcode.F_FUNCTION_DEFINITION);
+    return fctDefs.isEmpty() ? null : fctDefs.get(fctDefs.size() - 1);
+  }
 }
@@ -78,6 +78,20 @@ public abstract class Transformation {
     return true;
   }
 
+  /**
+   * Tells whether the transformation only modifies the function definition in
+   * which its directive is located. Such transformations can be applied
+   * concurrently with transformations located in other function definitions.
+   * Default behavior is false.
+   *
+   * @return True if the transformation is local to its function definition.
+   * False otherwise.
+   * @see IndependentTransformationGroup
+   */
+  public boolean isFunctionLocal() {
+    return false;
+  }
+
   /**
    * Apply the actual transformation.
    *
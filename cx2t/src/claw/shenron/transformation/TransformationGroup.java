@@ -10,6 +10,7 @@ import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A TransformationGroup holds transformation units and can apply. Only derived
@@ -23,7 +24,7 @@ public abstract class TransformationGroup {
 
   private final String _name;
   private List<Transformation> _transformations;
-  private int _appliedTransformation;
+  private final AtomicInteger _appliedTransformation;
 
   /**
    * TransformationGroup ctor.
@@ -33,6 +34,7 @@ public abstract class TransformationGroup {
   public TransformationGroup(String name) {
     _name = name;
     _transformations = new ArrayList<>();
+    _appliedTransformation = new AtomicInteger();
   }
 
   /**
@@ -86,14 +88,14 @@ public abstract class TransformationGroup {
    * @return Number of applied transformation.
    */
   public int getAppliedTransformationCount() {
-    return _appliedTransformation;
+    return _appliedTransformation.get();
   }
 
   /**
    * Increment the applied transformation counter.
    */
   public void incrementAppliedTransformation() {
-    ++_appliedTransformation;
+    _appliedTransformation.incrementAndGet();
   }
 
   /**
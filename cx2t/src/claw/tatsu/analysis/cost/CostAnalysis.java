@@ -0,0 +1,260 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.cost;
+
+import claw.tatsu.xcodeml.abstraction.BoundDefinition;
+import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
+import claw.tatsu.xcodeml.abstraction.PromotionInfo;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Static cost estimation of code regions executed once per iteration of
+ * generated loops. The floating-point operations are counted from the
+ * expression trees and the memory traffic from the array references. Scalars
+ * are considered to stay in registers. The costs of several regions are
+ * summed.
+ *
+ * The estimation is an approximation. All the branches of the conditional
+ * statements are counted and the statements of nested do statements are
+ * counted once, i.e. per iteration of the nested loops. Kind parameters that
+ * are not integer constants count as 8 bytes.
+ *
+ * @author clementval
+ */
+public class CostAnalysis {
+
+  // Operators counted as one floating-point operation
+  private static final List<Xcode> FLOP_OPERATORS = Arrays.asList(
+      Xcode.PLUS_EXPR, Xcode.MINUS_EXPR, Xcode.MUL_EXPR, Xcode.DIV_EXPR,
+      Xcode.F_POWER_EXPR, Xcode.UNARY_MINUS_EXPR
+  );
+  private static final int DEFAULT_SIZE = 4;
+  private static final int UNKNOWN_KIND_SIZE = 8;
+
+  private int _flops = 0;
+  private long _loadedBytes = 0;
+  private long _storedBytes = 0;
+
+  /**
+   * Constructs the cost estimation of regions.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param regions Body nodes executed once per iteration.
+   */
+  public CostAnalysis(XcodeProgram xcodeml, List<Xnode> regions) {
+    for(Xnode region : regions) {
+      analyze(xcodeml, region);
+    }
+  }
+
+  /**
+   * Add the cost of a region.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param region  Body node executed once per iteration.
+   */
+  private void analyze(XcodeProgram xcodeml, Xnode region) {
+    for(Xcode opcode : FLOP_OPERATORS) {
+      for(Xnode expr : region.matchAll(opcode)) {
+        if(isFloatingPoint(xcodeml, expr.getType())) {
+          ++_flops;
+        }
+      }
+    }
+    // Intrinsic functions evaluated in floating-point
+    for(Xnode fctCall : region.matchAll(Xcode.FUNCTION_CALL)) {
+      if(fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC)
+          && isFloatingPoint(xcodeml, fctCall.getAttribute(Xattr.TYPE)))
+      {
+        ++_flops;
+      }
+    }
+    for(Xnode arrayRef : region.matchAll(Xcode.F_ARRAY_REF)) {
+      int size = getElementSize(xcodeml, arrayRef.getType());
+      Xnode parent = arrayRef.ancestor();
+      if(parent.opcode() == Xcode.F_ASSIGN_STATEMENT
+          && arrayRef.equals(parent.child(Xnode.LHS)))
+      {
+        _storedBytes += size;
+      } else {
+        _loadedBytes += size;
+      }
+    }
+  }
+
+  /**
+   * Get the number of floating-point operations per iteration.
+   *
+   * @return Number of floating-point operations.
+   */
+  public int getFlops() {
+    return _flops;
+  }
+
+  /**
+   * Get the number of bytes read from arrays per iteration.
+   *
+   * @return Number of bytes loaded.
+   */
+  public long getLoadedBytes() {
+    return _loadedBytes;
+  }
+
+  /**
+   * Get the number of bytes written to arrays per iteration.
+   *
+   * @return Number of bytes stored.
+   */
+  public long getStoredBytes() {
+    return _storedBytes;
+  }
+
+  /**
+   * Get the arithmetic intensity of the region.
+   *
+   * @return Floating-point operations per byte moved. 0 if no array is
+   * accessed.
+   */
+  public double getArithmeticIntensity() {
+    long bytes = _loadedBytes + _storedBytes;
+    return bytes == 0 ? 0 : (double) _flops / bytes;
+  }
+
+  /**
+   * Check whether a type is a real or complex type.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param type    Type hash or built-in type.
+   * @return True if the type is a floating-point type.
+   */
+  private static boolean isFloatingPoint(XcodeProgram xcodeml, String type) {
+    String builtIn = getBuiltInType(xcodeml, type);
+    return FortranType.REAL.toString().equals(builtIn)
+        || FortranType.COMPLEX.toString().equals(builtIn);
+  }
+
+  /**
+   * Follow the basic types until a built-in type is found.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param type    Type hash or built-in type.
+   * @return Built-in type. Null for derived types.
+   */
+  private static String getBuiltInType(XcodeProgram xcodeml, String type) {
+    String hash = type;
+    while(hash != null && !FortranType.isBuiltInType(hash)) {
+      FbasicType bt = xcodeml.getTypeTable().getBasicType(hash);
+      if(bt == null) {
+        return null;
+      }
+      hash = bt.getRef();
+    }
+    return hash;
+  }
+
+  /**
+   * Get the size in bytes of an element of a given type.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param type    Type hash or built-in type.
+   * @return Size in bytes. 0 for derived types.
+   */
+  public static int getElementSize(XcodeProgram xcodeml, String type) {
+    String hash = type;
+    int kind = -1;
+    while(hash != null && !FortranType.isBuiltInType(hash)) {
+      FbasicType bt = xcodeml.getTypeTable().getBasicType(hash);
+      if(bt == null) {
+        return 0;
+      }
+      if(kind < 0 && bt.hasKind()) {
+        Xnode value = bt.getKind().firstChild();
+        kind = value != null && value.opcode() == Xcode.F_INT_CONSTANT
+            ? Integer.parseInt(value.value().trim()) : UNKNOWN_KIND_SIZE;
+      }
+      hash = bt.getRef();
+    }
+    switch(FortranType.fromString(hash)) {
+      case CHARACTER:
+        return 1;
+      case COMPLEX:
+        return 2 * (kind < 0 ? DEFAULT_SIZE : kind);
+      case INTEGER:
+      case REAL:
+      case LOGICAL:
+        return kind < 0 ? DEFAULT_SIZE : kind;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Get the memory added by the promotion of fields as a product of the
+   * element size and of the extents of the new dimensions. The number of
+   * elements of a promoted array before its promotion is represented by
+   * n(array).
+   *
+   * @param xcodeml    Current XcodeML translation unit.
+   * @param promotions Information about the promoted fields.
+   * @return Sum of the memory of each field in bytes. "0" if no field is
+   * promoted.
+   */
+  public static String getPromotedMemory(XcodeProgram xcodeml,
+                                         Collection<PromotionInfo> promotions)
+  {
+    long constant = 0;
+    List<String> terms = new ArrayList<>();
+    for(PromotionInfo info : promotions) {
+      if(info == null || info.getDimensions() == null) {
+        continue;
+      }
+      long factor = getElementSize(xcodeml, info.getTargetType());
+      StringBuilder symbols = new StringBuilder();
+      for(DimensionDefinition dim : info.getDimensions()) {
+        BoundDefinition lower = dim.getLowerBound();
+        BoundDefinition upper = dim.getUpperBound();
+        if(!lower.isVar() && !upper.isVar()) {
+          factor *= upper.getIntValue() - lower.getIntValue() + 1;
+        } else if(!lower.isVar() && lower.getIntValue() == 1) {
+          symbols.append("*").append(upper.getValue());
+        } else {
+          symbols.append("*(").append(upper.isVar() ? upper.getValue()
+              : String.valueOf(upper.getIntValue())).append("-").
+              append(lower.isVar() ? lower.getValue()
+                  : String.valueOf(lower.getIntValue())).append("+1)");
+        }
+      }
+      if(!info.wasScalar()) {
+        symbols.append("*n(").append(info.getIdentifier()).append(")");
+      }
+      if(symbols.length() == 0) {
+        constant += factor;
+      } else {
+        terms.add(factor + symbols.toString());
+      }
+    }
+    if(constant != 0 || terms.isEmpty()) {
+      terms.add(0, String.valueOf(constant));
+    }
+    StringBuilder memory = new StringBuilder();
+    for(String term : terms) {
+      if(memory.length() > 0) {
+        memory.append(" + ");
+      }
+      memory.append(term);
+    }
+    return memory.toString();
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.dependency;
+
+import claw.tatsu.primitive.Range;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Variables read and written by an assign statement. Each variable is mapped
+ * to its references in the statement. A reference is either an array
+ * reference or a variable referencing the whole variable.
+ *
+ * The sets are used to decide whether two array notation statements can be
+ * executed in a different order or in the same generated loop.
+ *
+ * @author clementval
+ */
+public class ReadWriteSet {
+
+  private final Xnode _statement;
+  private final Map<String, List<Xnode>> _reads;
+  private final Map<String, List<Xnode>> _writes;
+
+  /**
+   * Constructs and compute the read and write sets of an assign statement.
+   *
+   * @param assignStmt The assign statement node to be analyzed.
+   */
+  public ReadWriteSet(Xnode assignStmt) {
+    _statement = assignStmt;
+    _reads = new LinkedHashMap<>();
+    _writes = new LinkedHashMap<>();
+    if(assignStmt == null || assignStmt.opcode() != Xcode.F_ASSIGN_STATEMENT) {
+      return;
+    }
+    Xnode lhs = assignStmt.child(Xnode.LHS);
+    add(_writes, lhs);
+    gatherReads(lhs, true);
+    gatherReads(assignStmt.child(Xnode.RHS), false);
+  }
+
+  /**
+   * Get the analyzed statement.
+   *
+   * @return The assign statement node.
+   */
+  public Xnode getStatement() {
+    return _statement;
+  }
+
+  /**
+   * Get the name of the variables read by the statement.
+   *
+   * @return List of variable names.
+   */
+  public List<String> getReadVariables() {
+    return new ArrayList<>(_reads.keySet());
+  }
+
+  /**
+   * Get the name of the variables written by the statement.
+   *
+   * @return List of variable names.
+   */
+  public List<String> getWrittenVariables() {
+    return new ArrayList<>(_writes.keySet());
+  }
+
+  /**
+   * Check whether the statement and the other statement can be executed in
+   * any order. This is the case if none of them writes a variable referenced
+   * by the other one.
+   *
+   * @param other Read and write sets of the other statement.
+   * @return True if there is no dependence between the two statements.
+   */
+  public boolean isIndependent(ReadWriteSet other) {
+    return !conflicts(_writes, other._reads, other._writes)
+        && !conflicts(other._writes, _reads, _writes);
+  }
+
+  /**
+   * Check whether the statement can be executed in the same loop as an
+   * earlier statement. Each variable written by one and referenced by the
+   * other must be referenced with identical subscripts so the two statements
+   * access the same element at each iteration.
+   *
+   * @param earlier Read and write sets of the earlier statement.
+   * @return True if the two statements can be fused.
+   */
+  public boolean canBeFusedWith(ReadWriteSet earlier) {
+    return isAlignedWith(_writes, earlier._reads, earlier._writes)
+        && isAlignedWith(earlier._writes, _reads, _writes);
+  }
+
+  /**
+   * Check if a variable written is referenced in one of the other sets.
+   *
+   * @param writes Written variables.
+   * @param reads  Read variables of the other statement.
+   * @param others Written variables of the other statement.
+   * @return True if at least one written variable is referenced.
+   */
+  private static boolean conflicts(Map<String, List<Xnode>> writes,
+                                   Map<String, List<Xnode>> reads,
+                                   Map<String, List<Xnode>> others)
+  {
+    for(String name : writes.keySet()) {
+      if(reads.containsKey(name) || others.containsKey(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check that the references of the written variables in the other sets are
+   * all aligned with the written references.
+   *
+   * @param writes Written variables.
+   * @param reads  Read variables of the other statement.
+   * @param others Written variables of the other statement.
+   * @return True if all the references are aligned.
+   */
+  private static boolean isAlignedWith(Map<String, List<Xnode>> writes,
+                                       Map<String, List<Xnode>> reads,
+                                       Map<String, List<Xnode>> others)
+  {
+    for(Map.Entry<String, List<Xnode>> entry : writes.entrySet()) {
+      List<Xnode> refs = new ArrayList<>();
+      if(reads.containsKey(entry.getKey())) {
+        refs.addAll(reads.get(entry.getKey()));
+      }
+      if(others.containsKey(entry.getKey())) {
+        refs.addAll(others.get(entry.getKey()));
+      }
+      for(Xnode written : entry.getValue()) {
+        for(Xnode ref : refs) {
+          if(!isSameElement(written, ref)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether two array references access the same element when their
+   * index ranges are iterated together.
+   *
+   * @param ref1 First reference.
+   * @param ref2 Second reference.
+   * @return True if both are array references with identical subscripts.
+   */
+  private static boolean isSameElement(Xnode ref1, Xnode ref2) {
+    if(ref1.opcode() != Xcode.F_ARRAY_REF || ref2.opcode() != Xcode.F_ARRAY_REF
+        || ref1.children().size() != ref2.children().size())
+    {
+      return false;
+    }
+    for(int i = 1; i < ref1.children().size(); ++i) {
+      Xnode s1 = ref1.child(i);
+      Xnode s2 = ref2.child(i);
+      if(s1.opcode() != s2.opcode()) {
+        return false;
+      }
+      if(s1.opcode() == Xcode.INDEX_RANGE) {
+        if(!Range.compare(s1, s2, true)) {
+          return false;
+        }
+      } else if(s1.firstChild() == null || s2.firstChild() == null
+          || s1.firstChild().opcode() != s2.firstChild().opcode()
+          || !s1.compareValues(s2))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gather the variables read in an expression.
+   *
+   * @param expr Expression node.
+   * @param lhs  If true, the expression is the left hand side of the
+   *             assignment and only its subscripts are read.
+   */
+  private void gatherReads(Xnode expr, boolean lhs) {
+    if(expr == null) {
+      return;
+    }
+    if(!lhs) {
+      add(_reads, expr);
+    }
+    for(Xnode arrayRef : expr.matchAll(Xcode.F_ARRAY_REF)) {
+      add(_reads, arrayRef);
+    }
+    for(Xnode memberRef : expr.matchAll(Xcode.F_MEMBER_REF)) {
+      if(memberRef.ancestor().opcode() != Xcode.VAR_REF) {
+        add(_reads, memberRef);
+      }
+    }
+    for(Xnode var : expr.matchAll(Xcode.VAR)) {
+      if(var.ancestor().opcode() != Xcode.VAR_REF) {
+        add(_reads, var);
+      }
+    }
+  }
+
+  /**
+   * Add a reference to the given set if it references a variable.
+   *
+   * @param set Set of references.
+   * @param ref Reference node.
+   */
+  private static void add(Map<String, List<Xnode>> set, Xnode ref) {
+    String name = getName(ref);
+    if(name == null) {
+      return;
+    }
+    if(!set.containsKey(name)) {
+      set.put(name, new ArrayList<Xnode>());
+    }
+    set.get(name).add(ref);
+  }
+
+  /**
+   * Get the name of the variable referenced by a node.
+   *
+   * @param ref Reference node.
+   * @return Lower cased variable name. Null if the node is not a reference.
+   */
+  private static String getName(Xnode ref) {
+    switch(ref.opcode()) {
+      case VAR:
+        return ref.value().toLowerCase();
+      case F_ARRAY_REF:
+      case F_MEMBER_REF:
+        Xnode var = ref.matchDescendant(Xcode.VAR);
+        return var == null ? null : var.value().toLowerCase();
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,497 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.liveness;
+
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Live range analysis of variables in a code region executed once per
+ * iteration of an enclosing loop. A variable whose reads in the region all
+ * get a value defined earlier in the same execution of the region does not
+ * carry any value from one iteration to the next. Such a variable can stay
+ * private to the iteration.
+ *
+ * The analysis is conservative. Definitions made under a condition only count
+ * for the reads in the same branch unless both branches define the variable.
+ * Definitions of array elements only count for reads with the same
+ * subscripts in a do statement with the same iteration space. Subscripts and
+ * bounds other than the induction variables of the enclosing do statements
+ * must not be written between the definition and the read. Any reference
+ * in another kind of statement is considered as an escaping use.
+ *
+ * @author clementval
+ */
+public class LiveRangeAnalysis {
+
+  private final Xnode _region;
+
+  /**
+   * Constructs a live range analysis for the given region.
+   *
+   * @param region Body node executed once per iteration.
+   */
+  public LiveRangeAnalysis(Xnode region) {
+    _region = region;
+  }
+
+  /**
+   * Check whether every read of a variable in the region reads a value
+   * defined earlier in the same execution of the region.
+   *
+   * @param name Name of the variable.
+   * @return True if the variable does not live across executions of the
+   * region. False otherwise.
+   */
+  public boolean isDefinedBeforeUse(String name) {
+    return _region != null
+        && scan(_region, name, new State(), new ArrayList<Xnode>());
+  }
+
+  /**
+   * Scan the statements of a body in execution order.
+   *
+   * @param body  Body node.
+   * @param name  Name of the variable.
+   * @param state Definitions known at the start of the body. Updated with
+   *              the definitions of the body.
+   * @param loops Do statements enclosing the body.
+   * @return False if a read cannot be proven to be defined.
+   */
+  private boolean scan(Xnode body, String name, State state,
+                       List<Xnode> loops)
+  {
+    for(Xnode stmt : body.children()) {
+      if(state._whole || !references(stmt, name)) {
+        state.invalidate(stmt);
+        continue;
+      }
+      switch(stmt.opcode()) {
+        case F_ASSIGN_STATEMENT:
+          if(!scanAssign(stmt, name, state, loops)) {
+            return false;
+          }
+          break;
+        case F_IF_STATEMENT:
+          if(!scanIf(stmt, name, state, loops)) {
+            return false;
+          }
+          break;
+        case F_DO_STATEMENT:
+          if(!scanDo(stmt, name, state, loops)) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+      state.invalidate(stmt);
+    }
+    return true;
+  }
+
+  /**
+   * Check the reads of an assign statement and record its definition.
+   *
+   * @param stmt  Assign statement node.
+   * @param name  Name of the variable.
+   * @param state Definitions known before the statement.
+   * @param loops Do statements enclosing the statement.
+   * @return False if a read cannot be proven to be defined.
+   */
+  private boolean scanAssign(Xnode stmt, String name, State state,
+                             List<Xnode> loops)
+  {
+    Xnode lhs = stmt.child(Xnode.LHS);
+    Xnode rhs = stmt.child(Xnode.RHS);
+    if(lhs == null || rhs == null || !checkReads(rhs, name, state, loops)) {
+      return false;
+    }
+    if(lhs.opcode() == Xcode.VAR) {
+      if(name.equals(lhs.value())) {
+        state._whole = true;
+      }
+      return true;
+    }
+    if(lhs.opcode() != Xcode.F_ARRAY_REF) {
+      return !references(lhs, name);
+    }
+    Xnode base = lhs.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+    for(Xnode index : lhs.children()) {
+      if(index.opcode() != Xcode.VAR_REF
+          && !checkReads(index, name, state, loops))
+      {
+        return false;
+      }
+    }
+    if(base == null || !name.equals(base.value())) {
+      return true;
+    }
+    if(isWholeSlice(lhs)) {
+      state._whole = true;
+    } else {
+      Set<String> variables = new HashSet<>();
+      String key = getElementKey(lhs, loops, variables);
+      if(key != null) {
+        state._elements.put(key, variables);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check the reads of an if statement and record the definitions made in
+   * both branches.
+   *
+   * @param stmt  If statement node.
+   * @param name  Name of the variable.
+   * @param state Definitions known before the statement.
+   * @param loops Do statements enclosing the statement.
+   * @return False if a read cannot be proven to be defined.
+   */
+  private boolean scanIf(Xnode stmt, String name, State state,
+                         List<Xnode> loops)
+  {
+    Xnode condition = stmt.matchDirectDescendant(Xcode.CONDITION);
+    if(condition != null && !checkReads(condition, name, state, loops)) {
+      return false;
+    }
+    Xnode thenBlock = stmt.matchDirectDescendant(Xcode.THEN);
+    Xnode elseBlock = stmt.matchDirectDescendant(Xcode.ELSE);
+    State thenState = state.copy();
+    State elseState = state.copy();
+    if(thenBlock != null && thenBlock.body() != null
+        && !scan(thenBlock.body(), name, thenState, loops))
+    {
+      return false;
+    }
+    if(elseBlock != null && elseBlock.body() != null
+        && !scan(elseBlock.body(), name, elseState, loops))
+    {
+      return false;
+    }
+    if(elseBlock != null) {
+      state._whole = thenState._whole && elseState._whole;
+      for(Map.Entry<String, Set<String>> element :
+          thenState._elements.entrySet())
+      {
+        if(elseState._elements.containsKey(element.getKey())) {
+          state._elements.put(element.getKey(), element.getValue());
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check the reads of a do statement. Array elements defined in the body
+   * stay defined for the do statements with the same iteration space.
+   *
+   * @param stmt  Do statement node.
+   * @param name  Name of the variable.
+   * @param state Definitions known before the statement.
+   * @param loops Do statements enclosing the statement.
+   * @return False if a read cannot be proven to be defined.
+   */
+  private boolean scanDo(Xnode stmt, String name, State state,
+                         List<Xnode> loops)
+  {
+    for(Xnode child : stmt.children()) {
+      if(child.opcode() != Xcode.BODY && references(child, name)) {
+        return false;
+      }
+    }
+    List<Xnode> innerLoops = new ArrayList<>(loops);
+    innerLoops.add(stmt);
+    State bodyState = state.copy();
+    if(stmt.body() == null
+        || !scan(stmt.body(), name, bodyState, innerLoops))
+    {
+      return false;
+    }
+    // Whole definitions in the body are lost as the loop might not execute
+    state._elements.putAll(bodyState._elements);
+    return true;
+  }
+
+  /**
+   * Check that every read of the variable in an expression is defined.
+   *
+   * @param expr  Expression node.
+   * @param name  Name of the variable.
+   * @param state Definitions known before the expression is evaluated.
+   * @param loops Do statements enclosing the statement.
+   * @return False if a read cannot be proven to be defined.
+   */
+  private boolean checkReads(Xnode expr, String name, State state,
+                             List<Xnode> loops)
+  {
+    if(state._whole) {
+      return true;
+    }
+    List<Xnode> vars = new ArrayList<>(expr.matchAll(Xcode.VAR));
+    if(expr.opcode() == Xcode.VAR) {
+      vars.add(expr);
+    }
+    for(Xnode var : vars) {
+      if(!name.equals(var.value())) {
+        continue;
+      }
+      Xnode varRef = var.ancestor();
+      if(varRef == null || varRef.opcode() != Xcode.VAR_REF
+          || varRef.ancestor() == null
+          || varRef.ancestor().opcode() != Xcode.F_ARRAY_REF)
+      {
+        return false;
+      }
+      String key = getElementKey(varRef.ancestor(), loops, null);
+      if(key == null || !state._elements.containsKey(key)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the key identifying an array element reference in the iteration
+   * spaces of the enclosing do statements.
+   *
+   * @param arrayRef  Array reference node.
+   * @param loops     Do statements enclosing the reference.
+   * @param variables If not null, filled with the variables of the key that
+   *                  are not induction variables of the enclosing do
+   *                  statements.
+   * @return Key of the element. Null if the subscripts are not simple
+   * variables or constants.
+   */
+  private static String getElementKey(Xnode arrayRef, List<Xnode> loops,
+                                      Set<String> variables)
+  {
+    StringBuilder key = new StringBuilder();
+    for(Xnode loop : loops) {
+      if(!appendIterationSpace(key, loop, variables)) {
+        return null;
+      }
+      key.append(";");
+    }
+    for(Xnode index : arrayRef.children()) {
+      if(index.opcode() == Xcode.VAR_REF) {
+        continue;
+      }
+      if(index.opcode() != Xcode.ARRAY_INDEX || !isSimple(index.child(0))) {
+        return null;
+      }
+      Xnode subscript = index.child(0);
+      if(variables != null && subscript.opcode() == Xcode.VAR
+          && !isInductionVariable(subscript.value(), loops))
+      {
+        variables.add(subscript.value());
+      }
+      key.append(subscript.value()).append(",");
+    }
+    return key.toString();
+  }
+
+  /**
+   * Append a textual representation of the iteration space of a do statement
+   * to a key.
+   *
+   * @param key       Key being built.
+   * @param doStmt    Do statement node.
+   * @param variables If not null, filled with the variables of the bounds.
+   * @return False if the bounds are not simple variables or constants.
+   */
+  private static boolean appendIterationSpace(StringBuilder key,
+                                              Xnode doStmt,
+                                              Set<String> variables)
+  {
+    Xnode var = doStmt.matchDirectDescendant(Xcode.VAR);
+    Xnode range = doStmt.matchDirectDescendant(Xcode.INDEX_RANGE);
+    if(var == null || range == null) {
+      return false;
+    }
+    key.append(var.value()).append("=");
+    for(Xnode bound : range.children()) {
+      Xnode value = bound.child(0);
+      if(!isSimple(value)) {
+        return false;
+      }
+      if(variables != null && value.opcode() == Xcode.VAR) {
+        variables.add(value.value());
+      }
+      key.append(value.value()).append(":");
+    }
+    return true;
+  }
+
+  /**
+   * Check whether a variable is the induction variable of one of the do
+   * statements.
+   *
+   * @param name  Name of the variable.
+   * @param loops Do statements enclosing the reference.
+   * @return True if the variable is an induction variable. False otherwise.
+   */
+  private static boolean isInductionVariable(String name, List<Xnode> loops) {
+    for(Xnode loop : loops) {
+      Xnode var = loop.matchDirectDescendant(Xcode.VAR);
+      if(var != null && name.equals(var.value())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether a statement might write a variable. Assignments write their
+   * left hand side and do statements their induction variable. A reference
+   * in a function call or in any other kind of statement is considered as a
+   * write.
+   *
+   * @param stmt Statement to be checked.
+   * @param name Name of the variable.
+   * @return True if the statement might write the variable.
+   */
+  private static boolean writes(Xnode stmt, String name) {
+    if(!references(stmt, name)) {
+      return false;
+    }
+    for(Xnode call : stmt.matchAll(Xcode.FUNCTION_CALL)) {
+      if(references(call, name)) {
+        return true;
+      }
+    }
+    switch(stmt.opcode()) {
+      case F_ASSIGN_STATEMENT:
+        Xnode lhs = stmt.child(Xnode.LHS);
+        if(lhs != null && lhs.opcode() == Xcode.F_ARRAY_REF) {
+          Xnode base = lhs.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+          return base == null || name.equals(base.value());
+        }
+        return lhs == null || references(lhs, name);
+      case F_DO_STATEMENT:
+        Xnode var = stmt.matchDirectDescendant(Xcode.VAR);
+        return var == null || name.equals(var.value())
+            || stmt.body() == null || writesIn(stmt.body(), name);
+      case F_IF_STATEMENT:
+        Xnode thenBlock = stmt.matchDirectDescendant(Xcode.THEN);
+        Xnode elseBlock = stmt.matchDirectDescendant(Xcode.ELSE);
+        return (thenBlock != null && thenBlock.body() != null
+            && writesIn(thenBlock.body(), name))
+            || (elseBlock != null && elseBlock.body() != null
+            && writesIn(elseBlock.body(), name));
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Check whether any statement of a body might write a variable.
+   *
+   * @param body Body node.
+   * @param name Name of the variable.
+   * @return True if a statement of the body might write the variable.
+   */
+  private static boolean writesIn(Xnode body, String name) {
+    for(Xnode stmt : body.children()) {
+      if(writes(stmt, name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether an array reference covers the whole array.
+   *
+   * @param arrayRef Array reference node.
+   * @return True if all the subscripts are assumed shape ranges.
+   */
+  private static boolean isWholeSlice(Xnode arrayRef) {
+    for(Xnode index : arrayRef.children()) {
+      if(index.opcode() != Xcode.VAR_REF
+          && (index.opcode() != Xcode.INDEX_RANGE
+          || !index.getBooleanAttribute(Xattr.IS_ASSUMED_SHAPE)))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether a node is a variable or an integer constant.
+   *
+   * @param node Node to be checked.
+   * @return True if the node is a variable or an integer constant.
+   */
+  private static boolean isSimple(Xnode node) {
+    return node != null && (node.opcode() == Xcode.VAR
+        || node.opcode() == Xcode.F_INT_CONSTANT);
+  }
+
+  /**
+   * Check whether a node references the variable.
+   *
+   * @param node Node to be checked.
+   * @param name Name of the variable.
+   * @return True if the variable is referenced in the node.
+   */
+  private static boolean references(Xnode node, String name) {
+    if(node.opcode() == Xcode.VAR) {
+      return name.equals(node.value());
+    }
+    for(Xnode var : node.matchAll(Xcode.VAR)) {
+      if(name.equals(var.value())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Definitions known at a point of the region.
+   */
+  private static class State {
+    boolean _whole = false;
+    // Defined elements with the variables their key depends on
+    final Map<String, Set<String>> _elements = new HashMap<>();
+
+    State copy() {
+      State state = new State();
+      state._whole = _whole;
+      state._elements.putAll(_elements);
+      return state;
+    }
+
+    /**
+     * Forget the elements whose subscripts or bounds might be written by the
+     * statement.
+     *
+     * @param stmt Statement executed after the definitions.
+     */
+    void invalidate(Xnode stmt) {
+      Iterator<Map.Entry<String, Set<String>>> iter =
+          _elements.entrySet().iterator();
+      while(iter.hasNext()) {
+        for(String variable : iter.next().getValue()) {
+          if(writes(stmt, variable)) {
+            iter.remove();
+            break;
+          }
+        }
+      }
+    }
+  }
+}
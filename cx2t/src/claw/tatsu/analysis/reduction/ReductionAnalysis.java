@@ -0,0 +1,150 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.reduction;
+
+import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detect the scalar variables of a code region that are only used to
+ * accumulate values with a single reduction operator. Such variables can be
+ * computed in parallel with a reduction clause.
+ *
+ * A variable is a reduction variable if each of its references in the region
+ * is part of an assignment like s = s + expr, s = s * expr, s = max(s, expr),
+ * s = min(s, expr), s = s .and. expr or s = s .or. expr where expr does not
+ * reference s and all these assignments use the same operator.
+ *
+ * @author clementval
+ */
+public class ReductionAnalysis {
+
+  private final Map<String, ReductionOperator> _reductions;
+  private final Map<String, List<Xnode>> _statements;
+
+  /**
+   * Constructs and run the analysis of reductions in the given region.
+   *
+   * @param region Root node of the region to be analyzed.
+   */
+  public ReductionAnalysis(Xnode region) {
+    _reductions = new LinkedHashMap<>();
+    _statements = new LinkedHashMap<>();
+    analyze(region);
+  }
+
+  /**
+   * Perform the analysis on the given region.
+   *
+   * @param region Root node of the region to be analyzed.
+   */
+  private void analyze(Xnode region) {
+    if(region == null) {
+      return;
+    }
+    Set<String> rejected = new HashSet<>();
+    Set<Xnode> reductionStmts = new HashSet<>();
+    for(Xnode stmt : region.matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      AssignStatement assign = new AssignStatement(stmt.element());
+      ReductionOperator operator = assign.getReductionOperator();
+      if(operator == null) {
+        continue;
+      }
+      String name = assign.getLhsName();
+      ReductionOperator previous = _reductions.get(name);
+      if(previous != null && previous != operator) {
+        rejected.add(name);
+      }
+      _reductions.put(name, operator);
+      if(!_statements.containsKey(name)) {
+        _statements.put(name, new ArrayList<Xnode>());
+      }
+      _statements.get(name).add(stmt);
+      reductionStmts.add(stmt);
+    }
+
+    // Any other reference to the variable prevents the reduction
+    for(Xnode var : region.matchAll(Xcode.VAR)) {
+      if(_reductions.containsKey(var.value())
+          && !reductionStmts.contains(
+          var.matchAncestor(Xcode.F_ASSIGN_STATEMENT)))
+      {
+        rejected.add(var.value());
+      }
+    }
+
+    for(String name : rejected) {
+      _reductions.remove(name);
+      _statements.remove(name);
+    }
+  }
+
+  /**
+   * Get all the reduction variables of the region.
+   *
+   * @return Map of reduction variables names with their operator.
+   */
+  public Map<String, ReductionOperator> getReductions() {
+    return _reductions;
+  }
+
+  /**
+   * Get the reduction variables updated inside a part of the region.
+   *
+   * @param node Node of the region.
+   * @return Map of reduction variables names with their operator.
+   */
+  public Map<String, ReductionOperator> getReductions(Xnode node) {
+    Map<String, ReductionOperator> reductions = new LinkedHashMap<>();
+    for(Map.Entry<String, List<Xnode>> entry : _statements.entrySet()) {
+      for(Xnode stmt : entry.getValue()) {
+        if(stmt.equals(node) || stmt.isNestedIn(node)) {
+          reductions.put(entry.getKey(), _reductions.get(entry.getKey()));
+          break;
+        }
+      }
+    }
+    return reductions;
+  }
+
+  /**
+   * Get the assign statements accumulating a reduction variable.
+   *
+   * @param name Name of the variable.
+   * @return List of assign statements. Empty if not a reduction variable.
+   */
+  public List<Xnode> getStatements(String name) {
+    List<Xnode> stmts = _statements.get(name);
+    return stmts == null ? new ArrayList<Xnode>() : stmts;
+  }
+
+  /**
+   * Remove a variable from the reduction variables.
+   *
+   * @param name Name of the variable.
+   */
+  public void remove(String name) {
+    _reductions.remove(name);
+    _statements.remove(name);
+  }
+
+  /**
+   * Check whether a variable is a reduction variable of the region.
+   *
+   * @param name Name of the variable.
+   * @return True if the variable is a reduction variable.
+   */
+  public boolean isReduction(String name) {
+    return _reductions.containsKey(name);
+  }
+}
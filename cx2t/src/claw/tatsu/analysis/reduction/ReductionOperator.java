@@ -0,0 +1,74 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.reduction;
+
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+/**
+ * Enumeration of the reduction operators supported by the directive
+ * languages together with their Fortran representation.
+ *
+ * @author clementval
+ */
+public enum ReductionOperator {
+  SUM("+"),
+  PRODUCT("*"),
+  MAX("max"),
+  MIN("min"),
+  AND(".and."),
+  OR(".or.");
+
+  private final String _symbol;
+
+  ReductionOperator(String symbol) {
+    _symbol = symbol;
+  }
+
+  /**
+   * Get the operator corresponding to the root of an expression.
+   *
+   * @param expr Expression node.
+   * @return Reduction operator. Null if the expression cannot be a reduction.
+   */
+  public static ReductionOperator fromExpression(Xnode expr) {
+    if(expr == null) {
+      return null;
+    }
+    switch(expr.opcode()) {
+      case PLUS_EXPR:
+      case MINUS_EXPR:
+        return SUM;
+      case MUL_EXPR:
+        return PRODUCT;
+      case LOG_AND_EXPR:
+        return AND;
+      case LOG_OR_EXPR:
+        return OR;
+      case FUNCTION_CALL:
+        if(expr.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+          Xnode name = expr.matchSeq(Xcode.NAME);
+          if(name != null && MAX._symbol.equals(name.value())) {
+            return MAX;
+          } else if(name != null && MIN._symbol.equals(name.value())) {
+            return MIN;
+          }
+        }
+        return null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Get the operator as used in the reduction clauses.
+   *
+   * @return Operator symbol.
+   */
+  public String getSymbol() {
+    return _symbol;
+  }
+}
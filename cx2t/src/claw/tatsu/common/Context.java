@@ -8,9 +8,13 @@ import claw.tatsu.directive.generator.DirectiveGenerator;
 import claw.tatsu.directive.generator.DirectiveNone;
 import claw.tatsu.directive.generator.OpenAcc;
 import claw.tatsu.directive.generator.OpenMp;
+import claw.tatsu.xcodeml.abstraction.TimingRegion;
 import claw.tatsu.xcodeml.module.ModuleCache;
 import claw.wani.x2t.configuration.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author clementval
  */
@@ -23,6 +27,7 @@ public class Context {
   private final CompilerDirective _compilerDirective;
   private final Target _target;
   private final ModuleCache _moduleCache;
+  private final List<TimingRegion> _timingRegions;
 
   private Context(CompilerDirective compilerDirective, Target target,
                   int maxColumns)
@@ -40,6 +45,7 @@ public class Context {
     }
     _maxColumns = maxColumns;
     _moduleCache = new ModuleCache();
+    _timingRegions = new ArrayList<>();
   }
 
   public static void init(CompilerDirective compilerDirective, Target target,
@@ -81,4 +87,33 @@ public class Context {
   public ModuleCache getModuleCache() {
     return _moduleCache;
   }
+
+  /**
+   * Get the regions instrumented with calls to the timing runtime.
+   *
+   * @return Copy of the list of timing regions in the order of their
+   * identifiers.
+   */
+  public synchronized List<TimingRegion> getTimingRegions() {
+    return new ArrayList<>(_timingRegions);
+  }
+
+  /**
+   * Register a new region instrumented with calls to the timing runtime. The
+   * identifier is allocated and the region recorded atomically so regions
+   * instrumented concurrently get distinct identifiers.
+   *
+   * @param routine Name of the function holding the region.
+   * @param lineNo  Line of the region in the original source.
+   * @param kind    Kind of the instrumented region.
+   * @return Newly registered timing region.
+   */
+  public synchronized TimingRegion addTimingRegion(String routine, int lineNo,
+                                                   String kind)
+  {
+    TimingRegion region = new TimingRegion(_timingRegions.size() + 1,
+        routine, lineNo, kind);
+    _timingRegions.add(region);
+    return region;
+  }
 }
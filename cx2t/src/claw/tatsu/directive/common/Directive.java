@@ -5,28 +5,42 @@
 package claw.tatsu.directive.common;
 
 import claw.tatsu.TatsuConstant;
+import claw.tatsu.analysis.reduction.ReductionOperator;
 import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.common.Context;
 import claw.tatsu.common.Message;
 import claw.tatsu.directive.generator.DirectiveGenerator;
 import claw.tatsu.directive.generator.OpenAcc;
 import claw.tatsu.directive.generator.OpenMp;
+import claw.tatsu.primitive.Function;
 import claw.tatsu.primitive.Pragma;
+import claw.tatsu.primitive.Timing;
+import claw.tatsu.primitive.Xmod;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.xnode.common.XcallGraph;
 import claw.tatsu.xcodeml.xnode.common.Xattr;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
 import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import claw.tatsu.xcodeml.xnode.fortran.Intent;
 import claw.wani.ClawConstant;
 import claw.wani.x2t.configuration.Configuration;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The class Directive contains only static method to help the
@@ -38,6 +52,8 @@ public final class Directive {
 
   public static final int NO_COLLAPSE = 0;
   private static final String NO_CLAUSES = "";
+  private static final String TIMING_PARALLEL = "parallel";
+  private static final String TIMING_PARALLEL_LOOP = "parallel loop";
 
   // Avoid potential instantiation of this class
   private Directive() {
@@ -129,6 +145,42 @@ public final class Directive {
     return p;
   }
 
+  /**
+   * Generate the directive allocating module variables on the device for the
+   * whole execution of the program.
+   *
+   * @param xcodeml Current XcodeML program unit.
+   * @param hook    Declaration after which the directive is inserted.
+   * @param vars    Module variables.
+   * @return Last created pragma statement. Null if no directive generated.
+   */
+  public static Xnode generateDeclareCreate(XcodeProgram xcodeml, Xnode hook,
+                                            List<String> vars)
+  {
+    return addPragmaAfter(xcodeml,
+        Context.get().getGenerator().getDeclareCreateDirective(vars), hook);
+  }
+
+  /**
+   * Get the do statements of a function definition decorated with a
+   * directive.
+   *
+   * @param fctDef    Function definition to look in.
+   * @param directive Directive decorating the do statements.
+   * @return List of decorated do statements in document order.
+   */
+  public static List<Xnode> getDecoratedLoops(FfunctionDefinition fctDef,
+                                              String directive)
+  {
+    List<Xnode> decorated = new ArrayList<>();
+    for(Xnode doStmt : fctDef.matchAll(Xcode.F_DO_STATEMENT)) {
+      if(isDecoratedWith(doStmt, directive) != null) {
+        decorated.add(doStmt);
+      }
+    }
+    return decorated;
+  }
+
   /**
    * Check if there is a !$claw nodep directive before the do statement.
    *
@@ -164,45 +216,123 @@ public final class Directive {
   public static Xnode generateParallelClause(XcodeProgram xcodeml,
                                              Xnode startStmt, Xnode endStmt)
   {
+    return generateParallelClause(xcodeml, startStmt, endStmt,
+        Collections.<String, ReductionOperator>emptyMap());
+  }
+
+  /**
+   * Generate corresponding pragmas to surround the code with a parallel
+   * accelerated region in which some variables are reduced.
+   *
+   * @param xcodeml    Object representation of the current XcodeML
+   *                   representation in which the pragmas will be generated.
+   * @param startStmt  Start statement representing the beginning of the
+   *                   parallel region.
+   * @param endStmt    End statement representing the end of the parallel
+   *                   region.
+   * @param reductions Reduction variables names with their operator.
+   * @return Last stmt inserted or null if nothing is inserted.
+   */
+  public static Xnode generateParallelClause(XcodeProgram xcodeml,
+                                             Xnode startStmt, Xnode endStmt,
+                                             Map<String, ReductionOperator>
+                                                 reductions)
+  {
+    return generateParallelClause(xcodeml, startStmt, endStmt,
+        Collections.<String>emptyList(), reductions);
+  }
+
+  /**
+   * Generate corresponding pragmas to surround the code with a parallel
+   * accelerated region in which some variables are private and some are
+   * reduced.
+   *
+   * @param xcodeml    Object representation of the current XcodeML
+   *                   representation in which the pragmas will be generated.
+   * @param startStmt  Start statement representing the beginning of the
+   *                   parallel region.
+   * @param endStmt    End statement representing the end of the parallel
+   *                   region.
+   * @param privates   List of variables to be set privates.
+   * @param reductions Reduction variables names with their operator.
+   * @return Last stmt inserted or null if nothing is inserted.
+   */
+  public static Xnode generateParallelClause(XcodeProgram xcodeml,
+                                             Xnode startStmt, Xnode endStmt,
+                                             List<String> privates,
+                                             Map<String, ReductionOperator>
+                                                 reductions)
+  {
+    DirectiveGenerator generator = Context.get().getGenerator();
+    if(generator.getDirectiveLanguage() != CompilerDirective.NONE) {
+      instrumentRegion(xcodeml, startStmt, endStmt, TIMING_PARALLEL);
+    }
+    String clauses = privates == null || privates.isEmpty()
+        ? NO_CLAUSES : generator.getPrivateClause(privates);
     return insertPragmas(xcodeml, startStmt, endStmt,
-        Context.get().getGenerator().getStartParallelDirective(NO_CLAUSES),
-        Context.get().getGenerator().getEndParallelDirective());
+        generator.getStartParallelDirective(clauses, reductions),
+        generator.getEndParallelDirective());
   }
 
   /**
    * Generate directive directive for a parallel loop.
    *
-   * @param xcodeml   Object representation of the current XcodeML
-   *                  representation in which the pragmas will be generated.
-   * @param privates  List of variables to be set privates.
-   * @param startStmt Start statement representing the beginning of the parallel
-   *                  region.
-   * @param endStmt   End statement representing the end of the parallel region.
-   * @param collapse  If value bigger than 0, a corresponding collapse
-   *                  constructs can be generated.
+   * @param xcodeml    Object representation of the current XcodeML
+   *                   representation in which the pragmas will be generated.
+   * @param privates   List of variables to be set privates.
+   * @param reductions Reduction variables names with their operator.
+   * @param startStmt  Start statement representing the beginning of the
+   *                   parallel region.
+   * @param endStmt    End statement representing the end of the parallel
+   *                   region.
+   * @param collapse   If value bigger than 0, a corresponding collapse
+   *                   constructs can be generated.
    */
   public static void generateParallelLoopClause(XcodeProgram xcodeml,
                                                 List<String> privates,
+                                                Map<String, ReductionOperator>
+                                                    reductions,
                                                 Xnode startStmt, Xnode endStmt,
                                                 int collapse)
   {
-    if(Context.get().getGenerator().getDirectiveLanguage()
-        == CompilerDirective.NONE)
-    {
+    DirectiveGenerator generator = Context.get().getGenerator();
+    if(generator.getDirectiveLanguage() == CompilerDirective.NONE) {
       return;
     }
 
+    instrumentRegion(xcodeml, startStmt, endStmt, TIMING_PARALLEL_LOOP);
+    String loopClauses = String.format("%s %s",
+        generator.getPrivateClause(privates),
+        generator.getLoopReductionClauses(reductions)).trim();
     addPragmasBefore(xcodeml,
-        Context.get().getGenerator().getStartParallelDirective(null), startStmt);
-    addPragmasBefore(xcodeml,
-        Context.get().getGenerator().getStartLoopDirective(collapse, false, false,
-            Context.get().getGenerator().getPrivateClause(privates)), startStmt);
+        generator.getStartParallelDirective(null, reductions), startStmt);
+    addPragmasBefore(xcodeml, generator.getStartLoopDirective(collapse, false,
+        false, loopClauses), startStmt);
     addPragmaAfter(xcodeml,
         Context.get().getGenerator().getEndParallelDirective(), endStmt);
     addPragmaAfter(xcodeml,
         Context.get().getGenerator().getEndLoopDirective(), endStmt);
   }
 
+  /**
+   * Wrap a generated region with calls to the timing runtime if the timing
+   * instrumentation is enabled. Calls are inserted before the directives so
+   * they stay outside of the region.
+   *
+   * @param xcodeml   Current XcodeML program unit.
+   * @param startStmt Start statement representing the beginning of the
+   *                  region.
+   * @param endStmt   End statement representing the end of the region.
+   * @param kind      Kind of the region written in the mapping file.
+   */
+  private static void instrumentRegion(XcodeProgram xcodeml, Xnode startStmt,
+                                       Xnode endStmt, String kind)
+  {
+    if(Configuration.get().isTimingInstrumentationEnabled()) {
+      Timing.instrument(xcodeml, startStmt, endStmt, startStmt.lineNo(), kind);
+    }
+  }
+
   /**
    * Generates directive directive for a loop region.
    *
@@ -218,9 +348,33 @@ public final class Directive {
                                             Xnode startStmt, Xnode endStmt,
                                             int collapse)
   {
-    insertPragmas(xcodeml, startStmt, endStmt, Context.get().getGenerator().
-            getStartLoopDirective(collapse, false, false, ""),
-        Context.get().getGenerator().getEndLoopDirective());
+    generateLoopDirectives(xcodeml, startStmt, endStmt, collapse,
+        Collections.<String, ReductionOperator>emptyMap());
+  }
+
+  /**
+   * Generates directive directive for a loop region computing reductions.
+   *
+   * @param xcodeml    Object representation of the current XcodeML
+   *                   representation in which the pragmas will be generated.
+   * @param startStmt  Start statement representing the beginning of the loop
+   *                   region.
+   * @param endStmt    End statement representing the end of the loop region.
+   * @param collapse   If value bigger than 0, a corresponding collapse
+   *                   constructs can be generated.
+   * @param reductions Reduction variables names with their operator.
+   */
+  public static void generateLoopDirectives(XcodeProgram xcodeml,
+                                            Xnode startStmt, Xnode endStmt,
+                                            int collapse,
+                                            Map<String, ReductionOperator>
+                                                reductions)
+  {
+    DirectiveGenerator generator = Context.get().getGenerator();
+    insertPragmas(xcodeml, startStmt, endStmt,
+        generator.getStartLoopDirective(collapse, false, false,
+            generator.getLoopReductionClauses(reductions)),
+        generator.getEndLoopDirective());
   }
 
   /**
@@ -253,6 +407,35 @@ public final class Directive {
     }
   }
 
+  /**
+   * Generate the directives starting and ending the lifetime of variables on
+   * the device around a region. Data of the input variables are copied to the
+   * device at the beginning and data of the output variables are copied back
+   * to the host at the end.
+   *
+   * @param xcodeml   Object representation of the current XcodeML
+   *                  representation in which the pragmas will be generated.
+   * @param ins       List of variables read by the region.
+   * @param outs      List of variables written by the region.
+   * @param startStmt Start statement representing the beginning of the
+   *                  region.
+   * @param endStmt   End statement representing the end of the region.
+   */
+  public static void generateEnterExitData(XcodeProgram xcodeml,
+                                           List<String> ins,
+                                           List<String> outs,
+                                           Xnode startStmt, Xnode endStmt)
+  {
+    List<String> creates = new ArrayList<>(outs);
+    creates.removeAll(ins);
+    List<String> deletes = new ArrayList<>(ins);
+    deletes.removeAll(outs);
+    DirectiveGenerator generator = Context.get().getGenerator();
+    insertPragmas(xcodeml, startStmt, endStmt,
+        generator.getEnterDataDirective(ins, creates),
+        generator.getExitDataDirective(outs, deletes));
+  }
+
   /**
    * Get all the function variables that are input/output parameters.
    *
@@ -262,6 +445,22 @@ public final class Directive {
    */
   public static List<String> getPresentVariables(XcodeProgram xcodeml,
                                                  FfunctionDefinition fctDef)
+  {
+    return getDataVariables(xcodeml, fctDef, Intent.ANY);
+  }
+
+  /**
+   * Get the array parameters of a function compatible with an intent.
+   *
+   * @param xcodeml Current XcodeML program unit.
+   * @param fctDef  Function definition to look in.
+   * @param intent  Intent to be compatible with. IN gives the arrays read
+   *                by the function and OUT the arrays written by it.
+   * @return List of variables names.
+   */
+  public static List<String> getDataVariables(XcodeProgram xcodeml,
+                                              FfunctionDefinition fctDef,
+                                              Intent intent)
   {
     List<String> variables = new ArrayList<>();
     List<Xnode> declarations = fctDef.getDeclarationTable().values();
@@ -272,9 +471,8 @@ public final class Directive {
           continue; // Only check basic type
         }
         FbasicType bt = xcodeml.getTypeTable().getBasicType(decl);
-        if(bt != null && (bt.getIntent() == Intent.IN
-            || bt.getIntent() == Intent.OUT
-            || bt.getIntent() == Intent.INOUT) && bt.isArray())
+        if(bt != null && bt.getIntent() != null && bt.getIntent().isIntent()
+            && intent.isCompatible(bt.getIntent()) && bt.isArray())
         {
           variables.add(name.value());
         }
@@ -341,6 +539,139 @@ public final class Directive {
     return variables;
   }
 
+  /**
+   * Generate the directives keeping the module arrays referenced in a function
+   * definition allocated on the device. The declare directive is inserted
+   * after the declaration of the array in its module. Only modules defined in
+   * the current translation unit can be modified. Arrays of modules found in
+   * the module cache are reported as they must be declared in their own
+   * translation unit.
+   *
+   * The declare directive only allocates the arrays on the device and the
+   * kernels use them as present. No data is copied: the application must
+   * update the device copy after initializing or modifying an array on the
+   * host (and the host copy after the kernels if it reads it).
+   *
+   * @param xcodeml Current XcodeML program unit.
+   * @param fctDef  Function definition to look in.
+   * @return List of the module arrays declared on the device.
+   */
+  public static List<String> generateModuleDataDeclarations(
+      XcodeProgram xcodeml, FfunctionDefinition fctDef)
+  {
+    List<String> variables = new ArrayList<>();
+    if(fctDef.body() == null) {
+      return variables;
+    }
+    List<Xnode> uses = new ArrayList<>(fctDef.getDeclarationTable().uses());
+    FmoduleDefinition parentModule = fctDef.findParentModule();
+    if(parentModule != null) {
+      uses.addAll(parentModule.getDeclarationTable().uses());
+    }
+
+    Set<String> names = new LinkedHashSet<>();
+    for(Xnode var : fctDef.body().matchAll(Xcode.VAR)) {
+      if(fctDef.equals(var.findParentFunction())) {
+        names.add(var.value().toLowerCase());
+      }
+    }
+    for(String name : names) {
+      if(Function.findDecl(fctDef, name) != null) {
+        continue; // Local variable or argument
+      }
+      Xnode decl = null;
+      if(parentModule != null) {
+        decl = getModuleArrayDecl(xcodeml, parentModule, name);
+      }
+      for(int i = 0; decl == null && i < uses.size(); ++i) {
+        String moduleName = uses.get(i).getAttribute(Xattr.NAME);
+        if(xcodeml.getGlobalDeclarationsTable().
+            hasModuleDefinition(moduleName))
+        {
+          decl = getModuleArrayDecl(xcodeml, xcodeml.
+              getGlobalDeclarationsTable().getModuleDefinition(moduleName),
+              name);
+        } else if(isCachedModuleArray(moduleName, name)) {
+          xcodeml.addWarning("Module array " + name + " must be declared " +
+              "on the device in module " + moduleName, fctDef.lineNo());
+          break;
+        }
+      }
+      if(decl == null) {
+        continue;
+      }
+      variables.add(name);
+      String[] directives = Context.get().getGenerator().
+          getDeclareCreateDirective(Collections.singletonList(name));
+      // Functions of the module might be transformed concurrently
+      synchronized(decl.lock()) {
+        if(directives != null && !isFollowedBy(decl, directives)) {
+          generateDeclareCreate(xcodeml, decl,
+              Collections.singletonList(name));
+        }
+      }
+    }
+    return variables;
+  }
+
+  /**
+   * Get the declaration of an array in a module definition.
+   *
+   * @param xcodeml Current XcodeML program unit.
+   * @param modDef  Module definition to look in.
+   * @param name    Name of the variable.
+   * @return The variable declaration if it is an array. Null otherwise.
+   */
+  private static Xnode getModuleArrayDecl(XcodeProgram xcodeml,
+                                          FmoduleDefinition modDef,
+                                          String name)
+  {
+    Xnode decl = modDef.getDeclarationTable().get(name);
+    if(decl == null || decl.opcode() != Xcode.VAR_DECL
+        || !xcodeml.getTypeTable().isBasicType(decl))
+    {
+      return null;
+    }
+    FbasicType bt = xcodeml.getTypeTable().getBasicType(decl);
+    return bt != null && bt.isArray() && !bt.isParameter() ? decl : null;
+  }
+
+  /**
+   * Check whether a module found in the module cache declares an array.
+   *
+   * @param moduleName Name of the module.
+   * @param name       Name of the variable.
+   * @return True if the module declares the variable as an array.
+   */
+  private static boolean isCachedModuleArray(String moduleName, String name) {
+    FortranModule module = Xmod.find(moduleName);
+    if(module == null || !module.getIdentifiers().contains(name)) {
+      return false;
+    }
+    FbasicType bt = module.getTypeTable().
+        getBasicType(module.getIdentifiers().get(name).getType());
+    return bt != null && bt.isArray() && !bt.isParameter();
+  }
+
+  /**
+   * Check whether the directives are already inserted after a node.
+   *
+   * @param node       Node to be checked.
+   * @param directives Directives to be found.
+   * @return True if one of the following pragma statements is the first
+   * directive.
+   */
+  private static boolean isFollowedBy(Xnode node, String[] directives) {
+    Xnode sibling = node.nextSibling();
+    while(sibling != null && sibling.opcode() == Xcode.F_PRAGMA_STATEMENT) {
+      if(sibling.value().equalsIgnoreCase(directives[0])) {
+        return true;
+      }
+      sibling = sibling.nextSibling();
+    }
+    return false;
+  }
+
   /**
    * Generate corresponding pragmas applied directly after a CLAW pragma.
    *
@@ -364,7 +695,9 @@ public final class Directive {
 
   /**
    * Generate all corresponding pragmas to be applied to an accelerated
-   * function/subroutine.
+   * function/subroutine. A sequential routine directive is added to every
+   * function defined in the translation unit and reachable from the given
+   * one.
    *
    * @param xcodeml Object representation of the current XcodeML
    *                representation in which the pragmas will be generated.
@@ -380,54 +713,61 @@ public final class Directive {
       return;
     }
 
-    // Find all fct call in the current transformed fct
-    List<Xnode> fctCalls = fctDef.matchAll(Xcode.FUNCTION_CALL);
-    for(Xnode fctCall : fctCalls) {
-      // Do nothing for intrinsic fct
-      if(fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
-        continue;
-      }
-      Xnode nameNode = fctCall.matchSeq(Xcode.NAME);
-      String fctName;
-      if(nameNode != null) {
-        fctName = nameNode.value();
-      } else {
-        continue;
-      }
-      FfunctionDefinition calledFctDef =
-          xcodeml.getGlobalDeclarationsTable().getFunctionDefinition(fctName);
-      if(calledFctDef == null) {
-        Xnode meaningfulParentNode = fctDef.findParentModule();
-        if(meaningfulParentNode == null) { // fct is not a module child
-          meaningfulParentNode =
-              fctDef.matchAncestor(Xcode.GLOBAL_DECLARATIONS);
-        }
-        List<Xnode> fctDefs =
-            meaningfulParentNode.matchAll(Xcode.F_FUNCTION_DEFINITION);
-        for(Xnode fDef : fctDefs) {
-          Xnode name = fDef.matchSeq(Xcode.NAME);
-          if(name != null && name.value().equals(fctName)) {
-            calledFctDef = new FfunctionDefinition(fDef);
-            break;
+    String[] routine = Context.get().getGenerator().getRoutineDirective(true);
+    XcallGraph callGraph = xcodeml.getCallGraph();
+
+    // Walk the whole call tree so nested calls get their directive as well
+    Set<FfunctionDefinition> visited = new HashSet<>();
+    visited.add(fctDef);
+    Deque<FfunctionDefinition> toVisit = new ArrayDeque<>();
+    toVisit.add(fctDef);
+    while(!toVisit.isEmpty()) {
+      FfunctionDefinition caller = toVisit.poll();
+      for(Xnode fctCall : callGraph.getCalls(caller)) {
+        String fctName = XcallGraph.getCalledName(fctCall);
+        FfunctionDefinition calledFctDef =
+            callGraph.getDefinition(caller, fctName);
+
+        if(calledFctDef == null) {
+          // Could not generate directive for called function.
+          xcodeml.addWarning(fctName + " has not been found. " +
+                  "Automatic routine directive generation could not be done.",
+              fctCall.lineNo());
+        } else if(visited.add(calledFctDef)) {
+          toVisit.add(calledFctDef);
+          if(!hasPragmas(calledFctDef, routine)) {
+            addPragmasBefore(xcodeml, routine, calledFctDef.body().child(0));
+            Message.debug(OpenAcc.OPENACC_DEBUG_PREFIX
+                + "generated routine seq directive for " + fctName
+                + " subroutine/function.");
           }
         }
       }
+    }
+  }
 
-      if(calledFctDef != null) {
-        // TODO: check that the directive is not present yet.
-        addPragmasBefore(xcodeml,
-            Context.get().getGenerator().getRoutineDirective(true),
-            calledFctDef.body().child(0));
-        Message.debug(OpenAcc.OPENACC_DEBUG_PREFIX
-            + "generated routine seq directive for " + fctName
-            + " subroutine/function.");
-      } else {
-        // Could not generate directive for called function.
-        xcodeml.addWarning(fctName + " has not been found. " +
-                "Automatic routine directive generation could not be done.",
-            fctCall.lineNo());
-      }
+  /**
+   * Check whether the body of a function definition already starts with the
+   * given directives.
+   *
+   * @param fctDef     Function definition to check.
+   * @param directives Directives to look for.
+   * @return True if all the directives are present before the first
+   * statement of the body.
+   */
+  private static boolean hasPragmas(FfunctionDefinition fctDef,
+                                    String[] directives)
+  {
+    List<String> remaining = new ArrayList<>();
+    for(String directive : directives) {
+      remaining.add(directive.toLowerCase());
+    }
+    Xnode crt = fctDef.body().firstChild();
+    while(crt != null && crt.opcode() == Xcode.F_PRAGMA_STATEMENT) {
+      remaining.remove(crt.value());
+      crt = crt.nextSibling();
     }
+    return remaining.isEmpty();
   }
 
   /**
@@ -4,12 +4,17 @@
  */
 package claw.tatsu.directive.generator;
 
+import claw.tatsu.analysis.reduction.ReductionOperator;
 import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Utility;
 import claw.tatsu.directive.common.DataMovement;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface for directive directive generator.
@@ -135,6 +140,90 @@ public abstract class DirectiveGenerator {
     return "";
   }
 
+  /**
+   * Return construction of the clause for a list of reduction variables.
+   *
+   * @param operator Reduction operator.
+   * @param vars     List of variables name that will be inserted in the
+   *                 generated clause.
+   * @return An directive language specific reduction clause with the list of
+   * variables. If the list is null or empty, the implementation returns an
+   * empty string.
+   */
+  public String getReductionClause(ReductionOperator operator,
+                                   List<String> vars)
+  {
+    return "";
+  }
+
+  /**
+   * Return construction of the reduction clauses for a set of reduction
+   * variables. One clause is generated per operator.
+   *
+   * @param reductions Reduction variables names with their operator.
+   * @return Reduction clauses separated by a space. Empty string if there is
+   * no reduction.
+   */
+  public String getReductionClauses(Map<String, ReductionOperator> reductions)
+  {
+    if(reductions == null || reductions.isEmpty()) {
+      return "";
+    }
+    Map<ReductionOperator, List<String>> byOperator =
+        new EnumMap<>(ReductionOperator.class);
+    for(Map.Entry<String, ReductionOperator> entry : reductions.entrySet()) {
+      if(!byOperator.containsKey(entry.getValue())) {
+        byOperator.put(entry.getValue(), new ArrayList<String>());
+      }
+      byOperator.get(entry.getValue()).add(entry.getKey());
+    }
+    List<String> clauses = new ArrayList<>();
+    for(Map.Entry<ReductionOperator, List<String>> entry :
+        byOperator.entrySet())
+    {
+      String clause = getReductionClause(entry.getKey(), entry.getValue());
+      if(!clause.isEmpty()) {
+        clauses.add(clause);
+      }
+    }
+    return Utility.join(" ", clauses);
+  }
+
+  /**
+   * Get the start pragma to define a parallel accelerated region in which
+   * some variables are reduced. By default, the reduction clauses are
+   * appended to the other clauses of the parallel directive.
+   *
+   * @param clauses    Additional clauses append at the start directive.
+   * @param reductions Reduction variables names with their operator.
+   * @return String value that represents the pragma.
+   */
+  public String[] getStartParallelDirective(String clauses,
+                                            Map<String, ReductionOperator>
+                                                reductions)
+  {
+    String reductionClauses = getReductionClauses(reductions);
+    if(clauses == null || clauses.trim().isEmpty()) {
+      return getStartParallelDirective(reductionClauses);
+    }
+    return getStartParallelDirective(
+        String.format(FORMAT2, clauses.trim(), reductionClauses).trim());
+  }
+
+  /**
+   * Get the reduction clauses to be added to a parallelized loop directive.
+   * By default, the reductions are performed by the loop construct.
+   *
+   * @param reductions Reduction variables names with their operator.
+   * @return Reduction clauses. Empty string if the loop construct does not
+   * hold the reductions.
+   */
+  public String getLoopReductionClauses(Map<String, ReductionOperator>
+                                            reductions)
+  {
+    return getReductionClauses(reductions);
+  }
+
   /**
    * Return the formatted directive to be inserted in a subroutine/function
    * definition.
@@ -222,4 +311,44 @@ public abstract class DirectiveGenerator {
   public String[] getUpdateClause(DataMovement direction, List<String> vars) {
     return null;
   }
+
+  /**
+   * Get directive starting the lifetime of variables on the device.
+   *
+   * @param copies  Variables copied to the device.
+   * @param creates Variables only allocated on the device.
+   * @return String value that represents the directive. Null if no directive
+   * generated.
+   */
+  public String[] getEnterDataDirective(List<String> copies,
+                                        List<String> creates)
+  {
+    return null;
+  }
+
+  /**
+   * Get directive ending the lifetime of variables on the device.
+   *
+   * @param copies  Variables copied back to the host.
+   * @param deletes Variables only deallocated on the device.
+   * @return String value that represents the directive. Null if no directive
+   * generated.
+   */
+  public String[] getExitDataDirective(List<String> copies,
+                                       List<String> deletes)
+  {
+    return null;
+  }
+
+  /**
+   * Get directive allocating module variables on the device for the whole
+   * execution of the program.
+   *
+   * @param vars Module variables.
+   * @return String value that represents the directive. Null if no directive
+   * generated.
+   */
+  public String[] getDeclareCreateDirective(List<String> vars) {
+    return null;
+  }
 }
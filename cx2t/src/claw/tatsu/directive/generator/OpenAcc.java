@@ -4,6 +4,7 @@
  */
 package claw.tatsu.directive.generator;
 
+import claw.tatsu.analysis.reduction.ReductionOperator;
 import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.common.Message;
 import claw.tatsu.common.Utility;
@@ -11,6 +12,7 @@ import claw.tatsu.directive.common.DataMovement;
 import claw.tatsu.directive.generator.openacc.OpenAccExecutionMode;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -24,6 +26,7 @@ public class OpenAcc extends DirectiveGenerator {
   public static final String OPENACC_DEBUG_PREFIX = "CLAW-OpenACC:";
   private static final String OPENACC_COLLAPSE = "collapse";
   private static final String OPENACC_DATA = "data";
+  private static final String OPENACC_DECLARE = "declare";
   private static final String OPENACC_END = "end";
   private static final String OPENACC_LOOP = "loop";
   private static final String OPENACC_PARALLEL = "parallel";
@@ -31,6 +34,13 @@ public class OpenAcc extends DirectiveGenerator {
   private static final String OPENACC_PRIVATE = "private";
   private static final String OPENACC_PRESENT = "present";
   private static final String OPENACC_PCREATE = "pcreate";
+  private static final String OPENACC_CREATE = "create";
+  private static final String OPENACC_COPYIN = "copyin";
+  private static final String OPENACC_COPYOUT = "copyout";
+  private static final String OPENACC_DELETE = "delete";
+  private static final String OPENACC_ENTER = "enter";
+  private static final String OPENACC_EXIT = "exit";
+  private static final String OPENACC_REDUCTION = "reduction";
   private static final String OPENACC_ROUTINE = "routine";
   private static final String OPENACC_SEQUENTIAL = "seq";
   private static final String OPENACC_UPDATE = "update";
@@ -128,6 +138,22 @@ public class OpenAcc extends DirectiveGenerator {
     return String.format(FORMATPAR, OPENACC_PCREATE, Utility.join(",", vars));
   }
 
+  @Override
+  public String getReductionClause(ReductionOperator operator,
+                                   List<String> vars)
+  {
+    //reduction(<operator>:<vars>)
+    if(operator == null || vars == null || vars.size() == 0) {
+      return "";
+    }
+    Message.debug(String.format(
+        "%s generate reduction(%s) clause for (%d variables): %s",
+        OPENACC_DEBUG_PREFIX, operator.getSymbol(), vars.size(),
+        Utility.join(",", vars)));
+    return String.format(FORMATPAR, OPENACC_REDUCTION,
+        operator.getSymbol() + ":" + Utility.join(",", vars));
+  }
+
   @Override
   public String[] getRoutineDirective(boolean seq) {
     //!$acc routine
@@ -256,4 +282,70 @@ public class OpenAcc extends DirectiveGenerator {
         String.format(FORMAT3, OPENACC_PREFIX, OPENACC_UPDATE, updates)
     };
   }
+
+  @Override
+  public String[] getDeclareCreateDirective(List<String> vars) {
+    //!$acc declare create(<vars>)
+    if(vars == null || vars.isEmpty()) {
+      return null;
+    }
+    return new String[]{
+        String.format(FORMAT3, OPENACC_PREFIX, OPENACC_DECLARE,
+            String.format(FORMATPAR, OPENACC_CREATE, Utility.join(",", vars)))
+    };
+  }
+
+  @Override
+  public String[] getEnterDataDirective(List<String> copies,
+                                        List<String> creates)
+  {
+    //!$acc enter data [copyin(<vars>)] [create(<vars>)]
+    return getUnstructuredDataDirective(OPENACC_ENTER, OPENACC_COPYIN, copies,
+        OPENACC_CREATE, creates);
+  }
+
+  @Override
+  public String[] getExitDataDirective(List<String> copies,
+                                       List<String> deletes)
+  {
+    //!$acc exit data [copyout(<vars>)] [delete(<vars>)]
+    return getUnstructuredDataDirective(OPENACC_EXIT, OPENACC_COPYOUT, copies,
+        OPENACC_DELETE, deletes);
+  }
+
+  /**
+   * Get an enter or exit data directive.
+   *
+   * @param kind        Kind of the directive (enter or exit).
+   * @param copyClause  Name of the clause moving the data.
+   * @param copies      Variables for which the data are moved.
+   * @param allocClause Name of the clause only handling the allocation.
+   * @param allocs      Variables for which only the allocation is handled.
+   * @return String value that represents the directive. Null if no directive
+   * generated.
+   */
+  private String[] getUnstructuredDataDirective(String kind, String copyClause,
+                                                List<String> copies,
+                                                String allocClause,
+                                                List<String> allocs)
+  {
+    List<String> clauses = new ArrayList<>();
+    if(copies != null && !copies.isEmpty()) {
+      clauses.add(String.format(FORMATPAR, copyClause,
+          Utility.join(",", copies)));
+    }
+    if(allocs != null && !allocs.isEmpty()) {
+      clauses.add(String.format(FORMATPAR, allocClause,
+          Utility.join(",", allocs)));
+    }
+    if(clauses.isEmpty()) {
+      return null;
+    }
+    Message.debug(String.format("%s generate %s data directive: %s",
+        OPENACC_DEBUG_PREFIX, kind, Utility.join(" ", clauses)));
+    return new String[]{
+        String.format(FORMAT4, OPENACC_PREFIX, kind, OPENACC_DATA,
+            Utility.join(" ", clauses))
+    };
+  }
 }
@@ -4,14 +4,17 @@
  */
 package claw.tatsu.directive.generator;
 
+import claw.tatsu.analysis.reduction.ReductionOperator;
 import claw.tatsu.common.*;
 import claw.tatsu.directive.common.DataMovement;
 import claw.tatsu.directive.generator.openmp.OpenMpExecutionMode;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.wani.x2t.configuration.Configuration;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * OpenMP base directive directive generator. Implements everything that is
@@ -38,10 +41,16 @@ public class OpenMp extends DirectiveGenerator {
   private static final String OPENMP_MAP = "map";
   private static final String OPENMP_FROM = "from";
   private static final String OPENMP_TO = "to";
+  private static final String OPENMP_TOFROM = "tofrom";
+  private static final String OPENMP_REDUCTION = "reduction";
   private static final String OPENMP_UPDATE = "update";
   private static final String OPENMP_PRIVATE = "private";
   private static final String OPENMP_FIRSTPRIVATE = "firstprivate";
   private static final String OPENMP_ALLOC = "alloc";
+  private static final String OPENMP_RELEASE = "release";
+  private static final String OPENMP_PRESENT = "present";
+  private static final String OPENMP_ENTER = "enter";
+  private static final String OPENMP_EXIT = "exit";
   private static final String OPENMP_DO = "do";
   private static final String OPENMP_END = "end";
 
@@ -67,7 +76,6 @@ public class OpenMp extends DirectiveGenerator {
 
   @Override
   public String[] getStartParallelDirective(String clauses) {
-    // TODO handle possible clauses
     if(Context.get().getTarget() == Target.GPU) {
       //!$omp target
       //!$omp teams [num_teams(#)] [thread_limit(#)]
@@ -79,11 +87,12 @@ public class OpenMp extends DirectiveGenerator {
       int num_threads = Configuration.get().openMP().getNumThreads();
       int num_teams = Configuration.get().openMP().getNumTeams();
       if(num_threads > 0) {
-        clauses += String.format("%s(%d)", OPENMP_THREADS_LIMIT, num_threads);
+        clauses += String.format(" %s(%d)", OPENMP_THREADS_LIMIT, num_threads);
       }
       if(num_teams > 0) {
         clauses += String.format(" %s(%d)", OPENMP_NUM_TEAMS, num_teams);
       }
+      clauses = clauses.trim();
 
       if(clauses == null || clauses.isEmpty()) {
         return new String[]{
@@ -97,13 +106,51 @@ public class OpenMp extends DirectiveGenerator {
         };
       }
     } else {
-      //!$omp parallel
+      //!$omp parallel [clauses]
+      if(clauses == null || clauses.trim().isEmpty()) {
+        return new String[]{
+            String.format(FORMAT2, OPENMP_PREFIX, OPENMP_PARALLEL)
+        };
+      }
       return new String[]{
-          String.format(FORMAT2, OPENMP_PREFIX, OPENMP_PARALLEL)
+          String.format(FORMAT3, OPENMP_PREFIX, OPENMP_PARALLEL,
+              clauses.trim())
       };
     }
   }
 
+  @Override
+  public String[] getStartParallelDirective(String clauses,
+                                            Map<String, ReductionOperator>
+                                                reductions)
+  {
+    if(Context.get().getTarget() != Target.GPU) {
+      // Reductions are done by the worksharing loops
+      return getStartParallelDirective(clauses);
+    }
+    //!$omp target [map(tofrom:<vars>)]
+    //!$omp teams [reduction(<operator>:<vars>)]
+    String[] directives = super.getStartParallelDirective(clauses, reductions);
+    if(reductions != null && !reductions.isEmpty()) {
+      // Scalars are firstprivate in the target region unless mapped
+      directives[0] = String.format(FORMAT2, directives[0],
+          String.format(FORMATPAR, OPENMP_MAP, OPENMP_TOFROM + ":" +
+              Utility.join(",", new ArrayList<>(reductions.keySet()))));
+    }
+    return directives;
+  }
+
+  @Override
+  public String getLoopReductionClauses(Map<String, ReductionOperator>
+                                            reductions)
+  {
+    // distribute construct does not accept the reduction clause
+    if(Context.get().getTarget() == Target.GPU) {
+      return "";
+    }
+    return getReductionClauses(reductions);
+  }
+
   @Override
   public String[] getEndParallelDirective() {
     if(Context.get().getTarget() == Target.GPU) {
@@ -154,6 +201,18 @@ public class OpenMp extends DirectiveGenerator {
     return String.format(FORMATPAR, OPENMP_PRIVATE, Utility.join(",", vars));
   }
 
+  @Override
+  public String getPresentClause(List<String> vars) {
+    if(vars == null || vars.size() == 0) {
+      return "";
+    }
+    Message.debug(String.format(
+        "%s generate map(present, alloc:x) clause for (%d variables): %s",
+        OPENMP_DEBUG_PREFIX, vars.size(), Utility.join(",", vars)));
+    return String.format(FORMATPAR, OPENMP_MAP, String.format("%s, %s:%s",
+        OPENMP_PRESENT, OPENMP_ALLOC, Utility.join(",", vars)));
+  }
+
   @Override
   public String getCreateClause(List<String> vars) {
     if(vars == null || vars.size() == 0) {
@@ -166,6 +225,22 @@ public class OpenMp extends DirectiveGenerator {
         String.format("%s:%s", OPENMP_ALLOC, Utility.join(",", vars)));
   }
 
+  @Override
+  public String getReductionClause(ReductionOperator operator,
+                                   List<String> vars)
+  {
+    //reduction(<operator>:<vars>)
+    if(operator == null || vars == null || vars.size() == 0) {
+      return "";
+    }
+    Message.debug(String.format(
+        "%s generate reduction(%s) clause for (%d variables): %s",
+        OPENMP_DEBUG_PREFIX, operator.getSymbol(), vars.size(),
+        Utility.join(",", vars)));
+    return String.format(FORMATPAR, OPENMP_REDUCTION,
+        operator.getSymbol() + ":" + Utility.join(",", vars));
+  }
+
   @Override
   // Peclat
   // TODO: For the second prototype, not used yet
@@ -338,4 +413,70 @@ public class OpenMp extends DirectiveGenerator {
         String.format(FORMAT4, OPENMP_PREFIX, OPENMP_TARGET, OPENMP_UPDATE, updates)
     };
   }
+
+  @Override
+  public String[] getDeclareCreateDirective(List<String> vars) {
+    //!$omp declare target(<vars>)
+    if(vars == null || vars.isEmpty()) {
+      return null;
+    }
+    return new String[]{
+        String.format(FORMAT3, OPENMP_PREFIX, OPENMP_DECLARE,
+            String.format(FORMATPAR, OPENMP_TARGET, Utility.join(",", vars)))
+    };
+  }
+
+  @Override
+  public String[] getEnterDataDirective(List<String> copies,
+                                        List<String> creates)
+  {
+    //!$omp target enter data [map(to:<vars>)] [map(alloc:<vars>)]
+    return getUnstructuredDataDirective(OPENMP_ENTER, OPENMP_TO, copies,
+        OPENMP_ALLOC, creates);
+  }
+
+  @Override
+  public String[] getExitDataDirective(List<String> copies,
+                                       List<String> deletes)
+  {
+    //!$omp target exit data [map(from:<vars>)] [map(release:<vars>)]
+    return getUnstructuredDataDirective(OPENMP_EXIT, OPENMP_FROM, copies,
+        OPENMP_RELEASE, deletes);
+  }
+
+  /**
+   * Get a target enter or exit data directive.
+   *
+   * @param kind      Kind of the directive (enter or exit).
+   * @param copyType  Map type moving the data.
+   * @param copies    Variables for which the data are moved.
+   * @param allocType Map type only handling the allocation.
+   * @param allocs    Variables for which only the allocation is handled.
+   * @return String value that represents the directive. Null if no directive
+   * generated.
+   */
+  private String[] getUnstructuredDataDirective(String kind, String copyType,
+                                                List<String> copies,
+                                                String allocType,
+                                                List<String> allocs)
+  {
+    List<String> clauses = new ArrayList<>();
+    if(copies != null && !copies.isEmpty()) {
+      clauses.add(String.format(FORMATPAR, OPENMP_MAP,
+          copyType + ":" + Utility.join(",", copies)));
+    }
+    if(allocs != null && !allocs.isEmpty()) {
+      clauses.add(String.format(FORMATPAR, OPENMP_MAP,
+          allocType + ":" + Utility.join(",", allocs)));
+    }
+    if(clauses.isEmpty()) {
+      return null;
+    }
+    Message.debug(String.format("%s generate target %s data directive: %s",
+        OPENMP_DEBUG_PREFIX, kind, Utility.join(" ", clauses)));
+    return new String[]{
+        String.format(FORMAT5, OPENMP_PREFIX, OPENMP_TARGET, kind, OPENMP_DATA,
+            Utility.join(" ", clauses))
+    };
+  }
 }
@@ -6,19 +6,36 @@ package claw.tatsu.primitive;
 
 import claw.tatsu.TatsuConstant;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.common.Xscope;
+import claw.tatsu.xcodeml.xnode.common.XstorageClass;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import org.w3c.dom.Node;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Primitive transformation and test applied on body node. This included:
  * - Append a body sub-tree to another one.
  * - Shift statements into a body.
+ * - Replace repeated array references by scalars.
  *
  * @author clementval
  */
 public final class Body {
 
+  private static final String SCALAR_PREFIX = "claw_scalar_";
+
   // Avoid instantiation of this class
   private Body() {
   }
@@ -79,16 +96,18 @@ public final class Body {
       currentSibling = from.element().getNextSibling();
     }
 
-    Node firstStatementInBody = targetBody.element().getFirstChild();
-    while(currentSibling != null && currentSibling != until.element()) {
-      Node nextSibling = currentSibling.getNextSibling();
-      targetBody.element().insertBefore(currentSibling,
-          firstStatementInBody);
-      currentSibling = nextSibling;
-    }
-    if(included && currentSibling == until.element()) {
-      targetBody.element().insertBefore(currentSibling,
-          firstStatementInBody);
+    synchronized(targetBody.lock()) {
+      Node firstStatementInBody = targetBody.element().getFirstChild();
+      while(currentSibling != null && currentSibling != until.element()) {
+        Node nextSibling = currentSibling.getNextSibling();
+        targetBody.element().insertBefore(currentSibling,
+            firstStatementInBody);
+        currentSibling = nextSibling;
+      }
+      if(included && currentSibling == until.element()) {
+        targetBody.element().insertBefore(currentSibling,
+            firstStatementInBody);
+      }
     }
   }
 
@@ -110,4 +129,241 @@ public final class Body {
 
     return body.firstChild() == null;
   }
+
+  /**
+   * Replace the array references accessing the same element several times in
+   * the sequences of assign statements of a body by a scalar variable. The
+   * element is loaded once before its first use if it is read before being
+   * written and stored once after its last write.
+   *
+   * An array is replaced in a sequence only if all its references have
+   * identical subscripts not written in the sequence, if it cannot be
+   * accessed through an alias and if the sequence does not call non intrinsic
+   * functions.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition in which the scalars are declared.
+   * @param body    Body element holding the statements.
+   * @return Names of the scalar variables created.
+   * @throws IllegalTransformationException If given element is null or not
+   *                                        a body element.
+   */
+  public static List<String> scalarReplacement(XcodeProgram xcodeml,
+                                               FfunctionDefinition fctDef,
+                                               Xnode body)
+      throws IllegalTransformationException
+  {
+    if(body == null || body.opcode() != Xcode.BODY) {
+      throw new
+          IllegalTransformationException(TatsuConstant.ERROR_INCOMPATIBLE);
+    }
+
+    List<String> scalars = new ArrayList<>();
+    List<Xnode> block = new ArrayList<>();
+    for(Xnode stmt : body.children()) {
+      if(stmt.opcode() == Xcode.F_ASSIGN_STATEMENT) {
+        block.add(stmt);
+      } else {
+        replaceInBlock(xcodeml, fctDef, block, scalars);
+        block.clear();
+      }
+    }
+    replaceInBlock(xcodeml, fctDef, block, scalars);
+    return scalars;
+  }
+
+  /**
+   * Apply the scalar replacement to a sequence of assign statements.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition in which the scalars are declared.
+   * @param block   Consecutive assign statements.
+   * @param scalars List in which the created scalar names are added.
+   */
+  private static void replaceInBlock(XcodeProgram xcodeml,
+                                     FfunctionDefinition fctDef,
+                                     List<Xnode> block, List<String> scalars)
+  {
+    if(block.size() < 2) {
+      return;
+    }
+    Set<String> written = new HashSet<>();
+    Set<String> excluded = new HashSet<>();
+    Map<String, List<Xnode>> refs = new LinkedHashMap<>();
+    for(Xnode stmt : block) {
+      for(Xnode fctCall : stmt.matchAll(Xcode.FUNCTION_CALL)) {
+        if(!fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+          return; // Might access the arrays
+        }
+      }
+      Xnode lhs = stmt.child(Xnode.LHS);
+      Xnode lhsVar = lhs.opcode() == Xcode.VAR
+          ? lhs : lhs.matchDescendant(Xcode.VAR);
+      if(lhsVar != null) {
+        written.add(lhsVar.value().toLowerCase());
+      }
+      for(Xnode var : stmt.matchAll(Xcode.VAR)) {
+        String name = var.value().toLowerCase();
+        Xnode varRef = var.ancestor();
+        if(varRef.opcode() != Xcode.VAR_REF
+            || varRef.ancestor().opcode() != Xcode.F_ARRAY_REF)
+        {
+          excluded.add(name); // Whole array or member access
+          continue;
+        }
+        if(!refs.containsKey(name)) {
+          refs.put(name, new ArrayList<Xnode>());
+        }
+        refs.get(name).add(varRef.ancestor());
+      }
+    }
+
+    for(Map.Entry<String, List<Xnode>> entry : refs.entrySet()) {
+      if(!excluded.contains(entry.getKey())
+          && canBeReplaced(xcodeml, entry.getValue(), written))
+      {
+        scalars.add(replace(xcodeml, fctDef, block, entry.getValue()));
+      }
+    }
+  }
+
+  /**
+   * Check whether the references to an array in a sequence of statements can
+   * and should be replaced by a scalar.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param refs    References to the array in the sequence.
+   * @param written Variables written in the sequence.
+   * @return True if the references access the same element more than once.
+   */
+  private static boolean canBeReplaced(XcodeProgram xcodeml, List<Xnode> refs,
+                                       Set<String> written)
+  {
+    if(refs.size() < 2) {
+      return false;
+    }
+    Xnode first = refs.get(0);
+    FbasicType arrayType =
+        xcodeml.getTypeTable().getBasicType(first.firstChild());
+    if(arrayType == null || arrayType.isPointer() || arrayType.isTarget()
+        || !Loop.isScalarType(xcodeml, first.getAttribute(Xattr.TYPE)))
+    {
+      return false;
+    }
+    for(int i = 1; i < first.children().size(); ++i) {
+      if(first.child(i).opcode() != Xcode.ARRAY_INDEX) {
+        return false; // Array section
+      }
+    }
+    Xnode arrayVar = first.firstChild().firstChild();
+    for(Xnode var : first.matchAll(Xcode.VAR)) {
+      if(!var.equals(arrayVar)
+          && written.contains(var.value().toLowerCase()))
+      {
+        return false; // Subscript changes in the sequence
+      }
+    }
+    for(Xnode ref : refs) {
+      if(!Loop.isSameExpression(first, ref)) {
+        return false;
+      }
+    }
+
+    // Read several times or read after being written. The right hand side is
+    // evaluated before the left hand side is written.
+    int reads = 0;
+    boolean isWritten = false;
+    Xnode writeStmt = null;
+    for(Xnode ref : refs) {
+      Xnode stmt = ref.matchAncestor(Xcode.F_ASSIGN_STATEMENT);
+      if(writeStmt != null && !writeStmt.equals(stmt)) {
+        isWritten = true;
+      }
+      if(isWrite(ref)) {
+        writeStmt = stmt;
+      } else if(++reads > 1 || isWritten) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Replace the references to an array element by a new scalar variable.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition in which the scalar is declared.
+   * @param block   Consecutive assign statements.
+   * @param refs    References to the element in statement order.
+   * @return Name of the scalar variable.
+   */
+  private static String replace(XcodeProgram xcodeml,
+                                FfunctionDefinition fctDef, List<Xnode> block,
+                                List<Xnode> refs)
+  {
+    String type = refs.get(0).getAttribute(Xattr.TYPE);
+    int counter = 0;
+    String name;
+    do {
+      name = SCALAR_PREFIX + counter++;
+    } while(fctDef.getSymbolTable().contains(name)
+        || fctDef.getDeclarationTable().contains(name));
+    xcodeml.createIdAndDecl(name, type, XstorageClass.F_LOCAL, fctDef,
+        DeclarationPosition.LAST);
+
+    Xnode element = refs.get(0).cloneNode();
+    Xnode firstStmt = null;
+    Xnode lastWrite = null;
+    boolean load = false;
+    for(Xnode stmt : block) {
+      boolean writes = false;
+      for(Xnode ref : refs) {
+        if(ref.isNestedIn(stmt)) {
+          if(firstStmt == null) {
+            firstStmt = stmt;
+          }
+          if(isWrite(ref)) {
+            writes = true;
+          } else if(lastWrite == null) {
+            load = true; // Read before the first write
+          }
+        }
+      }
+      if(writes) {
+        lastWrite = stmt;
+      }
+    }
+
+    if(load) {
+      Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      assign.append(xcodeml.createVar(type, name, Xscope.LOCAL));
+      assign.append(element, true);
+      firstStmt.insertBefore(assign);
+      firstStmt.copyEnhancedInfo(assign);
+    }
+    if(lastWrite != null) {
+      Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      assign.append(element, true);
+      assign.append(xcodeml.createVar(type, name, Xscope.LOCAL));
+      lastWrite.insertAfter(assign);
+      lastWrite.copyEnhancedInfo(assign);
+    }
+    for(Xnode ref : refs) {
+      ref.insertAfter(xcodeml.createVar(type, name, Xscope.LOCAL));
+      ref.delete();
+    }
+    return name;
+  }
+
+  /**
+   * Check whether an array reference is the left hand side of its statement.
+   *
+   * @param ref Array reference.
+   * @return True if the reference is written.
+   */
+  private static boolean isWrite(Xnode ref) {
+    Xnode stmt = ref.ancestor();
+    return stmt.opcode() == Xcode.F_ASSIGN_STATEMENT
+        && ref.equals(stmt.child(Xnode.LHS));
+  }
 }
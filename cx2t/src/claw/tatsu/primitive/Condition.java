@@ -4,6 +4,7 @@
  */
 package claw.tatsu.primitive;
 
+import claw.tatsu.xcodeml.xnode.common.Xattr;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 
@@ -13,6 +14,7 @@ import java.util.Set;
 /**
  * Primitive analysis and transformation on condition node. This included:
  * - Check condition dependency on certain variables.
+ * - Check condition invariance regarding written variables.
  *
  * @author clementval
  */
@@ -46,4 +48,35 @@ public final class Condition {
     return false;
   }
 
+  /**
+   * Check whether a condition or a select case value is invariant regarding
+   * some written variables. The expression must not reference any of the
+   * variables and must not call a non intrinsic function.
+   *
+   * @param expr      Condition or value element to check.
+   * @param variables Set of lower cased variable names that might be written.
+   * @return True if the expression is invariant. False otherwise.
+   */
+  public static boolean isInvariant(Xnode expr, Set<String> variables) {
+    if(expr == null || (expr.opcode() != Xcode.CONDITION
+        && expr.opcode() != Xcode.VALUE))
+    {
+      return false;
+    }
+    for(Xnode fctCall : expr.matchAll(Xcode.FUNCTION_CALL)) {
+      if(!fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        return false;
+      }
+    }
+    if(dependsOn(expr, variables)) {
+      return false;
+    }
+    // Scalar variables are not nested in a varRef
+    for(Xnode var : expr.matchAll(Xcode.VAR)) {
+      if(variables.contains(var.value().toLowerCase())) {
+        return false;
+      }
+    }
+    return true;
+  }
 }
@@ -10,25 +10,51 @@ import claw.tatsu.xcodeml.abstraction.InsertionPosition;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.xnode.common.Xattr;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xid;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.common.XstorageClass;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Primitive transformation, test and utility for Function related action.
  * This includes:
  * - Find arguments in function call.
  * - Find id in function definition or in ancestor.
+ * - Inline a subroutine call.
  *
  * @author clementval
  */
 public final class Function {
 
+  // Statements that cannot be moved in another subroutine
+  private static final List<Xcode> NOT_INLINED_STATEMENTS = Arrays.asList(
+      Xcode.F_CONTAINS_STATEMENT, Xcode.F_RETURN_STATEMENT,
+      Xcode.F_ENTRY_DECL, Xcode.F_FORMAT_DECL, Xcode.F_DATA_DECL,
+      Xcode.STATEMENT_LABEL
+  );
+
+  // Statements whose construct name might be already used in the caller
+  private static final List<Xcode> CONSTRUCTS = Arrays.asList(
+      Xcode.F_DO_STATEMENT, Xcode.F_IF_STATEMENT,
+      Xcode.F_SELECT_CASE_STATEMENT
+  );
+
   // Avoid instantiation of this class
   private Function() {
   }
@@ -144,4 +170,522 @@ public final class Function {
     }
     return statements;
   }
+
+  /**
+   * Check whether a subroutine call can be replaced by the body of the called
+   * subroutine. The called subroutine must be defined in the same module as
+   * the calling one and be small enough. Constructs that cannot be moved in
+   * another scope (labels, return statements, saved local variables ...) or
+   * arguments whose association cannot be replaced by a substitution prevent
+   * the inlining.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param caller  Function definition holding the call.
+   * @param fctCall Function call node.
+   * @param callee  Function definition of the called subroutine.
+   * @param maxSize Maximum number of statements of the called subroutine.
+   * @return True if the call can be inlined. False otherwise.
+   */
+  public static boolean canBeInlined(XcodeProgram xcodeml,
+                                     FfunctionDefinition caller,
+                                     Xnode fctCall, FfunctionDefinition callee,
+                                     int maxSize)
+  {
+    if(caller == null || callee == null || fctCall == null
+        || callee.body() == null || caller.equals(callee)
+        || fctCall.opcode() != Xcode.FUNCTION_CALL
+        || fctCall.ancestor().opcode() != Xcode.EXPR_STATEMENT
+        || fctCall.firstChild().opcode() != Xcode.NAME
+        || callee.findParentFunction() != null)
+    {
+      return false;
+    }
+
+    FfunctionType fctType = xcodeml.getTypeTable().getFunctionType(callee);
+    if(fctType == null || fctType.isRecursive()
+        || !FortranType.VOID.isOfType(fctType.getReturnType())
+        || countStatements(callee.body()) > maxSize)
+    {
+      return false;
+    }
+
+    // Host association must stay the same
+    FmoduleDefinition callerModule = caller.findParentModule();
+    FmoduleDefinition calleeModule = callee.findParentModule();
+    if(callerModule == null || calleeModule == null) {
+      if(callerModule != calleeModule) {
+        return false;
+      }
+    } else if(!callerModule.getName().equals(calleeModule.getName())) {
+      return false;
+    }
+
+    Xnode body = callee.body();
+    for(Xcode opcode : NOT_INLINED_STATEMENTS) {
+      if(body.matchDescendant(opcode) != null) {
+        return false;
+      }
+    }
+    for(Xcode opcode : CONSTRUCTS) {
+      for(Xnode construct : body.matchAll(opcode)) {
+        if(construct.hasAttribute(Xattr.CONSTRUCT_NAME)) {
+          return false;
+        }
+      }
+    }
+    for(Xnode pragma : body.matchAll(Xcode.F_PRAGMA_STATEMENT)) {
+      if(!isRoutineDirective(pragma)) {
+        return false;
+      }
+    }
+
+    List<Xnode> params = fctType.getParameters();
+    Map<String, Xnode> actuals = mapArguments(fctCall, params);
+    if(actuals == null) {
+      return false;
+    }
+    List<String> locals = getLocalNames(callee, actuals.keySet());
+
+    // Only variables and use statements visible from the caller are accepted
+    for(Xnode decl : callee.getDeclarationTable().values()) {
+      if(decl.opcode() == Xcode.F_USE_DECL
+          || decl.opcode() == Xcode.F_USE_ONLY_DECL)
+      {
+        if(!isUseVisible(decl, caller)) {
+          return false;
+        }
+      } else if(decl.opcode() != Xcode.VAR_DECL) {
+        return false;
+      }
+    }
+
+    for(String local : locals) {
+      Xnode decl = callee.getDeclarationTable().get(local);
+      FbasicType bt = xcodeml.getTypeTable().
+          getBasicType(decl.matchSeq(Xcode.NAME));
+      boolean hasValue = decl.matchDirectDescendant(Xcode.VALUE) != null;
+      // Initialized local variables are implicitly saved
+      if(hasValue && (bt == null || !bt.isParameter())) {
+        return false;
+      }
+      if(bt == null) {
+        continue;
+      }
+      if(bt.isSave() || bt.isAllocatable()) {
+        return false;
+      }
+      for(Xnode var : bt.matchAll(Xcode.VAR)) {
+        String name = var.value().toLowerCase();
+        if(actuals.containsKey(name) || locals.contains(name)
+            || findDecl(caller, name) != null)
+        {
+          return false;
+        }
+      }
+    }
+
+    // Names not declared in the callee must not be hidden in the caller
+    for(Xnode var : body.matchAll(Xcode.VAR)) {
+      String name = var.value().toLowerCase();
+      if(!actuals.containsKey(name) && !locals.contains(name)
+          && findDecl(caller, name) != null)
+      {
+        return false;
+      }
+    }
+    for(Xnode call : body.matchAll(Xcode.FUNCTION_CALL)) {
+      Xnode name = call.matchDirectDescendant(Xcode.NAME);
+      if(name == null || call.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        continue;
+      }
+      if(name.value().equalsIgnoreCase(callee.getName())
+          || findDecl(caller, name.value()) != null)
+      {
+        return false;
+      }
+    }
+
+    Set<String> written = new HashSet<>();
+    boolean hasCall = Loop.gatherWrittenVariables(body, written);
+    // Variables of the caller possibly written by the inlined statements
+    Set<String> callerWritten = new HashSet<>();
+    for(String name : written) {
+      if(actuals.containsKey(name)) {
+        Xnode base = actuals.get(name).opcode() == Xcode.VAR
+            ? actuals.get(name) : actuals.get(name).matchDescendant(Xcode.VAR);
+        if(base != null) {
+          callerWritten.add(base.value().toLowerCase());
+        }
+      } else if(!locals.contains(name)) {
+        callerWritten.add(name);
+      }
+    }
+
+    for(Xnode param : params) {
+      String name = param.value().toLowerCase();
+      Xnode actual = actuals.get(name);
+      FbasicType bt = xcodeml.getTypeTable().getBasicType(param);
+      if(bt != null && (bt.isOptional() || bt.isAllocatable())) {
+        return false;
+      }
+      if(bt != null && bt.isArray()) {
+        if(!isInlinedArrayArgument(xcodeml, body, name, bt, actual)) {
+          return false;
+        }
+        continue;
+      }
+
+      boolean isVariable = isVariable(actual);
+      // Expressions are evaluated at each reference of the dummy argument
+      if(!isVariable) {
+        if(written.contains(name)) {
+          return false;
+        }
+        for(Xnode var : body.matchAll(Xcode.VAR)) {
+          if(var.value().equalsIgnoreCase(name)
+              && var.ancestor().opcode() == Xcode.VAR_REF)
+          {
+            return false;
+          }
+        }
+        for(Xnode call : actual.matchAll(Xcode.FUNCTION_CALL)) {
+          if(!call.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+            return false;
+          }
+        }
+      }
+      if(actual.opcode() == Xcode.VAR) {
+        continue;
+      }
+      List<Xnode> readVars = new ArrayList<>();
+      if(isVariable) {
+        for(Xnode index : actual.matchAll(Xcode.ARRAY_INDEX)) {
+          readVars.addAll(index.matchAll(Xcode.VAR));
+        }
+      } else {
+        readVars.addAll(actual.matchAll(Xcode.VAR));
+      }
+      for(Xnode var : readVars) {
+        String varName = var.value().toLowerCase();
+        if(callerWritten.contains(varName)
+            || (hasCall && findDecl(caller, varName) == null))
+        {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replace a subroutine call by the body of the called subroutine. Dummy
+   * arguments are replaced by the actual arguments and the local variables
+   * of the called subroutine are declared in the caller with a new unique
+   * name. Must be called only when canBeInlined returns true.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param caller  Function definition holding the call.
+   * @param fctCall Function call node.
+   * @param callee  Function definition of the called subroutine.
+   * @see #canBeInlined(XcodeProgram, FfunctionDefinition, Xnode,
+   * FfunctionDefinition, int)
+   */
+  public static void inline(XcodeProgram xcodeml, FfunctionDefinition caller,
+                            Xnode fctCall, FfunctionDefinition callee)
+  {
+    FfunctionType fctType = xcodeml.getTypeTable().getFunctionType(callee);
+    Map<String, Xnode> actuals =
+        mapArguments(fctCall, fctType.getParameters());
+    FmoduleDefinition module = caller.findParentModule();
+
+    // Local variables are declared in the caller with a unique name
+    Map<String, String> renamed = new LinkedHashMap<>();
+    for(String local : getLocalNames(callee, actuals.keySet())) {
+      String newName = callee.getName() + "_" + local;
+      int counter = 0;
+      while(findId(caller, newName) != null
+          || (module != null && module.getSymbolTable().contains(newName)))
+      {
+        newName = callee.getName() + "_" + local + "_" + counter++;
+      }
+      renamed.put(local, newName);
+
+      Xnode decl = callee.getDeclarationTable().get(local);
+      xcodeml.createIdAndDecl(newName, decl.matchSeq(Xcode.NAME).getType(),
+          XstorageClass.F_LOCAL, caller, DeclarationPosition.LAST);
+      Xnode value = decl.matchDirectDescendant(Xcode.VALUE);
+      if(value != null) {
+        Xnode newValue = value.cloneNode();
+        substitute(newValue, actuals, renamed);
+        caller.getDeclarationTable().get(newName).append(newValue);
+      }
+    }
+
+    Xnode exprStmt = fctCall.ancestor();
+    for(Xnode stmt : callee.body().children()) {
+      // Only routine directives, not needed in the caller
+      if(stmt.opcode() == Xcode.F_PRAGMA_STATEMENT) {
+        continue;
+      }
+      Xnode inlined = stmt.cloneNode();
+      substitute(inlined, actuals, renamed);
+      exprStmt.insertBefore(inlined);
+    }
+    exprStmt.delete();
+  }
+
+  /**
+   * Count the statements of a body and of its nested bodies.
+   *
+   * @param body Body node.
+   * @return Number of statements.
+   */
+  private static int countStatements(Xnode body) {
+    int count = body.children().size();
+    for(Xnode nested : body.matchAll(Xcode.BODY)) {
+      count += nested.children().size();
+    }
+    return count;
+  }
+
+  /**
+   * Check whether a pragma statement is a routine directive added for the
+   * called subroutine. This directive is dropped when the body is inlined.
+   *
+   * @param pragma Pragma statement node.
+   * @return True if the pragma is a routine directive.
+   */
+  static boolean isRoutineDirective(Xnode pragma) {
+    String value = pragma.value().toLowerCase();
+    return (value.contains("routine") || value.contains("declare target"))
+        && pragma.ancestor().opcode() == Xcode.BODY
+        && pragma.ancestor().ancestor().opcode() == Xcode.F_FUNCTION_DEFINITION;
+  }
+
+  /**
+   * Map the dummy arguments of the called subroutine to the actual arguments
+   * of the call. Arguments are associated by position or by keyword.
+   *
+   * @param fctCall Function call node.
+   * @param params  Parameters of the called subroutine.
+   * @return Actual argument for each dummy argument name. Null if an
+   * argument is missing or cannot be associated.
+   */
+  private static Map<String, Xnode> mapArguments(Xnode fctCall,
+                                                 List<Xnode> params)
+  {
+    Xnode args = fctCall.matchSeq(Xcode.ARGUMENTS);
+    List<Xnode> arguments = args == null
+        ? Collections.<Xnode>emptyList() : args.children();
+    if(arguments.size() != params.size()) {
+      return null;
+    }
+    Set<String> names = new HashSet<>();
+    for(Xnode param : params) {
+      names.add(param.value().toLowerCase());
+    }
+    Map<String, Xnode> actuals = new HashMap<>();
+    for(int i = 0; i < arguments.size(); ++i) {
+      Xnode arg = arguments.get(i);
+      String name = params.get(i).value().toLowerCase();
+      if(arg.opcode() == Xcode.NAMED_VALUE) {
+        name = arg.getAttribute(Xattr.NAME).toLowerCase();
+        arg = arg.firstChild();
+      }
+      if(arg == null || !names.contains(name) || actuals.containsKey(name)) {
+        return null;
+      }
+      actuals.put(name, arg);
+    }
+    return actuals;
+  }
+
+  /**
+   * Get the names of the local variables of a function definition in
+   * declaration order.
+   *
+   * @param fctDef Function definition.
+   * @param params Names of the dummy arguments.
+   * @return List of local variable names.
+   */
+  private static List<String> getLocalNames(FfunctionDefinition fctDef,
+                                            Set<String> params)
+  {
+    List<String> locals = new ArrayList<>();
+    for(Xnode decl : fctDef.getDeclarationTable().values(Xcode.VAR_DECL)) {
+      String name = decl.matchSeq(Xcode.NAME).value().toLowerCase();
+      if(!params.contains(name)) {
+        locals.add(name);
+      }
+    }
+    return locals;
+  }
+
+  /**
+   * Check that a use statement of the called subroutine is also a full use
+   * statement of the caller or of its module. Renamed entities are not
+   * supported.
+   *
+   * @param useDecl Use declaration of the called subroutine.
+   * @param caller  Function definition holding the call.
+   * @return True if the used entities are visible in the caller.
+   */
+  private static boolean isUseVisible(Xnode useDecl,
+                                      FfunctionDefinition caller)
+  {
+    for(Xnode rename : useDecl.children()) {
+      if(rename.hasAttribute(Xattr.LOCAL_NAME)) {
+        return false;
+      }
+    }
+    List<Xnode> uses = new ArrayList<>(caller.getDeclarationTable().uses());
+    if(caller.findParentModule() != null) {
+      uses.addAll(caller.findParentModule().getDeclarationTable().uses());
+    }
+    String moduleName = useDecl.getAttribute(Xattr.NAME);
+    for(Xnode use : uses) {
+      if(use.opcode() == Xcode.F_USE_DECL && use.children().isEmpty()
+          && moduleName.equalsIgnoreCase(use.getAttribute(Xattr.NAME)))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether an expression designates a variable that can be associated
+   * with a dummy argument written by the called subroutine.
+   *
+   * @param actual Actual argument.
+   * @return True for a variable, an array element or a structure component.
+   */
+  private static boolean isVariable(Xnode actual) {
+    switch(actual.opcode()) {
+      case VAR:
+      case F_MEMBER_REF:
+        return true;
+      case F_ARRAY_REF:
+        for(Xnode child : actual.children()) {
+          if(child.opcode() != Xcode.VAR_REF
+              && child.opcode() != Xcode.ARRAY_INDEX)
+          {
+            return false;
+          }
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Check that an array dummy argument can be replaced by its actual
+   * argument. The actual argument must be a whole array with the same rank.
+   * Both must have a lower bound of 1 in each dimension. An explicit-shape
+   * dummy argument must be of rank 1 and only referenced by its elements.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param body    Body of the called subroutine.
+   * @param name    Dummy argument name.
+   * @param bt      Type of the dummy argument.
+   * @param actual  Actual argument.
+   * @return True if the dummy argument can be replaced.
+   */
+  private static boolean isInlinedArrayArgument(XcodeProgram xcodeml,
+                                                Xnode body, String name,
+                                                FbasicType bt, Xnode actual)
+  {
+    if(actual.opcode() != Xcode.VAR) {
+      return false;
+    }
+    FbasicType actualType = xcodeml.getTypeTable().getBasicType(actual);
+    if(actualType == null || !actualType.isArray()
+        || actualType.getDimensions() != bt.getDimensions()
+        || !hasDefaultLowerBounds(bt) || !hasDefaultLowerBounds(actualType))
+    {
+      return false;
+    }
+    if(bt.isAllAssumedShape()) {
+      return true;
+    }
+    if(bt.getDimensions() != 1) {
+      return false;
+    }
+    for(Xnode var : body.matchAll(Xcode.VAR)) {
+      if(!var.value().equalsIgnoreCase(name)) {
+        continue;
+      }
+      Xnode varRef = var.ancestor();
+      if(varRef.opcode() != Xcode.VAR_REF
+          || varRef.ancestor().opcode() != Xcode.F_ARRAY_REF
+          || !isVariable(varRef.ancestor()))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check that all the dimensions of an array type start at 1.
+   *
+   * @param bt Array type.
+   * @return True if all the lower bounds are 1.
+   */
+  private static boolean hasDefaultLowerBounds(FbasicType bt) {
+    for(int i = 0; i < bt.getDimensions(); ++i) {
+      Xnode dim = bt.getDimensions(i);
+      if(dim.opcode() != Xcode.INDEX_RANGE) {
+        continue;
+      }
+      Xnode lower = dim.matchDirectDescendant(Xcode.LOWER_BOUND);
+      if(lower == null) {
+        // Deferred shape keeps the bounds given at allocation
+        if(bt.isAllocatable() || bt.isPointer()) {
+          return false;
+        }
+        continue;
+      }
+      Xnode bound = lower.firstChild();
+      if(bound == null || bound.opcode() != Xcode.F_INT_CONSTANT
+          || !"1".equals(bound.value().trim()))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replace the dummy arguments by the actual arguments and rename the local
+   * variables in a copied node.
+   *
+   * @param root    Root of the copied node.
+   * @param actuals Actual argument for each dummy argument name.
+   * @param renamed New name for each local variable name.
+   */
+  private static void substitute(Xnode root, Map<String, Xnode> actuals,
+                                 Map<String, String> renamed)
+  {
+    for(Xnode var : root.matchAll(Xcode.VAR)) {
+      String name = var.value().toLowerCase();
+      if(renamed.containsKey(name)) {
+        var.setValue(renamed.get(name));
+      } else if(actuals.containsKey(name)) {
+        Xnode actual = actuals.get(name);
+        if(actual.opcode() == Xcode.VAR) {
+          var.setValue(actual.value());
+          var.setType(actual.getType());
+          actual.copyAttribute(var, Xattr.SCOPE);
+          if(var.ancestor().opcode() == Xcode.VAR_REF) {
+            var.ancestor().setType(actual.getType());
+          }
+        } else {
+          var.insertAfter(actual.cloneNode());
+          var.delete();
+        }
+      }
+    }
+  }
 }
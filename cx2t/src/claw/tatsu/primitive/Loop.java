@@ -11,19 +11,42 @@ import claw.tatsu.xcodeml.abstraction.HoistedNestedDoStatement;
 import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.xnode.Xname;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeML;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.common.Xscope;
+import claw.tatsu.xcodeml.xnode.common.XstorageClass;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Primitive transformation and test applied on FdoStatement. This included:
  * - loop fusion (merge)
  * - loop reorder (reorder)
+ * - stride-1 loop order (getStrideOneOrder)
  * - loop hoisting (hoist)
+ * - loop unrolling and unroll-and-jam (unroll)
+ * - loop unswitching (unswitch)
+ * - loop invariant code motion (hoistInvariantExpressions)
  * - extract body of a loop
  * - check iteration range
+ * - compute iteration count
  *
  * @author clementval
  */
@@ -32,6 +55,32 @@ public final class Loop {
   private static final String[] prevToDelete = {"acc loop", "omp do"};
   private static final String[] nextToDelete = {"omp end do"};
 
+  private static final String INVARIANT_PREFIX = "claw_invariant_";
+
+  // Statements writing the variables they reference
+  private static final List<Xcode> WRITING_STATEMENTS = Arrays.asList(
+      Xcode.F_READ_STATEMENT, Xcode.F_ALLOCATE_STATEMENT,
+      Xcode.F_DEALLOCATE_STATEMENT, Xcode.F_NULLIFY_STATEMENT
+  );
+
+  // Expressions moved out of a do statement when invariant
+  private static final List<Xcode> INVARIANT_OPERATORS = Arrays.asList(
+      Xcode.PLUS_EXPR, Xcode.MINUS_EXPR, Xcode.MUL_EXPR, Xcode.DIV_EXPR,
+      Xcode.F_POWER_EXPR, Xcode.UNARY_MINUS_EXPR, Xcode.FUNCTION_CALL
+  );
+
+  // Intrinsic functions returning a different value at each call
+  private static final List<String> IMPURE_INTRINSICS = Arrays.asList(
+      "rand", "irand", "ran", "second", "secnds", "time", "time8"
+  );
+
+  // Intrinsic functions only defined on part of their argument domain
+  private static final List<String> DOMAIN_LIMITED_INTRINSICS = Arrays.asList(
+      "sqrt", "dsqrt", "csqrt", "log", "alog", "dlog", "clog", "log10",
+      "alog10", "dlog10", "acos", "dacos", "asin", "dasin", "acosh", "atanh",
+      "atan2", "datan2", "gamma", "log_gamma", "mod", "amod", "dmod", "modulo"
+  );
+
   // Avoid potential instantiation of this class
   private Loop() {
   }
@@ -135,12 +184,102 @@ public final class Loop {
           swapIterationRange(nestedGroup.get(0), nestedGroup.get(1));
           break;
       }
+    } else if(newInductionVarOrder != null
+        && newInductionVarOrder.size() == nestedGroup.size())
+    {
+      // Generic permutation: bring each induction variable to its position
+      List<String> crtOrder =
+          new ArrayList<>(nestedGroup.getInductionVariables());
+      for(int i = 0; i < crtOrder.size(); ++i) {
+        int j = indexOfIgnoreCase(crtOrder,
+            newInductionVarOrder.get(i), i);
+        if(j < 0) {
+          throw new IllegalTransformationException("Unknown induction " +
+              "variable " + newInductionVarOrder.get(i));
+        }
+        if(j != i) {
+          swapIterationRange(nestedGroup.get(i), nestedGroup.get(j));
+          Collections.swap(crtOrder, i, j);
+        }
+      }
+      Message.debug("Loop reordering: generic permutation");
     } else {
       throw new IllegalTransformationException("Currently unsupported " +
           "reorder operation.");
     }
   }
 
+  /**
+   * Find a string in a list without considering the case.
+   *
+   * @param values List of string values.
+   * @param value  String value to look for.
+   * @param from   Index from which the search starts.
+   * @return Index of the value in the list. -1 if not found.
+   */
+  private static int indexOfIgnoreCase(List<String> values, String value,
+                                       int from)
+  {
+    for(int i = from; i < values.size(); ++i) {
+      if(values.get(i).equalsIgnoreCase(value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Compute the order of the nested do statements giving stride-1 accesses to
+   * the arrays referenced in the inner body. Fortran arrays are contiguous
+   * along their first dimension so the induction variable used in the
+   * leftmost subscripts must vary in the inner do statement.
+   *
+   * Each array reference gives a weight of rank - p to the induction variable
+   * used in its subscript at position p. Do statements are then ordered from
+   * the lowest weight (outer) to the highest weight (inner). Ties keep the
+   * original order.
+   *
+   * @param nestedGroup Group of nested do statements.
+   * @return New order of the induction variables from outer to inner.
+   */
+  public static List<String> getStrideOneOrder(NestedDoStatement nestedGroup)
+  {
+    final List<String> inductions = nestedGroup.getInductionVariables();
+    final Map<String, Integer> weights = new HashMap<>();
+    for(String induction : inductions) {
+      weights.put(induction.toLowerCase(), 0);
+    }
+
+    Xnode body = nestedGroup.getInnerStatement().body();
+    for(Xnode arrayRef : body.matchAll(Xcode.F_ARRAY_REF)) {
+      List<Xnode> subscripts = new ArrayList<>();
+      for(Xnode child : arrayRef.children()) {
+        if(child.opcode() == Xcode.ARRAY_INDEX) {
+          subscripts.add(child);
+        }
+      }
+      Set<String> seen = new HashSet<>();
+      for(int p = 0; p < subscripts.size(); ++p) {
+        for(Xnode var : subscripts.get(p).matchAll(Xcode.VAR)) {
+          String name = var.value().toLowerCase();
+          if(weights.containsKey(name) && seen.add(name)) {
+            weights.put(name, weights.get(name) + subscripts.size() - p);
+          }
+        }
+      }
+    }
+
+    List<String> order = new ArrayList<>(inductions);
+    Collections.sort(order, new Comparator<String>() {
+      @Override
+      public int compare(String s1, String s2) {
+        return Integer.compare(weights.get(s1.toLowerCase()),
+            weights.get(s2.toLowerCase()));
+      }
+    });
+    return order;
+  }
+
   /**
    * Perform a loop hoisting on the given nested do statements.
    *
@@ -441,4 +580,735 @@ public final class Loop {
   public static boolean hasSameIndexRangeBesidesLower(Xnode l1, Xnode l2) {
     return compareIndexRanges(l1, l2, false);
   }
+
+  /**
+   * Unroll the outer do statement of a nested group. With a single do
+   * statement, the body is duplicated factor times. With two nested do
+   * statements, the copies of the outer iterations are jammed in the body of
+   * the inner do statement. A remainder loop executes the iterations left
+   * when the iteration count is not a multiple of the factor.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param nest    Nested do statements. Only the first two levels are used.
+   * @param factor  Unroll factor.
+   * @throws IllegalTransformationException If the outer do statement has no
+   *                                        iteration range.
+   */
+  public static void unroll(XcodeProgram xcodeml, NestedDoStatement nest,
+                            int factor)
+      throws IllegalTransformationException
+  {
+    if(nest == null || nest.size() == 0 || factor < 2) {
+      return;
+    }
+    Xnode outer = nest.getOuterStatement();
+    Xnode range = outer.matchDirectDescendant(Xcode.INDEX_RANGE);
+    Xnode inductionVar = outer.matchDirectDescendant(Xcode.VAR);
+    if(range == null || inductionVar == null
+        || range.matchDirectDescendant(Xcode.LOWER_BOUND) == null
+        || range.matchDirectDescendant(Xcode.UPPER_BOUND) == null)
+    {
+      throw new IllegalTransformationException(
+          "Cannot unroll a do statement without iteration range",
+          outer.lineNo());
+    }
+
+    Xnode lower = range.matchDirectDescendant(Xcode.LOWER_BOUND).child(0);
+    Xnode upper = range.matchDirectDescendant(Xcode.UPPER_BOUND).child(0);
+    Xnode step = range.matchDirectDescendant(Xcode.STEP);
+    if(step == null) {
+      step = xcodeml.createNode(Xcode.STEP);
+      step.append(xcodeml.createIntConstant(1));
+      range.append(step);
+    }
+    step = step.child(0);
+
+    // Iterations left when the count is not a multiple of the factor start at
+    // lower + ((upper - lower + step) / step / factor) * factor * step
+    FfunctionDefinition fctDef = outer.findParentFunction();
+    int count = fctDef == null ? -1 : getIterationCount(xcodeml, outer, fctDef);
+    if(count < 0 || count % factor != 0) {
+      Xnode remainder = outer.cloneNode();
+      Xnode trips = createBinaryExpr(xcodeml, Xcode.DIV_EXPR,
+          createBinaryExpr(xcodeml, Xcode.DIV_EXPR,
+              createBinaryExpr(xcodeml, Xcode.PLUS_EXPR,
+                  createBinaryExpr(xcodeml, Xcode.MINUS_EXPR,
+                      upper.cloneNode(), lower.cloneNode()), step.cloneNode()),
+              step.cloneNode()), xcodeml.createIntConstant(factor));
+      Xnode start = createBinaryExpr(xcodeml, Xcode.PLUS_EXPR,
+          lower.cloneNode(), createBinaryExpr(xcodeml, Xcode.MUL_EXPR, trips,
+              createStride(xcodeml, factor, step)));
+      Xnode remainderLower = remainder.matchDirectDescendant(Xcode.INDEX_RANGE)
+          .matchDirectDescendant(Xcode.LOWER_BOUND);
+      remainderLower.child(0).delete();
+      remainderLower.append(start);
+      outer.insertAfter(remainder);
+    }
+
+    // Main loop covers the iterations by blocks of factor iterations
+    Xnode originalStep = step.cloneNode();
+    Xnode mainUpper = createBinaryExpr(xcodeml, Xcode.MINUS_EXPR,
+        upper.cloneNode(), createStride(xcodeml, factor - 1, step));
+    upper.insertAfter(mainUpper);
+    upper.delete();
+    Xnode mainStep = createStride(xcodeml, factor, step);
+    step.insertAfter(mainStep);
+    step.delete();
+
+    Xnode body = nest.size() > 1 ? nest.get(1).body() : outer.body();
+    Xnode original = body.cloneNode();
+    String induction = inductionVar.value();
+    for(int i = 1; i < factor; ++i) {
+      Xnode copy = original.cloneNode();
+      for(Xnode var : copy.matchAll(Xcode.VAR)) {
+        if(var.value().equalsIgnoreCase(induction)) {
+          Xnode index = createBinaryExpr(xcodeml, Xcode.PLUS_EXPR,
+              var.cloneNode(), createStride(xcodeml, i, originalStep));
+          var.insertAfter(index);
+          var.delete();
+        }
+      }
+      Body.append(body, copy);
+    }
+  }
+
+  /**
+   * Create an integer expression representing a multiple of the step.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param n       Multiple of the step.
+   * @param step    Step value node. Constant steps are folded.
+   * @return Newly created node.
+   */
+  private static Xnode createStride(XcodeProgram xcodeml, int n, Xnode step) {
+    if(step.opcode() == Xcode.F_INT_CONSTANT) {
+      return xcodeml.createIntConstant(n * Integer.parseInt(step.value()));
+    }
+    return createBinaryExpr(xcodeml, Xcode.MUL_EXPR,
+        xcodeml.createIntConstant(n), step.cloneNode());
+  }
+
+  /**
+   * Create an integer binary expression.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param opcode  Opcode of the expression.
+   * @param lhs     Left hand side operand.
+   * @param rhs     Right hand side operand.
+   * @return Newly created node.
+   */
+  private static Xnode createBinaryExpr(XcodeProgram xcodeml, Xcode opcode,
+                                        Xnode lhs, Xnode rhs)
+  {
+    Xnode expr = xcodeml.createNode(opcode);
+    expr.setType(Xname.TYPE_F_INT);
+    expr.append(lhs);
+    expr.append(rhs);
+    return expr;
+  }
+
+  /**
+   * Compute the number of iterations of a do statement. Bounds and step must
+   * be integer constants or named constants declared in the function or in
+   * its module.
+   *
+   * @param xcodeml     Current XcodeML translation unit.
+   * @param doStatement Do statement node.
+   * @param fctDef      Function definition holding the do statement.
+   * @return Number of iterations. -1 if it cannot be computed.
+   */
+  public static int getIterationCount(XcodeProgram xcodeml, Xnode doStatement,
+                                      FfunctionDefinition fctDef)
+  {
+    if(doStatement == null || doStatement.opcode() != Xcode.F_DO_STATEMENT) {
+      return -1;
+    }
+    Xnode range = doStatement.matchDirectDescendant(Xcode.INDEX_RANGE);
+    if(range == null) {
+      return -1;
+    }
+    Integer lower = evaluateBound(xcodeml,
+        range.matchDirectDescendant(Xcode.LOWER_BOUND), fctDef);
+    Integer upper = evaluateBound(xcodeml,
+        range.matchDirectDescendant(Xcode.UPPER_BOUND), fctDef);
+    Xnode stepNode = range.matchDirectDescendant(Xcode.STEP);
+    Integer step = stepNode == null
+        ? Integer.valueOf(1) : evaluateBound(xcodeml, stepNode, fctDef);
+    if(lower == null || upper == null || step == null || step == 0) {
+      return -1;
+    }
+    return Math.max(0, (upper - lower + step) / step);
+  }
+
+  /**
+   * Evaluate an integer constant expression. Integer constants, their
+   * negation and named constants declared in the function or in its module
+   * are evaluated.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param expr    Expression node.
+   * @param fctDef  Function definition used to resolve named constants.
+   * @return Integer value. Null if the value is not known at compile time.
+   */
+  public static Integer evaluateConstant(XcodeProgram xcodeml, Xnode expr,
+                                         FfunctionDefinition fctDef)
+  {
+    return expr == null || fctDef == null
+        ? null : evaluate(xcodeml, expr, fctDef, 0);
+  }
+
+  /**
+   * Evaluate the value of a bound or step node.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param bound   Bound or step node.
+   * @param fctDef  Function definition used to resolve named constants.
+   * @return Integer value. Null if the value is not known at compile time.
+   */
+  private static Integer evaluateBound(XcodeProgram xcodeml, Xnode bound,
+                                       FfunctionDefinition fctDef)
+  {
+    return bound == null || bound.child(0) == null
+        ? null : evaluate(xcodeml, bound.child(0), fctDef, 0);
+  }
+
+  /**
+   * Evaluate an integer constant expression.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param expr    Expression node.
+   * @param fctDef  Function definition used to resolve named constants.
+   * @param depth   Number of named constants already resolved.
+   * @return Integer value. Null if the value is not known at compile time.
+   */
+  private static Integer evaluate(XcodeProgram xcodeml, Xnode expr,
+                                  FfunctionDefinition fctDef, int depth)
+  {
+    switch(expr.opcode()) {
+      case F_INT_CONSTANT:
+        try {
+          return Integer.parseInt(expr.value().trim());
+        } catch(NumberFormatException ignored) {
+          return null;
+        }
+      case UNARY_MINUS_EXPR:
+        Integer value = expr.child(0) == null
+            ? null : evaluate(xcodeml, expr.child(0), fctDef, depth);
+        return value == null ? null : -value;
+      case VAR:
+        // Guard against cyclic definitions
+        if(depth > 10) {
+          return null;
+        }
+        Xnode decl = fctDef.getDeclarationTable().get(expr.value());
+        if(decl == null) {
+          FmoduleDefinition modDef = fctDef.findParentModule();
+          decl = modDef == null
+              ? null : modDef.getDeclarationTable().get(expr.value());
+        }
+        Xnode init = decl == null
+            ? null : decl.matchDirectDescendant(Xcode.VALUE);
+        if(init == null || init.child(0) == null) {
+          return null;
+        }
+        FbasicType bType = xcodeml.getTypeTable().getBasicType(decl);
+        if(bType == null || !bType.isParameter()) {
+          return null;
+        }
+        return evaluate(xcodeml, init.child(0), fctDef, depth + 1);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Get the bodies of the branches of an if or select case statement.
+   *
+   * @param branchStmt If or select case statement.
+   * @return Bodies in the order of the branches. Empty list for other nodes.
+   */
+  public static List<Xnode> getBranchBodies(Xnode branchStmt) {
+    List<Xnode> bodies = new ArrayList<>();
+    if(branchStmt == null) {
+      return bodies;
+    }
+    if(branchStmt.opcode() == Xcode.F_IF_STATEMENT) {
+      for(Xnode branch : branchStmt.children()) {
+        if(branch.opcode() == Xcode.THEN || branch.opcode() == Xcode.ELSE) {
+          bodies.add(branch.body());
+        }
+      }
+    } else if(branchStmt.opcode() == Xcode.F_SELECT_CASE_STATEMENT) {
+      for(Xnode caseLabel : branchStmt.children()) {
+        if(caseLabel.opcode() == Xcode.F_CASE_LABEL) {
+          bodies.add(caseLabel.body());
+        }
+      }
+    }
+    return bodies;
+  }
+
+  /**
+   * Move an if or select case statement, directly nested in the body of a do
+   * statement, outside of it. The do statement is duplicated in each branch
+   * and the statement is replaced by the content of the branch in each copy.
+   * An else branch or a default case is added when the other statements of
+   * the do statement must still be executed. The condition must be invariant
+   * in the do statement.
+   *
+   * @param xcodeml    Current XcodeML translation unit.
+   * @param doStmt     Do statement to be unswitched.
+   * @param branchStmt If or select case statement in the do statement body.
+   * @return The branching statement replacing the do statement.
+   * @throws IllegalTransformationException If the statement is not an if or
+   *                                        select case statement directly
+   *                                        nested in the do statement.
+   */
+  public static Xnode unswitch(XcodeML xcodeml, Xnode doStmt, Xnode branchStmt)
+      throws IllegalTransformationException
+  {
+    if(doStmt == null || branchStmt == null
+        || doStmt.opcode() != Xcode.F_DO_STATEMENT
+        || !doStmt.body().equals(branchStmt.ancestor())
+        || getBranchBodies(branchStmt).isEmpty())
+    {
+      throw new IllegalTransformationException("Cannot unswitch the do " +
+          "statement", doStmt == null ? 0 : doStmt.lineNo());
+    }
+    int position = doStmt.body().children().indexOf(branchStmt);
+
+    Xnode newBranchStmt = branchStmt.cloneNode();
+    if(doStmt.body().children().size() > 1) {
+      addDefaultBranch(xcodeml, newBranchStmt);
+    }
+
+    List<Xnode> bodies = getBranchBodies(newBranchStmt);
+    for(int i = 0; i < bodies.size(); ++i) {
+      Xnode copy = doStmt.cloneNode();
+      Xnode copiedBranchStmt = copy.body().child(position);
+      List<Xnode> copiedBodies = getBranchBodies(copiedBranchStmt);
+      if(i < copiedBodies.size()) {
+        for(Xnode stmt : copiedBodies.get(i).children()) {
+          copiedBranchStmt.insertBefore(stmt);
+        }
+      }
+      copiedBranchStmt.delete();
+      for(Xnode stmt : bodies.get(i).children()) {
+        stmt.delete();
+      }
+      bodies.get(i).append(copy);
+    }
+
+    doStmt.insertBefore(newBranchStmt);
+    doStmt.delete();
+    return newBranchStmt;
+  }
+
+  /**
+   * Add an empty else branch or default case if missing.
+   *
+   * @param xcodeml    Current XcodeML translation unit.
+   * @param branchStmt If or select case statement.
+   */
+  private static void addDefaultBranch(XcodeML xcodeml, Xnode branchStmt) {
+    if(branchStmt.opcode() == Xcode.F_IF_STATEMENT) {
+      if(branchStmt.matchDirectDescendant(Xcode.ELSE) == null) {
+        Xnode elseBlock = xcodeml.createNode(Xcode.ELSE);
+        elseBlock.append(xcodeml.createNode(Xcode.BODY));
+        branchStmt.append(elseBlock);
+      }
+      return;
+    }
+    for(Xnode caseLabel : branchStmt.children()) {
+      if(caseLabel.opcode() == Xcode.F_CASE_LABEL
+          && caseLabel.matchDirectDescendant(Xcode.VALUE) == null
+          && caseLabel.matchDirectDescendant(Xcode.INDEX_RANGE) == null)
+      {
+        return;
+      }
+    }
+    Xnode defaultCase = xcodeml.createNode(Xcode.F_CASE_LABEL);
+    defaultCase.append(xcodeml.createNode(Xcode.BODY));
+    branchStmt.append(defaultCase);
+  }
+
+  /**
+   * Gather the variables that might be written in a do statement.
+   *
+   * @param doStmt  Do statement to be analyzed.
+   * @param written Set in which lower cased variable names are added.
+   * @return True if the do statement calls a non intrinsic function.
+   */
+  public static boolean gatherWrittenVariables(Xnode doStmt,
+                                               Set<String> written)
+  {
+    List<Xnode> stmts = new ArrayList<>();
+    stmts.add(doStmt);
+    stmts.addAll(doStmt.matchAll(Xcode.F_DO_STATEMENT));
+    for(Xnode stmt : stmts) {
+      written.add(extractInductionVariable(stmt));
+    }
+
+    stmts.clear();
+    stmts.addAll(doStmt.matchAll(Xcode.F_ASSIGN_STATEMENT));
+    stmts.addAll(doStmt.matchAll(Xcode.F_POINTER_ASSIGN_STATEMENT));
+    for(Xnode stmt : stmts) {
+      Xnode lhs = stmt.child(Xnode.LHS);
+      Xnode var = lhs == null || lhs.opcode() == Xcode.VAR
+          ? lhs : lhs.matchDescendant(Xcode.VAR);
+      if(var != null) {
+        written.add(var.value().toLowerCase());
+      }
+    }
+
+    stmts.clear();
+    for(Xcode opcode : WRITING_STATEMENTS) {
+      stmts.addAll(doStmt.matchAll(opcode));
+    }
+    boolean hasCall = false;
+    for(Xnode fctCall : doStmt.matchAll(Xcode.FUNCTION_CALL)) {
+      if(!fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        hasCall = true;
+        stmts.add(fctCall);
+      }
+    }
+    for(Xnode stmt : stmts) {
+      for(Xnode var : stmt.matchAll(Xcode.VAR)) {
+        written.add(var.value().toLowerCase());
+      }
+    }
+    return hasCall;
+  }
+
+  /**
+   * Move the expressions invariant in a do statement nest before it. Each
+   * maximal invariant expression evaluated at every iteration is assigned to a
+   * new scalar variable before the hook and replaced by this variable.
+   * Identical expressions share the same variable. Only numerical and logical
+   * scalar expressions made of operators and intrinsic function calls are
+   * moved. Divisions, powers and intrinsic functions defined on part of their
+   * domain are only moved out of do statements known to be executed at least
+   * once.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition holding the do statement.
+   * @param doStmt  Outer do statement of the nest.
+   * @param hook    Statement before which the invariant expressions are
+   *                evaluated.
+   * @return Names of the variables created.
+   */
+  public static List<String> hoistInvariantExpressions(XcodeProgram xcodeml,
+                                                       FfunctionDefinition
+                                                           fctDef,
+                                                       Xnode doStmt,
+                                                       Xnode hook)
+  {
+    List<String> names = new ArrayList<>();
+    if(doStmt == null || hook == null
+        || doStmt.opcode() != Xcode.F_DO_STATEMENT)
+    {
+      return names;
+    }
+    Set<String> written = new HashSet<>();
+    boolean hasCall = gatherWrittenVariables(doStmt, written);
+
+    List<Xnode> invariants = new ArrayList<>();
+    for(Xnode assign : doStmt.matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      if(isExecutedAtEachIteration(doStmt, assign)) {
+        findInvariants(xcodeml, fctDef, assign.child(Xnode.RHS), written,
+            hasCall, isAlwaysExecuted(xcodeml, fctDef, doStmt, assign),
+            invariants);
+      }
+    }
+
+    List<Xnode> hoisted = new ArrayList<>();
+    int counter = 0;
+    for(Xnode expr : invariants) {
+      // The type of a function call is its return type
+      String type = expr.getAttribute(Xattr.TYPE);
+      String name = null;
+      for(int i = 0; i < hoisted.size(); ++i) {
+        if(isSameExpression(hoisted.get(i), expr)) {
+          name = names.get(i);
+          break;
+        }
+      }
+      if(name == null) {
+        do {
+          name = INVARIANT_PREFIX + counter++;
+        } while(fctDef.getSymbolTable().contains(name)
+            || fctDef.getDeclarationTable().contains(name));
+        xcodeml.createIdAndDecl(name, type, XstorageClass.F_LOCAL, fctDef,
+            DeclarationPosition.LAST);
+
+        Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+        assign.append(xcodeml.createVar(type, name, Xscope.LOCAL));
+        assign.append(expr, true);
+        hook.insertBefore(assign);
+        doStmt.copyEnhancedInfo(assign);
+        hoisted.add(expr);
+        names.add(name);
+      }
+      expr.insertAfter(xcodeml.createVar(type, name, Xscope.LOCAL));
+      expr.delete();
+    }
+    return names;
+  }
+
+  /**
+   * Check whether a statement is executed at each iteration of the do
+   * statement. This is the case if it is only nested in do statements.
+   *
+   * @param doStmt Do statement.
+   * @param stmt   Statement nested in the do statement.
+   * @return True if the statement is not conditionally executed.
+   */
+  private static boolean isExecutedAtEachIteration(Xnode doStmt, Xnode stmt) {
+    Xnode crt = stmt.ancestor();
+    while(crt != null && !crt.equals(doStmt)) {
+      if(crt.opcode() != Xcode.BODY && crt.opcode() != Xcode.F_DO_STATEMENT) {
+        return false;
+      }
+      crt = crt.ancestor();
+    }
+    return crt != null;
+  }
+
+  /**
+   * Check whether a statement is executed at least once when the do statement
+   * is reached. All the do statements nesting the statement must have a
+   * positive number of iterations known at compile time.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition holding the do statement.
+   * @param doStmt  Outer do statement.
+   * @param stmt    Statement nested in the do statement.
+   * @return True if the statement is known to be executed.
+   */
+  private static boolean isAlwaysExecuted(XcodeProgram xcodeml,
+                                          FfunctionDefinition fctDef,
+                                          Xnode doStmt, Xnode stmt)
+  {
+    Xnode crt = stmt.ancestor();
+    while(crt != null) {
+      if(crt.opcode() == Xcode.F_DO_STATEMENT
+          && getIterationCount(xcodeml, crt, fctDef) <= 0)
+      {
+        return false;
+      }
+      if(crt.equals(doStmt)) {
+        return true;
+      }
+      crt = crt.ancestor();
+    }
+    return false;
+  }
+
+  /**
+   * Check whether the evaluation of an expression might fail for some values
+   * of its operands. Array references might be out of bounds or reference a
+   * deallocated array. Divisions, powers and some intrinsic functions are
+   * only defined on part of their domain. Calls to non intrinsic functions
+   * are considered as failing.
+   *
+   * @param expr Expression to be checked.
+   * @return True if the evaluation might fail. False otherwise.
+   */
+  public static boolean mightFail(Xnode expr) {
+    if(expr == null) {
+      return false;
+    }
+    if(expr.opcode() == Xcode.F_ARRAY_REF
+        || !expr.matchAll(Xcode.F_ARRAY_REF).isEmpty())
+    {
+      return true;
+    }
+    List<Xnode> nodes = new ArrayList<>();
+    nodes.add(expr);
+    nodes.addAll(expr.matchAll(Xcode.FUNCTION_CALL));
+    nodes.addAll(expr.matchAll(Xcode.DIV_EXPR));
+    nodes.addAll(expr.matchAll(Xcode.F_POWER_EXPR));
+    for(Xnode node : nodes) {
+      if(isFailingOperation(node)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether an operation is only defined on part of the domain of its
+   * operands.
+   *
+   * @param node Operation node.
+   * @return True for divisions, powers, non intrinsic function calls and
+   * domain limited intrinsic functions. False otherwise.
+   */
+  private static boolean isFailingOperation(Xnode node) {
+    if(node.opcode() == Xcode.DIV_EXPR || node.opcode() == Xcode.F_POWER_EXPR) {
+      return true;
+    }
+    if(node.opcode() != Xcode.FUNCTION_CALL) {
+      return false;
+    }
+    Xnode name = node.matchDirectDescendant(Xcode.NAME);
+    return !node.getBooleanAttribute(Xattr.IS_INTRINSIC) || name == null
+        || DOMAIN_LIMITED_INTRINSICS.contains(name.value().toLowerCase());
+  }
+
+  /**
+   * Find the maximal invariant sub-expressions of an expression.
+   *
+   * @param xcodeml    Current XcodeML translation unit.
+   * @param fctDef     Function definition holding the expression.
+   * @param expr       Expression to be analyzed.
+   * @param written    Variables written in the do statement.
+   * @param hasCall    True if the do statement calls a non intrinsic function.
+   * @param executed   True if the expression is known to be evaluated.
+   * @param invariants List in which the invariant expressions are added.
+   */
+  private static void findInvariants(XcodeProgram xcodeml,
+                                     FfunctionDefinition fctDef, Xnode expr,
+                                     Set<String> written, boolean hasCall,
+                                     boolean executed, List<Xnode> invariants)
+  {
+    if(expr == null) {
+      return;
+    }
+    if(isHoistable(xcodeml, fctDef, expr, written, hasCall, executed)) {
+      invariants.add(expr);
+      return;
+    }
+    for(Xnode child : expr.children()) {
+      findInvariants(xcodeml, fctDef, child, written, hasCall, executed,
+          invariants);
+    }
+  }
+
+  /**
+   * Check whether an expression is invariant and worth to be moved out of the
+   * do statement.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition holding the expression.
+   * @param expr    Expression to be checked.
+   * @param written Variables written in the do statement.
+   * @param hasCall  True if the do statement calls a non intrinsic function.
+   *                 Only local variables are then invariant.
+   * @param executed True if the expression is known to be evaluated. If not,
+   *                 operations that might fail are not moved.
+   * @return True if the expression can be moved.
+   */
+  private static boolean isHoistable(XcodeProgram xcodeml,
+                                     FfunctionDefinition fctDef, Xnode expr,
+                                     Set<String> written, boolean hasCall,
+                                     boolean executed)
+  {
+    if(!INVARIANT_OPERATORS.contains(expr.opcode())
+        || !isScalarType(xcodeml, expr.getAttribute(Xattr.TYPE)))
+    {
+      return false;
+    }
+    List<Xnode> nodes = new ArrayList<>();
+    nodes.add(expr);
+    nodes.addAll(expr.matchAll(Xcode.FUNCTION_CALL));
+    nodes.addAll(expr.matchAll(Xcode.DIV_EXPR));
+    nodes.addAll(expr.matchAll(Xcode.F_POWER_EXPR));
+    for(Xnode node : nodes) {
+      if(node.opcode() == Xcode.FUNCTION_CALL) {
+        Xnode name = node.matchDirectDescendant(Xcode.NAME);
+        if(!node.getBooleanAttribute(Xattr.IS_INTRINSIC) || name == null
+            || IMPURE_INTRINSICS.contains(name.value().toLowerCase()))
+        {
+          return false;
+        }
+      }
+      if(!executed && isFailingOperation(node)) {
+        // Might fail while the statement is never evaluated in the loop
+        return false;
+      }
+    }
+
+    List<Xnode> vars = expr.matchAll(Xcode.VAR);
+    if(vars.isEmpty()) {
+      return false; // Constant expression
+    }
+    for(Xnode var : vars) {
+      String name = var.value().toLowerCase();
+      if(written.contains(name)
+          || (hasCall && !fctDef.getDeclarationTable().contains(name)))
+      {
+        return false;
+      }
+      FbasicType bt = xcodeml.getTypeTable().getBasicType(var);
+      if(bt != null && (bt.isPointer() || bt.isTarget())) {
+        return false; // Might be modified through an alias
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether a type is a numerical or logical scalar type.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param type    Type hash or built-in type.
+   * @return True if a scalar variable of this type can be declared.
+   */
+  static boolean isScalarType(XcodeProgram xcodeml, String type) {
+    if(type == null || type.isEmpty()) {
+      return false;
+    }
+    String baseType = type;
+    if(!FortranType.isBuiltInType(type)) {
+      FbasicType bt = xcodeml.getTypeTable().getBasicType(type);
+      if(bt == null || bt.isArray() || bt.isPointer()
+          || !FortranType.isBuiltInType(bt.getRef()))
+      {
+        return false;
+      }
+      baseType = bt.getRef();
+    }
+    switch(FortranType.fromString(baseType)) {
+      case INTEGER:
+      case REAL:
+      case COMPLEX:
+      case LOGICAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Compare the structure and the values of two expressions.
+   *
+   * @param e1 First expression.
+   * @param e2 Second expression.
+   * @return True if both expressions compute the same value.
+   */
+  static boolean isSameExpression(Xnode e1, Xnode e2) {
+    String t1 = e1.getAttribute(Xattr.TYPE);
+    String t2 = e2.getAttribute(Xattr.TYPE);
+    if(e1.opcode() != e2.opcode()
+        || e1.children().size() != e2.children().size()
+        || (t1 == null ? t2 != null : !t1.equals(t2)))
+    {
+      return false;
+    }
+    if(e1.children().isEmpty()) {
+      return e1.value().equalsIgnoreCase(e2.value());
+    }
+    if(e1.opcode() == Xcode.F_MEMBER_REF
+        && !e1.getAttribute(Xattr.MEMBER).equals(e2.getAttribute(Xattr.MEMBER)))
+    {
+      return false;
+    }
+    for(int i = 0; i < e1.children().size(); ++i) {
+      if(!isSameExpression(e1.child(i), e2.child(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
 }
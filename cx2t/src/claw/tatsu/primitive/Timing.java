@@ -0,0 +1,276 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.primitive;
+
+import claw.tatsu.common.Context;
+import claw.tatsu.xcodeml.abstraction.TimingRegion;
+import claw.tatsu.xcodeml.xnode.Xname;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive transformation instrumenting regions with calls to the timing
+ * runtime shipped with the compiler (claw_timing module). This included:
+ * - Wrap a region with calls to claw_timing_start and claw_timing_stop.
+ * - Add the use statement of the timing module to the function.
+ *
+ * Regions are identified by a number unique in the translation unit and are
+ * recorded in the context to produce the region mapping file.
+ *
+ * @author clementval
+ */
+public final class Timing {
+
+  public static final String MODULE_NAME = "claw_timing";
+  public static final String START_ROUTINE = "claw_timing_start";
+  public static final String STOP_ROUTINE = "claw_timing_stop";
+
+  // Directives starting a region executed in parallel or on the device
+  private static final List<String> REGION_START = Arrays.asList(
+      "acc parallel", "acc kernels", "acc serial", "omp parallel",
+      "omp target"
+  );
+  private static final List<String> REGION_END = Arrays.asList(
+      "acc end parallel", "acc end kernels", "acc end serial",
+      "omp end parallel", "omp end target"
+  );
+  // Directives applied to the next statement only
+  private static final List<String> COMBINED = Arrays.asList(
+      " loop", " do", " distribute"
+  );
+
+  // Avoid instantiation of this class
+  private Timing() {
+  }
+
+  /**
+   * Wrap a region with calls to the timing runtime. Regions nested in a
+   * parallel region or in a function called from the device are not
+   * instrumented as the runtime is executed sequentially on the host.
+   *
+   * @param xcodeml   Current XcodeML translation unit.
+   * @param startStmt First statement of the region.
+   * @param endStmt   Last statement of the region.
+   * @param lineNo    Line of the region in the original source. If not
+   *                  defined, the line of the function is used.
+   * @param kind      Kind of the region written in the mapping file.
+   * @return True if the region has been instrumented. False otherwise.
+   */
+  public static boolean instrument(XcodeProgram xcodeml, Xnode startStmt,
+                                   Xnode endStmt, int lineNo, String kind)
+  {
+    if(startStmt == null || endStmt == null) {
+      return false;
+    }
+    FfunctionDefinition fctDef = startStmt.findParentFunction();
+    if(fctDef == null || !canBeInstrumented(xcodeml, fctDef, startStmt)) {
+      return false;
+    }
+
+    int line = lineNo > 0 ? lineNo : fctDef.lineNo();
+    TimingRegion region =
+        Context.get().addTimingRegion(fctDef.getName(), line, kind);
+    addUseDeclaration(xcodeml, fctDef);
+    startStmt.insertBefore(createTimingCall(xcodeml, fctDef, START_ROUTINE,
+        region.getId(), line));
+    endStmt.insertAfter(createTimingCall(xcodeml, fctDef, STOP_ROUTINE,
+        region.getId(), line));
+    return true;
+  }
+
+  /**
+   * Check whether calls to the timing runtime can be inserted in the function
+   * around the given statement.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition holding the statement.
+   * @param stmt    First statement of the region.
+   * @return True if the runtime can be called. False otherwise.
+   */
+  private static boolean canBeInstrumented(XcodeProgram xcodeml,
+                                           FfunctionDefinition fctDef,
+                                           Xnode stmt)
+  {
+    FfunctionType fctType = xcodeml.getTypeTable().getFunctionType(fctDef);
+    if(fctType != null && (fctType.isPure() || fctType.isElemental())) {
+      return false;
+    }
+    for(Xnode pragma : fctDef.body().matchAll(Xcode.F_PRAGMA_STATEMENT)) {
+      if(Function.isRoutineDirective(pragma)) {
+        return false;
+      }
+    }
+    return !isNestedInRegion(stmt, fctDef);
+  }
+
+  /**
+   * Check whether a statement is nested in a parallel or device region. The
+   * previous siblings of the statement and of its ancestors are scanned for
+   * an opening directive not closed before the statement.
+   *
+   * @param stmt   Statement to be checked.
+   * @param fctDef Function definition holding the statement.
+   * @return True if the statement is nested in a region. False otherwise.
+   */
+  private static boolean isNestedInRegion(Xnode stmt,
+                                          FfunctionDefinition fctDef)
+  {
+    Xnode crt = stmt;
+    while(crt != null && !crt.equals(fctDef)) {
+      boolean passedStatement = false;
+      Xnode sibling = crt.prevSibling();
+      while(sibling != null) {
+        if(sibling.opcode() != Xcode.F_PRAGMA_STATEMENT) {
+          passedStatement = true;
+        } else {
+          String value = sibling.value().toLowerCase().trim();
+          if(isDirective(value, REGION_END)) {
+            break;
+          }
+          if(isDirective(value, REGION_START)) {
+            if(!passedStatement || !isCombined(value)) {
+              return true;
+            }
+            break;
+          }
+        }
+        sibling = sibling.prevSibling();
+      }
+      crt = crt.ancestor();
+    }
+    return false;
+  }
+
+  /**
+   * Check whether a directive is one of the given directives. Data
+   * directives of OpenMP sharing the target prefix are not matched.
+   *
+   * @param value      Lower case value of the pragma.
+   * @param directives List of directive prefixes.
+   * @return True if the directive matches. False otherwise.
+   */
+  private static boolean isDirective(String value, List<String> directives) {
+    if(value.matches("omp (end )?target( (enter|exit))? data.*")
+        || value.startsWith("omp target update"))
+    {
+      return false;
+    }
+    for(String directive : directives) {
+      if(value.startsWith(directive)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether a directive is a combined construct applied to the next
+   * loop only.
+   *
+   * @param value Lower case value of the pragma.
+   * @return True if the directive is a combined construct.
+   */
+  private static boolean isCombined(String value) {
+    for(String construct : COMBINED) {
+      if(value.contains(construct)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Create a call statement to a timing routine.
+   *
+   * {@code
+   * CALL routine(id, line, 'function')
+   * }
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition holding the call.
+   * @param routine Name of the timing routine.
+   * @param id      Identifier of the region.
+   * @param line    Line of the region.
+   * @return Newly created exprStatement node.
+   */
+  private static Xnode createTimingCall(XcodeProgram xcodeml,
+                                        FfunctionDefinition fctDef,
+                                        String routine, int id, int line)
+  {
+    Xnode fctCall = xcodeml.createFctCall(Xname.TYPE_F_VOID, routine,
+        getRoutineType(xcodeml, fctDef, routine));
+    Xnode arguments = fctCall.matchDirectDescendant(Xcode.ARGUMENTS);
+    arguments.append(xcodeml.createIntConstant(id));
+    arguments.append(xcodeml.createIntConstant(line));
+    arguments.append(xcodeml.createCharConstant(fctDef.getName()));
+    Xnode exprStmt = xcodeml.createNode(Xcode.EXPR_STATEMENT);
+    exprStmt.append(fctCall);
+    return exprStmt;
+  }
+
+  /**
+   * Get the type of a timing routine in the function. The subroutine type
+   * and the symbol are created if not present yet. The lookup and the
+   * creation are done under the document lock.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition holding the call.
+   * @param routine Name of the timing routine.
+   * @return Type hash of the routine.
+   */
+  private static String getRoutineType(XcodeProgram xcodeml,
+                                       FfunctionDefinition fctDef,
+                                       String routine)
+  {
+    synchronized(fctDef.lock()) {
+      if(fctDef.getSymbolTable().contains(routine)) {
+        return fctDef.getSymbolTable().get(routine).getType();
+      }
+      String hash = xcodeml.getTypeTable().generateHash(FortranType.FUNCTION);
+      FfunctionType fctType = xcodeml.createFunctionType(hash);
+      fctType.setType(hash);
+      fctType.setAttribute(Xattr.RETURN_TYPE, Xname.TYPE_F_VOID);
+      xcodeml.getTypeTable().add(fctType);
+      fctDef.getSymbolTable().add(
+          xcodeml.createId(hash, XstorageClass.F_FUNC, routine), false);
+      return hash;
+    }
+  }
+
+  /**
+   * Add the use statement of the timing routines to the function if not
+   * present yet. The lookup and the insertion are done under the document
+   * lock.
+   *
+   * {@code
+   * USE claw_timing, ONLY: claw_timing_start, claw_timing_stop
+   * }
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition in which the use is added.
+   */
+  private static void addUseDeclaration(XcodeProgram xcodeml,
+                                        FfunctionDefinition fctDef)
+  {
+    synchronized(fctDef.lock()) {
+      if(fctDef.getDeclarationTable().contains(MODULE_NAME)) {
+        return;
+      }
+      Xnode use = xcodeml.createNode(Xcode.F_USE_ONLY_DECL);
+      use.setAttribute(Xattr.NAME, MODULE_NAME);
+      for(String routine : new String[]{START_ROUTINE, STOP_ROUTINE}) {
+        Xnode renamable = xcodeml.createNode(Xcode.RENAMABLE);
+        renamable.setAttribute(Xattr.USE_NAME, routine);
+        use.append(renamable);
+      }
+      fctDef.getDeclarationTable().addFirst(use);
+    }
+  }
+}
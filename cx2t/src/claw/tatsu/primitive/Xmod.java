@@ -7,10 +7,10 @@ package claw.tatsu.primitive;
 import claw.tatsu.common.Context;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
-import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.module.ModuleCache;
+import claw.tatsu.xcodeml.module.ModuleView;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.*;
-import org.w3c.dom.Document;
 
 import java.io.File;
 import java.util.List;
@@ -39,18 +39,18 @@ public final class Xmod {
    *
    * @param moduleName   Name of the module.
    * @param moduleSuffix Suffix to the module name.
-   * @return A FortranModule object representing the module if found. Null otherwise.
+   * @return A lazy view on the module file if found. Null otherwise.
    */
-  private static FortranModule find(String moduleName, String moduleSuffix) {
+  private static ModuleView findView(String moduleName, String moduleSuffix) {
     if(moduleSuffix == null) {
       moduleSuffix = "";
     }
-    for(String dir : Context.get().getModuleCache().getSearchPaths()) {
+    ModuleCache cache = Context.get().getModuleCache();
+    for(String dir : cache.getSearchPaths()) {
       String path = dir + "/" + moduleName + moduleSuffix;
       File f = new File(path);
       if(f.exists()) {
-        Document doc = XnodeUtil.readXmlFile(path);
-        return doc != null ? new FortranModule(doc, moduleName, dir) : null;
+        return cache.getView(moduleName, dir, path);
       }
     }
     return null;
@@ -63,7 +63,8 @@ public final class Xmod {
    * @return A FortranModule object representing the module if found. Null otherwise.
    */
   public static FortranModule find(String moduleName) {
-    return find(moduleName, XMOD_FILE_EXTENSION);
+    ModuleView view = findView(moduleName, XMOD_FILE_EXTENSION);
+    return view != null ? view.getModule() : null;
   }
 
   /**
@@ -74,7 +75,19 @@ public final class Xmod {
    */
   public static FortranModule findClaw(String moduleName)
   {
-    return find(moduleName, getSuffix());
+    ModuleView view = findClawView(moduleName);
+    return view != null ? view.getModule() : null;
+  }
+
+  /**
+   * Locate a module file generated by CLAW translator without reading it. The
+   * module is indexed and parsed on demand through the returned view.
+   *
+   * @param moduleName Name of the module.
+   * @return A view on the module file if found. Null otherwise.
+   */
+  public static ModuleView findClawView(String moduleName) {
+    return findView(moduleName, getSuffix());
   }
 
   /**
@@ -101,6 +114,9 @@ public final class Xmod {
 
   /**
    * Update the function signature in the module file to reflects local changes.
+   * The module is loaded at most once in the module cache so concurrent
+   * updates of different functions modify the same module. Each modification
+   * of the module is serialised on the lock of its document.
    *
    * @param moduleName    Xmod name to update.
    * @param xcodeml       Current XcodeML file unit.
@@ -110,22 +126,26 @@ public final class Xmod {
    * @throws IllegalTransformationException If the module file or the function
    *                                        cannot be located
    */
-  public static void updateSignature(String moduleName, XcodeProgram xcodeml,
+  public static void updateSignature(String moduleName,
+                                     XcodeProgram xcodeml,
                                      FfunctionDefinition fctDef,
                                      FfunctionType fctType,
                                      boolean importFctType)
       throws IllegalTransformationException
   {
     FortranModule mod;
-    if(Context.get().getModuleCache().isModuleLoaded(moduleName)) {
-      mod = Context.get().getModuleCache().get(moduleName);
-    } else {
-      mod = fctDef.findContainingXmod();
-      if(mod == null) {
-        throw new IllegalTransformationException(
-            "Unable to locate module file for: " + moduleName);
+    ModuleCache cache = Context.get().getModuleCache();
+    synchronized(cache) {
+      if(cache.isModuleLoaded(moduleName)) {
+        mod = cache.get(moduleName);
+      } else {
+        mod = fctDef.findContainingXmod();
+        if(mod == null) {
+          throw new IllegalTransformationException(
+              "Unable to locate module file for: " + moduleName);
+        }
+        cache.add(moduleName, mod);
       }
-      Context.get().getModuleCache().add(moduleName, mod);
     }
 
     FfunctionType fctTypeMod;
@@ -145,6 +165,7 @@ public final class Xmod {
           mod.importType(xcodeml, param.getType());
         }
       }
+      mod.setModified();
       return;
     } else {
       fctTypeMod = mod.getTypeTable().getFunctionType(fctDef);
@@ -226,5 +247,6 @@ public final class Xmod {
         pLocal.copyAttribute(pMod, Xattr.PROMOTION_INFO);
       }
     }
+    mod.setModified();
   }
 }
@@ -4,6 +4,7 @@
  */
 package claw.tatsu.xcodeml.abstraction;
 
+import claw.tatsu.analysis.reduction.ReductionOperator;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import org.w3c.dom.Element;
@@ -90,4 +91,107 @@ public class AssignStatement extends Xnode {
     return names;
   }
 
+  /**
+   * Get the reduction operator if the assignment accumulates a value in a
+   * scalar variable. Supported forms are s = s + expr, s = s - expr,
+   * s = s * expr, s = max(s, expr), s = min(s, expr), s = s .and. expr and
+   * s = s .or. expr where expr does not reference s. Operands of the same
+   * operator can be in any order.
+   *
+   * @return Reduction operator. Null if the assignment is not a reduction.
+   */
+  public ReductionOperator getReductionOperator() {
+    Xnode lhs = getLhs();
+    Xnode rhs = child(Xnode.RHS);
+    if(lhs == null || rhs == null || lhs.opcode() != Xcode.VAR) {
+      return null;
+    }
+    ReductionOperator operator = ReductionOperator.fromExpression(rhs);
+    if(operator == null) {
+      return null;
+    }
+
+    List<Xnode> operands = new ArrayList<>();
+    List<Xnode> others = new ArrayList<>();
+    if(rhs.opcode() == Xcode.FUNCTION_CALL) {
+      operands.addAll(rhs.matchSeq(Xcode.ARGUMENTS).children());
+    } else {
+      gatherOperands(rhs, operands, others);
+    }
+
+    String name = lhs.value();
+    int accumulators = 0;
+    for(Xnode operand : operands) {
+      if(operand.opcode() == Xcode.VAR && name.equals(operand.value())) {
+        ++accumulators;
+      } else if(references(operand, name)) {
+        return null;
+      }
+    }
+    for(Xnode operand : others) {
+      if(references(operand, name)) {
+        return null;
+      }
+    }
+    return accumulators == 1 ? operator : null;
+  }
+
+  /**
+   * Gather the operands of a chain of the same operator. For additions and
+   * subtractions, subtracted operands are gathered separately as they cannot
+   * hold the accumulator.
+   *
+   * @param expr       Expression node.
+   * @param operands   List in which the operands are added.
+   * @param subtracted List in which the subtracted operands are added.
+   */
+  private static void gatherOperands(Xnode expr, List<Xnode> operands,
+                                     List<Xnode> subtracted)
+  {
+    Xcode opcode = expr.opcode();
+    for(int i = 0; i < 2; ++i) {
+      Xnode operand = expr.child(i);
+      if(operand == null) {
+        continue;
+      }
+      if(opcode == Xcode.MINUS_EXPR && i == 1) {
+        subtracted.add(operand);
+      } else if(operand.opcode() == opcode
+          || (isAddition(opcode) && isAddition(operand.opcode())))
+      {
+        gatherOperands(operand, operands, subtracted);
+      } else {
+        operands.add(operand);
+      }
+    }
+  }
+
+  /**
+   * Check whether the opcode is an addition or a subtraction.
+   *
+   * @param opcode Opcode to be checked.
+   * @return True if plusExpr or minusExpr.
+   */
+  private static boolean isAddition(Xcode opcode) {
+    return opcode == Xcode.PLUS_EXPR || opcode == Xcode.MINUS_EXPR;
+  }
+
+  /**
+   * Check whether an expression references a variable.
+   *
+   * @param expr Expression node.
+   * @param name Name of the variable.
+   * @return True if the variable is referenced in the expression.
+   */
+  private static boolean references(Xnode expr, String name) {
+    if(expr.opcode() == Xcode.VAR && name.equals(expr.value())) {
+      return true;
+    }
+    for(Xnode var : expr.matchAll(Xcode.VAR)) {
+      if(name.equals(var.value())) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
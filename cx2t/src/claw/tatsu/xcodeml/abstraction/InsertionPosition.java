@@ -5,6 +5,7 @@
 package claw.tatsu.xcodeml.abstraction;
 
 import claw.tatsu.TatsuConstant;
+import claw.tatsu.common.Target;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -46,6 +47,23 @@ public enum InsertionPosition {
         BEFORE : _stringToEnum.get(value.toLowerCase());
   }
 
+  /**
+   * Get the insertion position giving the preferred memory layout of the
+   * promoted dimensions for a target. On GPU, the promoted dimensions are
+   * inserted first so that consecutive columns are contiguous in memory and
+   * accesses are coalesced. On CPU, they are inserted last so that each column
+   * is contiguous and can be blocked in cache.
+   *
+   * @param target Target architecture.
+   * @return BEFORE for GPU. AFTER for CPU and ARM. BEFORE otherwise.
+   */
+  public static InsertionPosition forTarget(Target target) {
+    if(target == Target.CPU || target == Target.ARM) {
+      return AFTER;
+    }
+    return BEFORE;
+  }
+
   @Override
   public String toString() {
     return _value;
@@ -0,0 +1,70 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.abstraction;
+
+/**
+ * Class holding information about a region instrumented with calls to the
+ * timing runtime.
+ *
+ * @author clementval
+ */
+public class TimingRegion {
+
+  private final int _id;
+  private final String _routine;
+  private final int _lineNo;
+  private final String _kind;
+
+  /**
+   * Constructs a new timing region information.
+   *
+   * @param id      Identifier of the region in the translation unit.
+   * @param routine Name of the function holding the region.
+   * @param lineNo  Line of the region in the original source.
+   * @param kind    Kind of the instrumented region.
+   */
+  public TimingRegion(int id, String routine, int lineNo, String kind) {
+    _id = id;
+    _routine = routine;
+    _lineNo = lineNo;
+    _kind = kind;
+  }
+
+  /**
+   * Get the identifier of the region.
+   *
+   * @return Region identifier passed to the timing runtime.
+   */
+  public int getId() {
+    return _id;
+  }
+
+  /**
+   * Get the name of the function holding the region.
+   *
+   * @return Function name.
+   */
+  public String getRoutine() {
+    return _routine;
+  }
+
+  /**
+   * Get the line of the region in the original source.
+   *
+   * @return Line number.
+   */
+  public int getLineNo() {
+    return _lineNo;
+  }
+
+  /**
+   * Get the kind of the instrumented region.
+   *
+   * @return Kind of the region.
+   */
+  public String getKind() {
+    return _kind;
+  }
+}
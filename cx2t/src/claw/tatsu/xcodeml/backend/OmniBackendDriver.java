@@ -4,14 +4,11 @@
  */
 package claw.tatsu.xcodeml.backend;
 
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.common.XcodeML;
 import org.w3c.dom.Document;
-import org.xml.sax.SAXException;
 import xcodeml.util.*;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
 
 /**
@@ -155,15 +152,13 @@ public class OmniBackendDriver {
       return false;
     }
 
-    try {
-      DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder builder = docFactory.newDocumentBuilder();
-      Document xcodeml = builder.parse(inputFilepath);
-      decompile(outputFilepath, xcodeml, maxColumns, lineDirectives);
-      return true;
-    } catch(ParserConfigurationException | SAXException | IOException e) {
+    // Input can be in XML or binary format
+    Document xcodeml = XnodeUtil.readFile(inputFilepath);
+    if(xcodeml == null) {
       return false;
     }
+    decompile(outputFilepath, xcodeml, maxColumns, lineDirectives);
+    return true;
   }
 
   public enum Lang {
@@ -24,6 +24,7 @@ public class ModuleCache {
 
   private final Map<String, FortranModule> _moduleCache;
   private final List<String> _searchPaths;
+  private final Map<String, ModuleView> _views;
 
   /**
    * Constructs a new empty module cache.
@@ -31,6 +32,7 @@ public class ModuleCache {
   public ModuleCache() {
     _moduleCache = new HashMap<>();
     _searchPaths = new ArrayList<>();
+    _views = new HashMap<>();
   }
 
   /**
@@ -39,7 +41,7 @@ public class ModuleCache {
    * @param moduleName Name of the module.
    * @return True if the module is in the cache. False otherwise.
    */
-  public boolean isModuleLoaded(String moduleName) {
+  public synchronized boolean isModuleLoaded(String moduleName) {
     return _moduleCache.containsKey(moduleName.toLowerCase());
   }
 
@@ -50,7 +52,7 @@ public class ModuleCache {
    * @param moduleName Name of the module.
    * @param module     Xmod object.
    */
-  public void add(String moduleName, FortranModule module) {
+  public synchronized void add(String moduleName, FortranModule module) {
     if(_moduleCache.containsKey(moduleName.toLowerCase())) {
       _moduleCache.remove(moduleName.toLowerCase());
     }
@@ -63,24 +65,64 @@ public class ModuleCache {
    * @param moduleName Name of the module.
    * @return The cached module.
    */
-  public FortranModule get(String moduleName) {
+  public synchronized FortranModule get(String moduleName) {
     return _moduleCache.get(moduleName.toLowerCase());
   }
 
   /**
-   * Write all modules in the cache to files.
+   * Get the view on a module file. Views are shared so a module file is
+   * indexed and parsed at most once.
+   *
+   * @param moduleName Name of the module.
+   * @param path       Path of the module file without the filename.
+   * @param file       Full path of the module file.
+   * @return The view on the module file.
+   */
+  public synchronized ModuleView getView(String moduleName, String path,
+                                         String file)
+  {
+    ModuleView view = _views.get(file);
+    if(view == null) {
+      view = new ModuleView(moduleName, path, file);
+      _views.put(file, view);
+    }
+    return view;
+  }
+
+  /**
+   * Write all modified modules in the cache to files.
    *
    * @param ident Number of spaces used to indent the XML file.
    * @throws IllegalTransformationException If module cannot be written.
    */
   public void write(int ident)
       throws IllegalTransformationException
+  {
+    write(ident, false);
+  }
+
+  /**
+   * Write all modified modules in the cache to files.
+   *
+   * @param ident  Number of spaces used to indent the XML file.
+   * @param binary If true, modules are written in binary format.
+   * @throws IllegalTransformationException If module cannot be written.
+   */
+  public void write(int ident, boolean binary)
+      throws IllegalTransformationException
   {
     String suffix = Xmod.getSuffix();
     for(Map.Entry<String, FortranModule> pair : _moduleCache.entrySet()) {
       FortranModule module = pair.getValue();
+      if(!module.isModified()) {
+        continue;
+      }
       String newModuleName = module.getPath() + module.getName() + suffix;
-      module.write(newModuleName, ident);
+      if(binary) {
+        module.writeBinary(newModuleName);
+      } else {
+        module.write(newModuleName, ident);
+      }
     }
   }
 
@@ -0,0 +1,337 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import claw.tatsu.xcodeml.xnode.XbinaryFormat;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xid;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The ModuleView is a lazily materialized view of a module file. On first
+ * touch, the identifiers and the type table entries of the module are indexed
+ * by streaming the file without building any DOM. Single type entries can then
+ * be read from the file on demand and the complete FortranModule is only
+ * parsed when it is actually needed.
+ *
+ * A materialized module is only softly referenced by the view. Modules with
+ * pending changes are kept alive by the ModuleCache while unmodified ones can
+ * be reclaimed and read again later.
+ *
+ * @author clementval
+ */
+public class ModuleView {
+
+  private final String _name;
+  private final String _path;
+  private final String _file;
+
+  private Map<String, String> _identifiers = null;
+  private Map<String, String> _types = null;
+  private SoftReference<FortranModule> _cached = null;
+
+  /**
+   * Constructs a view on a module file. The file is not read before the
+   * first query.
+   *
+   * @param name Name of the module.
+   * @param path Path of the module file without the filename.
+   * @param file Full path of the module file.
+   */
+  public ModuleView(String name, String path, String file) {
+    _name = name;
+    _path = path;
+    _file = file;
+  }
+
+  /**
+   * Get the name of the module.
+   *
+   * @return Name of the module.
+   */
+  public String getName() {
+    return _name;
+  }
+
+  /**
+   * Get the full path of the module file.
+   *
+   * @return Module file full path.
+   */
+  public String getFile() {
+    return _file;
+  }
+
+  /**
+   * Check whether the module declares the given identifier.
+   *
+   * @param name Name of the identifier.
+   * @return True if the identifier is declared in the module.
+   */
+  public synchronized boolean contains(String name) {
+    index();
+    return _identifiers.containsKey(name);
+  }
+
+  /**
+   * Get the type hash of an identifier declared in the module.
+   *
+   * @param name Name of the identifier.
+   * @return Type hash of the identifier. Null if not declared.
+   */
+  public synchronized String getType(String name) {
+    index();
+    return _identifiers.get(name);
+  }
+
+  /**
+   * Get the number of entries in the type table of the module.
+   *
+   * @return Number of type table entries.
+   */
+  public synchronized int typeCount() {
+    index();
+    return _types.size();
+  }
+
+  /**
+   * Get the function type of a function declared in the module. If the module
+   * is not materialized, only the function type entry is read from the file.
+   *
+   * @param name Name of the function.
+   * @return The function type. Null if the function is not declared in the
+   * module.
+   */
+  public synchronized FfunctionType getFunctionType(String name) {
+    FortranModule module = getLoadedModule();
+    if(module != null) {
+      Xid id = module.getIdentifiers().get(name);
+      return id == null ? null : module.getTypeTable().getFunctionType(id);
+    }
+
+    String hash = getType(name);
+    if(hash == null
+        || !Xcode.F_FUNCTION_TYPE.code().equals(_types.get(hash)))
+    {
+      return null;
+    }
+    Xnode entry = readTypeEntry(hash);
+    return entry == null ? null : new FfunctionType(entry);
+  }
+
+  /**
+   * Get the complete module. The module file is parsed if the module is not
+   * already materialized.
+   *
+   * @return The FortranModule object. Null if the file cannot be read.
+   */
+  public synchronized FortranModule getModule() {
+    FortranModule module = getLoadedModule();
+    if(module == null) {
+      Document doc = XnodeUtil.readFile(_file);
+      if(doc == null) {
+        return null;
+      }
+      module = new FortranModule(doc, _name, _path);
+      _cached = new SoftReference<>(module);
+    }
+    return module;
+  }
+
+  /**
+   * Check whether the complete module is currently materialized.
+   *
+   * @return True if the module is materialized.
+   */
+  public synchronized boolean isLoaded() {
+    return getLoadedModule() != null;
+  }
+
+  /**
+   * Get the materialized module if still available.
+   *
+   * @return The FortranModule object or null.
+   */
+  private FortranModule getLoadedModule() {
+    return _cached == null ? null : _cached.get();
+  }
+
+  /**
+   * Index the identifiers and type table entries of the module file.
+   */
+  private void index() {
+    if(_identifiers != null) {
+      return;
+    }
+    _identifiers = new HashMap<>();
+    _types = new HashMap<>();
+
+    FortranModule module = getLoadedModule();
+    if(module == null && XbinaryFormat.isBinary(_file)) {
+      // Binary files cannot be streamed
+      module = getModule();
+    }
+    if(module != null) {
+      for(Xnode entry : module.getTypeTable().values()) {
+        _types.put(entry.getType(), entry.opcode().code());
+      }
+      for(Xnode node : module.getIdentifiers().children()) {
+        Xid id = new Xid(node);
+        _identifiers.put(id.getName(), id.getType());
+      }
+      return;
+    }
+
+    try(InputStream input = open()) {
+      XMLStreamReader reader = createReader(input);
+      try {
+        int depth = 0;
+        String section = null;
+        String idType = null;
+        boolean inName = false;
+        StringBuilder idName = new StringBuilder();
+        while(reader.hasNext()) {
+          int event = reader.next();
+          if(event == XMLStreamConstants.START_ELEMENT) {
+            ++depth;
+            String element = reader.getLocalName();
+            if(depth == 2) {
+              section = element;
+            } else if(depth == 3 && Xcode.TYPE_TABLE.code().equals(section)) {
+              _types.put(reader.getAttributeValue(null, "type"), element);
+            } else if(depth == 3 && Xcode.IDENTIFIERS.code().equals(section)) {
+              idType = reader.getAttributeValue(null, "type");
+              idName.setLength(0);
+            } else if(depth == 4 && Xcode.IDENTIFIERS.code().equals(section)) {
+              inName = Xcode.NAME.code().equals(element);
+            }
+          } else if(event == XMLStreamConstants.CHARACTERS && inName) {
+            idName.append(reader.getText());
+          } else if(event == XMLStreamConstants.END_ELEMENT) {
+            if(depth == 3 && Xcode.IDENTIFIERS.code().equals(section)) {
+              _identifiers.put(idName.toString().trim(), idType);
+            }
+            inName = false;
+            --depth;
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch(IOException | XMLStreamException ignored) {
+      _identifiers.clear();
+      _types.clear();
+    }
+  }
+
+  /**
+   * Read a single type table entry from the module file into a standalone
+   * document.
+   *
+   * @param hash Type hash of the entry.
+   * @return The entry. Null if not found or if the file cannot be read.
+   */
+  private Xnode readTypeEntry(String hash) {
+    try(InputStream input = open()) {
+      XMLStreamReader reader = createReader(input);
+      try {
+        Document doc = XnodeUtil.createDocumentBuilderFactory().
+            newDocumentBuilder().newDocument();
+        int depth = 0;
+        String section = null;
+        Node current = null;
+        while(reader.hasNext()) {
+          int event = reader.next();
+          if(event == XMLStreamConstants.START_ELEMENT) {
+            ++depth;
+            if(depth == 2) {
+              section = reader.getLocalName();
+            }
+            if(current != null || (depth == 3
+                && Xcode.TYPE_TABLE.code().equals(section)
+                && hash.equals(reader.getAttributeValue(null, "type"))))
+            {
+              Element element = doc.createElement(reader.getLocalName());
+              for(int i = 0; i < reader.getAttributeCount(); ++i) {
+                element.setAttribute(reader.getAttributeLocalName(i),
+                    reader.getAttributeValue(i));
+              }
+              if(current == null) {
+                doc.appendChild(element);
+              } else {
+                current.appendChild(element);
+              }
+              current = element;
+            }
+          } else if(current != null && !reader.isWhiteSpace()
+              && (event == XMLStreamConstants.CHARACTERS
+              || event == XMLStreamConstants.CDATA))
+          {
+            current.appendChild(doc.createTextNode(reader.getText()));
+          } else if(event == XMLStreamConstants.END_ELEMENT) {
+            if(current != null) {
+              if(current == doc.getDocumentElement()) {
+                return new Xnode((Element) current);
+              }
+              current = current.getParentNode();
+            }
+            --depth;
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch(IOException | XMLStreamException
+        | ParserConfigurationException ignored)
+    {
+    }
+    return null;
+  }
+
+  /**
+   * Open the module file for streaming.
+   *
+   * @return Buffered input stream on the module file.
+   * @throws IOException If the file cannot be opened.
+   */
+  private InputStream open() throws IOException {
+    return new BufferedInputStream(new FileInputStream(_file));
+  }
+
+  /**
+   * Create a streaming reader on the module file.
+   *
+   * @param input Input stream on the module file.
+   * @return The streaming reader.
+   * @throws XMLStreamException If the reader cannot be created.
+   */
+  private static XMLStreamReader createReader(InputStream input)
+      throws XMLStreamException
+  {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    return factory.createXMLStreamReader(input);
+  }
+}
@@ -0,0 +1,456 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of an XcodeML document. It is an alternative to
+ * the XML text form for the intermediate files produced and read by the
+ * translator and for the module files. The XML form stays the reference
+ * format and is still used for debugging.
+ *
+ * Layout:
+ * - magic (4 bytes) and format version (varint)
+ * - string table: count (varint), then for each string its UTF-8 length
+ * (varint) and bytes. Tag names, attribute names and values and text values
+ * are stored once.
+ * - tree: pre-order encoding of the document element. Each node starts with
+ * its kind. An element is followed by its tag index, its attributes count
+ * and (name, value) index pairs, its children count and its children. Text,
+ * CDATA and comment nodes are followed by their value index.
+ *
+ * Files are memory-mapped for reading.
+ *
+ * @author clementval
+ */
+public final class XbinaryFormat {
+
+  private static final byte[] MAGIC = {'X', 'C', 'M', 'B'};
+  private static final int VERSION = 1;
+
+  private static final int ELEMENT = 1;
+  private static final int TEXT = 2;
+  private static final int CDATA = 3;
+  private static final int COMMENT = 4;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  // Avoid instantiation of this class
+  private XbinaryFormat() {
+  }
+
+  /**
+   * Check whether the file is in binary format.
+   *
+   * @param input File path.
+   * @return True if the file starts with the binary format magic. False
+   * otherwise.
+   */
+  public static boolean isBinary(String input) {
+    byte[] header = new byte[MAGIC.length];
+    try(InputStream in = new FileInputStream(input)) {
+      return in.read(header) == MAGIC.length && hasMagic(header);
+    } catch(IOException ignored) {
+      return false;
+    }
+  }
+
+  /**
+   * Check whether the stream is in binary format. The stream position is not
+   * modified.
+   *
+   * @param input Buffered input stream supporting mark.
+   * @return True if the stream starts with the binary format magic. False
+   * otherwise.
+   * @throws IOException If the stream cannot be read.
+   */
+  public static boolean isBinary(BufferedInputStream input)
+      throws IOException
+  {
+    byte[] header = new byte[MAGIC.length];
+    input.mark(MAGIC.length);
+    int read = 0;
+    int n;
+    while(read < header.length
+        && (n = input.read(header, read, header.length - read)) > 0)
+    {
+      read += n;
+    }
+    input.reset();
+    return read == MAGIC.length && hasMagic(header);
+  }
+
+  /**
+   * Check if the header is the binary format magic.
+   *
+   * @param header First bytes of the input.
+   * @return True if the header matches. False otherwise.
+   */
+  private static boolean hasMagic(byte[] header) {
+    for(int i = 0; i < MAGIC.length; ++i) {
+      if(header[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Write the document in binary format to a file.
+   *
+   * @param doc    Document to be written.
+   * @param output Output file path.
+   * @throws IOException If the file cannot be written.
+   */
+  public static void write(Document doc, String output) throws IOException {
+    try(OutputStream out =
+            new BufferedOutputStream(new FileOutputStream(output)))
+    {
+      write(doc, out);
+    }
+  }
+
+  /**
+   * Write the document in binary format to a stream. The stream is flushed
+   * but not closed.
+   *
+   * @param doc Document to be written.
+   * @param out Output stream.
+   * @throws IOException If the stream cannot be written.
+   */
+  public static void write(Document doc, OutputStream out) throws IOException {
+    Element root = doc.getDocumentElement();
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    collectStrings(root, strings);
+
+    out.write(MAGIC);
+    writeVarint(out, VERSION);
+    writeVarint(out, strings.size());
+    for(String str : strings.keySet()) {
+      byte[] bytes = str.getBytes(UTF8);
+      writeVarint(out, bytes.length);
+      out.write(bytes);
+    }
+    writeNode(out, root, strings);
+    out.flush();
+  }
+
+  /**
+   * Read a document in binary format from a file. The file is memory-mapped.
+   *
+   * @param input Input file path.
+   * @return The decoded document.
+   * @throws IOException If the file cannot be read or is not valid.
+   */
+  public static Document read(String input) throws IOException {
+    try(RandomAccessFile file = new RandomAccessFile(input, "r");
+        FileChannel channel = file.getChannel())
+    {
+      MappedByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return read(buffer);
+    }
+  }
+
+  /**
+   * Read a document in binary format from a stream.
+   *
+   * @param input Input stream.
+   * @return The decoded document.
+   * @throws IOException If the stream cannot be read or is not valid.
+   */
+  public static Document read(InputStream input) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    int n;
+    while((n = input.read(chunk)) > 0) {
+      bytes.write(chunk, 0, n);
+    }
+    return read(ByteBuffer.wrap(bytes.toByteArray()));
+  }
+
+  /**
+   * Read a document in binary format from a buffer.
+   *
+   * @param buffer Buffer positioned at the beginning of the encoded document.
+   * @return The decoded document.
+   * @throws IOException If the buffer is not a valid encoded document.
+   */
+  public static Document read(ByteBuffer buffer) throws IOException {
+    try {
+      return decode(buffer);
+    } catch(BufferUnderflowException ignored) {
+      throw new IOException("Truncated binary XcodeML document");
+    }
+  }
+
+  /**
+   * Decode the document from the buffer.
+   *
+   * @param buffer Buffer positioned at the beginning of the encoded document.
+   * @return The decoded document.
+   * @throws IOException If the buffer is not a valid encoded document.
+   */
+  private static Document decode(ByteBuffer buffer) throws IOException {
+    byte[] header = new byte[MAGIC.length];
+    buffer.get(header);
+    if(!hasMagic(header)) {
+      throw new IOException("Not a binary XcodeML document");
+    }
+    int version = readVarint(buffer);
+    if(version != VERSION) {
+      throw new IOException("Unsupported binary XcodeML version: " + version);
+    }
+
+    int count = readVarint(buffer);
+    if(count < 0 || count > buffer.remaining()) {
+      throw new IOException("Invalid string table in binary XcodeML");
+    }
+    String[] strings = new String[count];
+    for(int i = 0; i < strings.length; ++i) {
+      int length = readVarint(buffer);
+      if(length < 0 || length > buffer.remaining()) {
+        throw new IOException("Invalid string in binary XcodeML");
+      }
+      if(buffer.hasArray()) {
+        strings[i] = new String(buffer.array(),
+            buffer.arrayOffset() + buffer.position(), length, UTF8);
+        buffer.position(buffer.position() + length);
+      } else {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        strings[i] = new String(bytes, UTF8);
+      }
+    }
+
+    Document doc;
+    try {
+      doc = XnodeUtil.createDocumentBuilderFactory().newDocumentBuilder().
+          newDocument();
+    } catch(ParserConfigurationException e) {
+      throw new IOException(e.getMessage());
+    }
+    Node root = readNode(buffer, doc, strings);
+    if(!(root instanceof Element)) {
+      throw new IOException("Binary XcodeML document has no root element");
+    }
+    doc.appendChild(root);
+    return doc;
+  }
+
+  /**
+   * Check if the node is encoded in the binary format.
+   *
+   * @param node Node to check.
+   * @return True if the node is encoded. False if it is skipped.
+   */
+  private static boolean isEncoded(Node node) {
+    switch(node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+      case Node.TEXT_NODE:
+      case Node.CDATA_SECTION_NODE:
+      case Node.COMMENT_NODE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Add all strings of the subtree to the string table.
+   *
+   * @param node    Root of the subtree.
+   * @param strings String table.
+   */
+  private static void collectStrings(Node node, Map<String, Integer> strings) {
+    if(node.getNodeType() == Node.ELEMENT_NODE) {
+      addString(node.getNodeName(), strings);
+      NamedNodeMap attributes = node.getAttributes();
+      for(int i = 0; i < attributes.getLength(); ++i) {
+        addString(attributes.item(i).getNodeName(), strings);
+        addString(attributes.item(i).getNodeValue(), strings);
+      }
+      for(Node child = node.getFirstChild(); child != null;
+          child = child.getNextSibling())
+      {
+        collectStrings(child, strings);
+      }
+    } else if(isEncoded(node)) {
+      addString(node.getNodeValue(), strings);
+    }
+  }
+
+  /**
+   * Add a string to the string table if not already present.
+   *
+   * @param str     String to add.
+   * @param strings String table.
+   */
+  private static void addString(String str, Map<String, Integer> strings) {
+    if(!strings.containsKey(str)) {
+      strings.put(str, strings.size());
+    }
+  }
+
+  /**
+   * Encode the subtree.
+   *
+   * @param out     Output stream.
+   * @param node    Root of the subtree.
+   * @param strings String table.
+   * @throws IOException If the stream cannot be written.
+   */
+  private static void writeNode(OutputStream out, Node node,
+                                Map<String, Integer> strings)
+      throws IOException
+  {
+    switch(node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        writeVarint(out, ELEMENT);
+        writeVarint(out, strings.get(node.getNodeName()));
+        NamedNodeMap attributes = node.getAttributes();
+        writeVarint(out, attributes.getLength());
+        for(int i = 0; i < attributes.getLength(); ++i) {
+          writeVarint(out, strings.get(attributes.item(i).getNodeName()));
+          writeVarint(out, strings.get(attributes.item(i).getNodeValue()));
+        }
+        int count = 0;
+        for(Node child = node.getFirstChild(); child != null;
+            child = child.getNextSibling())
+        {
+          if(isEncoded(child)) {
+            ++count;
+          }
+        }
+        writeVarint(out, count);
+        for(Node child = node.getFirstChild(); child != null;
+            child = child.getNextSibling())
+        {
+          if(isEncoded(child)) {
+            writeNode(out, child, strings);
+          }
+        }
+        break;
+      case Node.TEXT_NODE:
+        writeVarint(out, TEXT);
+        writeVarint(out, strings.get(node.getNodeValue()));
+        break;
+      case Node.CDATA_SECTION_NODE:
+        writeVarint(out, CDATA);
+        writeVarint(out, strings.get(node.getNodeValue()));
+        break;
+      case Node.COMMENT_NODE:
+        writeVarint(out, COMMENT);
+        writeVarint(out, strings.get(node.getNodeValue()));
+        break;
+    }
+  }
+
+  /**
+   * Decode a subtree.
+   *
+   * @param buffer  Input buffer.
+   * @param doc     Document in which nodes are created.
+   * @param strings String table.
+   * @return The decoded node.
+   * @throws IOException If the encoding is not valid.
+   */
+  private static Node readNode(ByteBuffer buffer, Document doc,
+                               String[] strings)
+      throws IOException
+  {
+    int kind = readVarint(buffer);
+    switch(kind) {
+      case ELEMENT:
+        Element element = doc.createElement(readString(buffer, strings));
+        int attributes = readVarint(buffer);
+        for(int i = 0; i < attributes; ++i) {
+          String name = readString(buffer, strings);
+          element.setAttribute(name, readString(buffer, strings));
+        }
+        int children = readVarint(buffer);
+        for(int i = 0; i < children; ++i) {
+          element.appendChild(readNode(buffer, doc, strings));
+        }
+        return element;
+      case TEXT:
+        return doc.createTextNode(readString(buffer, strings));
+      case CDATA:
+        return doc.createCDATASection(readString(buffer, strings));
+      case COMMENT:
+        return doc.createComment(readString(buffer, strings));
+      default:
+        throw new IOException("Unknown node kind in binary XcodeML: " + kind);
+    }
+  }
+
+  /**
+   * Read a string table reference.
+   *
+   * @param buffer  Input buffer.
+   * @param strings String table.
+   * @return The referenced string.
+   * @throws IOException If the reference is not valid.
+   */
+  private static String readString(ByteBuffer buffer, String[] strings)
+      throws IOException
+  {
+    int index = readVarint(buffer);
+    if(index < 0 || index >= strings.length) {
+      throw new IOException("Invalid string reference in binary XcodeML");
+    }
+    return strings[index];
+  }
+
+  /**
+   * Write an unsigned integer with 7 bits per byte.
+   *
+   * @param out   Output stream.
+   * @param value Non negative value.
+   * @throws IOException If the stream cannot be written.
+   */
+  private static void writeVarint(OutputStream out, int value)
+      throws IOException
+  {
+    while((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  /**
+   * Read an unsigned integer with 7 bits per byte.
+   *
+   * @param buffer Input buffer.
+   * @return Decoded value.
+   * @throws IOException If the value is not valid.
+   */
+  private static int readVarint(ByteBuffer buffer) throws IOException {
+    int value = 0;
+    for(int shift = 0; shift < 32; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in binary XcodeML");
+  }
+}
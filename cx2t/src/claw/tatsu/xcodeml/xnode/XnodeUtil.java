@@ -17,11 +17,13 @@ import org.w3c.dom.NodeList;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -38,6 +40,9 @@ public class XnodeUtil {
 
   // TODO 1.0 move method to specific primitives or classes and delete this class
 
+  private static final String DEFER_NODE_EXPANSION =
+      "http://apache.org/xml/features/dom/defer-node-expansion";
+
   /**
    * Find all array references elements in a given body and give var name.
    *
@@ -331,7 +336,7 @@ public class XnodeUtil {
         offsetXpath.append(String.format("%s[position()=%s and %s[%s and %s[text()=\"%s\"]]]",
             Xname.ARRAY_INDEX,
             i + 1,
-            Xname.MINUS_EXPR,
+            Xname.PLUS_EXPR,
             Xname.VAR,
             Xname.F_INT_CONST,
             offsets.get(i)));
@@ -571,7 +576,7 @@ public class XnodeUtil {
       if(!fXmlFile.exists()) {
         return null;
       }
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+      DocumentBuilderFactory dbFactory = createDocumentBuilderFactory();
       DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
       Document doc = dBuilder.parse(fXmlFile);
       doc.getDocumentElement().normalize();
@@ -581,6 +586,41 @@ public class XnodeUtil {
     return null;
   }
 
+  /**
+   * Read an XcodeML file either in XML or in binary format.
+   *
+   * @param input File path.
+   * @return Document if the file could be read. Null otherwise.
+   * @see XbinaryFormat
+   */
+  public static Document readFile(String input) {
+    if(!XbinaryFormat.isBinary(input)) {
+      return readXmlFile(input);
+    }
+    try {
+      return XbinaryFormat.read(input);
+    } catch(IOException ignored) {
+    }
+    return null;
+  }
+
+  /**
+   * Create a document builder factory for XcodeML documents. Deferred node
+   * expansion is disabled so read-only accesses to the DOM do not modify it
+   * and disjoint parts of a document can be accessed by several threads.
+   *
+   * @return New document builder factory.
+   */
+  public static DocumentBuilderFactory createDocumentBuilderFactory() {
+    DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+    try {
+      dbFactory.setFeature(DEFER_NODE_EXPANSION, false);
+    } catch(ParserConfigurationException ignored) {
+      // Feature not supported by the implementation
+    }
+    return dbFactory;
+  }
+
   /**
    * Delete a node in the ast.
    *
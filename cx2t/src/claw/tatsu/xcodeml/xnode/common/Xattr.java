@@ -89,11 +89,14 @@ public enum Xattr {
   IS_INSERTED(Xname.ATTR_IS_INSERTED),
   PROMOTION_INFO(Xname.ATTR_PROMOTION_INFO);
 
+  // Attribute names are matched as is first, lower case is only a fallback
   private static final Map<String, Xattr> _stringToEnum = new HashMap<>();
+  private static final Map<String, Xattr> _lowerCaseToEnum = new HashMap<>();
 
   static {
     for(Xattr attr : values()) {
-      _stringToEnum.put(attr.toString().toLowerCase(), attr);
+      _stringToEnum.put(attr.toString(), attr);
+      _lowerCaseToEnum.put(attr.toString().toLowerCase(), attr);
     }
   }
 
@@ -103,9 +106,19 @@ public enum Xattr {
     _irValue = s;
   }
 
+  /**
+   * Get the attribute code corresponding to the attribute name. Matching is
+   * case insensitive.
+   *
+   * @param value Attribute name.
+   * @return Corresponding attribute code. Null if the name is unknown.
+   */
   public static Xattr fromString(String value) {
-    return (value == null || !_stringToEnum.containsKey(value.toLowerCase())) ?
-        null : _stringToEnum.get(value.toLowerCase());
+    if(value == null) {
+      return null;
+    }
+    Xattr attr = _stringToEnum.get(value);
+    return attr != null ? attr : _lowerCaseToEnum.get(value.toLowerCase());
   }
 
   @Override
@@ -0,0 +1,208 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The XcallGraph indexes the function definitions of a translation unit by
+ * name and resolves the function calls to their definitions. The index is
+ * built once on first use. Function definitions created by transformations
+ * must be registered with add(). Call sites are always read from the current
+ * state of the function definitions so calls added by transformations are
+ * seen.
+ *
+ * @author clementval
+ */
+public class XcallGraph {
+
+  private final XcodeProgram _xcodeml;
+  private Map<String, List<FfunctionDefinition>> _definitions = null;
+
+  /**
+   * Constructs a call graph for the given translation unit.
+   *
+   * @param xcodeml Translation unit.
+   */
+  public XcallGraph(XcodeProgram xcodeml) {
+    _xcodeml = xcodeml;
+  }
+
+  /**
+   * Get the name of the function called by a function call node.
+   *
+   * @param fctCall Function call node.
+   * @return Name of the called function. Null if the node is not a function
+   * call or if the call is to an intrinsic function.
+   */
+  public static String getCalledName(Xnode fctCall) {
+    if(fctCall == null || fctCall.opcode() != Xcode.FUNCTION_CALL
+        || fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC))
+    {
+      return null;
+    }
+    Xnode name = fctCall.matchSeq(Xcode.NAME);
+    return name == null ? null : name.value();
+  }
+
+  /**
+   * Get all the non intrinsic function calls in a function definition.
+   *
+   * @param fctDef Function definition.
+   * @return List of function call nodes in document order.
+   */
+  public List<Xnode> getCalls(Xnode fctDef) {
+    List<Xnode> calls = new ArrayList<>();
+    for(Xnode fctCall : fctDef.matchAll(Xcode.FUNCTION_CALL)) {
+      if(getCalledName(fctCall) != null) {
+        calls.add(fctCall);
+      }
+    }
+    return calls;
+  }
+
+  /**
+   * Find the definition of a function called from the given function
+   * definition. Definitions in the same module as the caller are preferred
+   * over top level definitions and definitions in other modules.
+   *
+   * @param caller Function definition in which the call is located. Can be
+   *               null.
+   * @param name   Name of the called function.
+   * @return Function definition if found in the translation unit. Null
+   * otherwise.
+   */
+  public synchronized FfunctionDefinition getDefinition(Xnode caller,
+                                                        String name)
+  {
+    return name == null ? null : resolve(caller, name);
+  }
+
+  /**
+   * Register a function definition inserted in the translation unit after the
+   * index was built.
+   *
+   * @param fctDef New function definition.
+   */
+  public synchronized void add(FfunctionDefinition fctDef) {
+    if(_definitions != null) {
+      index(fctDef);
+    }
+  }
+
+  /**
+   * Get the functions directly called from a function definition and defined
+   * in the translation unit.
+   *
+   * @param caller Function definition.
+   * @return List of distinct called function definitions.
+   */
+  public List<FfunctionDefinition> getCallees(Xnode caller) {
+    Set<FfunctionDefinition> callees = new LinkedHashSet<>();
+    for(Xnode fctCall : getCalls(caller)) {
+      FfunctionDefinition callee =
+          getDefinition(caller, getCalledName(fctCall));
+      if(callee != null) {
+        callees.add(callee);
+      }
+    }
+    return new ArrayList<>(callees);
+  }
+
+  /**
+   * Get all the functions reachable from a function definition through calls
+   * to functions defined in the translation unit. Each function is returned
+   * once, in breadth first order. The root is not part of the result unless
+   * it is called recursively.
+   *
+   * @param root Function definition to start from.
+   * @return List of reachable function definitions.
+   */
+  public List<FfunctionDefinition> getCallTree(FfunctionDefinition root) {
+    List<FfunctionDefinition> tree = new ArrayList<>();
+    Set<FfunctionDefinition> visited = new HashSet<>();
+    Deque<Xnode> toVisit = new ArrayDeque<>();
+    toVisit.add(root);
+    while(!toVisit.isEmpty()) {
+      for(FfunctionDefinition callee : getCallees(toVisit.poll())) {
+        if(visited.add(callee)) {
+          tree.add(callee);
+          toVisit.add(callee);
+        }
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * Resolve a function name with the current index.
+   *
+   * @param caller Function definition in which the call is located.
+   * @param name   Name of the called function.
+   * @return Function definition if found. Null otherwise.
+   */
+  private FfunctionDefinition resolve(Xnode caller, String name) {
+    if(_definitions == null) {
+      buildIndex();
+    }
+    List<FfunctionDefinition> candidates = _definitions.get(name);
+    if(candidates == null) {
+      return null;
+    }
+    FmoduleDefinition callerModule =
+        caller == null ? null : caller.findParentModule();
+    FfunctionDefinition topLevel = null;
+    FfunctionDefinition other = null;
+    for(FfunctionDefinition candidate : candidates) {
+      if(candidate.isDeleted() || candidate.ancestor() == null) {
+        continue;
+      }
+      FmoduleDefinition module = candidate.findParentModule();
+      if(callerModule != null && callerModule.equals(module)) {
+        return candidate;
+      } else if(module == null && topLevel == null) {
+        topLevel = candidate;
+      } else if(other == null) {
+        other = candidate;
+      }
+    }
+    return topLevel != null ? topLevel : other;
+  }
+
+  /**
+   * Index all the function definitions of the translation unit by name.
+   */
+  private void buildIndex() {
+    _definitions = new HashMap<>();
+    for(FfunctionDefinition fctDef : _xcodeml.getAllFctDef()) {
+      index(fctDef);
+    }
+  }
+
+  /**
+   * Add a function definition to the index.
+   *
+   * @param fctDef Function definition to be indexed.
+   */
+  private void index(FfunctionDefinition fctDef) {
+    List<FfunctionDefinition> defs = _definitions.get(fctDef.getName());
+    if(defs == null) {
+      defs = new ArrayList<>();
+      _definitions.put(fctDef.getName(), defs);
+    }
+    defs.add(fctDef);
+  }
+}
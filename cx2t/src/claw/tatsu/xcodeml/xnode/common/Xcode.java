@@ -173,11 +173,14 @@ public enum Xcode {
   // Special opcode for unknown node
   NONE(Xname.NONE);
 
+  // Tag names are matched as is first, lower case is only a fallback
   private static final Map<String, Xcode> _stringToEnum = new HashMap<>();
+  private static final Map<String, Xcode> _lowerCaseToEnum = new HashMap<>();
 
   static {
     for(Xcode code : values()) {
-      _stringToEnum.put(code.toString().toLowerCase(), code);
+      _stringToEnum.put(code.toString(), code);
+      _lowerCaseToEnum.put(code.toString().toLowerCase(), code);
     }
   }
 
@@ -193,9 +196,22 @@ public enum Xcode {
     _hasBody = hasBody;
   }
 
+  /**
+   * Get the opcode corresponding to the element name. Matching is case
+   * insensitive.
+   *
+   * @param value Element name.
+   * @return Corresponding opcode. NONE if the name is unknown.
+   */
   public static Xcode fromString(String value) {
-    return (value == null || !_stringToEnum.containsKey(value.toLowerCase())) ?
-        NONE : _stringToEnum.get(value.toLowerCase());
+    if(value == null) {
+      return NONE;
+    }
+    Xcode code = _stringToEnum.get(value);
+    if(code == null) {
+      code = _lowerCaseToEnum.get(value.toLowerCase());
+    }
+    return code == null ? NONE : code;
   }
 
   @Override
@@ -9,7 +9,9 @@ import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.primitive.Pragma;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.XbinaryFormat;
 import claw.tatsu.xcodeml.xnode.Xname;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.fortran.*;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -62,7 +64,8 @@ public class XcodeML extends Xnode {
       if(input == null) {
         return null;
       }
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+      DocumentBuilderFactory dbFactory =
+          XnodeUtil.createDocumentBuilderFactory();
       DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
       Document doc = dBuilder.parse(input);
       doc.getDocumentElement().normalize();
@@ -79,7 +82,9 @@ public class XcodeML extends Xnode {
    * @return Newly created node.
    */
   public Xnode createNode(Xcode opcode) {
-    return new Xnode(getDocument().createElement(opcode.code()));
+    synchronized(_xcodemlDoc) {
+      return new Xnode(_xcodemlDoc.createElement(opcode.code()));
+    }
   }
 
   /**
@@ -107,7 +112,7 @@ public class XcodeML extends Xnode {
     List<FfunctionDefinition> definitions = new ArrayList<>();
     List<Xnode> nodes = matchAll(Xcode.F_FUNCTION_DEFINITION);
     for(Xnode fctDef : nodes) {
-      definitions.add(new FfunctionDefinition(fctDef));
+      definitions.add(XsymbolIndex.getFunctionDefinition(fctDef));
     }
     return definitions;
   }
@@ -201,13 +206,17 @@ public class XcodeML extends Xnode {
   }
 
   /**
-   * Import node to current XcodeML translation unit.
+   * Import node to current XcodeML translation unit. Only the lock of the
+   * current document is taken. The imported node must not be modified
+   * concurrently.
    *
    * @param node Node to import.
    * @return Imported node.
    */
   public Xnode importNode(Xnode node) {
-    return new Xnode((Element) getDocument().importNode(node.element(), true));
+    synchronized(_xcodemlDoc) {
+      return new Xnode((Element) _xcodemlDoc.importNode(node.element(), true));
+    }
   }
 
   /**
@@ -266,6 +275,29 @@ public class XcodeML extends Xnode {
     }
   }
 
+  /**
+   * Write the XcodeML to file or std out in binary format.
+   *
+   * @param outputFile Path of the output file or null to output on std out.
+   * @throws IllegalTransformationException If the file cannot be written.
+   * @see XbinaryFormat
+   */
+  public void writeBinary(String outputFile)
+      throws IllegalTransformationException
+  {
+    try {
+      cleanEmptyTextNodes(this.getDocument());
+      if(outputFile == null) {
+        XbinaryFormat.write(this.getDocument(), System.out);
+      } else {
+        XbinaryFormat.write(this.getDocument(), outputFile);
+      }
+    } catch(Exception ignored) {
+      throw new IllegalTransformationException("Cannot output file: " +
+          outputFile, 0);
+    }
+  }
+
   /**
    * Remove all empty text nodes in the subtree.
    *
@@ -404,7 +436,7 @@ public class XcodeML extends Xnode {
     } else if(hook == null) {
       fctDef.getDeclarationTable().add(decl);
     } else {
-      hook.insertAfter(decl);
+      fctDef.getDeclarationTable().insertAfter(hook, decl);
     }
   }
 
@@ -830,25 +862,39 @@ public class XcodeML extends Xnode {
 
     Xnode valueList = createNode(Xcode.VALUE_LIST);
     for(String charConstant : charConstants) {
-      // Create the char constant type
-      Xnode charType = createBasicType(FortranType.CHARACTER, Intent.NONE);
-      Xnode len = createNode(Xcode.LEN);
-      len.append(createIntConstant(charConstant.length()));
-      charType.append(len);
-      getTypeTable().add(charType);
-
       // Create the value element to be added to the list
       Xnode valueElement = createNode(Xcode.VALUE);
-      Xnode fCharElement = createNode(Xcode.F_CHARACTER_CONSTANT);
-      fCharElement.setType(charType.getType());
-      fCharElement.setValue(charConstant);
-      valueElement.append(fCharElement);
+      valueElement.append(createCharConstant(charConstant));
       valueList.append(valueElement);
     }
     printStatement.append(valueList);
     return printStatement;
   }
 
+  /**
+   * Create a FcharacterConstant node with the given value and its character
+   * type of the corresponding length.
+   *
+   * {@code
+   * <FcharacterConstant type="C...">value</FcharacterConstant>
+   * }
+   *
+   * @param value Value assigned to the character constant.
+   * @return Newly created node.
+   */
+  public Xnode createCharConstant(String value) {
+    Xnode charType = createBasicType(FortranType.CHARACTER, Intent.NONE);
+    Xnode len = createNode(Xcode.LEN);
+    len.append(createIntConstant(value.length()));
+    charType.append(len);
+    getTypeTable().add(charType);
+
+    Xnode charConstant = createNode(Xcode.F_CHARACTER_CONSTANT);
+    charConstant.setType(charType.getType());
+    charConstant.setValue(value);
+    return charConstant;
+  }
+
   /**
    * Create a FintConstant node with the given value.
    *
@@ -5,13 +5,16 @@
 package claw.tatsu.xcodeml.xnode.common;
 
 import claw.tatsu.xcodeml.error.XanalysisError;
+import claw.tatsu.xcodeml.xnode.XbinaryFormat;
 import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import org.w3c.dom.Document;
 
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -37,6 +40,7 @@ public class XcodeProgram extends XcodeML {
   // XcodeProgram inner elements
   private XsymbolTable _globalSymbolsTable = null;
   private XglobalDeclTable _globalDeclarationsTable = null;
+  private XcallGraph _callGraph = null;
 
   /**
    * XcodeProgram base constructor.
@@ -45,8 +49,8 @@ public class XcodeProgram extends XcodeML {
    */
   private XcodeProgram(Document doc) {
     super(doc);
-    _errors = new ArrayList<>();
-    _warnings = new ArrayList<>();
+    _errors = Collections.synchronizedList(new ArrayList<XanalysisError>());
+    _warnings = Collections.synchronizedList(new ArrayList<XanalysisError>());
   }
 
   /**
@@ -58,7 +62,12 @@ public class XcodeProgram extends XcodeML {
    */
   public static XcodeProgram createFromStdInput() {
     BufferedInputStream bis = new BufferedInputStream(System.in);
-    Document doc = readXmlStream(bis);
+    Document doc = null;
+    try {
+      doc = XbinaryFormat.isBinary(bis) ?
+          XbinaryFormat.read(bis) : readXmlStream(bis);
+    } catch(IOException ignored) {
+    }
     return createFromDocument(doc);
   }
 
@@ -91,7 +100,7 @@ public class XcodeProgram extends XcodeML {
    * Null if the file couldn't be read.
    */
   public static XcodeProgram createFromFile(String input) {
-    Document doc = XnodeUtil.readXmlFile(input);
+    Document doc = XnodeUtil.readFile(input);
     return createFromDocument(doc);
   }
 
@@ -170,6 +179,19 @@ public class XcodeProgram extends XcodeML {
     return _globalDeclarationsTable;
   }
 
+  /**
+   * Get the call graph of the XcodeML program. The graph is created on first
+   * use and shared by all transformations.
+   *
+   * @return The call graph.
+   */
+  public synchronized XcallGraph getCallGraph() {
+    if(_callGraph == null) {
+      _callGraph = new XcallGraph(this);
+    }
+    return _callGraph;
+  }
+
   /**
    * Check whether the XcodeML input file match the requirements.
    *
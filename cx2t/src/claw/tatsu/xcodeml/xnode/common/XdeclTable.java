@@ -29,6 +29,9 @@ import java.util.*;
  * - FequivalenceDecl
  * - FcommonDecl
  *
+ * The table can be shared by transformations applied concurrently. Its
+ * content and the DOM are only accessed under the document lock.
+ *
  * @author clementval
  */
 
@@ -37,6 +40,10 @@ public class XdeclTable extends Xnode {
   /* Some transformation needs to know the order of the declarations. Therefore,
    * we use a LinkedHashMap to be able to give back the table with its order. */
   private final LinkedHashMap<String, Xnode> _table;
+  // Ordered values, rebuilt only when the table changes
+  private List<Xnode> _values;
+  // DOM modified outside of the table
+  private boolean _stale = false;
 
   /**
    * Element standard ctor. Pass the base element to the base class and read
@@ -54,33 +61,57 @@ public class XdeclTable extends Xnode {
    * Read the declaration table.
    */
   private void readTable() {
-    List<Xnode> declarations = children();
-    for(Xnode n : declarations) {
-      String key = "";
-      switch(n.opcode()) {
-        case EXTERN_DECL:
-        case F_STRUCT_DECL:
-        case VAR_DECL:
-          key = n.matchSeq(Xcode.NAME).value();
-          break;
-        case F_USE_DECL:
-        case F_USE_ONLY_DECL:
-        case F_INTERFACE_DECL:
-          key = n.getAttribute(Xattr.NAME);
-          break;
-        case F_NAMELIST_DECL:
-          key = n.matchSeq(Xcode.VAR_LIST).getAttribute(Xattr.NAME);
-          break;
-        case F_COMMON_DECL:
-          key = Xcode.F_COMMON_DECL.toString() + UUID.randomUUID();
-          break;
-        case F_EQUIVALENCE_DECL:
-          key = Xcode.F_EQUIVALENCE_DECL.toString() + UUID.randomUUID();
-          break;
+    synchronized(lock()) {
+      _table.clear();
+      _values = null;
+      _stale = false;
+      List<Xnode> declarations = children();
+      for(Xnode n : declarations) {
+        String key = "";
+        switch(n.opcode()) {
+          case EXTERN_DECL:
+          case F_STRUCT_DECL:
+          case VAR_DECL:
+            key = n.matchSeq(Xcode.NAME).value();
+            break;
+          case F_USE_DECL:
+          case F_USE_ONLY_DECL:
+          case F_INTERFACE_DECL:
+            key = n.getAttribute(Xattr.NAME);
+            break;
+          case F_NAMELIST_DECL:
+            key = n.matchSeq(Xcode.VAR_LIST).getAttribute(Xattr.NAME);
+            break;
+          case F_COMMON_DECL:
+            key = Xcode.F_COMMON_DECL.toString() + UUID.randomUUID();
+            break;
+          case F_EQUIVALENCE_DECL:
+            key = Xcode.F_EQUIVALENCE_DECL.toString() + UUID.randomUUID();
+            break;
+        }
+        _table.put(key, n);
       }
-      _table.put(key, n);
     }
+  }
 
+  /**
+   * Mark the table as stale after a modification of its DOM done outside of
+   * the table. The table is read again on its next access.
+   */
+  void invalidate() {
+    synchronized(lock()) {
+      _stale = true;
+    }
+  }
+
+  /**
+   * Read the table again if its DOM has been modified outside of the table.
+   * Must be called under the document lock.
+   */
+  private void update() {
+    if(_stale) {
+      readTable();
+    }
   }
 
   /**
@@ -90,12 +121,18 @@ public class XdeclTable extends Xnode {
    * @param name Name describing the declaration in the table.
    */
   public void replace(Xnode decl, String name) {
-    Xnode oldDecl = _table.get(name);
-    if(oldDecl == null) {
-      append(decl);
-    } else {
-      oldDecl.insertAfter(decl);
-      oldDecl.delete();
+    synchronized(lock()) {
+      update();
+      Xnode oldDecl = _table.get(name);
+      if(oldDecl == null) {
+        append(decl);
+      } else {
+        oldDecl.insertAfter(decl);
+        oldDecl.delete();
+      }
+      _table.put(name, decl);
+      _values = null;
+      _stale = false;
     }
   }
 
@@ -105,23 +142,42 @@ public class XdeclTable extends Xnode {
    * @param decl The new declaration object.
    */
   public void add(Xnode decl) {
-    _baseElement.appendChild(decl.cloneRawNode());
-    _table.put(decl.matchSeq(Xcode.NAME).value(), decl);
+    Xnode inserted = new Xnode((Element) decl.cloneRawNode());
+    synchronized(lock()) {
+      update();
+      append(inserted);
+      _table.put(inserted.matchSeq(Xcode.NAME).value(), inserted);
+      _values = null;
+      _stale = false;
+    }
   }
 
   /**
-   * Add a new declaration as last element.
+   * Add a new declaration as first element.
    *
    * @param decl The new declaration object.
    */
   public void addFirst(Xnode decl) {
-    if(_baseElement.getFirstChild() != null) {
-      _baseElement.insertBefore(decl.cloneRawNode(),
-          _baseElement.getFirstChild());
-    } else {
-      _baseElement.appendChild(decl.cloneRawNode());
+    Xnode inserted = new Xnode((Element) decl.cloneRawNode());
+    synchronized(lock()) {
+      insert(inserted);
+      // Order of the declarations changed
+      readTable();
+    }
+  }
+
+  /**
+   * Add a new declaration just after an existing one.
+   *
+   * @param hook Declaration after which the new declaration is inserted.
+   * @param decl The new declaration object.
+   */
+  public void insertAfter(Xnode hook, Xnode decl) {
+    synchronized(lock()) {
+      hook.insertAfter(decl);
+      // Order of the declarations changed
+      readTable();
     }
-    _table.put(decl.matchSeq(Xcode.NAME).value(), decl);
   }
 
   /**
@@ -131,23 +187,29 @@ public class XdeclTable extends Xnode {
    * @return A XvarDecl object if key is found. Null otherwise.
    */
   public Xnode get(String key) {
-    if(_table.containsKey(key)) {
-      return _table.get(key);
+    synchronized(lock()) {
+      update();
+      if(_table.containsKey(key)) {
+        return _table.get(key);
+      }
+      return null;
     }
-    return null;
   }
 
   /**
    * Get all elements in the table.
    *
-   * @return All elements stored in the table.
+   * @return Unmodifiable list of all elements stored in the table.
    */
   public List<Xnode> values() {
-    List<Xnode> orderedDeclarations = new ArrayList<>();
-    for(Map.Entry<String, Xnode> entry : _table.entrySet()) {
-      orderedDeclarations.add(entry.getValue());
+    synchronized(lock()) {
+      update();
+      if(_values == null) {
+        _values = Collections.unmodifiableList(
+            new ArrayList<>(_table.values()));
+      }
+      return _values;
     }
-    return orderedDeclarations;
   }
 
   /**
@@ -167,13 +229,16 @@ public class XdeclTable extends Xnode {
    * @return A list of all declarations of this kind.
    */
   public List<Xnode> values(List<Xcode> declarations) {
-    List<Xnode> orderedFilteredDeclarations = new ArrayList<>();
-    for(Map.Entry<String, Xnode> entry : _table.entrySet()) {
-      if(declarations.contains(entry.getValue().opcode())) {
-        orderedFilteredDeclarations.add(entry.getValue());
+    synchronized(lock()) {
+      update();
+      List<Xnode> orderedFilteredDeclarations = new ArrayList<>();
+      for(Map.Entry<String, Xnode> entry : _table.entrySet()) {
+        if(declarations.contains(entry.getValue().opcode())) {
+          orderedFilteredDeclarations.add(entry.getValue());
+        }
       }
+      return orderedFilteredDeclarations;
     }
-    return orderedFilteredDeclarations;
   }
 
   /**
@@ -191,7 +256,10 @@ public class XdeclTable extends Xnode {
    * @return The number of declarations in the table.
    */
   public int count() {
-    return _table.size();
+    synchronized(lock()) {
+      update();
+      return _table.size();
+    }
   }
 
   /**
@@ -201,7 +269,10 @@ public class XdeclTable extends Xnode {
    * @return True if the name is already in the table. False otherwise.
    */
   public boolean contains(String name) {
-    return _table.containsKey(name);
+    synchronized(lock()) {
+      update();
+      return _table.containsKey(name);
+    }
   }
 
   /**
@@ -210,42 +281,45 @@ public class XdeclTable extends Xnode {
    * @param fct Function definition which is checked.
    */
   public void checkOrder(FfunctionDefinition fct) {
-    int functionLineNo = fct.lineNo();
-    List<Xnode> decl = new ArrayList<>();
+    synchronized(lock()) {
+      int functionLineNo = fct.lineNo();
+      List<Xnode> decl = new ArrayList<>();
 
-    // TODO DOM element
-    Node crtNode = _baseElement.getFirstChild();
-    while(crtNode != null) {
-      if(crtNode.getNodeType() == Node.ELEMENT_NODE) {
-        Xnode node = new Xnode((Element) crtNode);
-        // Only var declarations can be disordered
-        if(node.opcode() == Xcode.VAR_DECL
-            || node.opcode() == Xcode.F_STRUCT_DECL)
-        {
-          decl.add(node);
+      // TODO DOM element
+      Node crtNode = _baseElement.getFirstChild();
+      while(crtNode != null) {
+        if(crtNode.getNodeType() == Node.ELEMENT_NODE) {
+          Xnode node = new Xnode((Element) crtNode);
+          // Only var declarations can be disordered
+          if(node.opcode() == Xcode.VAR_DECL
+              || node.opcode() == Xcode.F_STRUCT_DECL)
+          {
+            decl.add(node);
+          }
         }
+        crtNode = crtNode.getNextSibling();
       }
-      crtNode = crtNode.getNextSibling();
-    }
 
-    if(decl.size() < 2) {
-      return;
-    }
+      if(decl.size() < 2) {
+        return;
+      }
 
-    int firstDeclLineNo = decl.get(0).lineNo();
-    int secondDeclLineNo = decl.get(1).lineNo();
+      int firstDeclLineNo = decl.get(0).lineNo();
+      int secondDeclLineNo = decl.get(1).lineNo();
 
-    if(functionLineNo == firstDeclLineNo) {
-      _baseElement.appendChild(decl.get(0).element());
-    } else if(firstDeclLineNo > secondDeclLineNo) {
-      Xnode hook = decl.get(1);
-      for(int i = 1; i < decl.size(); ++i) {
-        if(decl.get(i).lineNo() > firstDeclLineNo) {
-          break;
+      if(functionLineNo == firstDeclLineNo) {
+        _baseElement.appendChild(decl.get(0).element());
+      } else if(firstDeclLineNo > secondDeclLineNo) {
+        Xnode hook = decl.get(1);
+        for(int i = 1; i < decl.size(); ++i) {
+          if(decl.get(i).lineNo() > firstDeclLineNo) {
+            break;
+          }
+          hook = decl.get(i);
         }
-        hook = decl.get(i);
+        hook.insertAfter(decl.get(0));
       }
-      hook.insertAfter(decl.get(0));
+      readTable();
     }
   }
 
@@ -47,7 +47,7 @@ public class XglobalDeclTable extends Xnode {
     Xnode crt = firstChild();
     while(crt != null) {
       if(crt.opcode() == Xcode.F_FUNCTION_DEFINITION) {
-        FfunctionDefinition fctDef = new FfunctionDefinition(crt);
+        FfunctionDefinition fctDef = XsymbolIndex.getFunctionDefinition(crt);
         _table.put(fctDef.getName(), fctDef);
       } else if(crt.opcode() == Xcode.F_MODULE_DEFINITION) {
         FmoduleDefinition moduleDef = new FmoduleDefinition(crt);
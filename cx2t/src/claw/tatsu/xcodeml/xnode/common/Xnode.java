@@ -18,6 +18,12 @@ import java.util.List;
 /**
  * XcodeML AST node.
  *
+ * The DOM implementation is not thread-safe. Every method of this class
+ * modifying the tree is serialised on the lock of the document holding the
+ * node (see {@link #lock()}) so transformations applied concurrently on
+ * different function definitions can share a document. Reading nodes that
+ * are not modified concurrently does not require the lock.
+ *
  * @author clementval
  */
 public class Xnode {
@@ -27,6 +33,9 @@ public class Xnode {
   public static final int UNDEF_DEPTH = -1;
   final Element _baseElement;
   private boolean _isDeleted = false;
+  // Tag name of an element never changes so the opcode is resolved once per
+  // wrapper. Wrappers created by a match already know their opcode.
+  private Xcode _opcode = null;
 
   /**
    * Constructs an Xnode object from an element in the AST.
@@ -37,6 +46,31 @@ public class Xnode {
     _baseElement = element;
   }
 
+  /**
+   * Constructs an Xnode object from an element whose opcode is already known.
+   *
+   * @param element Base element for the Xnode object.
+   * @param opcode  Opcode matching the tag name of the element.
+   */
+  private Xnode(Element element, Xcode opcode) {
+    _baseElement = element;
+    _opcode = opcode;
+  }
+
+  /**
+   * Get the object on which the modifications of the document holding this
+   * node are serialised.
+   *
+   * @return Owner document of the node. The node itself if it is not attached
+   * to a document.
+   */
+  public Object lock() {
+    if(_baseElement == null || _baseElement.getOwnerDocument() == null) {
+      return this;
+    }
+    return _baseElement.getOwnerDocument();
+  }
+
   /**
    * Delete this nodes with all its siblings.
    */
@@ -59,10 +93,11 @@ public class Xnode {
    * @return Opcode.
    */
   public Xcode opcode() {
-    if(_baseElement == null) {
-      return Xcode.NONE;
+    if(_opcode == null) {
+      _opcode = (_baseElement == null) ? Xcode.NONE :
+          Xcode.fromString(_baseElement.getTagName());
     }
-    return Xcode.fromString(_baseElement.getTagName().toLowerCase());
+    return _opcode;
   }
 
   /**
@@ -147,7 +182,9 @@ public class Xnode {
    */
   public void setValue(String value) {
     if(_baseElement != null) {
-      _baseElement.setTextContent(value);
+      synchronized(lock()) {
+        _baseElement.setTextContent(value);
+      }
     }
   }
 
@@ -193,7 +230,9 @@ public class Xnode {
    */
   private void setAttribute(String attrCode, String value) {
     if(_baseElement != null && value != null) {
-      _baseElement.setAttribute(attrCode, value);
+      synchronized(lock()) {
+        _baseElement.setAttribute(attrCode, value);
+      }
     }
   }
 
@@ -204,7 +243,9 @@ public class Xnode {
    */
   public void removeAttribute(Xattr attrCode) {
     if(_baseElement != null && _baseElement.hasAttribute(attrCode.toString())) {
-      _baseElement.removeAttribute(attrCode.toString());
+      synchronized(lock()) {
+        _baseElement.removeAttribute(attrCode.toString());
+      }
     }
   }
 
@@ -250,9 +291,10 @@ public class Xnode {
     if(_baseElement == null) {
       return nodes;
     }
-    NodeList children = _baseElement.getChildNodes();
-    for(int i = 0; i < children.getLength(); ++i) {
-      Node child = children.item(i);
+    // Walk siblings as NodeList caches are shared by the whole document
+    for(Node child = _baseElement.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
       if(child.getNodeType() == Node.ELEMENT_NODE) {
         nodes.add(new Xnode((Element) child));
       }
@@ -285,10 +327,16 @@ public class Xnode {
    */
   public void delete() {
     _isDeleted = true;
-    if(_baseElement == null || _baseElement.getParentNode() == null) {
+    if(_baseElement == null) {
       return;
     }
-    _baseElement.getParentNode().removeChild(_baseElement);
+    synchronized(lock()) {
+      Node parent = _baseElement.getParentNode();
+      if(parent != null) {
+        parent.removeChild(_baseElement);
+        XsymbolIndex.invalidate(parent);
+      }
+    }
   }
 
   /**
@@ -318,10 +366,11 @@ public class Xnode {
    */
   public void append(Xnode node, boolean clone) {
     if(node != null && _baseElement != null) {
-      if(clone) {
-        _baseElement.appendChild(node.cloneRawNode());
-      } else {
-        _baseElement.appendChild(node.element());
+      Node toAppend = clone ? node.cloneRawNode() : node.element();
+      synchronized(lock()) {
+        XsymbolIndex.invalidate(toAppend.getParentNode());
+        _baseElement.appendChild(toAppend);
+        XsymbolIndex.invalidate(_baseElement);
       }
     }
   }
@@ -343,12 +392,15 @@ public class Xnode {
    */
   public void insert(Xnode node, boolean clone) {
     if(node != null && _baseElement != null) {
-      NodeList children = _baseElement.getChildNodes();
       Node toInsert = clone ? node.cloneRawNode() : node.element();
-      if(children.getLength() == 0) {
-        append(node, clone);
-      } else {
-        _baseElement.insertBefore(toInsert, children.item(0));
+      synchronized(lock()) {
+        XsymbolIndex.invalidate(toInsert.getParentNode());
+        if(_baseElement.getFirstChild() == null) {
+          _baseElement.appendChild(toInsert);
+        } else {
+          _baseElement.insertBefore(toInsert, _baseElement.getFirstChild());
+        }
+        XsymbolIndex.invalidate(_baseElement);
       }
     }
   }
@@ -420,7 +472,9 @@ public class Xnode {
     if(_baseElement == null) {
       return null;
     }
-    return _baseElement.cloneNode(true);
+    synchronized(lock()) {
+      return _baseElement.cloneNode(true);
+    }
   }
 
   /**
@@ -547,13 +601,14 @@ public class Xnode {
    */
   public List<Xnode> matchAllAncestor(Xcode opcode, Xcode stopCode) {
     List<Xnode> statements = new ArrayList<>();
-    Xnode crt = this;
-    while(crt != null && crt.ancestor() != null) {
-      if(crt.ancestor().opcode() == opcode) {
-        statements.add(crt.ancestor());
+    Xnode crt = ancestor();
+    while(crt != null) {
+      Xcode crtOpcode = crt.opcode();
+      if(crtOpcode == opcode) {
+        statements.add(crt);
       }
       // Stop searching when FfunctionDefinition is reached
-      if(stopCode != null && crt.ancestor().opcode() == stopCode) {
+      if(stopCode != null && crtOpcode == stopCode) {
         return statements;
       }
       crt = crt.ancestor();
@@ -577,7 +632,7 @@ public class Xnode {
       return null;
     }
     return (elements.item(0) == null) ? null :
-        new Xnode((Element) elements.item(0));
+        new Xnode((Element) elements.item(0), opcode);
   }
 
   /**
@@ -590,13 +645,13 @@ public class Xnode {
     if(_baseElement == null) {
       return null;
     }
-    NodeList nodeList = _baseElement.getChildNodes();
-    for(int i = 0; i < nodeList.getLength(); i++) {
-      Node nextNode = nodeList.item(i);
+    for(Node nextNode = _baseElement.getFirstChild(); nextNode != null;
+        nextNode = nextNode.getNextSibling())
+    {
       if(nextNode.getNodeType() == Node.ELEMENT_NODE) {
         Element element = (Element) nextNode;
         if(element.getTagName().equals(opcode.code())) {
-          return new Xnode(element);
+          return new Xnode(element, opcode);
         }
       }
     }
@@ -611,10 +666,17 @@ public class Xnode {
    * @return The matched node. Null if no node found.
    */
   public Xnode matchDirectDescendant(List<Xcode> opcodes) {
-    List<Xnode> children = children();
-    for(Xnode child : children) {
-      if(opcodes.contains(child.opcode())) {
-        return child;
+    if(_baseElement == null) {
+      return null;
+    }
+    for(Node nextNode = _baseElement.getFirstChild(); nextNode != null;
+        nextNode = nextNode.getNextSibling())
+    {
+      if(nextNode.getNodeType() == Node.ELEMENT_NODE) {
+        Xnode child = new Xnode((Element) nextNode);
+        if(opcodes.contains(child.opcode())) {
+          return child;
+        }
       }
     }
     return null;
@@ -652,7 +714,7 @@ public class Xnode {
     for(int i = 0; i < rawNodes.getLength(); i++) {
       Node n = rawNodes.item(i);
       if(n.getNodeType() == Node.ELEMENT_NODE) {
-        nodes.add(new Xnode((Element) n));
+        nodes.add(new Xnode((Element) n, opcode));
       }
     }
     return nodes;
@@ -678,7 +740,7 @@ public class Xnode {
       if(nextNode.getNodeType() == Node.ELEMENT_NODE) {
         Element element = (Element) nextNode;
         if(element.getTagName().equals(opcode.code())) {
-          return new Xnode(element);
+          return new Xnode(element, opcode);
         }
       }
       nextNode = down ? nextNode.getNextSibling() : nextNode.getParentNode();
@@ -712,9 +774,13 @@ public class Xnode {
    */
   public void insertAfter(Xnode node) {
     if(_baseElement != null && node != null) {
-      Node parent = _baseElement.getParentNode();
-      if(parent != null) {
-        parent.insertBefore(node.element(), _baseElement.getNextSibling());
+      synchronized(lock()) {
+        Node parent = _baseElement.getParentNode();
+        if(parent != null) {
+          XsymbolIndex.invalidate(node.element().getParentNode());
+          parent.insertBefore(node.element(), _baseElement.getNextSibling());
+          XsymbolIndex.invalidate(parent);
+        }
       }
     }
   }
@@ -764,9 +830,13 @@ public class Xnode {
    */
   public void insertBefore(Xnode node) {
     if(_baseElement != null && node != null) {
-      Node parent = _baseElement.getParentNode();
-      if(parent != null) {
-        parent.insertBefore(node.element(), _baseElement);
+      synchronized(lock()) {
+        Node parent = _baseElement.getParentNode();
+        if(parent != null) {
+          XsymbolIndex.invalidate(node.element().getParentNode());
+          parent.insertBefore(node.element(), _baseElement);
+          XsymbolIndex.invalidate(parent);
+        }
       }
     }
   }
@@ -932,11 +1002,8 @@ public class Xnode {
    * @return The function definition found. Null if nothing found.
    */
   public FfunctionDefinition findParentFunction() {
-    Xnode fctDef = matchAncestor(Xcode.F_FUNCTION_DEFINITION);
-    if(fctDef == null) {
-      return null;
-    }
-    return new FfunctionDefinition(fctDef);
+    return XsymbolIndex.getFunctionDefinition(
+        matchAncestor(Xcode.F_FUNCTION_DEFINITION));
   }
 
   /**
@@ -0,0 +1,181 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The XsymbolIndex keeps the symbol tables, declaration tables and function
+ * definitions read from a document. Every wrapper of the same element shares
+ * the same table so additions done through one wrapper are visible through
+ * all the others without reading the DOM again.
+ *
+ * The index is stored as user data of its document so it is released with
+ * the translation unit. Tables are invalidated when a child is inserted in or
+ * deleted from their element through Xnode and are read again on their next
+ * access. The index is only accessed under the document lock.
+ *
+ * @author clementval
+ */
+public final class XsymbolIndex {
+
+  private static final String USER_DATA_KEY = "claw.symbol.index";
+
+  private final Map<Element, Xnode> _index;
+
+  /**
+   * Constructs an empty index.
+   */
+  private XsymbolIndex() {
+    _index = new HashMap<>();
+  }
+
+  /**
+   * Get the symbol table associated with the symbols node.
+   *
+   * @param symbols Symbols node.
+   * @return Shared symbol table. Null if node is null.
+   */
+  public static XsymbolTable getSymbolTable(Xnode symbols) {
+    if(symbols == null) {
+      return null;
+    }
+    synchronized(symbols.lock()) {
+      XsymbolIndex index = getIndex(symbols.element(), true);
+      Xnode table = index == null ? null : index.lookup(symbols);
+      if(table instanceof XsymbolTable) {
+        return (XsymbolTable) table;
+      }
+      XsymbolTable symbolTable = new XsymbolTable(symbols);
+      if(index != null) {
+        index.store(symbolTable);
+      }
+      return symbolTable;
+    }
+  }
+
+  /**
+   * Get the declaration table associated with the declarations node.
+   *
+   * @param declarations Declarations node.
+   * @return Shared declaration table. Null if node is null.
+   */
+  public static XdeclTable getDeclarationTable(Xnode declarations) {
+    if(declarations == null) {
+      return null;
+    }
+    synchronized(declarations.lock()) {
+      XsymbolIndex index = getIndex(declarations.element(), true);
+      Xnode table = index == null ? null : index.lookup(declarations);
+      if(table instanceof XdeclTable) {
+        return (XdeclTable) table;
+      }
+      XdeclTable declTable = new XdeclTable(declarations);
+      if(index != null) {
+        index.store(declTable);
+      }
+      return declTable;
+    }
+  }
+
+  /**
+   * Get the function definition associated with the node.
+   *
+   * @param fctDef FfunctionDefinition node.
+   * @return Shared function definition. Null if node is null.
+   */
+  public static FfunctionDefinition getFunctionDefinition(Xnode fctDef) {
+    if(fctDef == null) {
+      return null;
+    }
+    if(fctDef instanceof FfunctionDefinition) {
+      return (FfunctionDefinition) fctDef;
+    }
+    synchronized(fctDef.lock()) {
+      XsymbolIndex index = getIndex(fctDef.element(), true);
+      Xnode def = index == null ? null : index.lookup(fctDef);
+      if(def instanceof FfunctionDefinition) {
+        return (FfunctionDefinition) def;
+      }
+      FfunctionDefinition functionDefinition = new FfunctionDefinition(fctDef);
+      if(index != null) {
+        index.store(functionDefinition);
+      }
+      return functionDefinition;
+    }
+  }
+
+  /**
+   * Invalidate the table indexed for the element if any. Called when a child
+   * is inserted in or deleted from the element. Must be called under the
+   * document lock.
+   *
+   * @param parent Parent node of the inserted or deleted child.
+   */
+  static void invalidate(Node parent) {
+    if(!(parent instanceof Element)) {
+      return;
+    }
+    String tag = parent.getNodeName();
+    if(!Xcode.SYMBOLS.code().equals(tag)
+        && !Xcode.DECLARATIONS.code().equals(tag))
+    {
+      return;
+    }
+    XsymbolIndex index = getIndex((Element) parent, false);
+    Xnode table = index == null ? null : index._index.get(parent);
+    if(table instanceof XdeclTable) {
+      ((XdeclTable) table).invalidate();
+    } else if(table instanceof XsymbolTable) {
+      ((XsymbolTable) table).invalidate();
+    }
+  }
+
+  /**
+   * Get the index of the document holding the element.
+   *
+   * @param element Element of the document.
+   * @param create  If true, the index is created if not present yet.
+   * @return Index of the document. Null if the element has no document or if
+   * the index is not present and not created.
+   */
+  private static XsymbolIndex getIndex(Element element, boolean create) {
+    if(element == null || element.getOwnerDocument() == null) {
+      return null;
+    }
+    Document doc = element.getOwnerDocument();
+    XsymbolIndex index = (XsymbolIndex) doc.getUserData(USER_DATA_KEY);
+    if(index == null && create) {
+      index = new XsymbolIndex();
+      doc.setUserData(USER_DATA_KEY, index, null);
+    }
+    return index;
+  }
+
+  /**
+   * Get the indexed wrapper of the node element.
+   *
+   * @param node Node to look for.
+   * @return Indexed wrapper if present. Null otherwise.
+   */
+  private Xnode lookup(Xnode node) {
+    return _index.get(node.element());
+  }
+
+  /**
+   * Index the wrapper with its element.
+   *
+   * @param node Wrapper to be indexed.
+   */
+  private void store(Xnode node) {
+    _index.put(node.element(), node);
+  }
+}
@@ -4,6 +4,8 @@
  */
 package claw.tatsu.xcodeml.xnode.common;
 
+import org.w3c.dom.Element;
+
 import java.util.Hashtable;
 
 /**
@@ -14,12 +16,17 @@ import java.util.Hashtable;
  * - Optional:
  * - id
  *
+ * The table can be shared by transformations applied concurrently. The table
+ * and the DOM are only accessed under the document lock.
+ *
  * @author clementval
  */
 
 public class XsymbolTable extends Xnode {
 
   private final Hashtable<String, Xid> _table;
+  // DOM modified outside of the table
+  private boolean _stale = false;
 
   /**
    * Element standard ctor. Pass the base element to the base class and read
@@ -37,11 +44,35 @@ public class XsymbolTable extends Xnode {
    * Read the symbols table.
    */
   private void readTable() {
-    Xnode crt = firstChild();
-    while(crt != null) {
-      Xid id = new Xid(crt);
-      _table.put(id.getName(), id);
-      crt = crt.nextSibling();
+    synchronized(lock()) {
+      _table.clear();
+      _stale = false;
+      Xnode crt = firstChild();
+      while(crt != null) {
+        Xid id = new Xid(crt);
+        _table.put(id.getName(), id);
+        crt = crt.nextSibling();
+      }
+    }
+  }
+
+  /**
+   * Mark the table as stale after a modification of its DOM done outside of
+   * the table. The table is read again on its next access.
+   */
+  void invalidate() {
+    synchronized(lock()) {
+      _stale = true;
+    }
+  }
+
+  /**
+   * Read the table again if its DOM has been modified outside of the table.
+   * Must be called under the document lock.
+   */
+  private void update() {
+    if(_stale) {
+      readTable();
     }
   }
 
@@ -51,7 +82,10 @@ public class XsymbolTable extends Xnode {
    * @return Number of symbols.
    */
   public int size() {
-    return _table.size();
+    synchronized(lock()) {
+      update();
+      return _table.size();
+    }
   }
 
   /**
@@ -71,8 +105,14 @@ public class XsymbolTable extends Xnode {
    *              true the element is cloned.
    */
   public void add(Xid id, boolean clone) {
-    this.append(id, clone);
-    _table.put(id.getName(), id);
+    // Keep the inserted node so later updates are reflected in the DOM
+    Xid inserted = clone ? new Xid(new Xnode((Element) id.cloneRawNode())) : id;
+    synchronized(lock()) {
+      update();
+      this.append(inserted, false);
+      _table.put(inserted.getName(), inserted);
+      _stale = false;
+    }
   }
 
   /**
@@ -82,10 +122,10 @@ public class XsymbolTable extends Xnode {
    * @return The Xid object of found. Null otherwise.
    */
   public Xid get(String key) {
-    if(_table.containsKey(key)) {
+    synchronized(lock()) {
+      update();
       return _table.get(key);
     }
-    return null;
   }
 
   /**
@@ -95,7 +135,10 @@ public class XsymbolTable extends Xnode {
    * @return True if the id is already in the table. False otherwise.
    */
   public boolean contains(String id) {
-    return _table.containsKey(id);
+    synchronized(lock()) {
+      update();
+      return _table.containsKey(id);
+    }
   }
 
   @Override
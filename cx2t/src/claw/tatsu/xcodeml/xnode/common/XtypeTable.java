@@ -8,11 +8,17 @@ import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
 import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import claw.tatsu.xcodeml.xnode.fortran.FstructType;
+import org.w3c.dom.Node;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * The XtypeTable represents the typeTable (3.1) element in XcodeML intermediate
@@ -24,11 +30,22 @@ import java.util.Map;
  * - FfunctionType (FfunctionType)
  * - FstructType (FstructType)
  *
+ * The table can be shared by concurrent transformations. Lookups by hash are
+ * lock-free, new hashes are reserved atomically and types are emitted in
+ * their insertion order.
+ *
  * @author clementval
  */
 public class XtypeTable extends Xnode {
 
   private final Map<String, Xnode> _table;
+  private final Map<String, FbasicType> _basicTypes;
+  private final Map<String, FfunctionType> _functionTypes;
+  private final Map<String, FstructType> _structTypes;
+  // Insertion order of the hashes for ordered emission
+  private final Queue<String> _order;
+  // Hashes generated but not yet added to the table
+  private final Set<String> _reserved;
 
   /**
    * Element standard ctor. Pass the base element to the base class and read
@@ -38,7 +55,13 @@ public class XtypeTable extends Xnode {
    */
   public XtypeTable(Xnode node) {
     super(node == null ? null : node.element());
-    _table = new LinkedHashMap<>();
+    _table = new ConcurrentHashMap<>();
+    _basicTypes = new ConcurrentHashMap<>();
+    _functionTypes = new ConcurrentHashMap<>();
+    _structTypes = new ConcurrentHashMap<>();
+    _order = new ConcurrentLinkedQueue<>();
+    _reserved = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>());
     readTable();
   }
 
@@ -48,23 +71,57 @@ public class XtypeTable extends Xnode {
   private void readTable() {
     List<Xnode> elements = children();
     for(Xnode n : elements) {
-      switch(n.opcode()) {
-        case F_BASIC_TYPE:
-          FbasicType bt = new FbasicType(n);
-          _table.put(bt.getType(), bt);
-          break;
-        case F_FUNCTION_TYPE:
-          FfunctionType ft = new FfunctionType(n);
-          _table.put(ft.getType(), ft);
-          break;
-        case F_STRUCT_TYPE:
-          FstructType st = new FstructType(n);
-          _table.put(st.getType(), st);
-          break;
+      Xnode type = wrap(n);
+      if(type != n) { // Only type nodes are wrapped
+        put(type);
       }
     }
   }
 
+  /**
+   * Wrap the type node in its typed class if not already done.
+   *
+   * @param node Type node.
+   * @return Typed node. The node itself if it is not a type node or is
+   * already typed.
+   */
+  private Xnode wrap(Xnode node) {
+    switch(node.opcode()) {
+      case F_BASIC_TYPE:
+        return node instanceof FbasicType ? node : new FbasicType(node);
+      case F_FUNCTION_TYPE:
+        return node instanceof FfunctionType ? node : new FfunctionType(node);
+      case F_STRUCT_TYPE:
+        return node instanceof FstructType ? node : new FstructType(node);
+      default:
+        return node;
+    }
+  }
+
+  /**
+   * Register a typed node in the lookup tables. Its hash is recorded in the
+   * emission order the first time it is registered.
+   *
+   * @param type Typed node to register.
+   */
+  private void put(Xnode type) {
+    String hash = type.getType();
+    if(_table.put(hash, type) == null) {
+      _order.add(hash);
+    }
+    _basicTypes.remove(hash);
+    _functionTypes.remove(hash);
+    _structTypes.remove(hash);
+    if(type instanceof FbasicType) {
+      _basicTypes.put(hash, (FbasicType) type);
+    } else if(type instanceof FfunctionType) {
+      _functionTypes.put(hash, (FfunctionType) type);
+    } else if(type instanceof FstructType) {
+      _structTypes.put(hash, (FstructType) type);
+    }
+    _reserved.remove(hash);
+  }
+
   /**
    * Check if the node is of type FbasicType.
    *
@@ -82,7 +139,7 @@ public class XtypeTable extends Xnode {
    * @return True if the hash correspond to a FbasicType.
    */
   public boolean isBasicType(String hash) {
-    return isType(FbasicType.class, hash);
+    return hash != null && _basicTypes.containsKey(hash);
   }
 
   /**
@@ -102,7 +159,7 @@ public class XtypeTable extends Xnode {
    * @return True if the hash correspond to a FfunctionType.
    */
   public boolean isFunctionType(String hash) {
-    return isType(FfunctionType.class, hash);
+    return hash != null && _functionTypes.containsKey(hash);
   }
 
   /**
@@ -112,7 +169,7 @@ public class XtypeTable extends Xnode {
    * @return True if the hash correspond to a FstructType.
    */
   public boolean isStructType(String hash) {
-    return isType(FstructType.class, hash);
+    return hash != null && _structTypes.containsKey(hash);
   }
 
   /**
@@ -125,22 +182,6 @@ public class XtypeTable extends Xnode {
     return isStructType(node.getType());
   }
 
-  /**
-   * Check if the corresponding type node is of given type.
-   *
-   * @param typeClass Class type to check against.
-   * @param hash      Hash of type to retrieved.
-   * @return True of the type is retrieved and is of given type. False in any
-   * other case.
-   */
-  private boolean isType(Class typeClass, String hash) {
-    if(hash == null || hash.isEmpty()) {
-      return false;
-    }
-    Xnode t = get(hash);
-    return t != null && typeClass.isInstance(t);
-  }
-
   /**
    * Get number of elements in the type table.
    *
@@ -151,15 +192,19 @@ public class XtypeTable extends Xnode {
   }
 
   /**
-   * Add a new element in the type table.
+   * Add a new element in the type table. The DOM is only modified under the
+   * document lock so the emission order matches the insertion order.
    *
    * @param type The new type to be added.
    */
   public void add(Xnode type) {
     if(!type.getType().isEmpty()) {
       // TODO should be cloned?
-      _baseElement.appendChild(type.cloneRawNode());
-      _table.put(type.getType(), type);
+      Node clone = type.cloneRawNode();
+      synchronized(lock()) {
+        _baseElement.appendChild(clone);
+        put(wrap(type));
+      }
     }
   }
 
@@ -180,10 +225,7 @@ public class XtypeTable extends Xnode {
    * @return FbasicType if associated. Null otherwise.
    */
   public FbasicType getBasicType(String hash) {
-    if(isBasicType(hash)) {
-      return (FbasicType) get(hash);
-    }
-    return null;
+    return hash == null ? null : _basicTypes.get(hash);
   }
 
   /**
@@ -203,10 +245,7 @@ public class XtypeTable extends Xnode {
    * @return FfunctionType if associated. Null otherwise.
    */
   public FfunctionType getFunctionType(String hash) {
-    if(isFunctionType(hash)) {
-      return (FfunctionType) get(hash);
-    }
-    return null;
+    return hash == null ? null : _functionTypes.get(hash);
   }
 
   /**
@@ -226,10 +265,7 @@ public class XtypeTable extends Xnode {
    * @return FstructType if associated. Null otherwise.
    */
   public FstructType getStructType(String hash) {
-    if(isStructType(hash)) {
-      return (FstructType) get(hash);
-    }
-    return null;
+    return hash == null ? null : _structTypes.get(hash);
   }
 
   /**
@@ -239,10 +275,7 @@ public class XtypeTable extends Xnode {
    * @return Xnode object if found in the table. Null otherwise.
    */
   protected Xnode get(String hash) {
-    if(_table.containsKey(hash)) {
-      return _table.get(hash);
-    }
-    return null;
+    return hash == null ? null : _table.get(hash);
   }
 
   /**
@@ -252,11 +285,13 @@ public class XtypeTable extends Xnode {
    * @return True if the element is present. False otherwise.
    */
   public boolean hasType(String hash) {
-    return _table.containsKey(hash);
+    return hash != null && _table.containsKey(hash);
   }
 
   /**
-   * Generate a unique hash in the current type table.
+   * Generate a unique hash in the current type table. The hash is reserved
+   * until a type with this hash is added so concurrent calls never return the
+   * same hash.
    *
    * @param type Type to generate the hash.
    * @return New unique hash.
@@ -268,17 +303,21 @@ public class XtypeTable extends Xnode {
     String hash;
     do {
       hash = type.generateHash();
-    } while(hasType(hash));
+    } while(hasType(hash) || !_reserved.add(hash));
     return hash;
   }
 
   /**
-   * Returns a Collection view of the values contained in this XtypeTable.
+   * Returns the values contained in this XtypeTable in insertion order.
    *
-   * @return A view of the values contained in this map
+   * @return A snapshot of the values contained in this table.
    */
   public Collection<Xnode> values() {
-    return _table.values();
+    List<Xnode> values = new ArrayList<>(_table.size());
+    for(String hash : _order) {
+      values.add(_table.get(hash));
+    }
+    return Collections.unmodifiableList(values);
   }
 
   @Override
@@ -42,10 +42,10 @@ public class FfunctionDefinition extends Xnode {
     super(node == null ? null : node.element());
     Xnode symbols = matchSeq(Xcode.SYMBOLS);
     assert (symbols != null);
-    _symbolTable = new XsymbolTable(symbols);
+    _symbolTable = XsymbolIndex.getSymbolTable(symbols);
     Xnode declarations = matchSeq(Xcode.DECLARATIONS);
     assert (declarations != null);
-    _declTable = new XdeclTable(declarations);
+    _declTable = XsymbolIndex.getDeclarationTable(declarations);
     _params = matchSeq(Xcode.PARAMS);
     _name = matchSeq(Xcode.NAME);
     assert (_name != null);
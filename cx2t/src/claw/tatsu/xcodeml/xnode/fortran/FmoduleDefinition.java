@@ -40,11 +40,9 @@ public class FmoduleDefinition extends Xnode {
   public FmoduleDefinition(Xnode node) {
     super(node == null ? null : node.element());
     _name = getAttribute(Xattr.NAME);
-    Xnode symbols = matchSeq(Xcode.SYMBOLS);
-    _symbols = (symbols != null) ? new XsymbolTable(symbols) : null;
-    Xnode declarations = matchSeq(Xcode.DECLARATIONS);
-    _declarations = (declarations != null) ?
-        new XdeclTable(declarations) : null;
+    _symbols = XsymbolIndex.getSymbolTable(matchSeq(Xcode.SYMBOLS));
+    _declarations =
+        XsymbolIndex.getDeclarationTable(matchSeq(Xcode.DECLARATIONS));
   }
 
   /**
@@ -86,7 +84,7 @@ public class FmoduleDefinition extends Xnode {
     }
     List<Xnode> fctDefs = matchAll(Xcode.F_FUNCTION_DEFINITION);
     for(Xnode n : fctDefs) {
-      FfunctionDefinition fctDef = new FfunctionDefinition(n);
+      FfunctionDefinition fctDef = XsymbolIndex.getFunctionDefinition(n);
       if(fctDef.getName().equals(name)) {
         return fctDef;
       }
@@ -23,6 +23,7 @@ public class FortranModule extends XcodeML {
   private final String _name;
 
   private XsymbolTable _identifiers = null;
+  private boolean _modified = false;
 
   /**
    * Constructs a basic FortranModule object representing the XcodeML module file given
@@ -74,4 +75,20 @@ public class FortranModule extends XcodeML {
   public XsymbolTable getIdentifiers() {
     return _identifiers;
   }
+
+  /**
+   * Mark the module as modified so it is written back to file.
+   */
+  public void setModified() {
+    _modified = true;
+  }
+
+  /**
+   * Check whether the module has been modified since it was read.
+   *
+   * @return True if the module has been modified. False otherwise.
+   */
+  public boolean isModified() {
+    return _modified;
+  }
 }
@@ -13,6 +13,7 @@ package claw.wani.language;
 public enum ClawDirective {
   ARRAY_TRANSFORM,
   ARRAY_TO_CALL,
+  CALL_TO_TABLE,
   DEFINE,
   IGNORE,
   IF_EXTRACT,
@@ -21,6 +22,7 @@ public enum ClawDirective {
   LOOP_INTERCHANGE,
   LOOP_HOIST,
   LOOP_EXTRACT,
+  LOOP_UNROLL,
   NO_DEP,
   PRIMITIVE,
   PARALLELIZE,
@@ -38,6 +38,7 @@ public class ClawPragma extends AnalyzedPragma {
   private String _accClausesValue;
   private String _arrayName;
   private int _collapseClauseValue;
+  private int _factorClauseValue;
   private List<String> _dataValues;
   private String _groupClauseValue;
   private List<String> _fctCallParameters;
@@ -68,7 +69,8 @@ public class ClawPragma extends AnalyzedPragma {
   private boolean _hasPrivateClause, _hasReshapeClause, _hasForward;
   private boolean _hasOverDataClause, _hasCopyClause, _hasUpdateClause;
   private boolean _hasTargetClause, _hasConstraintClause, _hasScalarClause;
-  private boolean _hasCreateClause;
+  private boolean _hasCreateClause, _hasAutoClause, _hasFactorClause;
+  private boolean _hasJamClause;
 
   /**
    * Constructs an empty ClawPragma section.
@@ -259,6 +261,7 @@ public class ClawPragma extends AnalyzedPragma {
     _accClausesValue = null;
     _arrayName = null;
     _collapseClauseValue = 1;
+    _factorClauseValue = 1;
     _dataValues = null;
     _dimensions = null;
     _dimensionsMap = null;
@@ -300,6 +303,9 @@ public class ClawPragma extends AnalyzedPragma {
     _hasConstraintClause = false;
     _hasScalarClause = false;
     _hasCreateClause = false;
+    _hasAutoClause = false;
+    _hasFactorClause = false;
+    _hasJamClause = false;
 
     // General members
     _directive = null;
@@ -806,6 +812,66 @@ public class ClawPragma extends AnalyzedPragma {
     _hasInitClause = true;
   }
 
+  /**
+   * Check whether the auto clause is used.
+   *
+   * @return True if the auto clause is used.
+   */
+  public boolean hasAutoClause() {
+    return _hasAutoClause;
+  }
+
+  /**
+   * Set the auto clause flag.
+   */
+  public void setAutoClause() {
+    _hasAutoClause = true;
+  }
+
+  /**
+   * Check whether the factor clause is used.
+   *
+   * @return True if the factor clause is used.
+   */
+  public boolean hasFactorClause() {
+    return _hasFactorClause;
+  }
+
+  /**
+   * Set the factor value and flag.
+   *
+   * @param n Unroll factor. Will be converted to integer.
+   */
+  public void setFactorClause(String n) {
+    _hasFactorClause = true;
+    _factorClauseValue = Integer.parseInt(n);
+  }
+
+  /**
+   * Get the factor clause extracted value.
+   *
+   * @return Unroll factor. 1 if the clause is not used.
+   */
+  public int getFactorValue() {
+    return _factorClauseValue;
+  }
+
+  /**
+   * Check whether the jam clause is used.
+   *
+   * @return True if the jam clause is used.
+   */
+  public boolean hasJamClause() {
+    return _hasJamClause;
+  }
+
+  /**
+   * Set the jam clause flag.
+   */
+  public void setJamClause() {
+    _hasJamClause = true;
+  }
+
   /**
    * Check whether the private clause is used.
    *
@@ -59,6 +59,10 @@ directive[ClawPragma l]
   | LOOP_INTERCHANGE loop_interchange_clauses[$l] EOF
     { $l.setDirective(ClawDirective.LOOP_INTERCHANGE); }
 
+  // loop-unroll directive
+  | LOOP_UNROLL loop_unroll_clauses[$l] EOF
+    { $l.setDirective(ClawDirective.LOOP_UNROLL); }
+
   // loop-extract directive
   | LOOP_EXTRACT range_option mapping_option_list[m] loop_extract_clauses[$l] EOF
     {
@@ -81,6 +85,11 @@ directive[ClawPragma l]
     {
       $l.setDirective(ClawDirective.KCACHE);
     }
+  | KCACHE AUTO kcache_auto_clauses[$l] EOF
+    {
+      $l.setDirective(ClawDirective.KCACHE);
+      $l.setAutoClause();
+    }
 
   // Array notation transformation directive
   | ARRAY_TRANS array_transform_clauses[$l] EOF
@@ -110,6 +119,13 @@ directive[ClawPragma l]
       $l.setFctName($fct_name.text);
       $l.setArrayName($array_name.text);
     }
+  // call-to-table directive
+  | CALL_TO_TABLE fct_name=IDENTIFIER '(' lower=range_id ':' upper=range_id ')' (target_clause[$l])? EOF
+    {
+      $l.setDirective(ClawDirective.CALL_TO_TABLE);
+      $l.setFctName($fct_name.text);
+      $l.addDimension(new DimensionDefinition($fct_name.text, $lower.text, $upper.text));
+    }
 
    // one_column directive
    | define_option[$l]+ PARALLELIZE data_over_clause[$l]* parallelize_clauses[$l] EOF
@@ -158,19 +174,29 @@ directive[ClawPragma l]
      REMAINING*
 ;
 
+// Identifier. Clause keywords that are not reserved in Fortran are accepted
+// as variable names.
+identifier
+  :
+    IDENTIFIER
+  | AUTO
+  | FACTOR
+  | JAM
+;
+
 // Comma-separated identifiers list
 ids_list[List<String> ids]
   :
-    i=IDENTIFIER { $ids.add($i.text); }
-  | i=IDENTIFIER { $ids.add($i.text); } ',' ids_list[$ids]
+    i=identifier { $ids.add($i.text); }
+  | i=identifier { $ids.add($i.text); } ',' ids_list[$ids]
 ;
 
 // Comma-separated identifiers or colon symbol list
 ids_or_colon_list[List<String> ids]
   :
-    i=IDENTIFIER { $ids.add($i.text); }
+    i=identifier { $ids.add($i.text); }
   | ':' { $ids.add(":"); }
-  | i=IDENTIFIER { $ids.add($i.text); } ',' ids_or_colon_list[$ids]
+  | i=identifier { $ids.add($i.text); } ',' ids_or_colon_list[$ids]
   | ':' { $ids.add(":"); } ',' ids_or_colon_list[$ids]
 ;
 
@@ -236,6 +262,17 @@ interchange_clause[ClawPragma l]:
     INTERCHANGE indexes_option[$l] { $l.setInterchangeClause(); }
 ;
 
+// factor clause
+factor_clause[ClawPragma l]:
+    FACTOR '(' n=NUMBER ')'
+    { $l.setFactorClause($n.text); }
+;
+
+// jam clause
+jam_clause[ClawPragma l]:
+    JAM { $l.setJamClause(); }
+;
+
 // induction clause
 induction_clause[ClawPragma l]
   @init{
@@ -287,13 +324,13 @@ reshape_list[List<ReshapeInfo> r]:
 ;
 
 identifiers[List<String> ids]:
-    i=IDENTIFIER { $ids.add($i.text); }
-  | i=IDENTIFIER { $ids.add($i.text); } identifiers[$ids]
+    i=identifier { $ids.add($i.text); }
+  | i=identifier { $ids.add($i.text); } identifiers[$ids]
 ;
 
 identifiers_list[List<String> ids]:
-    i=IDENTIFIER { $ids.add($i.text); }
-  | i=IDENTIFIER { $ids.add($i.text); } ',' identifiers_list[$ids]
+    i=identifier { $ids.add($i.text); }
+  | i=identifier { $ids.add($i.text); } ',' identifiers_list[$ids]
 ;
 
 integers[List<Integer> ints]:
@@ -473,7 +510,7 @@ loop_fusion_clauses[ClawPragma l]:
 
 // Possible permutation of clauses for the loop-interchange directive
 loop_interchange_clauses[ClawPragma l]:
-  indexes_option[$l]
+  ( AUTO { $l.setAutoClause(); } | indexes_option[$l] )
   (
     { !$l.hasParallelClause() }?    parallel_clause[$l]
   | { !$l.hasAcceleratorClause() }? acc_clause[$l]
@@ -481,6 +518,15 @@ loop_interchange_clauses[ClawPragma l]:
   )*
 ;
 
+// Possible permutation of clauses for the loop-unroll directive
+loop_unroll_clauses[ClawPragma l]:
+  factor_clause[$l]
+  (
+    { !$l.hasJamClause() }?    jam_clause[$l]
+  | { !$l.hasTargetClause() }? target_clause[$l]
+  )*
+;
+
 // Possible permutation of clauses for the loop-extract directive
 loop_extract_clauses[ClawPragma l]:
   (
@@ -521,6 +567,14 @@ kcache_clauses[ClawPragma l]
   }
 ;
 
+// Possible permutation of clauses for the automatic kcache directive
+kcache_auto_clauses[ClawPragma l]:
+  (
+    { !$l.hasPrivateClause() }?  private_clause[$l]
+  | { !$l.hasTargetClause() }?   target_clause[$l]
+  )*
+;
+
 // Possible permutation of clauses for the loop-hoist directive
 loop_hoist_clauses[ClawPragma l]:
   (
@@ -542,6 +596,7 @@ CLAW         : 'claw';
 // CLAW Directives
 ARRAY_TRANS      : 'array-transform';
 ARRAY_TO_CALL    : 'call';
+CALL_TO_TABLE    : 'call-to-table';
 DEFINE           : 'define';
 END              : 'end';
 IF_EXTRACT       : 'if-extract';
@@ -550,6 +605,7 @@ LOOP_EXTRACT     : 'loop-extract';
 LOOP_FUSION      : 'loop-fusion';
 LOOP_HOIST       : 'loop-hoist';
 LOOP_INTERCHANGE : 'loop-interchange';
+LOOP_UNROLL      : 'loop-unroll';
 PARALLELIZE      : 'parallelize';
 REMOVE           : 'remove';
 IGNORE           : 'ignore';
@@ -557,18 +613,21 @@ VERBATIM         : 'verbatim';
 
 
 // CLAW Clauses
+AUTO         : 'auto';
 COLLAPSE     : 'collapse';
 CONSTRAINT   : 'constraint';
 COPY         : 'copy';
 CREATE       : 'create';
 DATA         : 'data';
 DIMENSION    : 'dimension';
+FACTOR       : 'factor';
 FORWARD      : 'forward';
 FUSION       : 'fusion';
 GROUP        : 'group';
 INDUCTION    : 'induction';
 INIT         : 'init';
 INTERCHANGE  : 'interchange';
+JAM          : 'jam';
 MAP          : 'map';
 OFFSET       : 'offset';
 OVER         : 'over';
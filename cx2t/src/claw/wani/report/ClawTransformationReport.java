@@ -5,8 +5,12 @@
 package claw.wani.report;
 
 import claw.ClawVersion;
+import claw.shenron.transformation.Transformation;
 import claw.shenron.transformation.TransformationGroup;
 import claw.tatsu.common.Utility;
+import claw.tatsu.analysis.cost.CostAnalysis;
+import claw.tatsu.common.Context;
+import claw.tatsu.xcodeml.abstraction.TimingRegion;
 import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.translator.ClawTranslator;
 import claw.wani.x2t.translator.ClawTranslatorDriver;
@@ -17,19 +21,25 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Generation of the transformation report. Report includes information about
  * the configuration used for the transformation phase as well as information
- * about applied transformation.
+ * about applied transformation. The per-kernel information is also written
+ * in JSON format next to the report as well as the mapping of the timing
+ * regions if the timing instrumentation is enabled.
  *
  * @author clementval
  */
 public class ClawTransformationReport {
 
   private static final int MAX_COL = 80;
+  private static final String JSON_EXTENSION = ".json";
+  private static final String REGIONS_EXTENSION = ".regions";
   private FileWriter _report;
+  private final String _reportPath;
 
   /**
    * Constructs a transformation report object.
@@ -38,6 +48,7 @@ public class ClawTransformationReport {
    * @throws Exception If file cannot be created or cannot be written.
    */
   public ClawTransformationReport(String reportPath) throws Exception {
+    _reportPath = reportPath;
     _report = new FileWriter(reportPath);
   }
 
@@ -54,8 +65,14 @@ public class ClawTransformationReport {
     printHeader("CLAW Transformation Report");
     printMainInfo(translator, args);
     printTransformationOrderInfo(translator.getTranslator());
-    printTransformationInfo();
+    List<KernelInfo> kernels = getKernels(translator.getTranslator());
+    printKernelInfo(kernels);
     _report.flush();
+    writeJsonReport(translator.getTranslationUnit().getSource(), kernels);
+    if(Configuration.get().isTimingInstrumentationEnabled()) {
+      writeTimingRegions(translator.getTranslationUnit().getSource(),
+          Context.get().getTimingRegions());
+    }
   }
 
   /**
@@ -146,9 +163,169 @@ public class ClawTransformationReport {
     }
   }
 
-  private void printTransformationInfo() throws Exception {
-    printTitle("Transformation");
-    // TODO
+  /**
+   * Gather the kernel information recorded by the applied transformations.
+   *
+   * @param translator Current translator used during the transformation.
+   * @return List of kernel information in the order of the transformations.
+   */
+  private List<KernelInfo> getKernels(ClawTranslator translator) {
+    List<KernelInfo> kernels = new ArrayList<>();
+    for(TransformationGroup group : translator.getGroups().values()) {
+      for(Transformation transformation : group.getTransformations()) {
+        if(transformation instanceof KernelReporter) {
+          kernels.addAll(((KernelReporter) transformation).getKernels());
+        }
+      }
+    }
+    return kernels;
+  }
+
+  /**
+   * Print the static information about the generated kernels. Flops and
+   * bytes are given per iteration of the generated loops.
+   *
+   * @param kernels List of kernel information.
+   * @throws Exception If file cannot be created or cannot be written.
+   */
+  private void printKernelInfo(List<KernelInfo> kernels) throws Exception {
+    printTitle("Kernel information");
+
+    String format = "%-24s %-6s %-6s %-8s %-8s %-6s %-8s %-4s %s";
+    printLine(String.format(format, "Function", "Line", "Flops", "Loaded",
+        "Stored", "AI", "Collapse", "Seq", "Promoted memory"));
+    printLine(String.format(format, "--------", "----", "-----", "------",
+        "------", "--", "--------", "---", "---------------"));
+    for(KernelInfo kernel : kernels) {
+      CostAnalysis cost = kernel.getCost();
+      printLine(String.format(format, kernel.getFunction(),
+          kernel.getLineNo(), cost.getFlops(), cost.getLoadedBytes(),
+          cost.getStoredBytes(), formatIntensity(cost),
+          kernel.getCollapse(), kernel.isSequential() ? "yes" : "no",
+          kernel.getPromotedMemory()));
+    }
+  }
+
+  /**
+   * Write the kernel information in JSON format. The file is placed next to
+   * the report with the json extension.
+   *
+   * @param source  Source file of the translation unit.
+   * @param kernels List of kernel information.
+   * @throws Exception If file cannot be created or cannot be written.
+   */
+  private void writeJsonReport(String source, List<KernelInfo> kernels)
+      throws Exception
+  {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n  \"file\": ").append(jsonString(source)).
+        append(",\n  \"kernels\": [");
+    for(int i = 0; i < kernels.size(); ++i) {
+      KernelInfo kernel = kernels.get(i);
+      CostAnalysis cost = kernel.getCost();
+      json.append(i == 0 ? "\n" : ",\n").
+          append("    {\"function\": ").
+          append(jsonString(kernel.getFunction())).
+          append(", \"line\": ").append(kernel.getLineNo()).
+          append(", \"flops\": ").append(cost.getFlops()).
+          append(", \"loaded_bytes\": ").append(cost.getLoadedBytes()).
+          append(", \"stored_bytes\": ").append(cost.getStoredBytes()).
+          append(", \"arithmetic_intensity\": ").
+          append(formatIntensity(cost)).
+          append(", \"promoted_memory\": ").
+          append(jsonString(kernel.getPromotedMemory())).
+          append(", \"collapse\": ").append(kernel.getCollapse()).
+          append(", \"sequential\": ").append(kernel.isSequential()).
+          append("}");
+    }
+    json.append(kernels.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+
+    try(FileWriter writer = new FileWriter(getSiblingPath(JSON_EXTENSION))) {
+      writer.write(json.toString());
+    }
+  }
+
+  /**
+   * Write the mapping of the timing region identifiers to the source. Each
+   * line holds the identifier, the routine, the line and the kind of the
+   * region passed to the timing runtime.
+   *
+   * @param source  Source file of the translation unit.
+   * @param regions List of instrumented regions.
+   * @throws Exception If file cannot be created or cannot be written.
+   */
+  private void writeTimingRegions(String source, List<TimingRegion> regions)
+      throws Exception
+  {
+    try(FileWriter writer =
+            new FileWriter(getSiblingPath(REGIONS_EXTENSION)))
+    {
+      writer.write("# file: " + source + "\n");
+      writer.write(String.format("# %-6s %-32s %-8s %s\n", "id", "routine",
+          "line", "kind"));
+      for(TimingRegion region : regions) {
+        writer.write(String.format("  %-6d %-32s %-8d %s\n", region.getId(),
+            region.getRoutine(), region.getLineNo(), region.getKind()));
+      }
+    }
+  }
+
+  /**
+   * Get the path of a file written next to the report. The extension of the
+   * report is replaced or the extension is appended if the report has none.
+   *
+   * @param extension Extension of the file including the dot.
+   * @return Path of the file.
+   */
+  private String getSiblingPath(String extension) {
+    int dot = _reportPath.lastIndexOf('.');
+    int separator = _reportPath.lastIndexOf('/');
+    return dot > separator + 1 ? _reportPath.substring(0, dot) + extension
+        : _reportPath + extension;
+  }
+
+  /**
+   * Format the arithmetic intensity with a fixed number of decimals.
+   *
+   * @param cost Cost estimation of the kernel.
+   * @return Formatted arithmetic intensity.
+   */
+  private String formatIntensity(CostAnalysis cost) {
+    return String.format(Locale.US, "%.3f", cost.getArithmeticIntensity());
+  }
+
+  /**
+   * Quote and escape a value as a JSON string.
+   *
+   * @param value Value to be quoted.
+   * @return JSON string. null if the value is null.
+   */
+  private String jsonString(String value) {
+    if(value == null) {
+      return "null";
+    }
+    StringBuilder str = new StringBuilder("\"");
+    for(char c : value.toCharArray()) {
+      switch(c) {
+        case '"':
+        case '\\':
+          str.append('\\').append(c);
+          break;
+        case '\n':
+          str.append("\\n");
+          break;
+        case '\t':
+          str.append("\\t");
+          break;
+        default:
+          if(c < ' ') {
+            str.append(String.format("\\u%04x", (int) c));
+          } else {
+            str.append(c);
+          }
+      }
+    }
+    return str.append('"').toString();
   }
 
   /**
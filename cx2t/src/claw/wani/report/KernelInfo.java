@@ -0,0 +1,98 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.report;
+
+import claw.tatsu.analysis.cost.CostAnalysis;
+
+/**
+ * Static information about a parallel region generated by a transformation.
+ * Gathered for the transformation report.
+ *
+ * @author clementval
+ */
+public class KernelInfo {
+
+  private final String _function;
+  private final int _lineNo;
+  private final CostAnalysis _cost;
+  private final String _promotedMemory;
+  private final int _collapse;
+  private final boolean _sequential;
+
+  /**
+   * Constructs a new kernel information object.
+   *
+   * @param function       Name of the function holding the region.
+   * @param lineNo         Line of the directive that triggered the region.
+   * @param cost           Cost estimation of an iteration of the region.
+   * @param promotedMemory Memory added by the promotion in bytes.
+   * @param collapse       Collapse depth of the generated loops.
+   * @param sequential     True if no parallel directive is generated.
+   */
+  public KernelInfo(String function, int lineNo, CostAnalysis cost,
+                    String promotedMemory, int collapse, boolean sequential)
+  {
+    _function = function;
+    _lineNo = lineNo;
+    _cost = cost;
+    _promotedMemory = promotedMemory;
+    _collapse = collapse;
+    _sequential = sequential;
+  }
+
+  /**
+   * Get the name of the function holding the region.
+   *
+   * @return Function name.
+   */
+  public String getFunction() {
+    return _function;
+  }
+
+  /**
+   * Get the line of the directive that triggered the region.
+   *
+   * @return Line number.
+   */
+  public int getLineNo() {
+    return _lineNo;
+  }
+
+  /**
+   * Get the cost estimation of an iteration of the region.
+   *
+   * @return Cost estimation.
+   */
+  public CostAnalysis getCost() {
+    return _cost;
+  }
+
+  /**
+   * Get the memory added by the promotion of the fields of the function.
+   *
+   * @return Memory in bytes as an expression of the promoted dimensions.
+   */
+  public String getPromotedMemory() {
+    return _promotedMemory;
+  }
+
+  /**
+   * Get the collapse depth of the generated loops.
+   *
+   * @return Collapse depth. 0 if no collapse clause is generated.
+   */
+  public int getCollapse() {
+    return _collapse;
+  }
+
+  /**
+   * Check whether the generated loops are left sequential.
+   *
+   * @return True if no parallel directive is generated.
+   */
+  public boolean isSequential() {
+    return _sequential;
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.report;
+
+import java.util.List;
+
+/**
+ * KernelReporter interface
+ *
+ * Implemented by the transformations generating parallel regions so their
+ * static information is gathered in the transformation report.
+ *
+ * @author clementval
+ */
+
+public interface KernelReporter {
+
+  /**
+   * Get the static information about the regions generated by the
+   * transformation.
+   *
+   * @return List of kernel information. Empty if the transformation was not
+   * applied.
+   */
+  List<KernelInfo> getKernels();
+}
@@ -104,4 +104,13 @@ public class OpenAccContinuation extends ClawTransformation {
   public boolean abortOnFailedAnalysis() {
     return false;
   }
+
+  /**
+   * @return Always true as only the pragma itself is modified.
+   * @see Transformation#isFunctionLocal()
+   */
+  @Override
+  public boolean isFunctionLocal() {
+    return true;
+  }
 }
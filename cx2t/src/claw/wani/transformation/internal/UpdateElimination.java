@@ -0,0 +1,319 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.internal;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.translator.Translator;
+import claw.tatsu.directive.common.DataMovement;
+import claw.tatsu.directive.common.Directive;
+import claw.tatsu.xcodeml.xnode.common.XcallGraph;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.wani.transformation.ClawTransformation;
+import claw.wani.x2t.translator.ClawTranslator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generate the update directives requested by the parallelize forward
+ * transformations of a translation unit without redundant data movement.
+ *
+ * The statements of each body are visited in order while tracking the
+ * variables known to be coherent between host and device. An update of a
+ * coherent variable is dropped. A variable stops being coherent when the
+ * device code of a call or the host code may write it. Only plain assignments
+ * and compound statements without calls invalidate single variables. Any
+ * other statement invalidates all of them. Compound statements are analyzed
+ * on their own as their body may be executed several times.
+ *
+ * Updates of consecutive calls are merged: updates to the device are moved
+ * before the first call and updates to the host after the last call as long
+ * as the other calls do not reference the variable.
+ *
+ * @author clementval
+ */
+public class UpdateElimination extends ClawTransformation {
+
+  /**
+   * Default ctor as this transformation is triggered by the translator.
+   */
+  public UpdateElimination() {
+    super();
+  }
+
+  /**
+   * Get the base variable name of a variable representation.
+   *
+   * @param var Variable representation like a(:,:) or a%b.
+   * @return Base variable name.
+   */
+  static String getBaseName(String var) {
+    int end = var.length();
+    for(int i = 0; i < var.length(); ++i) {
+      if(var.charAt(i) == '(' || var.charAt(i) == '%') {
+        end = i;
+        break;
+      }
+    }
+    return var.substring(0, end).trim().toLowerCase();
+  }
+
+  @Override
+  public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+    return true;
+  }
+
+  /**
+   * @return Always false as independent transformation are applied one by one.
+   * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
+   */
+  @Override
+  public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                      Transformation other)
+  {
+    return false; // Independent transformation
+  }
+
+  @Override
+  public void transform(XcodeProgram xcodeml, Translator translator,
+                        Transformation other) throws Exception
+  {
+    for(FfunctionDefinition fctDef : xcodeml.getAllFctDef()) {
+      processBody(xcodeml, (ClawTranslator) translator, fctDef.body());
+    }
+  }
+
+  /**
+   * Eliminate redundant updates in a body and generate the remaining ones.
+   * Nested bodies are processed with their own coherence information.
+   *
+   * @param xcodeml    Current XcodeML translation unit.
+   * @param translator Current translator holding the update requests.
+   * @param body       Body to be processed.
+   */
+  void processBody(XcodeProgram xcodeml, ClawTranslator translator,
+                   Xnode body)
+  {
+    if(body == null) {
+      return;
+    }
+    Set<String> coherent = new HashSet<>();
+    List<Xnode> run = new ArrayList<>();
+    List<List<String>> runDevice = new ArrayList<>();
+    List<List<String>> runHost = new ArrayList<>();
+
+    for(Xnode stmt : body.children()) {
+      Object request = translator.hasElement(stmt);
+      if(request instanceof UpdateRequest) {
+        UpdateRequest update = (UpdateRequest) request;
+        run.add(stmt);
+        runDevice.add(filter(update.getDeviceVars(), coherent));
+        invalidate(coherent, update.getWrittenVars());
+        runHost.add(filter(update.getHostVars(), coherent));
+        continue;
+      }
+
+      generate(xcodeml, run, runDevice, runHost);
+      run.clear();
+      runDevice.clear();
+      runHost.clear();
+
+      if(stmt.opcode() == Xcode.F_ASSIGN_STATEMENT && !hasCall(stmt)) {
+        Xnode lhsVar = stmt.child(Xnode.LHS).opcode() == Xcode.VAR
+            ? stmt.child(Xnode.LHS)
+            : stmt.child(Xnode.LHS).matchDescendant(Xcode.VAR);
+        if(lhsVar == null) {
+          coherent.clear();
+        } else {
+          invalidate(coherent, Collections.singletonList(lhsVar.value()));
+        }
+      } else if(isCompound(stmt) && !hasCall(stmt)
+          && stmt.matchDescendant(Xcode.F_PRAGMA_STATEMENT) == null)
+      {
+        // The nested bodies might write any variable they reference
+        List<String> written = new ArrayList<>();
+        for(Xnode var : stmt.matchAll(Xcode.VAR)) {
+          written.add(var.value());
+        }
+        invalidate(coherent, written);
+      } else {
+        // Unknown data movement, possible jump target or call writing any
+        // variable through its arguments, module or host association
+        coherent.clear();
+      }
+
+      for(Xnode nested : stmt.matchAll(Xcode.BODY)) {
+        if(nested.ancestor() != null
+            && body.equals(nested.ancestor().matchAncestor(Xcode.BODY)))
+        {
+          processBody(xcodeml, translator, nested);
+        }
+      }
+    }
+    generate(xcodeml, run, runDevice, runHost);
+  }
+
+  /**
+   * Check whether a statement is a compound statement whose nested bodies are
+   * analyzed on their own.
+   *
+   * @param stmt Statement to be checked.
+   * @return True if the statement is a do, if, select case or where
+   * statement.
+   */
+  private static boolean isCompound(Xnode stmt) {
+    switch(stmt.opcode()) {
+      case F_DO_STATEMENT:
+      case F_DO_WHILE_STATEMENT:
+      case F_DO_CONCURRENT_STATEMENT:
+      case F_IF_STATEMENT:
+      case F_SELECT_CASE_STATEMENT:
+      case F_WHERE_STATEMENT:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Check whether a statement calls a non intrinsic function that might
+   * modify its arguments.
+   *
+   * @param stmt Statement to be checked.
+   * @return True if a non intrinsic function is called.
+   */
+  private boolean hasCall(Xnode stmt) {
+    for(Xnode fctCall : stmt.matchAll(Xcode.FUNCTION_CALL)) {
+      if(XcallGraph.getCalledName(fctCall) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Keep the variables not coherent yet and flag them as coherent.
+   *
+   * @param vars     Variables to be updated.
+   * @param coherent Variables coherent between host and device.
+   * @return Variables for which the update is needed.
+   */
+  private List<String> filter(List<String> vars, Set<String> coherent) {
+    List<String> needed = new ArrayList<>();
+    for(String var : vars) {
+      if(coherent.add(var.toLowerCase())) {
+        needed.add(var);
+      }
+    }
+    return needed;
+  }
+
+  /**
+   * Remove the coherence information of written variables.
+   *
+   * @param coherent Variables coherent between host and device.
+   * @param written  Variables that might be written.
+   */
+  private void invalidate(Set<String> coherent, List<String> written) {
+    Set<String> names = new HashSet<>();
+    for(String var : written) {
+      names.add(getBaseName(var));
+    }
+    Iterator<String> iter = coherent.iterator();
+    while(iter.hasNext()) {
+      if(names.contains(getBaseName(iter.next()))) {
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * Generate the update directives of a run of consecutive calls. Updates are
+   * moved to the first or last call when the other calls do not reference the
+   * variable.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param run     Consecutive statements with update requests.
+   * @param device  Needed updates to the device for each statement.
+   * @param host    Needed updates to the host for each statement.
+   */
+  private void generate(XcodeProgram xcodeml, List<Xnode> run,
+                        List<List<String>> device, List<List<String>> host)
+  {
+    if(run.isEmpty()) {
+      return;
+    }
+    List<Set<String>> references = new ArrayList<>();
+    for(Xnode stmt : run) {
+      Set<String> names = new HashSet<>();
+      for(Xnode var : stmt.matchAll(Xcode.VAR)) {
+        names.add(var.value());
+      }
+      references.add(names);
+    }
+
+    int last = run.size() - 1;
+    Set<String> firstDevice = new LinkedHashSet<>(device.get(0));
+    Set<String> lastHost = new LinkedHashSet<>();
+    for(int i = 1; i <= last; ++i) {
+      for(Iterator<String> iter = device.get(i).iterator(); iter.hasNext(); ) {
+        String var = iter.next();
+        if(!isReferenced(references, getBaseName(var), 0, i)) {
+          firstDevice.add(var);
+          iter.remove();
+        }
+      }
+    }
+    for(int i = 0; i < last; ++i) {
+      for(Iterator<String> iter = host.get(i).iterator(); iter.hasNext(); ) {
+        String var = iter.next();
+        if(!isReferenced(references, getBaseName(var), i + 1, last + 1)) {
+          lastHost.add(var);
+          iter.remove();
+        }
+      }
+    }
+    lastHost.addAll(host.get(last));
+    device.set(0, new ArrayList<>(firstDevice));
+    host.set(last, new ArrayList<>(lastHost));
+
+    for(int i = 0; i <= last; ++i) {
+      Directive.generateUpdate(xcodeml, run.get(i),
+          new ArrayList<>(new LinkedHashSet<>(device.get(i))),
+          DataMovement.DEVICE);
+      Directive.generateUpdate(xcodeml, run.get(i),
+          new ArrayList<>(new LinkedHashSet<>(host.get(i))),
+          DataMovement.HOST);
+    }
+  }
+
+  /**
+   * Check whether a variable is referenced by some statements of a run.
+   *
+   * @param references Variables referenced by each statement of the run.
+   * @param name       Base name of the variable.
+   * @param from       Index of the first statement to check.
+   * @param to         Index after the last statement to check.
+   * @return True if one of the statements references the variable.
+   */
+  private boolean isReferenced(List<Set<String>> references, String name,
+                               int from, int to)
+  {
+    for(int i = from; i < to; ++i) {
+      if(references.get(i).contains(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data transfers requested around a statement calling a parallelized
+ * function. The update directives are not generated directly but by the
+ * UpdateElimination transformation once all the requests of the translation
+ * unit are known.
+ *
+ * @author clementval
+ */
+public class UpdateRequest {
+
+  private final List<String> _device;
+  private final List<String> _host;
+  private final List<String> _written;
+
+  /**
+   * Constructs a new request.
+   *
+   * @param device  Variables to be copied to the device before the call.
+   * @param host    Variables to be copied back to the host after the call.
+   * @param written Variables that might be written on the device by the call.
+   */
+  public UpdateRequest(List<String> device, List<String> host,
+                       List<String> written)
+  {
+    _device = new ArrayList<>(device);
+    _host = new ArrayList<>(host);
+    _written = new ArrayList<>(written);
+  }
+
+  /**
+   * Get the variables to be copied to the device before the call.
+   *
+   * @return List of variables representation.
+   */
+  public List<String> getDeviceVars() {
+    return _device;
+  }
+
+  /**
+   * Get the variables to be copied back to the host after the call.
+   *
+   * @return List of variables representation.
+   */
+  public List<String> getHostVars() {
+    return _host;
+  }
+
+  /**
+   * Get the variables that might be written on the device by the call.
+   *
+   * @return List of variables representation.
+   */
+  public List<String> getWrittenVars() {
+    return _written;
+  }
+}
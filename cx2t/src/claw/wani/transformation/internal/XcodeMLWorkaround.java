@@ -31,6 +31,17 @@ public class XcodeMLWorkaround extends ClawTransformation {
     return true;
   }
 
+  /**
+   * @return Always false as a single transformation, triggered by the
+   * translation unit, reorders the declarations of every function definition.
+   * There is no directive to partition it by function definition.
+   * @see Transformation#isFunctionLocal()
+   */
+  @Override
+  public boolean isFunctionLocal() {
+    return false;
+  }
+
   /**
    * @return Always false as independent transformation are applied one by one.
    * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
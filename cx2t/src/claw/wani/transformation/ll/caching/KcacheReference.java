@@ -0,0 +1,219 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.caching;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Group of array references of a field that use the same index expressions.
+ * Only references where each index is a variable or a variable plus or minus
+ * an integer constant are represented. Used by the automatic kcache
+ * transformation to find the values that can be kept in scalars.
+ *
+ * @author clementval
+ */
+class KcacheReference {
+
+  private final String _name;
+  private final String _key;
+  private final List<String> _indexVars;
+  private final List<Integer> _offsets;
+  private final int _verticalDim;
+  private final List<Xnode> _refs;
+
+  /**
+   * Constructs a new group of array references.
+   *
+   * @param name        Name of the array.
+   * @param indexVars   Index variable of each dimension.
+   * @param offsets     Constant offset of each dimension.
+   * @param verticalDim Dimension indexed by the loop induction variable. -1
+   *                    if not indexed by the induction variable.
+   */
+  private KcacheReference(String name, List<String> indexVars,
+                          List<Integer> offsets, int verticalDim)
+  {
+    _name = name;
+    _indexVars = indexVars;
+    _offsets = offsets;
+    _verticalDim = verticalDim;
+    _refs = new ArrayList<>();
+    StringBuilder key = new StringBuilder(name);
+    for(int i = 0; i < indexVars.size(); ++i) {
+      key.append(i == 0 ? "(" : ",").append(indexVars.get(i)).append(":").
+          append(offsets.get(i));
+    }
+    _key = key.append(")").toString();
+  }
+
+  /**
+   * Create a group from an array reference.
+   *
+   * @param arrayRef     FarrayRef node.
+   * @param inductionVar Induction variable of the vertical loop.
+   * @return New group holding the array reference. Null if the array
+   * reference has an index that is not a variable with a constant offset.
+   */
+  static KcacheReference create(Xnode arrayRef, String inductionVar) {
+    Xnode var = arrayRef.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+    if(var == null) {
+      return null;
+    }
+    List<String> indexVars = new ArrayList<>();
+    List<Integer> offsets = new ArrayList<>();
+    int verticalDim = -1;
+    for(Xnode index : arrayRef.children()) {
+      if(index.opcode() == Xcode.VAR_REF) {
+        continue;
+      }
+      if(index.opcode() != Xcode.ARRAY_INDEX || index.child(0) == null) {
+        return null;
+      }
+      Xnode expr = index.child(0);
+      if(expr.opcode() == Xcode.VAR) {
+        indexVars.add(expr.value());
+        offsets.add(0);
+      } else if((expr.opcode() == Xcode.PLUS_EXPR
+          || expr.opcode() == Xcode.MINUS_EXPR)
+          && expr.child(0) != null && expr.child(0).opcode() == Xcode.VAR
+          && expr.child(1) != null
+          && expr.child(1).opcode() == Xcode.F_INT_CONSTANT)
+      {
+        int offset;
+        try {
+          offset = Integer.parseInt(expr.child(1).value());
+        } catch(NumberFormatException ignored) {
+          return null;
+        }
+        indexVars.add(expr.child(0).value());
+        offsets.add(expr.opcode() == Xcode.PLUS_EXPR ? offset : -offset);
+      } else {
+        return null;
+      }
+      if(inductionVar.equals(indexVars.get(indexVars.size() - 1))) {
+        if(verticalDim != -1) {
+          return null;
+        }
+        verticalDim = indexVars.size() - 1;
+      }
+    }
+    if(indexVars.isEmpty()) {
+      return null;
+    }
+    KcacheReference ref =
+        new KcacheReference(var.value(), indexVars, offsets, verticalDim);
+    ref._refs.add(arrayRef);
+    return ref;
+  }
+
+  /**
+   * Get the name of the array.
+   *
+   * @return Array name.
+   */
+  String getName() {
+    return _name;
+  }
+
+  /**
+   * Get the key identifying the index expressions of the group.
+   *
+   * @return Key made of the array name and each index variable and offset.
+   */
+  String getKey() {
+    return _key;
+  }
+
+  /**
+   * Get the index variables used in the array references.
+   *
+   * @return List of index variables. One per dimension.
+   */
+  List<String> getIndexVars() {
+    return _indexVars;
+  }
+
+  /**
+   * Get the offsets used in the array references.
+   *
+   * @return List of offsets. One per dimension.
+   */
+  List<Integer> getOffsets() {
+    return _offsets;
+  }
+
+  /**
+   * Get the offsets of the group with a different vertical offset.
+   *
+   * @param verticalOffset Offset in the vertical dimension.
+   * @return New list of offsets. One per dimension.
+   */
+  List<Integer> getOffsets(int verticalOffset) {
+    List<Integer> offsets = new ArrayList<>(_offsets);
+    offsets.set(_verticalDim, verticalOffset);
+    return offsets;
+  }
+
+  /**
+   * Get the dimension indexed by the vertical loop induction variable.
+   *
+   * @return Dimension index. -1 if the induction variable is not used.
+   */
+  int getVerticalDim() {
+    return _verticalDim;
+  }
+
+  /**
+   * Get the offset in the vertical dimension.
+   *
+   * @return Vertical offset. 0 if the induction variable is not used.
+   */
+  int getVerticalOffset() {
+    return _verticalDim < 0 ? 0 : _offsets.get(_verticalDim);
+  }
+
+  /**
+   * Check whether another group only differs from this group by its vertical
+   * offset.
+   *
+   * @param other Other group of the same array.
+   * @return True if all other index expressions are the same.
+   */
+  boolean isVerticalNeighbor(KcacheReference other) {
+    if(_verticalDim < 0 || _verticalDim != other._verticalDim
+        || !_indexVars.equals(other._indexVars))
+    {
+      return false;
+    }
+    for(int i = 0; i < _offsets.size(); ++i) {
+      if(i != _verticalDim && !_offsets.get(i).equals(other._offsets.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the array references of the group.
+   *
+   * @return List of FarrayRef nodes.
+   */
+  List<Xnode> getRefs() {
+    return _refs;
+  }
+
+  /**
+   * Add the array references of another group with the same key.
+   *
+   * @param other Other group.
+   */
+  void merge(KcacheReference other) {
+    _refs.addAll(other._refs);
+  }
+}
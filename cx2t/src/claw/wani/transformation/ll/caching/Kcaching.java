@@ -8,6 +8,7 @@ import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
 import claw.tatsu.directive.common.Directive;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
@@ -18,13 +19,25 @@ import claw.wani.transformation.ClawTransformation;
 import claw.wani.x2t.translator.ClawTranslator;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * A Kcaching transformation is an independent transformation. The
  * transformation consists of placing an assignment in a scalar variable and
  * use this variable in a loop body before updating it.
  *
+ * With the auto clause, the cached arrays are inferred from the loop body.
+ * Read-only arrays accessed at several offsets of the loop induction variable
+ * are kept in a set of scalars rotated at the end of each iteration so only
+ * one value is loaded per iteration. Other read-only array elements read
+ * several times in an iteration are loaded once.
+ *
  * @author clementval
  */
 public class Kcaching extends ClawTransformation {
@@ -82,6 +95,12 @@ public class Kcaching extends ClawTransformation {
     // 1. Find the function/module declaration
     FfunctionDefinition fctDef = _claw.getPragma().findParentFunction();
 
+    if(_claw.hasAutoClause()) {
+      transformAuto(xcodeml, fctDef, translator);
+      removePragma();
+      return;
+    }
+
     for(String data : _claw.getDataClauseValues()) {
       Xnode stmt = XnodeUtil.getFirstArrayAssign(_claw.getPragma(), data);
 
@@ -130,7 +149,7 @@ public class Kcaching extends ClawTransformation {
     // Generate the cache variable and its assignment
     String type = aRefs.get(0).getType();
     Xnode cacheVar = generateCacheVarAndAssignStmt(xcodeml, data, type, fctDef,
-        aRefs.get(0), null);
+        aRefs.get(0), null, _claw.getOffsets());
 
     updateArrayRefWithCache(aRefs, cacheVar);
 
@@ -159,8 +178,8 @@ public class Kcaching extends ClawTransformation {
     String type = stmt.matchDirectDescendant(Xcode.F_ARRAY_REF).getType();
     List<Xnode> aRefs = checkOffsetAndGetArrayRefs(xcodeml, fctDef, data);
 
-    Xnode cacheVar =
-        generateCacheVarAndAssignStmt(xcodeml, data, type, fctDef, stmt, stmt);
+    Xnode cacheVar = generateCacheVarAndAssignStmt(xcodeml, data, type,
+        fctDef, stmt, stmt, _claw.getOffsets());
 
     applyInitClause(xcodeml, translator, cacheVar, aRefs.get(0));
 
@@ -173,6 +192,322 @@ public class Kcaching extends ClawTransformation {
     stmt.delete();
   }
 
+  /**
+   * Apply the transformation for the arrays inferred from the loop body.
+   *
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param fctDef     Function/module definition in which the loop is nested.
+   * @param translator The translator used to applied the transformations.
+   */
+  private void transformAuto(XcodeProgram xcodeml, FfunctionDefinition fctDef,
+                             Translator translator)
+  {
+    if(hasIrregularControlFlow()) {
+      xcodeml.addWarning("The kcache directive is ignored as the loop body " +
+          "has an irregular control flow", _claw.getPragma().lineNo());
+      return;
+    }
+
+    Map<String, List<KcacheReference>> candidates = inferCandidates();
+    boolean rotate = hasUnitStep();
+    List<Xnode> cacheVars = new ArrayList<>();
+    for(List<KcacheReference> groups : candidates.values()) {
+      if(rotate && isRotatable(groups)) {
+        applyRotation(xcodeml, fctDef, translator, groups, cacheVars);
+      } else {
+        for(KcacheReference group : groups) {
+          if(group.getRefs().size() > 1 && isFreeName(fctDef, group,
+              group.getOffsets()))
+          {
+            Xnode first = group.getRefs().get(0);
+            Xnode cacheVar = generateCacheVarAndAssignStmt(xcodeml,
+                group.getName(), first.getType(), fctDef, first, null,
+                group.getOffsets());
+            replaceGroup(group, cacheVar);
+            cacheVars.add(cacheVar);
+          }
+        }
+      }
+    }
+
+    if(cacheVars.isEmpty()) {
+      xcodeml.addWarning("No array to be cached found by the kcache directive",
+          _claw.getPragma().lineNo());
+    }
+    if(_claw.hasPrivateClause()) {
+      for(Xnode cacheVar : cacheVars) {
+        Directive.generatePrivateClause(xcodeml, _claw.getPragma(),
+            cacheVar.value());
+      }
+    }
+  }
+
+  /**
+   * Find the array references that can be cached. Only the assign statements
+   * directly following the pragma in the loop body are considered. An array
+   * is a candidate if it is not written in the loop body and if all its
+   * references in the loop body are located in these statements with indexes
+   * made of variables not written in the loop body.
+   *
+   * @return Groups of array references sorted by array name.
+   */
+  private Map<String, List<KcacheReference>> inferCandidates() {
+    String inductionVar = _doStmt.matchDirectDescendant(Xcode.VAR).value();
+    Xnode body = _doStmt.body();
+
+    // Variables that might be written in the loop body
+    Set<String> written = new HashSet<>();
+    for(Xnode assign : body.matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      Xnode lhs = assign.child(Xnode.LHS);
+      Xnode var = lhs.opcode() == Xcode.VAR ? lhs :
+          lhs.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+      if(var != null) {
+        written.add(var.value());
+      }
+    }
+    for(Xnode doStmt : body.matchAll(Xcode.F_DO_STATEMENT)) {
+      written.add(doStmt.matchDirectDescendant(Xcode.VAR).value());
+    }
+    for(Xnode fctCall : body.matchAll(Xcode.FUNCTION_CALL)) {
+      if(!fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        for(Xnode var : fctCall.matchAll(Xcode.VAR)) {
+          written.add(var.value());
+        }
+      }
+    }
+
+    // Group the references by array and index expressions
+    Map<String, Map<String, KcacheReference>> groups = new LinkedHashMap<>();
+    Set<Xnode> accepted = new HashSet<>();
+    Set<String> rejected = new HashSet<>(written);
+    Xnode stmt = _claw.getPragma().nextSibling();
+    while(stmt != null) {
+      if(stmt.opcode() == Xcode.F_ASSIGN_STATEMENT) {
+        for(Xnode arrayRef : stmt.matchAll(Xcode.F_ARRAY_REF)) {
+          KcacheReference ref = KcacheReference.create(arrayRef, inductionVar);
+          if(ref == null) {
+            continue;
+          }
+          if(!Collections.disjoint(ref.getIndexVars(), written)) {
+            rejected.add(ref.getName());
+            continue;
+          }
+          Map<String, KcacheReference> byKey = groups.get(ref.getName());
+          if(byKey == null) {
+            byKey = new LinkedHashMap<>();
+            groups.put(ref.getName(), byKey);
+          }
+          if(byKey.containsKey(ref.getKey())) {
+            byKey.get(ref.getKey()).merge(ref);
+          } else {
+            byKey.put(ref.getKey(), ref);
+          }
+          accepted.add(arrayRef);
+        }
+      }
+      stmt = stmt.nextSibling();
+    }
+
+    // Any other use of the array in the loop body prevents the caching
+    for(Xnode var : body.matchAll(Xcode.VAR)) {
+      if(groups.containsKey(var.value())) {
+        Xnode varRef = var.ancestor();
+        if(varRef == null || varRef.opcode() != Xcode.VAR_REF
+            || !accepted.contains(varRef.ancestor()))
+        {
+          rejected.add(var.value());
+        }
+      }
+    }
+
+    Map<String, List<KcacheReference>> candidates = new LinkedHashMap<>();
+    for(Map.Entry<String, Map<String, KcacheReference>> entry :
+        groups.entrySet())
+    {
+      if(!rejected.contains(entry.getKey())) {
+        candidates.put(entry.getKey(),
+            new ArrayList<>(entry.getValue().values()));
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Check whether the loop body contains statements that can skip the end of
+   * an iteration.
+   *
+   * @return True if a cycle, exit, goto, return or stop statement is found.
+   */
+  private boolean hasIrregularControlFlow() {
+    Xnode body = _doStmt.body();
+    return body.matchDescendant(Xcode.F_CYCLE_STATEMENT) != null
+        || body.matchDescendant(Xcode.F_EXIT_STATEMENT) != null
+        || body.matchDescendant(Xcode.GOTO_STATEMENT) != null
+        || body.matchDescendant(Xcode.F_RETURN_STATEMENT) != null
+        || body.matchDescendant(Xcode.F_STOP_STATEMENT) != null;
+  }
+
+  /**
+   * Check whether the loop iterates with a step of 1.
+   *
+   * @return True if the step is the constant 1.
+   */
+  private boolean hasUnitStep() {
+    Xnode step = _doStmt.matchSeq(Xcode.INDEX_RANGE, Xcode.STEP);
+    return step != null && step.child(0) != null
+        && step.child(0).opcode() == Xcode.F_INT_CONSTANT
+        && "1".equals(step.child(0).value());
+  }
+
+  /**
+   * Check whether the groups of an array can be cached across iterations. All
+   * groups must differ only by their offset in the vertical dimension.
+   *
+   * @param groups Groups of array references of a single array.
+   * @return True if the values can be rotated from one iteration to the next.
+   */
+  private boolean isRotatable(List<KcacheReference> groups) {
+    if(groups.size() < 2) {
+      return false;
+    }
+    for(KcacheReference group : groups) {
+      if(!groups.get(0).isVerticalNeighbor(group)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Cache an array across iterations. A scalar is created for each offset
+   * between the lowest and the highest vertical offsets. Only the highest
+   * offset is loaded in each iteration. The others are loaded in the first
+   * iteration and then shifted at the end of each iteration.
+   *
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param fctDef     Function/module definition in which the loop is nested.
+   * @param translator The translator used to applied the transformations.
+   * @param groups     Groups of array references of a single array.
+   * @param cacheVars  List in which the created cache variables are added.
+   */
+  private void applyRotation(XcodeProgram xcodeml, FfunctionDefinition fctDef,
+                             Translator translator,
+                             List<KcacheReference> groups,
+                             List<Xnode> cacheVars)
+  {
+    Collections.sort(groups, new Comparator<KcacheReference>() {
+      @Override
+      public int compare(KcacheReference g1, KcacheReference g2) {
+        return Integer.compare(g1.getVerticalOffset(),
+            g2.getVerticalOffset());
+      }
+    });
+    KcacheReference last = groups.get(groups.size() - 1);
+    int lowest = groups.get(0).getVerticalOffset();
+    int highest = last.getVerticalOffset();
+    for(int offset = lowest; offset <= highest; ++offset) {
+      if(!isFreeName(fctDef, last, last.getOffsets(offset))) {
+        return;
+      }
+    }
+
+    Xnode template = last.getRefs().get(0);
+    Map<Integer, Xnode> rotation = new LinkedHashMap<>();
+    for(int offset = lowest; offset <= highest; ++offset) {
+      Xnode cacheVar;
+      if(offset == highest) {
+        cacheVar = generateCacheVarAndAssignStmt(xcodeml, last.getName(),
+            template.getType(), fctDef, template, null,
+            last.getOffsets(offset));
+      } else {
+        cacheVar = generateCacheVar(xcodeml, last.getName(),
+            template.getType(), fctDef, last.getOffsets(offset));
+        insertInitAssignment(xcodeml, translator, cacheVar,
+            createShiftedArrayRef(xcodeml, template, last.getVerticalDim(),
+                offset));
+      }
+      rotation.put(offset, cacheVar);
+      cacheVars.add(cacheVar);
+    }
+
+    for(int offset = lowest; offset < highest; ++offset) {
+      Xnode shift = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      shift.append(rotation.get(offset), true);
+      shift.append(rotation.get(offset + 1), true);
+      _doStmt.body().append(shift);
+    }
+
+    for(KcacheReference group : groups) {
+      replaceGroup(group, rotation.get(group.getVerticalOffset()));
+    }
+  }
+
+  /**
+   * Check that the cache variable name of a group is not already used in the
+   * function definition.
+   *
+   * @param fctDef  Function definition in which the loop is nested.
+   * @param group   Group of array references.
+   * @param offsets Offsets used to name the cache variable.
+   * @return True if the name is not declared yet.
+   */
+  private boolean isFreeName(FfunctionDefinition fctDef, KcacheReference group,
+                             List<Integer> offsets)
+  {
+    return !fctDef.getSymbolTable().contains(
+        generateNameWithOffsetInfo(group.getName(), offsets));
+  }
+
+  /**
+   * Create a copy of an array reference with another offset in the vertical
+   * dimension.
+   *
+   * @param xcodeml  The current program.
+   * @param arrayRef Array reference to be copied.
+   * @param dim      Vertical dimension.
+   * @param offset   New offset in the vertical dimension.
+   * @return The new array reference.
+   */
+  private Xnode createShiftedArrayRef(XcodeProgram xcodeml, Xnode arrayRef,
+                                      int dim, int offset)
+  {
+    Xnode newRef = arrayRef.cloneNode();
+    // First child is the varRef element
+    Xnode oldExpr = newRef.child(dim + 1).child(0);
+    Xnode var = oldExpr.opcode() == Xcode.VAR ? oldExpr : oldExpr.child(0);
+    Xnode newExpr;
+    if(offset == 0) {
+      newExpr = var.cloneNode();
+    } else {
+      newExpr = xcodeml.createNode(offset > 0 ? Xcode.PLUS_EXPR :
+          Xcode.MINUS_EXPR);
+      newExpr.setType(Xname.TYPE_F_INT);
+      newExpr.append(var, true);
+      newExpr.append(xcodeml.createIntConstant(Math.abs(offset)));
+    }
+    oldExpr.insertAfter(newExpr);
+    oldExpr.delete();
+    return newRef;
+  }
+
+  /**
+   * Replace the array references of a group by a cache variable.
+   *
+   * @param group    Group of array references.
+   * @param cacheVar Cache variable.
+   */
+  private void replaceGroup(KcacheReference group, Xnode cacheVar) {
+    List<Xnode> arrayRefs = new ArrayList<>();
+    for(Xnode ref : XnodeUtil.getAllArrayReferencesByOffsets(_doStmt.body(),
+        group.getName(), group.getOffsets()))
+    {
+      if(group.getRefs().contains(ref)) {
+        arrayRefs.add(ref);
+      }
+    }
+    updateArrayRefWithCache(arrayRefs, cacheVar);
+  }
+
   /**
    * Apply the init clause if it was part of the kcache directive.
    *
@@ -189,34 +524,53 @@ public class Kcaching extends ClawTransformation {
   private void applyInitClause(XcodeProgram xcodeml, Translator translator,
                                Xnode cacheVar, Xnode arrayRef)
   {
-
     if(_claw.hasInitClause()) {
-      ClawTranslator ct = (ClawTranslator) translator;
-      Xnode initIfStmt = (Xnode) ct.hasElement(_doStmt);
-      if(initIfStmt == null) {
-        // If statement has not been created yet so we do it here
-        initIfStmt = xcodeml.createIfThen();
-        _claw.getPragma().copyEnhancedInfo(initIfStmt);
-        Xnode logEq = xcodeml.createNode(Xcode.LOG_EQ_EXPR);
-
-        // Set lhs of equality
-        logEq.append(_doStmt.matchDirectDescendant(Xcode.VAR), true);
-        // Set rhs of equality
-        logEq.append(_doStmt.matchDirectDescendant(Xcode.INDEX_RANGE).
-            matchDirectDescendant(Xcode.LOWER_BOUND).child(0), true);
-
-        initIfStmt.matchDirectDescendant(Xcode.CONDITION).append(logEq);
-        _doStmt.body().insert(initIfStmt, false);
-        ct.storeElement(_doStmt, initIfStmt);
-      }
+      insertInitAssignment(xcodeml, translator, cacheVar, arrayRef);
+    }
+  }
 
-      Xnode initAssignment = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
-      initAssignment.append(cacheVar, true); // set rhs
-      initAssignment.append(arrayRef, true); // set lhs
-      // Add assignment in the "then" body element
-      initIfStmt.matchDirectDescendant(Xcode.THEN).body().
-          append(initAssignment);
+  /**
+   * Insert an assignment executed only in the first iteration of the loop.
+   * The enclosing if statement is shared by all kcache transformations of the
+   * loop.
+   *
+   * @param xcodeml    Current program in which the transformation is
+   *                   performed.
+   * @param translator Current translator used to store elements information.
+   * @param cacheVar   Cache variable (lhs of the assign statement). Element
+   *                   will be cloned before insertion.
+   * @param arrayRef   Array reference (rhs of the assign statement). Element
+   *                   will be cloned before insertion.
+   */
+  private void insertInitAssignment(XcodeProgram xcodeml,
+                                    Translator translator,
+                                    Xnode cacheVar, Xnode arrayRef)
+  {
+    ClawTranslator ct = (ClawTranslator) translator;
+    Xnode initIfStmt = (Xnode) ct.hasElement(_doStmt);
+    if(initIfStmt == null) {
+      // If statement has not been created yet so we do it here
+      initIfStmt = xcodeml.createIfThen();
+      _claw.getPragma().copyEnhancedInfo(initIfStmt);
+      Xnode logEq = xcodeml.createNode(Xcode.LOG_EQ_EXPR);
+
+      // Set lhs of equality
+      logEq.append(_doStmt.matchDirectDescendant(Xcode.VAR), true);
+      // Set rhs of equality
+      logEq.append(_doStmt.matchDirectDescendant(Xcode.INDEX_RANGE).
+          matchDirectDescendant(Xcode.LOWER_BOUND).child(0), true);
+
+      initIfStmt.matchDirectDescendant(Xcode.CONDITION).append(logEq);
+      _doStmt.body().insert(initIfStmt, false);
+      ct.storeElement(_doStmt, initIfStmt);
     }
+
+    Xnode initAssignment = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    initAssignment.append(cacheVar, true); // set rhs
+    initAssignment.append(arrayRef, true); // set lhs
+    // Add assignment in the "then" body element
+    initIfStmt.matchDirectDescendant(Xcode.THEN).body().
+        append(initAssignment);
   }
 
   /**
@@ -283,13 +637,57 @@ public class Kcaching extends ClawTransformation {
    * @param fctDef  The function definition holding the variable.
    * @param rhs     The element that will be set as the rhs of the assignment.
    * @param stmt    The assign statement including the array ref.
+   * @param offsets The offsets used to name the cache variable.
    * @return The new created Xvar element.
    */
   private Xnode generateCacheVarAndAssignStmt(XcodeProgram xcodeml, String var,
                                               String type,
                                               FfunctionDefinition fctDef,
                                               Xnode rhs,
-                                              Xnode stmt)
+                                              Xnode stmt,
+                                              List<Integer> offsets)
+  {
+    Xnode cacheVar = generateCacheVar(xcodeml, var, type, fctDef, offsets);
+
+    if(stmt == null) {
+      Xnode cache1 = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      cache1.append(cacheVar, false);
+      cache1.append(rhs, true);
+      _claw.getPragma().insertAfter(cache1);
+    } else {
+      /*
+       * We replace an assignment of type
+       * A = B
+       * by
+       * cache_A = B
+       * A = cache_A
+       */
+      Xnode cache1 = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      cache1.append(cacheVar);
+      cache1.append(stmt.child(1), true);
+      Xnode cache2 = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      cache2.append(stmt.child(0), true);
+      cache2.append(cacheVar, true);
+      stmt.insertAfter(cache1);
+      cache1.insertAfter(cache2);
+
+    }
+    return cacheVar;
+  }
+
+  /**
+   * Declare a new cache variable in the function definition.
+   *
+   * @param xcodeml The current program.
+   * @param var     The original variable name.
+   * @param type    The original variable type.
+   * @param fctDef  The function definition holding the variable.
+   * @param offsets The offsets used to name the cache variable.
+   * @return The new created Xvar element.
+   */
+  private Xnode generateCacheVar(XcodeProgram xcodeml, String var, String type,
+                                 FfunctionDefinition fctDef,
+                                 List<Integer> offsets)
   {
     FbasicType t = xcodeml.getTypeTable().getBasicType(type); // TODO getType
     if(t.getIntent() != null || t.isAllocatable()) {
@@ -315,8 +713,7 @@ public class Kcaching extends ClawTransformation {
       xcodeml.getTypeTable().add(newType);
     }
 
-    String cacheName =
-        generateNameWithOffsetInfo(var, _claw.getOffsets());
+    String cacheName = generateNameWithOffsetInfo(var, offsets);
 
     // 2.2 inject a new entry in the symbol table
     if(!fctDef.getSymbolTable().contains(cacheName)) {
@@ -331,32 +728,7 @@ public class Kcaching extends ClawTransformation {
     }
 
     // 2.4 Prepare the new variable that is used for caching
-    Xnode cacheVar = xcodeml.createVar(type, cacheName, Xscope.LOCAL);
-
-    if(stmt == null) {
-      Xnode cache1 = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
-      cache1.append(cacheVar, false);
-      cache1.append(rhs, true);
-      _claw.getPragma().insertAfter(cache1);
-    } else {
-      /*
-       * We replace an assignment of type
-       * A = B
-       * by
-       * cache_A = B
-       * A = cache_A
-       */
-      Xnode cache1 = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
-      cache1.append(cacheVar);
-      cache1.append(stmt.child(1), true);
-      Xnode cache2 = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
-      cache2.append(stmt.child(0), true);
-      cache2.append(cacheVar, true);
-      stmt.insertAfter(cache1);
-      cache1.insertAfter(cache2);
-
-    }
-    return cacheVar;
+    return xcodeml.createVar(type, cacheName, Xscope.LOCAL);
   }
 
   private List<Xnode> checkOffsetAndGetArrayRefs(XcodeProgram xcodeml,
@@ -6,6 +6,7 @@ package claw.wani.transformation.ll.loop;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.dependency.ReadWriteSet;
 import claw.tatsu.directive.common.Directive;
 import claw.tatsu.primitive.Range;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
@@ -32,6 +33,12 @@ import java.util.List;
  * DO i=1,n
  *   A(i) = A(i+m) + B(i) * C(n+i)
  * END DO
+ *
+ * In a block, assignments with identical iteration ranges are generated in the
+ * same do statements when their read and write sets allow it, even if they
+ * are not consecutive. A variable written by an assignment and referenced by
+ * another one in the same do statements must be referenced with identical
+ * subscripts.
  * </pre>
  *
  * @author clementval
@@ -59,8 +66,6 @@ public class ArrayTransform extends ClawBlockTransformation {
   public boolean analyze(XcodeProgram xcodeml, Translator translator) {
     if(_clawEnd != null) { // Block transformation
 
-      // TODO Analyse dependency between assignments. cf array9 example.
-
       // Find assignments with array notation
       List<Xnode> foundAssignments =
           XnodeUtil.getArrayAssignInBlock(_clawStart.getPragma(),
@@ -76,33 +81,37 @@ public class ArrayTransform extends ClawBlockTransformation {
       }
 
       /* Using a structure of list of list of assignments to group together the
-       * array notation that share an identical iteration range. */
-
-      // 1st group always exists
-      _groupedAssignStmts.add(new ArrayList<Xnode>());
-      int crtGroup = 0;
-      Xnode refArrayRef = foundAssignments.get(0).matchSeq(Xcode.F_ARRAY_REF);
-      List<Xnode> refRanges =
-          XnodeUtil.getIdxRangesFromArrayRef(refArrayRef);
+       * array notation that share an identical iteration range. An assignment
+       * joins the latest group with the same iteration range if it can be
+       * moved before the groups generated after it and fused with the
+       * assignments of the group. */
+      List<List<ReadWriteSet>> groupSets = new ArrayList<>();
+      for(Xnode assignment : foundAssignments) {
+        Xnode arrayRef = assignment.matchSeq(Xcode.F_ARRAY_REF);
+        List<Xnode> ranges = XnodeUtil.getIdxRangesFromArrayRef(arrayRef);
+        ReadWriteSet rwSet = new ReadWriteSet(assignment);
 
-      // First array notation is automatically in the 1st group as 1st element
-      _groupedAssignStmts.get(crtGroup).add(foundAssignments.get(0));
-      _groupIterationRanges.add(refRanges);
-
-      for(int i = 1; i < foundAssignments.size(); ++i) {
-        Xnode arrayRef =
-            foundAssignments.get(i).matchSeq(Xcode.F_ARRAY_REF);
-        List<Xnode> ranges =
-            XnodeUtil.getIdxRangesFromArrayRef(arrayRef);
+        int crtGroup = -1;
+        for(int g = _groupedAssignStmts.size() - 1; g >= 0; --g) {
+          if(Range.compare(_groupIterationRanges.get(g), ranges)
+              && canBeFused(groupSets.get(g), rwSet))
+          {
+            crtGroup = g;
+            break;
+          }
+          if(!isIndependent(groupSets.get(g), rwSet)) {
+            break;
+          }
+        }
 
-        // ranges are not identical so
-        if(!Range.compare(refRanges, ranges)) {
-          refRanges = ranges;
-          ++crtGroup;
+        if(crtGroup < 0) {
+          crtGroup = _groupedAssignStmts.size();
           _groupedAssignStmts.add(new ArrayList<Xnode>());
-          _groupIterationRanges.add(refRanges);
+          _groupIterationRanges.add(ranges);
+          groupSets.add(new ArrayList<ReadWriteSet>());
         }
-        _groupedAssignStmts.get(crtGroup).add(foundAssignments.get(i));
+        _groupedAssignStmts.get(crtGroup).add(assignment);
+        groupSets.get(crtGroup).add(rwSet);
       }
       return true;
     } else { // single transformation
@@ -139,6 +148,40 @@ public class ArrayTransform extends ClawBlockTransformation {
     }
   }
 
+  /**
+   * Check whether an assignment can be fused with all the assignments of a
+   * group.
+   *
+   * @param group Read and write sets of the assignments of the group.
+   * @param rwSet Read and write sets of the assignment.
+   * @return True if the assignment can be added to the group.
+   */
+  private boolean canBeFused(List<ReadWriteSet> group, ReadWriteSet rwSet) {
+    for(ReadWriteSet other : group) {
+      if(!rwSet.canBeFusedWith(other)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether an assignment is independent of all the assignments of a
+   * group. It can then be moved before the group.
+   *
+   * @param group Read and write sets of the assignments of the group.
+   * @param rwSet Read and write sets of the assignment.
+   * @return True if the assignment does not depend on the group.
+   */
+  private boolean isIndependent(List<ReadWriteSet> group, ReadWriteSet rwSet) {
+    for(ReadWriteSet other : group) {
+      if(!rwSet.isIndependent(other)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * @return Always false as independent transformation are applied one by one.
    * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
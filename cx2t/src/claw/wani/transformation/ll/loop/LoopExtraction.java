@@ -238,6 +238,7 @@ public class LoopExtraction extends ClawTransformation {
 
     // Insert the duplicated function declaration
     _fctDefToExtract.insertAfter(clonedFctDef);
+    xcodeml.getCallGraph().add(clonedFctDef);
 
     // Find the loop that will be extracted
     Xnode loopInClonedFct = locateDoStatement(clonedFctDef);
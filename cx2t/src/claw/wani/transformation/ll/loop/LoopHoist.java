@@ -18,6 +18,7 @@ import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import claw.wani.language.ClawPragma;
 import claw.wani.transformation.ClawBlockTransformation;
+import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.translator.ClawTranslator;
 
 import java.util.ArrayList;
@@ -195,6 +196,12 @@ public class LoopHoist extends ClawBlockTransformation {
     HoistedNestedDoStatement hoisted = Loop.hoist(_hoistedGroups,
         _clawStart.getPragma(), _clawEnd.getPragma(), xcodeml);
 
+    if(Configuration.get().isLoopInvariantHoistingEnabled()) {
+      Loop.hoistInvariantExpressions(xcodeml,
+          _clawStart.getPragma().findParentFunction(),
+          hoisted.getOuterStatement(), hoisted.getOuterStatement());
+    }
+
     // Generate dynamic transformation (interchange)
     ct.generateAdditionalTransformation(_clawStart, xcodeml,
         hoisted.getOuterStatement());
@@ -6,6 +6,8 @@ package claw.wani.transformation.ll.loop;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.dependency.DependenceAnalysis;
+import claw.tatsu.common.Message;
 import claw.tatsu.directive.common.Directive;
 import claw.tatsu.primitive.Loop;
 import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
@@ -20,7 +22,9 @@ import java.util.List;
 
 /**
  * A LoopInterchange transformation is a an independent transformation. It allow
- * to reorder nested loops up to three levels.
+ * to reorder nested loops up to three levels. With the auto clause, the
+ * perfectly nested loops are reordered to get stride-1 array accesses in the
+ * inner loop.
  *
  * @author clementval
  */
@@ -57,7 +61,11 @@ public class LoopInterchange extends ClawTransformation {
 
     analyze(xcodeml, translator);
 
-    Loop.reorder(_doStmts, _claw.getIndexes());
+    if(_claw.hasAutoClause()) {
+      transformAuto(xcodeml);
+    } else {
+      Loop.reorder(_doStmts, _claw.getIndexes());
+    }
 
     // Generate directive pragmas if needed
     if(_claw.hasAcceleratorClause()) {
@@ -99,6 +107,11 @@ public class LoopInterchange extends ClawTransformation {
       return false;
     }
 
+    if(_claw.hasAutoClause()) {
+      _doStmts = getPerfectlyNestedGroup(outerDoStatement);
+      return true;
+    }
+
     int nestedLevel = _claw.getIndexes() != null ?
         _claw.getIndexes().size() : 2;
     _doStmts = new NestedDoStatement(outerDoStatement, nestedLevel);
@@ -126,6 +139,82 @@ public class LoopInterchange extends ClawTransformation {
     return true;
   }
 
+  /**
+   * Get the group of perfectly nested do statements starting at the given do
+   * statement. Only these do statements can be reordered without moving other
+   * statements.
+   *
+   * @param outerDoStatement Outer do statement of the group.
+   * @return Group of perfectly nested do statements.
+   */
+  private NestedDoStatement getPerfectlyNestedGroup(Xnode outerDoStatement) {
+    NestedDoStatement nest = new NestedDoStatement(outerDoStatement);
+    int depth = 1;
+    while(depth < nest.size()
+        && nest.get(depth - 1).body().children().size() == 1)
+    {
+      ++depth;
+    }
+    return new NestedDoStatement(outerDoStatement, depth);
+  }
+
+  /**
+   * Reorder the do statements so the leftmost subscripts of the array
+   * references vary in the inner do statement. The do statements are kept in
+   * place when:
+   * - an iteration range depends on the induction variable of an outer do
+   * statement.
+   * - a do statement carries a dependence.
+   *
+   * @param xcodeml The XcodeML on which the transformations are applied.
+   * @throws IllegalTransformationException if the reordering cannot be
+   *                                        applied.
+   */
+  private void transformAuto(XcodeProgram xcodeml)
+      throws IllegalTransformationException
+  {
+    if(_doStmts.size() < 2) {
+      xcodeml.addWarning("No perfectly nested do statements to reorder",
+          _claw.getPragma().lineNo());
+      return;
+    }
+
+    List<String> inductions = _doStmts.getInductionVariables();
+    for(int i = 1; i < _doStmts.size(); ++i) {
+      Xnode range = _doStmts.get(i).matchDirectDescendant(Xcode.INDEX_RANGE);
+      for(Xnode var : range.matchAll(Xcode.VAR)) {
+        if(inductions.subList(0, i).contains(var.value().toLowerCase())) {
+          xcodeml.addWarning("Do statements not reordered as the iteration " +
+              "range depends on " + var.value(), _claw.getPragma().lineNo());
+          return;
+        }
+      }
+    }
+
+    for(int i = 0; i < _doStmts.size(); ++i) {
+      try {
+        DependenceAnalysis dependence =
+            new DependenceAnalysis(_doStmts.get(i));
+        if(!dependence.isIndependent()) {
+          xcodeml.addWarning("Do statements not reordered as the do " +
+              "statement at line " + dependence.getInfoMsg(),
+              _claw.getPragma().lineNo());
+          return;
+        }
+      } catch(Exception e) {
+        throw new IllegalTransformationException(e.getMessage(),
+            _claw.getPragma().lineNo());
+      }
+    }
+
+    List<String> newOrder = Loop.getStrideOneOrder(_doStmts);
+    if(!newOrder.equals(inductions)) {
+      Message.debug("Loop interchange auto: " + inductions + " -> "
+          + newOrder);
+      Loop.reorder(_doStmts, newOrder);
+    }
+  }
+
   /**
    * @return Always false as independent transformation are applied one by one.
    * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
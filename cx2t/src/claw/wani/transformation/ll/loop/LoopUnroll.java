@@ -0,0 +1,134 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.loop;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.translator.Translator;
+import claw.tatsu.primitive.Loop;
+import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A LoopUnroll transformation is an independent transformation. It unrolls the
+ * do statement following the directive by the given factor. With the jam
+ * clause, the unrolled iterations are jammed in the body of the do statement
+ * nested in it.
+ *
+ * @author clementval
+ */
+public class LoopUnroll extends ClawTransformation {
+
+  // Statements changing the control flow of a duplicated body
+  private static final List<Xcode> UNSUPPORTED_STATEMENTS = Arrays.asList(
+      Xcode.F_CYCLE_STATEMENT, Xcode.F_EXIT_STATEMENT, Xcode.GOTO_STATEMENT,
+      Xcode.STATEMENT_LABEL, Xcode.F_RETURN_STATEMENT
+  );
+
+  private NestedDoStatement _doStmts = null;
+
+  /**
+   * Constructs a new LoopUnroll triggered from a specific pragma.
+   *
+   * @param directive The directive that triggered the loop unroll
+   *                  transformation.
+   */
+  public LoopUnroll(ClawPragma directive) {
+    super(directive);
+  }
+
+  /**
+   * Loop unroll analysis:
+   * - Find the do statement following the directive.
+   * - With jam, check that the do statements are perfectly nested and that
+   * the iteration range of the inner one does not depend on the outer one.
+   * - Check that the duplicated body does not change the control flow.
+   *
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param translator The translator used to applied the transformations.
+   * @return True if the transformation can be performed. False otherwise.
+   */
+  @Override
+  public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+    Xnode doStmt = _claw.getPragma().matchSibling(Xcode.F_DO_STATEMENT);
+    if(doStmt == null) {
+      xcodeml.addError("loop-unroll directive is not followed by a do " +
+          "statement", _claw.getPragma().lineNo());
+      return false;
+    }
+    if(_claw.getFactorValue() < 1) {
+      xcodeml.addError("unroll factor must be greater than 0",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+
+    _doStmts = new NestedDoStatement(doStmt, _claw.hasJamClause() ? 2 : 1);
+    if(_claw.hasJamClause()) {
+      if(_doStmts.size() < 2 || doStmt.body().children().size() != 1) {
+        xcodeml.addError("jam clause requires perfectly nested do statements",
+            _claw.getPragma().lineNo());
+        return false;
+      }
+      String induction = Loop.extractInductionVariable(doStmt);
+      Xnode innerRange =
+          _doStmts.get(1).matchDirectDescendant(Xcode.INDEX_RANGE);
+      for(Xnode var : innerRange.matchAll(Xcode.VAR)) {
+        if(var.value().equalsIgnoreCase(induction)) {
+          xcodeml.addError("jam clause requires an inner iteration range " +
+              "independent of " + induction, _claw.getPragma().lineNo());
+          return false;
+        }
+      }
+    }
+
+    for(Xcode opcode : UNSUPPORTED_STATEMENTS) {
+      Xnode stmt = doStmt.body().matchDescendant(opcode);
+      if(stmt != null) {
+        xcodeml.addError("Cannot unroll a do statement changing its " +
+            "control flow", stmt.lineNo());
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Apply the transformation.
+   *
+   * @param xcodeml        The XcodeML on which the transformations are applied.
+   * @param translator     The translator used to applied the transformations.
+   * @param transformation Only for dependent transformation. The other
+   *                       transformation part of the transformation.
+   * @throws IllegalTransformationException if the transformation cannot be
+   *                                        applied.
+   */
+  @Override
+  public void transform(XcodeProgram xcodeml, Translator translator,
+                        Transformation transformation)
+      throws IllegalTransformationException
+  {
+    Loop.unroll(xcodeml, _doStmts, _claw.getFactorValue());
+    removePragma();
+    transformed();
+  }
+
+  /**
+   * @return Always false as independent transformation are applied one by one.
+   * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
+   */
+  @Override
+  public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                      Transformation transformation)
+  {
+    return false; // independent transformation
+  }
+}
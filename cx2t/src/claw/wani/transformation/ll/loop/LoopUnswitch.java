@@ -0,0 +1,258 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.loop;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.translator.Translator;
+import claw.tatsu.common.Message;
+import claw.tatsu.primitive.Condition;
+import claw.tatsu.primitive.Loop;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.wani.transformation.ClawTransformation;
+import claw.wani.x2t.configuration.Configuration;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * A LoopUnswitch transformation is an independent transformation triggered
+ * for the whole translation unit when the loop_unswitching parameter is set.
+ * If and select case statements directly nested in a do statement are moved
+ * out of it when their condition does not depend on variables written in the
+ * do statement. The do statement is duplicated in each branch.
+ *
+ * Do statements are processed from the inner to the outer ones so a
+ * condition can be moved out of several levels. The number of statements
+ * added by the duplication in a function is limited by the
+ * loop_unswitching_max_size parameter.
+ *
+ * @author clementval
+ */
+public class LoopUnswitch extends ClawTransformation {
+
+  /**
+   * Default ctor as this is a translation_unit triggered transformation.
+   */
+  public LoopUnswitch() {
+    super();
+  }
+
+  @Override
+  public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+    return Configuration.get().isLoopUnswitchingEnabled();
+  }
+
+  /**
+   * @return Always false as the transformation is only applied when enabled.
+   */
+  @Override
+  public boolean abortOnFailedAnalysis() {
+    return false;
+  }
+
+  /**
+   * @return Always false as independent transformation are applied one by one.
+   * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
+   */
+  @Override
+  public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                      Transformation other)
+  {
+    return false; // Independent transformation
+  }
+
+  @Override
+  public void transform(XcodeProgram xcodeml, Translator translator,
+                        Transformation other) throws Exception
+  {
+    int maxSize = Configuration.get().getLoopUnswitchingMaxSize();
+    for(FfunctionDefinition fctDef : xcodeml.getAllFctDef()) {
+      unswitch(xcodeml, fctDef, maxSize);
+    }
+  }
+
+  /**
+   * Unswitch the do statements of a function definition.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param fctDef  Function definition to be processed.
+   * @param maxSize Maximum number of statements added in the function.
+   * @throws IllegalTransformationException If a do statement cannot be
+   *                                        unswitched.
+   */
+  private void unswitch(XcodeProgram xcodeml, FfunctionDefinition fctDef,
+                        int maxSize)
+      throws IllegalTransformationException
+  {
+    if(fctDef.body() == null) {
+      return;
+    }
+    int budget = maxSize;
+    // Inner do statements come last in document order
+    LinkedList<Xnode> doStmts =
+        new LinkedList<>(fctDef.body().matchAll(Xcode.F_DO_STATEMENT));
+    while(!doStmts.isEmpty()) {
+      Xnode doStmt = doStmts.pollLast();
+      if(doStmt.findParentFunction() == null || !canBeDuplicated(doStmt)) {
+        continue;
+      }
+      Xnode branchStmt = findInvariantBranch(xcodeml, doStmt);
+      if(branchStmt == null) {
+        continue;
+      }
+      int branches = Loop.getBranchBodies(branchStmt).size();
+      if(branchStmt.opcode() == Xcode.F_IF_STATEMENT
+          && branchStmt.matchDirectDescendant(Xcode.ELSE) == null)
+      {
+        ++branches;
+      }
+      int cost = countStatements(doStmt) * (branches - 1);
+      if(cost > budget) {
+        Message.debug("Loop unswitching: size limit reached at line " +
+            doStmt.lineNo());
+        continue;
+      }
+      budget -= cost;
+
+      Xnode newBranchStmt = Loop.unswitch(xcodeml, doStmt, branchStmt);
+      // Duplicated do statements might have other invariant conditions
+      for(Xnode body : Loop.getBranchBodies(newBranchStmt)) {
+        if(body.firstChild() != null) {
+          doStmts.addLast(body.firstChild());
+        }
+      }
+    }
+  }
+
+  /**
+   * Check that duplicating the do statement produces valid code. Statement
+   * labels, format declarations and construct names cannot be duplicated in
+   * the same scope. Directives before the do statement apply to it and would
+   * apply to the new branching statement.
+   *
+   * @param doStmt Do statement to be checked.
+   * @return True if the do statement can be duplicated.
+   */
+  private boolean canBeDuplicated(Xnode doStmt) {
+    Xnode prev = doStmt.prevSibling();
+    if(prev != null && prev.opcode() == Xcode.F_PRAGMA_STATEMENT) {
+      return false;
+    }
+    if(doStmt.hasAttribute(Xattr.CONSTRUCT_NAME)
+        || doStmt.matchDescendant(Xcode.STATEMENT_LABEL) != null
+        || doStmt.matchDescendant(Xcode.F_FORMAT_DECL) != null)
+    {
+      return false;
+    }
+    for(Xnode stmt : doStmt.body().matchAll(Xcode.F_DO_STATEMENT)) {
+      if(stmt.hasAttribute(Xattr.CONSTRUCT_NAME)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Find the first if or select case statement directly nested in the do
+   * statement with an invariant condition. A condition that might fail to
+   * evaluate is only moved if the do statement is known to be executed as it
+   * would otherwise be evaluated while the original code never evaluates it.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param doStmt  Do statement to be analyzed.
+   * @return The branching statement. Null if none is invariant.
+   */
+  private Xnode findInvariantBranch(XcodeProgram xcodeml, Xnode doStmt) {
+    Set<String> written = null;
+    boolean hasCall = false;
+    Boolean executed = null;
+    for(Xnode stmt : doStmt.body().children()) {
+      Xnode condition;
+      if(stmt.opcode() == Xcode.F_IF_STATEMENT) {
+        condition = stmt.matchDirectDescendant(Xcode.CONDITION);
+      } else if(stmt.opcode() == Xcode.F_SELECT_CASE_STATEMENT) {
+        condition = stmt.matchDirectDescendant(Xcode.VALUE);
+      } else {
+        continue;
+      }
+      if(written == null) {
+        written = new HashSet<>();
+        hasCall = Loop.gatherWrittenVariables(doStmt, written);
+      }
+      if(!Condition.isInvariant(condition, written)
+          || (hasCall && !isLocal(xcodeml, doStmt.findParentFunction(),
+          condition)))
+      {
+        continue;
+      }
+      if(Loop.mightFail(condition)) {
+        if(executed == null) {
+          executed = Loop.getIterationCount(xcodeml, doStmt,
+              doStmt.findParentFunction()) > 0;
+        }
+        if(!executed) {
+          continue;
+        }
+      }
+      return stmt;
+    }
+    return null;
+  }
+
+  /**
+   * Check that the variables of a condition cannot be modified by the
+   * functions called in the do statement. The variables must be declared in
+   * the function definition without the pointer or target attribute, and the
+   * function must not contain internal procedures as they access all its
+   * variables by host association.
+   *
+   * @param xcodeml   Current XcodeML translation unit.
+   * @param fctDef    Function definition holding the condition.
+   * @param condition Condition to be checked.
+   * @return True if the variables cannot be modified by called functions.
+   */
+  private boolean isLocal(XcodeProgram xcodeml, FfunctionDefinition fctDef,
+                          Xnode condition)
+  {
+    if(fctDef == null || fctDef.body() == null
+        || fctDef.body().matchDirectDescendant(Xcode.F_CONTAINS_STATEMENT)
+        != null)
+    {
+      return false;
+    }
+    for(Xnode var : condition.matchAll(Xcode.VAR)) {
+      Xnode decl = fctDef.getDeclarationTable().get(var.value());
+      if(decl == null) {
+        return false;
+      }
+      FbasicType bType = xcodeml.getTypeTable().getBasicType(decl);
+      if(bType != null && (bType.isPointer() || bType.isTarget())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Count the statements of a do statement including itself.
+   *
+   * @param doStmt Do statement.
+   * @return Number of statements.
+   */
+  private int countStatements(Xnode doStmt) {
+    int count = 1 + doStmt.body().children().size();
+    for(Xnode body : doStmt.body().matchAll(Xcode.BODY)) {
+      count += body.children().size();
+    }
+    return count;
+  }
+}
@@ -0,0 +1,467 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.utility;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.translator.Translator;
+import claw.tatsu.directive.common.DataMovement;
+import claw.tatsu.directive.common.Directive;
+import claw.tatsu.primitive.Loop;
+import claw.tatsu.xcodeml.abstraction.BoundDefinition;
+import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
+import claw.tatsu.xcodeml.exception.IllegalDirectiveException;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import claw.wani.language.ClawDirective;
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A call to table transformation replaces the calls to a pure or elemental
+ * function taking a single integer argument by an access to a lookup table.
+ * The table is declared in the parent module for the given argument range and
+ * is computed once by the first execution of the directive. A declare
+ * directive keeps the table on the device for the whole execution. Only the
+ * calls whose argument is known to be in the range are replaced.
+ *
+ * @author clementval
+ */
+public class CallToTable extends ClawTransformation {
+
+  private static final String TABLE_PREFIX = "claw_table_";
+  private static final String READY_SUFFIX = "_ready";
+  private static final String INDEX_SUFFIX = "_idx";
+
+  private FfunctionDefinition _fctDef;
+  private FmoduleDefinition _module;
+  private FfunctionType _tableFctType;
+  private DimensionDefinition _range;
+
+  /**
+   * CallToTable ctor.
+   *
+   * @param directive The directive that triggered the transformation.
+   */
+  public CallToTable(ClawPragma directive) {
+    super(directive);
+  }
+
+  /**
+   * Call to table analysis:
+   * - The directive must be in a function part of a module.
+   * - The function holding the directive must not be pure or elemental and
+   * must not be parallelized by the parallelize directive. The initialization
+   * would then run in the parallel region.
+   * - The function must be found in the current file.
+   * - The function must be pure or elemental with a single integer argument.
+   * - The bounds of the argument range must be integer constants or named
+   * constants.
+   *
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param translator The translator used to applied the transformations.
+   * @return True if the transformation can be performed. False otherwise.
+   */
+  @Override
+  public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+    _fctDef = _claw.getPragma().findParentFunction();
+    _module = _claw.getPragma().findParentModule();
+    if(_fctDef == null || _module == null) {
+      xcodeml.addError("call-to-table directive must be in a module " +
+          "function/subroutine.", _claw.getPragma().lineNo());
+      return false;
+    }
+
+    FfunctionType fctType = xcodeml.getTypeTable().getFunctionType(_fctDef);
+    if(fctType != null && (fctType.isPure() || fctType.isElemental())) {
+      xcodeml.addError("call-to-table directive cannot be used in a pure or " +
+          "elemental function/subroutine.", _claw.getPragma().lineNo());
+      return false;
+    }
+    if(isParallelized()) {
+      xcodeml.addError("call-to-table directive cannot be used in a " +
+          "function/subroutine with a parallelize directive.",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+
+    FfunctionDefinition tableFct = xcodeml.getGlobalDeclarationsTable().
+        getFunctionDefinition(_claw.getFctName());
+    if(tableFct == null) {
+      tableFct = _module.getFunctionDefinition(_claw.getFctName());
+      if(tableFct == null) {
+        xcodeml.addError("Function " + _claw.getFctName() +
+            " not found in current file.", _claw.getPragma().lineNo());
+        return false;
+      }
+    }
+
+    _tableFctType = xcodeml.getTypeTable().getFunctionType(tableFct);
+    if(_tableFctType == null
+        || !(_tableFctType.isPure() || _tableFctType.isElemental()))
+    {
+      xcodeml.addError("Function " + _claw.getFctName() +
+          " must be pure or elemental.", _claw.getPragma().lineNo());
+      return false;
+    }
+
+    List<Xnode> params = _tableFctType.getParameters();
+    if(params.size() != 1 || !FortranType.INTEGER.isOfType(params.get(0).
+        getType()))
+    {
+      xcodeml.addError("Function " + _claw.getFctName() +
+          " must have a single integer argument.", _claw.getPragma().lineNo());
+      return false;
+    }
+
+    DimensionDefinition range = _claw.getDimensionValues().get(0);
+    Integer lower = evaluateBound(xcodeml, range.getLowerBound());
+    Integer upper = evaluateBound(xcodeml, range.getUpperBound());
+    if(lower == null || upper == null || lower > upper) {
+      xcodeml.addError("call-to-table range bounds must be constant.",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+    // Named constants might not be visible in the module
+    _range = new DimensionDefinition(range.getIdentifier(),
+        String.valueOf(lower), String.valueOf(upper));
+    return true;
+  }
+
+  /**
+   * Check whether the function holding the directive is parallelized by a
+   * parallelize directive. The forward variant does not generate any parallel
+   * region in the function.
+   *
+   * @return True if a parallelize directive is found. False otherwise.
+   */
+  private boolean isParallelized() {
+    for(Xnode pragma : _fctDef.body().matchAll(Xcode.F_PRAGMA_STATEMENT)) {
+      if(!ClawPragma.startsWithClaw(pragma)) {
+        continue;
+      }
+      try {
+        ClawPragma directive = ClawPragma.analyze(pragma);
+        if(directive != null
+            && directive.getDirective() == ClawDirective.PARALLELIZE
+            && !directive.hasForwardClause())
+        {
+          return true;
+        }
+      } catch(IllegalDirectiveException ignored) {
+        // Reported by the translator
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Evaluate a bound of the argument range.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param bound   Bound definition.
+   * @return Integer value. Null if the bound is not a constant.
+   */
+  private Integer evaluateBound(XcodeProgram xcodeml, BoundDefinition bound) {
+    if(!bound.isVar()) {
+      return bound.getIntValue();
+    }
+    return Loop.evaluateConstant(xcodeml, xcodeml.createVar(
+        FortranType.INTEGER, bound.getValue(), Xscope.LOCAL), _fctDef);
+  }
+
+  /**
+   * @return Always false as independent transformation are applied one by one.
+   * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
+   */
+  @Override
+  public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                      Transformation other)
+  {
+    return false; // independent transformation
+  }
+
+  /**
+   * Apply the transformation.
+   * 1. Declare the table and its initialization flag in the module.
+   * 2. Replace the function calls following the directive by table accesses.
+   * 3. Insert the table initialization at the directive position.
+   *
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param translator The translator used to applied the transformations.
+   * @param other      Only for dependent transformation. The other
+   *                   transformation part of the transformation.
+   * @throws Exception If the transformation cannot be applied.
+   */
+  @Override
+  public void transform(XcodeProgram xcodeml, Translator translator,
+                        Transformation other) throws Exception
+  {
+    String fctName = _claw.getFctName().toLowerCase();
+    String tableName = TABLE_PREFIX + fctName;
+    String readyName = tableName + READY_SUFFIX;
+
+    FbasicType tableType = createTable(xcodeml, tableName, readyName, _range);
+    replaceCalls(xcodeml, tableType);
+    insertInitialization(xcodeml, tableType, tableName, readyName, _range);
+
+    removePragma();
+    transformed();
+  }
+
+  /**
+   * Declare the table and its initialization flag in the parent module if they
+   * are not declared yet by another directive.
+   *
+   * @param xcodeml   Current XcodeML translation unit.
+   * @param tableName Name of the table variable.
+   * @param readyName Name of the initialization flag variable.
+   * @param range     Argument range covered by the table.
+   * @return Type of the table.
+   */
+  private FbasicType createTable(XcodeProgram xcodeml, String tableName,
+                                 String readyName, DimensionDefinition range)
+  {
+    if(_module.getSymbolTable().contains(tableName)) {
+      return xcodeml.getTypeTable().getBasicType(
+          _module.getSymbolTable().get(tableName).getType());
+    }
+
+    String hash = xcodeml.getTypeTable().generateHash(FortranType.ARRAY);
+    FbasicType tableType = xcodeml.createBasicType(hash,
+        _tableFctType.getReturnType(), Intent.NONE);
+    tableType.addDimension(range.generateIndexRange(xcodeml, false));
+    xcodeml.getTypeTable().add(tableType);
+
+    _module.getSymbolTable().add(xcodeml.createId(hash,
+        XstorageClass.F_LOCAL, tableName));
+    Xnode tableDecl = xcodeml.createVarDecl(hash, tableName);
+    _module.getDeclarationTable().add(tableDecl);
+
+    _module.getSymbolTable().add(xcodeml.createId(FortranType.LOGICAL,
+        XstorageClass.F_LOCAL, readyName));
+    Xnode readyDecl = xcodeml.createVarDecl(FortranType.LOGICAL, readyName);
+    Xnode value = xcodeml.createNode(Xcode.VALUE);
+    value.append(createLogicalConstant(xcodeml, false));
+    readyDecl.append(value);
+    _module.getDeclarationTable().add(readyDecl);
+
+    Directive.generateDeclareCreate(xcodeml, tableDecl,
+        Collections.singletonList(tableName));
+    return tableType;
+  }
+
+  /**
+   * Replace the calls to the function in the statements following the
+   * directive by an access to the table. Calls whose argument cannot be
+   * proven to be in the table range are kept.
+   *
+   * @param xcodeml   Current XcodeML translation unit.
+   * @param tableType Type of the table.
+   */
+  private void replaceCalls(XcodeProgram xcodeml, FbasicType tableType) {
+    String tableName = TABLE_PREFIX + _claw.getFctName().toLowerCase();
+    List<Xnode> fctCalls = new ArrayList<>();
+    for(Xnode stmt = _claw.getPragma().nextSibling(); stmt != null;
+        stmt = stmt.nextSibling())
+    {
+      List<Xnode> candidates = new ArrayList<>();
+      if(stmt.opcode() == Xcode.FUNCTION_CALL) {
+        candidates.add(stmt);
+      }
+      candidates.addAll(stmt.matchAll(Xcode.FUNCTION_CALL));
+      for(Xnode fctCall : candidates) {
+        Xnode name = fctCall.matchDirectDescendant(Xcode.NAME);
+        Xnode args = fctCall.matchDirectDescendant(Xcode.ARGUMENTS);
+        if(name != null && name.value().equalsIgnoreCase(_claw.getFctName())
+            && args != null && args.children().size() == 1)
+        {
+          fctCalls.add(fctCall);
+        }
+      }
+    }
+
+    for(Xnode fctCall : fctCalls) {
+      Xnode arg = fctCall.matchDirectDescendant(Xcode.ARGUMENTS).firstChild();
+      if(arg.opcode() == Xcode.NAMED_VALUE) {
+        arg = arg.firstChild();
+      }
+      if(!isInRange(xcodeml, arg, fctCall)) {
+        xcodeml.addWarning("Call to " + _claw.getFctName() + " not replaced " +
+            "as its argument might be outside of the table range.",
+            _claw.getPragma().lineNo());
+        continue;
+      }
+      Xnode ref = xcodeml.createArrayRef(tableType,
+          xcodeml.createVar(tableType.getType(), tableName, Xscope.GLOBAL));
+      Xnode index = xcodeml.createNode(Xcode.ARRAY_INDEX);
+      index.append(arg.cloneNode());
+      ref.append(index);
+      fctCall.insertAfter(ref);
+      fctCall.delete();
+    }
+  }
+
+  /**
+   * Check whether the argument of a call is in the table range. The argument
+   * must be a constant in the range or the induction variable of an enclosing
+   * do statement whose bounds are constants in the range.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param arg     Argument of the call.
+   * @param fctCall Function call node.
+   * @return True if the argument is in the range. False otherwise.
+   */
+  private boolean isInRange(XcodeProgram xcodeml, Xnode arg, Xnode fctCall) {
+    Integer value = Loop.evaluateConstant(xcodeml, arg, _fctDef);
+    if(value != null) {
+      return isInRange(value);
+    }
+    if(arg.opcode() != Xcode.VAR) {
+      return false;
+    }
+    Xnode stop = _claw.getPragma().ancestor();
+    for(Xnode crt = fctCall.ancestor(); crt != null && !crt.equals(stop);
+        crt = crt.ancestor())
+    {
+      Xnode inductionVar = crt.opcode() == Xcode.F_DO_STATEMENT
+          ? crt.matchDirectDescendant(Xcode.VAR) : null;
+      if(inductionVar != null
+          && inductionVar.value().equalsIgnoreCase(arg.value())
+          && fctCall.isNestedIn(crt.body()))
+      {
+        Xnode range = crt.matchDirectDescendant(Xcode.INDEX_RANGE);
+        Xnode lower = range == null
+            ? null : range.matchDirectDescendant(Xcode.LOWER_BOUND);
+        Xnode upper = range == null
+            ? null : range.matchDirectDescendant(Xcode.UPPER_BOUND);
+        if(lower == null || upper == null) {
+          return false;
+        }
+        Integer first = Loop.evaluateConstant(xcodeml, lower.child(0),
+            _fctDef);
+        Integer last = Loop.evaluateConstant(xcodeml, upper.child(0),
+            _fctDef);
+        return first != null && last != null
+            && isInRange(first) && isInRange(last);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether a value is in the table range.
+   *
+   * @param value Value to be checked.
+   * @return True if the value is in the range. False otherwise.
+   */
+  private boolean isInRange(int value) {
+    return value >= _range.getLowerBound().getIntValue()
+        && value <= _range.getUpperBound().getIntValue();
+  }
+
+  /**
+   * Insert the table initialization at the directive position. The table is
+   * computed on the host and copied to the device the first time the
+   * directive is reached.
+   *
+   * @param xcodeml   Current XcodeML translation unit.
+   * @param tableType Type of the table.
+   * @param tableName Name of the table variable.
+   * @param readyName Name of the initialization flag variable.
+   * @param range     Argument range covered by the table.
+   */
+  private void insertInitialization(XcodeProgram xcodeml, FbasicType tableType,
+                                    String tableName, String readyName,
+                                    DimensionDefinition range)
+  {
+    String indexName = tableName + INDEX_SUFFIX;
+    if(!_fctDef.getSymbolTable().contains(indexName)) {
+      _fctDef.getSymbolTable().add(xcodeml.createId(FortranType.INTEGER,
+          XstorageClass.F_LOCAL, indexName), false);
+    }
+    if(!_fctDef.getDeclarationTable().contains(indexName)) {
+      _fctDef.getDeclarationTable().add(
+          xcodeml.createVarDecl(FortranType.INTEGER, indexName));
+    }
+
+    // IF(.NOT. ready) THEN
+    Xnode ifStmt = xcodeml.createIfThen();
+    Xnode notReady = xcodeml.createNode(Xcode.LOG_NOT_EXPR);
+    notReady.setType(FortranType.LOGICAL.toString());
+    notReady.append(xcodeml.createVar(FortranType.LOGICAL, readyName,
+        Xscope.GLOBAL));
+    ifStmt.matchDirectDescendant(Xcode.CONDITION).append(notReady);
+    Xnode body = ifStmt.matchDirectDescendant(Xcode.THEN).body();
+
+    // DO idx = lower, upper
+    //   table(idx) = fct(idx)
+    // END DO
+    Xnode doStmt = xcodeml.createDoStmt(
+        xcodeml.createVar(FortranType.INTEGER, indexName, Xscope.LOCAL),
+        range.generateIndexRange(xcodeml, true));
+    Xnode fctCall = xcodeml.createFctCall(_tableFctType.getReturnType(),
+        _claw.getFctName(), _tableFctType.getType());
+    fctCall.matchDirectDescendant(Xcode.ARGUMENTS).append(
+        xcodeml.createVar(FortranType.INTEGER, indexName, Xscope.LOCAL));
+    Xnode ref = xcodeml.createArrayRef(tableType,
+        xcodeml.createVar(tableType.getType(), tableName, Xscope.GLOBAL));
+    Xnode index = xcodeml.createNode(Xcode.ARRAY_INDEX);
+    index.append(xcodeml.createVar(FortranType.INTEGER, indexName,
+        Xscope.LOCAL));
+    ref.append(index);
+    doStmt.body().append(createAssign(xcodeml, ref, fctCall));
+    body.append(doStmt);
+
+    // ready = .TRUE.
+    Xnode setReady = createAssign(xcodeml,
+        xcodeml.createVar(FortranType.LOGICAL, readyName, Xscope.GLOBAL),
+        createLogicalConstant(xcodeml, true));
+    body.append(setReady);
+    _claw.getPragma().insertAfter(ifStmt);
+    _claw.getPragma().copyEnhancedInfo(ifStmt);
+
+    // Copy the computed table to the device
+    Directive.generateUpdate(xcodeml, setReady,
+        Collections.singletonList(tableName), DataMovement.DEVICE);
+  }
+
+  /**
+   * Create an assign statement.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param lhs     Left hand side of the assignment.
+   * @param rhs     Right hand side of the assignment.
+   * @return The newly created node detached in the current XcodeML unit.
+   */
+  private Xnode createAssign(XcodeProgram xcodeml, Xnode lhs, Xnode rhs) {
+    Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    assign.append(lhs);
+    assign.append(rhs);
+    return assign;
+  }
+
+  /**
+   * Create a logical constant.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param value   Value of the constant.
+   * @return The newly created node detached in the current XcodeML unit.
+   */
+  private Xnode createLogicalConstant(XcodeProgram xcodeml, boolean value) {
+    Xnode constant = xcodeml.createNode(Xcode.F_LOGICAL_CONSTANT);
+    constant.setType(FortranType.LOGICAL.toString());
+    constant.setValue(value ? ".TRUE." : ".FALSE.");
+    return constant;
+  }
+}
@@ -6,11 +6,16 @@ package claw.wani.transformation.sca;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.cost.CostAnalysis;
+import claw.tatsu.analysis.liveness.LiveRangeAnalysis;
+import claw.tatsu.analysis.reduction.ReductionAnalysis;
+import claw.tatsu.analysis.reduction.ReductionOperator;
 import claw.tatsu.common.*;
 import claw.tatsu.directive.common.Directive;
 import claw.tatsu.primitive.*;
 import claw.tatsu.xcodeml.abstraction.AssignStatement;
 import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
+import claw.tatsu.xcodeml.abstraction.InsertionPosition;
 import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
@@ -18,9 +23,12 @@ import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.*;
 import claw.wani.language.ClawPragma;
+import claw.wani.report.KernelInfo;
+import claw.wani.report.KernelReporter;
 import claw.wani.transformation.ClawTransformation;
 import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.configuration.gpu.GpuConfiguration;
+import claw.wani.x2t.configuration.gpu.GpuDataStrategy;
 import claw.wani.x2t.configuration.gpu.GpuLocalStrategy;
 import claw.wani.x2t.configuration.openacc.OpenAccConfiguration;
 import claw.wani.x2t.configuration.openmp.OpenMpConfiguration;
@@ -37,6 +45,8 @@ import java.util.*;
  * inout.
  * <li> Do statements over the additional dimensions is added as an outer
  * loop and wrap the entire body of the subroutine.
+ * <li> With the promote local strategy, local arrays defined before being
+ * used in each column stay private instead of being promoted.
  * </ul>
  *
  * Transformation for the CPU target: <ul>
@@ -47,6 +57,8 @@ import java.util.*;
  * rhs.
  * <li> Do statements over the additional dimensions are added as an inner
  * loop wrapping each assign statements including promoted variables.
+ * <li> Dummy arguments and module scalars only accumulated across the columns
+ * are not promoted but computed with a reduction clause.
  * </ul>
  *
  * Generation of OpenACC directives:<ul>
@@ -54,39 +66,55 @@ import java.util.*;
  * subroutine if they are located in the same translation unit.
  * <li> acc data region with corresponding present clause for all promoted
  * variables with the intent in, out or inout.
+ * <li> acc enter/exit data directives copy the parameters in and out
+ * according to their intent with the kernel data strategy.
  * <li> acc parallel region is generated to wrap all the body of the subroutine.
  * <li> acc private clause is added to the parallel directive for all local
  * variables.
  * <li> acc loop is generated for the generated do statement.
  * <li> acc loop seq is generated for already existing do statements.
+ * <li> with the automatic collapse strategy, tightly nested nodep loops are
+ * collapsed with the generated ones until the number of iterations known at
+ * compile time reaches the minimum parallelism.
+ * <li> acc reduction clause is generated for non local scalars accumulated
+ * across the columns.
  * </ul>
  *
  * Generation of OpenMP directives on CPU: <ul>
  * <li> omp parallel do is generated for each generated do statements.
+ * <li> omp reduction clause is added to the do directives for non local
+ * scalars accumulated across the columns.
  * </ul>
  *
  * Generation of OpenMP directives on GPU:<ul>
  * <li> MISSING FEATURE : omp declare target is generated for subroutine called from the parallelized
  * subroutine if they are located in the same translation unit.
- * <li> omp data region with corresponding present clause for all promoted
- * variables with the intent to, from or tofrom.
+ * <li> omp data region with corresponding map(present, alloc:) clause for
+ * all promoted variables with the intent in, out or inout.
+ * <li> omp target enter/exit data directives map the parameters to and from
+ * the device according to their intent with the kernel data strategy.
  * <li> omp target teams distribute region is generated to wrap all the body of the subroutine.
  * <li> omp private clause is added to the target directive for all local
  * variables.
  * <li> omp collapse is generated for the generated do statement (if more that 1).
+ * <li> omp reduction clause is added to the teams directive and the reduction
+ * variables are mapped back for non local scalars accumulated across the
+ * columns.
  * </ul>
  *
  * @author clementval
  */
-public class Parallelize extends ClawTransformation {
+public class Parallelize extends ClawTransformation implements KernelReporter {
 
   private final Map<String, DimensionDefinition> _dimensions;
   private final Map<String, PromotionInfo> _promotions;
   private final Set<String> _arrayFieldsInOut;
   private final Set<String> _scalarFields;
+  private final List<KernelInfo> _kernels;
   private int _overDimensions;
   private FfunctionDefinition _fctDef;
   private FfunctionType _fctType;
+  private ReductionAnalysis _reductions;
 
   /**
    * Constructs a new Parallelize transformation triggered from a specific
@@ -101,6 +129,7 @@ public class Parallelize extends ClawTransformation {
     _promotions = new HashMap<>();
     _arrayFieldsInOut = new HashSet<>();
     _scalarFields = new HashSet<>();
+    _kernels = new ArrayList<>();
   }
 
   /**
@@ -366,6 +395,9 @@ public class Parallelize extends ClawTransformation {
 
     removePragma();
 
+    // Detect scalars accumulated across the columns
+    analyzeReductions(xcodeml);
+
     // Apply specific target transformation
     if(Context.get().getTarget() == Target.GPU) {
       transformForGPU(xcodeml);
@@ -398,8 +430,10 @@ public class Parallelize extends ClawTransformation {
     GpuConfiguration gpuCfg = Configuration.get().gpu();
 
     // TODO nodep should be passed in another way.
-    int collapse = Directive.generateLoopSeq(xcodeml, _fctDef,
-        CompilerDirective.CLAW.getPrefix() + " nodep");
+    String nodep = CompilerDirective.CLAW.getPrefix() + " nodep";
+    // Gathered before the nodep directives are removed
+    List<Xnode> nodepLoops = Directive.getDecoratedLoops(_fctDef, nodep);
+    int collapse = Directive.generateLoopSeq(xcodeml, _fctDef, nodep);
 
     if(!Body.isEmpty(_fctDef.body())) {
       // Create a nested loop with the new defined dimensions and wrap it around
@@ -449,8 +483,10 @@ public class Parallelize extends ClawTransformation {
 
       // Prepare variables list for present/pcreate clauses and handle
       // promotion/privatize local strategy
-      List<String> presentList =
-          Directive.getPresentVariables(xcodeml, _fctDef);
+      List<String> presentList = Collections.emptyList();
+      if(gpuCfg.getDataStrategy() == GpuDataStrategy.PRESENT) {
+        presentList = Directive.getPresentVariables(xcodeml, _fctDef);
+      }
       List<String> privateList = Collections.emptyList();
       List<String> createList = Collections.emptyList();
       if(gpuCfg.getLocalStrategy() == GpuLocalStrategy.PRIVATE) {
@@ -462,11 +498,24 @@ public class Parallelize extends ClawTransformation {
           }
         }
       } else if(gpuCfg.getLocalStrategy() == GpuLocalStrategy.PROMOTE) {
-        createList = Directive.getLocalArrays(xcodeml, _fctDef);
-        for(String arrayIdentifier : createList) {
+        // Arrays not living across columns stay private instead of promoted
+        LiveRangeAnalysis liveRanges =
+            new LiveRangeAnalysis(loops.getInnerStatement().body());
+        privateList = new ArrayList<>();
+        createList = new ArrayList<>();
+        for(String arrayIdentifier :
+            Directive.getLocalArrays(xcodeml, _fctDef))
+        {
+          if(isColumnPrivate(xcodeml, arrayIdentifier,
+              loops.getOuterStatement(), liveRanges))
+          {
+            privateList.add(arrayIdentifier);
+            continue;
+          }
+          createList.add(arrayIdentifier);
           _arrayFieldsInOut.add(arrayIdentifier);
           PromotionInfo promotionInfo = new PromotionInfo(arrayIdentifier,
-              _claw.getDimensionsForData(arrayIdentifier));
+              getDimensionsForData(arrayIdentifier));
           Field.promote(promotionInfo, _fctDef, xcodeml);
           _promotions.put(arrayIdentifier, promotionInfo);
 
@@ -475,19 +524,209 @@ public class Parallelize extends ClawTransformation {
         }
       }
 
+      // Load repeated array elements once in private scalars
+      if(Configuration.get().isScalarReplacementEnabled()) {
+        List<Xnode> bodies = new ArrayList<>();
+        bodies.add(loops.getInnerStatement().body());
+        for(Xnode doStmt :
+            loops.getInnerStatement().matchAll(Xcode.F_DO_STATEMENT))
+        {
+          bodies.add(doStmt.body());
+        }
+        privateList = new ArrayList<>(privateList);
+        for(Xnode body : bodies) {
+          privateList.addAll(Body.scalarReplacement(xcodeml, _fctDef, body));
+        }
+      }
+
+      // Move the data of the parameters with the kernel
+      if(gpuCfg.getDataStrategy() == GpuDataStrategy.KERNEL) {
+        Directive.generateEnterExitData(xcodeml,
+            Directive.getDataVariables(xcodeml, _fctDef, Intent.IN),
+            Directive.getDataVariables(xcodeml, _fctDef, Intent.OUT),
+            loops.getOuterStatement(), loops.getOuterStatement());
+      }
+
+      // Module arrays stay allocated on the device
+      if(gpuCfg.hasModuleData()) {
+        presentList = new ArrayList<>(presentList);
+        presentList.addAll(
+            Directive.generateModuleDataDeclarations(xcodeml, _fctDef));
+      }
+
       // Generate the data region
       Directive.generateDataRegionClause(xcodeml, presentList,
           createList, loops.getOuterStatement(), loops.getOuterStatement());
 
       // Generate the parallel region
+      int collapseDepth =
+          getCollapseDepth(xcodeml, loops, collapse, nodepLoops);
       Directive.generateParallelLoopClause(xcodeml, privateList,
-          loops.getOuterStatement(), loops.getOuterStatement(),
-          loops.size() + collapse);
+          _reductions.getReductions(), loops.getOuterStatement(),
+          loops.getOuterStatement(), collapseDepth);
+
+      addKernelInfo(xcodeml,
+          Collections.singletonList(loops.getInnerStatement().body()),
+          collapseDepth);
     }
 
     Directive.generateRoutineDirectives(xcodeml, _fctDef);
   }
 
+  /**
+   * Get the number of loops collapsed in the parallel loop directive. With the
+   * automatic collapse strategy, the nodep loops tightly nested in the
+   * generated loops are collapsed until the number of iterations reaches the
+   * minimum parallelism of the configuration.
+   *
+   * The number of iterations must be known at compile time. Bounds are
+   * evaluated only if they are integer constants or named constants. When
+   * the extent of a generated loop is symbolic, like a nproma dummy
+   * argument, nothing is collapsed. When the extent of a nested loop is
+   * symbolic, the search stops after this loop.
+   *
+   * @param xcodeml    Current XcodeML program unit.
+   * @param loops      Generated nested do statements.
+   * @param nodep      Number of loops collapsed by the collapse strategy.
+   * @param nodepLoops Do statements decorated with the nodep directive.
+   * @return Number of loops to be collapsed.
+   */
+  private int getCollapseDepth(XcodeProgram xcodeml, NestedDoStatement loops,
+                               int nodep, List<Xnode> nodepLoops)
+  {
+    GpuConfiguration gpuCfg = Configuration.get().gpu();
+    if(!gpuCfg.hasAutoCollapse()) {
+      return loops.size() + nodep;
+    }
+
+    long parallelism = 1;
+    for(int i = 0; i < loops.size(); ++i) {
+      int count = Loop.getIterationCount(xcodeml, loops.get(i), _fctDef);
+      if(count < 0) {
+        return loops.size();
+      }
+      parallelism *= count;
+    }
+
+    int depth = loops.size();
+    List<String> inductionVars = new ArrayList<>(loops.getInductionVariables());
+    Xnode crtLoop = loops.getInnerStatement();
+    while(parallelism < gpuCfg.getMinParallelism()) {
+      crtLoop = getTightlyNestedLoop(crtLoop, inductionVars, nodepLoops);
+      if(crtLoop == null) {
+        break;
+      }
+      ++depth;
+      inductionVars.add(Loop.extractInductionVariable(crtLoop));
+      int count = Loop.getIterationCount(xcodeml, crtLoop, _fctDef);
+      if(count < 0) {
+        break;
+      }
+      parallelism *= count;
+    }
+    Message.debug("Parallelize collapse depth for subroutine "
+        + _fctDef.getName() + ": " + depth);
+    return depth;
+  }
+
+  /**
+   * Get the do statement tightly nested in a loop. The nested loop must be
+   * the only statement of the body, must be decorated with the nodep
+   * directive and its iteration space must not depend on the enclosing loops.
+   *
+   * @param doStmt        Enclosing do statement.
+   * @param inductionVars Induction variables of the enclosing loops.
+   * @param nodepLoops    Do statements decorated with the nodep directive.
+   * @return Nested do statement. Null if the loops are not tightly nested.
+   */
+  private Xnode getTightlyNestedLoop(Xnode doStmt, List<String> inductionVars,
+                                     List<Xnode> nodepLoops)
+  {
+    if(doStmt.body() == null || doStmt.body().children().size() != 1) {
+      return null;
+    }
+    Xnode nested = doStmt.body().firstChild();
+    if(nested.opcode() != Xcode.F_DO_STATEMENT
+        || !nodepLoops.contains(nested))
+    {
+      return null;
+    }
+    Xnode range = nested.matchDirectDescendant(Xcode.INDEX_RANGE);
+    if(range == null) {
+      return null;
+    }
+    for(Xnode var : range.matchAll(Xcode.VAR)) {
+      if(inductionVars.contains(var.value().toLowerCase())) {
+        return null;
+      }
+    }
+    return nested;
+  }
+
+  /**
+   * Get the dimensions to be added to a field by promotion. Dimensions not
+   * placed explicitly with an over clause follow the promotion layout of the
+   * configuration.
+   *
+   * @param identifier Identifier of the field.
+   * @return List of dimension definitions with their insertion position.
+   */
+  private List<DimensionDefinition> getDimensionsForData(String identifier) {
+    List<DimensionDefinition> dimensions =
+        _claw.getDimensionsForData(identifier);
+    InsertionPosition position =
+        Configuration.get().getPromotionInsertionPosition();
+    if(_claw.hasOverDataClause() || dimensions == null
+        || position == InsertionPosition.BEFORE)
+    {
+      return dimensions;
+    }
+    List<DimensionDefinition> placed = new ArrayList<>();
+    for(DimensionDefinition dimension : dimensions) {
+      DimensionDefinition copy = dimension.copy();
+      copy.setInsertionPosition(position);
+      placed.add(copy);
+    }
+    return placed;
+  }
+
+  /**
+   * Check whether a local array can stay private to a column instead of being
+   * promoted. The array must not keep its value between calls, must only be
+   * used in the column loop and each of its reads must be preceded by a
+   * definition in the same column iteration.
+   *
+   * @param xcodeml    Current XcodeML program unit.
+   * @param name       Name of the local array.
+   * @param columnLoop Outer do statement iterating over the columns.
+   * @param liveRanges Live range analysis of the column loop body.
+   * @return True if the array can stay private. False otherwise.
+   */
+  private boolean isColumnPrivate(XcodeProgram xcodeml, String name,
+                                  Xnode columnLoop,
+                                  LiveRangeAnalysis liveRanges)
+  {
+    if(_promotions.containsKey(name)) {
+      return false;
+    }
+    Xnode decl = _fctDef.getDeclarationTable().get(name);
+    if(decl == null || decl.matchDirectDescendant(Xcode.VALUE) != null) {
+      return false;
+    }
+    FbasicType bType = xcodeml.getTypeTable().getBasicType(decl);
+    if(bType == null || bType.isSave() || bType.isAllocatable()
+        || bType.isPointer() || bType.isTarget())
+    {
+      return false;
+    }
+    for(Xnode var : _fctDef.body().matchAll(Xcode.VAR)) {
+      if(name.equals(var.value()) && !var.isNestedIn(columnLoop)) {
+        return false;
+      }
+    }
+    return liveRanges.isDefinedBeforeUse(name);
+  }
+
   /**
    * Apply CPU based transformations.
    *
@@ -521,7 +760,7 @@ public class Parallelize extends ClawTransformation {
           if(!_arrayFieldsInOut.contains(lhsName)) {
             _arrayFieldsInOut.add(lhsName);
             promotionInfo =
-                new PromotionInfo(lhsName, _claw.getDimensionsForData(lhsName));
+                new PromotionInfo(lhsName, getDimensionsForData(lhsName));
             Field.promote(promotionInfo, _fctDef, xcodeml);
             _promotions.put(lhsName, promotionInfo);
           } else {
@@ -628,36 +867,161 @@ public class Parallelize extends ClawTransformation {
       } else if(lhs.opcode() == Xcode.VAR || lhs.opcode() == Xcode.F_ARRAY_REF
           && _scalarFields.contains(lhsName))
       {
-        if(shouldBePromoted(assign) && wrapInDoStatement) {
+        // Reductions accumulate over the columns even without promoted
+        // fields. Outside of a column loop they would run once per thread.
+        if((dependsOnPromotedFields(assign)
+            || _reductions.isReduction(lhsName)) && wrapInDoStatement)
+        {
           hooks.add(assign);
         }
       }
     }
 
     // Generate loops around statements flagged in previous stage
+    Map<String, ReductionOperator> reductions = new LinkedHashMap<>();
+    List<Xnode> kernelBodies = new ArrayList<>();
+    List<String> invariants = new ArrayList<>();
     for(Xnode hook : hooks) {
+      Map<String, ReductionOperator> loopReductions =
+          _reductions.getReductions(hook);
+      reductions.putAll(loopReductions);
       NestedDoStatement loops =
           new NestedDoStatement(_claw.getDimensionValuesReversed(), xcodeml);
       hook.insertAfter(loops.getOuterStatement());
       loops.getInnerStatement().body().append(hook, true);
       hook.delete();
+      kernelBodies.add(loops.getInnerStatement().body());
+      if(Configuration.get().isLoopInvariantHoistingEnabled()) {
+        invariants.addAll(Loop.hoistInvariantExpressions(xcodeml, _fctDef,
+            loops.getOuterStatement(), loops.getOuterStatement()));
+      }
       Directive.generateLoopDirectives(xcodeml,
           loops.getOuterStatement(), loops.getOuterStatement(),
-          Directive.NO_COLLAPSE);
+          Directive.NO_COLLAPSE, loopReductions);
+    }
+
+    // Generate the parallel region. The invariants are computed by each
+    // thread before the column loops.
+    Directive.generateParallelClause(xcodeml, _fctDef.body().firstChild(),
+        _fctDef.body().lastChild(), invariants, reductions);
+
+    if(!kernelBodies.isEmpty()) {
+      addKernelInfo(xcodeml, kernelBodies, Directive.NO_COLLAPSE);
+    }
+  }
+
+  /**
+   * Record the static information about the region generated in the function
+   * for the transformation report.
+   *
+   * @param xcodeml  Current XcodeML program unit.
+   * @param bodies   Bodies of the generated inner do statements.
+   * @param collapse Collapse depth of the generated do statements.
+   */
+  private void addKernelInfo(XcodeProgram xcodeml, List<Xnode> bodies,
+                             int collapse)
+  {
+    _kernels.add(new KernelInfo(_fctDef.getName(), _claw.getPragma().lineNo(),
+        new CostAnalysis(xcodeml, bodies),
+        CostAnalysis.getPromotedMemory(xcodeml, _promotions.values()),
+        collapse, Context.get().getGenerator().getDirectiveLanguage()
+        == CompilerDirective.NONE));
+  }
+
+  @Override
+  public List<KernelInfo> getKernels() {
+    return _kernels;
+  }
+
+  /**
+   * Detect the scalars accumulated across the columns. Only scalar dummy
+   * arguments and variables declared outside of the function are reduced.
+   * Local scalars and fields promoted explicitly are left to the promotion.
+   *
+   * Functions called in the region might access the variables declared
+   * outside of the function through use or host association without any
+   * reference in the region. These variables are then not reduced. Dummy
+   * arguments are only accessible to the internal procedures of the function.
+   *
+   * @param xcodeml Current XcodeML program unit.
+   */
+  private void analyzeReductions(XcodeProgram xcodeml) {
+    _reductions = new ReductionAnalysis(_fctDef.body());
+    boolean hasCall = false;
+    for(Xnode fctCall : _fctDef.body().matchAll(Xcode.FUNCTION_CALL)) {
+      if(!fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        hasCall = true;
+        break;
+      }
+    }
+    boolean hasInternal = _fctDef.body().
+        matchDirectDescendant(Xcode.F_CONTAINS_STATEMENT) != null;
+    for(String name :
+        new ArrayList<>(_reductions.getReductions().keySet()))
+    {
+      boolean isDummy = _fctDef.getDeclarationTable().get(name) != null;
+      if(_arrayFieldsInOut.contains(name)
+          || !isNonLocalScalar(xcodeml, name)
+          || (hasCall && (!isDummy || hasInternal)))
+      {
+        _reductions.remove(name);
+      }
     }
+  }
 
-    // Generate the parallel region
-    Directive.generateParallelClause(xcodeml,
-        _fctDef.body().firstChild(), _fctDef.body().lastChild());
+  /**
+   * Check whether a reduction variable is a scalar dummy argument or a scalar
+   * declared outside of the function.
+   *
+   * @param xcodeml Current XcodeML program unit.
+   * @param name    Name of the reduction variable.
+   * @return True if the variable is a non local scalar. False otherwise.
+   */
+  private boolean isNonLocalScalar(XcodeProgram xcodeml, String name) {
+    Xnode decl = _fctDef.getDeclarationTable().get(name);
+    if(decl != null) {
+      if(decl.opcode() != Xcode.VAR_DECL
+          || !xcodeml.getTypeTable().isBasicType(decl))
+      {
+        return false;
+      }
+      FbasicType bType = xcodeml.getTypeTable().getBasicType(decl);
+      return !bType.isArray() && bType.hasIntent();
+    }
+    for(Xnode stmt : _reductions.getStatements(name)) {
+      FbasicType bType = xcodeml.getTypeTable().
+          getBasicType(stmt.child(Xnode.LHS));
+      if(bType != null && bType.isArray()) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
-   * Check whether the LHS variable should be promoted.
+   * Check whether the LHS variable should be promoted. Reduction variables
+   * are never promoted.
    *
    * @param assignStmt Assign statement node.
    * @return True if the LHS variable should be promoted. False otherwise.
    */
   private boolean shouldBePromoted(Xnode assignStmt) {
+    Xnode lhs = assignStmt.child(Xnode.LHS);
+    if(lhs != null && lhs.opcode() == Xcode.VAR
+        && _reductions.isReduction(lhs.value()))
+    {
+      return false;
+    }
+    return dependsOnPromotedFields(assignStmt);
+  }
+
+  /**
+   * Check whether the RHS of an assign statement uses promoted fields.
+   *
+   * @param assignStmt Assign statement node.
+   * @return True if a promoted field is used on the RHS. False otherwise.
+   */
+  private boolean dependsOnPromotedFields(Xnode assignStmt) {
     Xnode rhs = assignStmt.child(Xnode.RHS);
     if(rhs == null) {
       return false;
@@ -683,7 +1047,7 @@ public class Parallelize extends ClawTransformation {
       for(int i = 0; i < _claw.getOverDataClauseValues().size(); ++i) {
         for(String fieldId : _claw.getOverDataClauseValues().get(i)) {
           PromotionInfo promotionInfo = new PromotionInfo(fieldId,
-              _claw.getDimensionsForData(fieldId));
+              getDimensionsForData(fieldId));
           Field.promote(promotionInfo, _fctDef, xcodeml);
           _promotions.put(fieldId, promotionInfo);
         }
@@ -692,7 +1056,7 @@ public class Parallelize extends ClawTransformation {
       // Promote all arrays in a similar manner
       for(String fieldId : _arrayFieldsInOut) {
         PromotionInfo promotionInfo = new PromotionInfo(fieldId,
-            _claw.getDimensionsForData(fieldId));
+            getDimensionsForData(fieldId));
         Field.promote(promotionInfo, _fctDef, xcodeml);
         _promotions.put(fieldId, promotionInfo);
       }
@@ -744,6 +1108,22 @@ public class Parallelize extends ClawTransformation {
     }
   }
 
+  /**
+   * The signature of the module is updated under the module lock. When
+   * targeting GPU with a directive language, routine directives are inserted
+   * in the called functions and the transformation is not local anymore.
+   *
+   * @return True if no directive is generated outside of the function
+   * definition. False otherwise.
+   * @see Transformation#isFunctionLocal()
+   */
+  @Override
+  public boolean isFunctionLocal() {
+    return Context.get().getTarget() != Target.GPU
+        || Context.get().getGenerator().getDirectiveLanguage()
+        == CompilerDirective.NONE;
+  }
+
   /**
    * @return Always false as independent transformation are applied one by one.
    * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
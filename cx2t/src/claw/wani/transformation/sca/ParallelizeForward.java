@@ -18,11 +18,14 @@ import claw.tatsu.xcodeml.abstraction.InsertionPosition;
 import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.module.ModuleView;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.*;
 import claw.wani.language.ClawPragma;
 import claw.wani.transformation.ClawTransformation;
+import claw.wani.transformation.internal.UpdateRequest;
+import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.translator.ClawTranslator;
 
 import java.util.*;
@@ -41,12 +44,13 @@ import java.util.*;
  */
 public class ParallelizeForward extends ClawTransformation {
 
+  private static final String TIMING_FORWARD = "forward";
   private final Set<String> _promotedVar; // Promoted array from the call
   private final Map<String, PromotionInfo> _promotions; // Info about promotion
   private final Map<String, String> _fctCallMapping; // NamedValue mapping
   private Xnode _fctCall;
   private FfunctionType _fctType;
-  private FortranModule _mod = null;
+  private ModuleView _mod = null;
   private boolean _localFct = false;
   private boolean _flatten = false;
 
@@ -54,6 +58,8 @@ public class ParallelizeForward extends ClawTransformation {
 
   private String _calledFctName;  // For topological sorting
   private String _callingFctName; // For topological sorting
+  private FfunctionDefinition _calledFctDef;  // For topological sorting
+  private FfunctionDefinition _callingFctDef; // For topological sorting
   private boolean _isNestedInAssignment;
 
   /**
@@ -176,14 +182,14 @@ public class ParallelizeForward extends ClawTransformation {
       _calledFctName = _fctCall.matchSeq(Xcode.NAME).value();
     }
 
-    FfunctionDefinition fctDef = xcodeml.getGlobalDeclarationsTable().
-        getFunctionDefinition(_calledFctName);
     FfunctionDefinition parentFctDef = _claw.getPragma().findParentFunction();
     if(parentFctDef == null) {
       xcodeml.addError("Parallelize directive is not nested in a " +
           "function/subroutine.", _claw.getPragma().lineNo());
       return false;
     }
+    FfunctionDefinition fctDef =
+        xcodeml.getCallGraph().getDefinition(parentFctDef, _calledFctName);
 
     FmoduleDefinition parentModule = parentFctDef.findParentModule();
 
@@ -249,6 +255,8 @@ public class ParallelizeForward extends ClawTransformation {
     // end of workaround
 
     _callingFctName = parentFctDef.getName();
+    _callingFctDef = parentFctDef;
+    _calledFctDef = fctDef;
     if(_fctType != null && fctDef != null) {
       _localFct = true;
     } else {
@@ -312,13 +320,13 @@ public class ParallelizeForward extends ClawTransformation {
     // TODO handle rename
     for(Xnode d : useDecls) {
       // Check whether a CLAW file is available.
-      _mod = Xmod.findClaw(d.getAttribute(Xattr.NAME));
+      _mod = Xmod.findClawView(d.getAttribute(Xattr.NAME));
 
       if(_mod != null) {
-        Message.debug("Reading CLAW module file: " + _mod.getFullPath());
-        if(_mod.getIdentifiers().contains(_calledFctName)) {
-          Xid id = _mod.getIdentifiers().get(_calledFctName);
-          _fctType = _mod.getTypeTable().getFunctionType(id);
+        Message.debug("Reading CLAW module file: " + _mod.getFile());
+        // Only the function type is read until the full module is needed
+        if(_mod.contains(_calledFctName)) {
+          _fctType = _mod.getFunctionType(_calledFctName);
           if(_fctType != null) {
             _calledFctName = null;
             return true;
@@ -333,12 +341,47 @@ public class ParallelizeForward extends ClawTransformation {
   public void transform(XcodeProgram xcodeml, Translator translator,
                         Transformation other) throws Exception
   {
+    // The call site ends before the statement following it
+    Xnode nextStmt = _claw.getPragma().nextSibling().nextSibling();
+
     if(_flatten) {
       transformFlatten(xcodeml, translator);
     } else {
       transformStd(xcodeml, translator);
     }
 
+    // Small subroutines defined in the same file are inlined if enabled. The
+    // data region and the update request are attached to the call statement
+    // that the inlining deletes.
+    int maxSize = Configuration.get().getInliningMaxSize();
+    boolean inlined = false;
+    if(maxSize > 0 && _localFct && !_isNestedInAssignment
+        && !_claw.hasCreateClause() && !_claw.hasUpdateClause()
+        && Function.canBeInlined(xcodeml, _callingFctDef, _fctCall,
+        _calledFctDef, maxSize))
+    {
+      Message.debug("Inlining " + _calledFctDef.getName() + " at line " +
+          _fctCall.lineNo());
+      Function.inline(xcodeml, _callingFctDef, _fctCall, _calledFctDef);
+      inlined = true;
+    }
+
+    // Module arrays referenced by the called routine stay on the device
+    if(Context.get().getTarget() == Target.GPU
+        && Configuration.get().gpu().hasModuleData() && _calledFctDef != null)
+    {
+      Directive.generateModuleDataDeclarations(xcodeml,
+          inlined ? _callingFctDef : _calledFctDef);
+    }
+
+    // Call site is timed if the instrumentation is enabled
+    if(Configuration.get().isTimingInstrumentationEnabled()) {
+      Xnode lastStmt = nextStmt != null ? nextStmt.prevSibling()
+          : _claw.getPragma().ancestor().lastChild();
+      Timing.instrument(xcodeml, _claw.getPragma().nextSibling(), lastStmt,
+          _claw.getPragma().lineNo(), TIMING_FORWARD);
+    }
+
     removePragma();
   }
 
@@ -501,7 +544,7 @@ public class ParallelizeForward extends ClawTransformation {
 
           FbasicType typeBase = (_localFct) ?
               xcodeml.getTypeTable().getBasicType(pBase)
-              : _mod.getTypeTable().getBasicType(pBase);
+              : _mod.getModule().getTypeTable().getBasicType(pBase);
 
           FbasicType typeToUpdate =
               xcodeml.getTypeTable().getBasicType(pUpdate);
@@ -517,8 +560,8 @@ public class ParallelizeForward extends ClawTransformation {
 
             String type = _localFct ? Type.duplicateWithDimension(typeBase,
                 typeToUpdate, xcodeml, xcodeml, promotionInfo.getDimensions())
-                : Type.duplicateWithDimension(typeBase, typeToUpdate, _mod,
-                xcodeml, promotionInfo.getDimensions());
+                : Type.duplicateWithDimension(typeBase, typeToUpdate,
+                _mod.getModule(), xcodeml, promotionInfo.getDimensions());
 
             pUpdate.setType(type);
 
@@ -574,25 +617,24 @@ public class ParallelizeForward extends ClawTransformation {
 
     // Peclat : Only useful for GPU
     if(_claw.hasUpdateClause() && Context.get().getTarget() == Target.GPU) {
+      List<String> in = Collections.emptyList();
+      List<String> out = Collections.emptyList();
       if(_claw.getUpdateClauseValue() == DataMovement.BOTH ||
           _claw.getUpdateClauseValue() == DataMovement.DEVICE)
       {
-        List<String> out =
-            XnodeUtil.gatherArguments(xcodeml, _fctCall, Intent.IN, true);
-        if(_claw.hasUpdateClause()) {
-          Directive.generateUpdate(xcodeml, exprStmt, out, DataMovement.DEVICE);
-        }
+        in = XnodeUtil.gatherArguments(xcodeml, _fctCall, Intent.IN, true);
       }
-
       if(_claw.getUpdateClauseValue() == DataMovement.BOTH ||
           _claw.getUpdateClauseValue() == DataMovement.HOST)
       {
-        List<String> out =
-            XnodeUtil.gatherArguments(xcodeml, _fctCall, Intent.OUT, true);
-        if(_claw.hasUpdateClause()) {
-          Directive.generateUpdate(xcodeml, exprStmt, out, DataMovement.HOST);
-        }
+        out = XnodeUtil.gatherArguments(xcodeml, _fctCall, Intent.OUT, true);
       }
+
+      // Updates are generated once all the calls are known to avoid
+      // redundant data movement
+      ((ClawTranslator) translator).storeElement(exprStmt,
+          new UpdateRequest(in, out, XnodeUtil.gatherArguments(xcodeml,
+              _fctCall, Intent.OUT, true)));
     }
   }
 
@@ -678,8 +720,8 @@ public class ParallelizeForward extends ClawTransformation {
     // Find promotion info that can be used.
     // TODO define how default promotion is encoded in xmod file. For the
     // TODO moment using the first information found in fctType.
-    PromotionInfo defaultInfo =
-        Function.readPromotionInfo(_fctType, InsertionPosition.BEFORE);
+    PromotionInfo defaultInfo = Function.readPromotionInfo(_fctType,
+        Configuration.get().getPromotionInsertionPosition());
 
     for(Xnode assignment : assignments) {
       Xnode lhs = assignment.child(0);
@@ -827,4 +869,23 @@ public class ParallelizeForward extends ClawTransformation {
   public String getCallingFctName() {
     return _callingFctName;
   }
+
+  /**
+   * Get the definition of the called fct if located in the current
+   * translation unit.
+   *
+   * @return Fct definition. Null if not defined in the translation unit.
+   */
+  public FfunctionDefinition getCalledFctDef() {
+    return _calledFctDef;
+  }
+
+  /**
+   * Get the definition of the parent fct.
+   *
+   * @return Fct definition.
+   */
+  public FfunctionDefinition getCallingFctDef() {
+    return _callingFctDef;
+  }
 }
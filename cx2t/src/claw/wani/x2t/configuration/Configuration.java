@@ -9,6 +9,7 @@ import claw.shenron.transformation.BlockTransformation;
 import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.common.Target;
 import claw.tatsu.directive.generator.DirectiveGenerator;
+import claw.tatsu.xcodeml.abstraction.InsertionPosition;
 import claw.wani.transformation.ClawBlockTransformation;
 import claw.wani.x2t.configuration.gpu.GpuConfiguration;
 import claw.wani.x2t.configuration.openacc.OpenAccConfiguration;
@@ -51,6 +52,18 @@ public class Configuration {
   // Specific keys
   private static final String DEFAULT_TARGET = "default_target";
   private static final String DEFAULT_DIRECTIVE = "default_directive";
+  private static final String TRANSFORMATION_THREADS =
+      "transformation_threads";
+  private static final String PROMOTION_LAYOUT = "promotion_layout";
+  private static final String TARGET_LAYOUT = "target";
+  private static final String LOOP_UNSWITCHING = "loop_unswitching";
+  private static final String LOOP_UNSWITCHING_MAX_SIZE =
+      "loop_unswitching_max_size";
+  private static final int DEFAULT_UNSWITCHING_MAX_SIZE = 100;
+  private static final String LOOP_INVARIANT_HOISTING =
+      "loop_invariant_hoisting";
+  private static final String SCALAR_REPLACEMENT = "scalar_replacement";
+  private static final String INLINING_MAX_SIZE = "inlining_max_size";
   private static final String DEFAULT_CONFIG_FILE = "claw-default.xml";
   private static final String XML_EXT = ".xml";
   private static final String CONFIG_XSD = "claw_config.xsd";
@@ -91,6 +104,8 @@ public class Configuration {
   private OpenMpConfiguration _openmp;
   private String[] _transSetPaths;
   private boolean _forcePure = false;
+  private boolean _binaryIr = false;
+  private boolean _timing = false;
   private int _maxColumns; // Max column for code formatting
 
   private DirectiveGenerator _generator;
@@ -326,6 +341,26 @@ public class Configuration {
     return (_parameters.containsKey(key)) ? _parameters.get(key) : null;
   }
 
+  /**
+   * Get the value of an integer parameter.
+   *
+   * @param key          Key of the parameter.
+   * @param defaultValue Value returned if the parameter is not defined or is
+   *                     not a valid integer.
+   * @return Value of the parameter.
+   */
+  private int getIntParameter(String key, int defaultValue) {
+    String value = getParameter(key);
+    if(value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch(NumberFormatException ignored) {
+      return defaultValue;
+    }
+  }
+
   /**
    * Get the OpenACC specific configuration information.
    *
@@ -616,6 +651,39 @@ public class Configuration {
     return _forcePure;
   }
 
+  /**
+   * Enable the binary output of the XcodeML and module files.
+   */
+  public void setBinaryIr() {
+    _binaryIr = true;
+  }
+
+  /**
+   * Check whether the XcodeML and module files are written in binary format.
+   *
+   * @return True if the binary format is used. False for XML.
+   */
+  public boolean isBinaryIr() {
+    return _binaryIr;
+  }
+
+  /**
+   * Enable the timing instrumentation of the generated parallel regions.
+   */
+  public void setTimingInstrumentation() {
+    _timing = true;
+  }
+
+  /**
+   * Check whether the generated parallel regions are instrumented with calls
+   * to the timing runtime.
+   *
+   * @return True if the instrumentation is enabled. False otherwise.
+   */
+  public boolean isTimingInstrumentationEnabled() {
+    return _timing;
+  }
+
   /**
    * Check whether the configuration file version is high enough with the
    * compiler version.
@@ -675,6 +743,98 @@ public class Configuration {
     _maxColumns = value;
   }
 
+  /**
+   * Get the number of threads used to apply independent transformations
+   * located in different function definitions. A value lower or equal to 0
+   * uses all available processors.
+   *
+   * Timing region identifiers are allocated in the order the regions are
+   * instrumented. Transformations are applied sequentially when the timing
+   * instrumentation is enabled so the identifiers do not depend on thread
+   * scheduling.
+   *
+   * @return Number of threads. 1 if the parameter is not defined, is not
+   * a valid integer or if the timing instrumentation is enabled.
+   */
+  public int getTransformationThreads() {
+    if(_timing) {
+      return 1;
+    }
+    int threads = getIntParameter(TRANSFORMATION_THREADS, 1);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Get the insertion position of the dimensions added by promotion when they
+   * are not specified with an over clause. With the target layout, the
+   * position depends on the current target.
+   *
+   * @return Insertion position of the target if the promotion layout
+   * parameter is set to target. BEFORE otherwise.
+   */
+  public InsertionPosition getPromotionInsertionPosition() {
+    String value = getParameter(PROMOTION_LAYOUT);
+    if(value != null && TARGET_LAYOUT.equalsIgnoreCase(value.trim())) {
+      return InsertionPosition.forTarget(getCurrentTarget());
+    }
+    return InsertionPosition.BEFORE;
+  }
+
+  /**
+   * Check whether loop-invariant if and select case statements are moved out
+   * of the do statements automatically.
+   *
+   * @return True if the loop unswitching parameter is set to true.
+   */
+  public boolean isLoopUnswitchingEnabled() {
+    String value = getParameter(LOOP_UNSWITCHING);
+    return value != null && Boolean.parseBoolean(value.trim());
+  }
+
+  /**
+   * Get the maximum number of statements the loop unswitching can add to a
+   * function definition.
+   *
+   * @return Maximum number of statements. 100 if the parameter is not defined
+   * or not an integer.
+   */
+  public int getLoopUnswitchingMaxSize() {
+    return getIntParameter(LOOP_UNSWITCHING_MAX_SIZE,
+        DEFAULT_UNSWITCHING_MAX_SIZE);
+  }
+
+  /**
+   * Check whether the invariant expressions are moved out of the do
+   * statements generated by the transformations.
+   *
+   * @return True if the loop invariant hoisting parameter is set to true.
+   */
+  public boolean isLoopInvariantHoistingEnabled() {
+    String value = getParameter(LOOP_INVARIANT_HOISTING);
+    return value != null && Boolean.parseBoolean(value.trim());
+  }
+
+  /**
+   * Check whether the array elements accessed several times in the kernels
+   * generated by the parallelize transformation are replaced by scalars.
+   *
+   * @return True if the scalar replacement parameter is set to true.
+   */
+  public boolean isScalarReplacementEnabled() {
+    String value = getParameter(SCALAR_REPLACEMENT);
+    return value != null && Boolean.parseBoolean(value.trim());
+  }
+
+  /**
+   * Get the maximum number of statements of a routine inlined at a call
+   * site adapted by the parallelize forward transformation.
+   *
+   * @return Maximum number of statements. 0 if the inlining is disabled.
+   */
+  public int getInliningMaxSize() {
+    return getIntParameter(INLINING_MAX_SIZE, 0);
+  }
+
   /**
    * Display the loaded configuration.
    */
@@ -14,10 +14,17 @@ public class GpuConfiguration {
   private static final String GPU_DATA_STRATEGY = "gpu_data_strategy";
   private static final String GPU_LOCAL_STRATEGY = "gpu_local_strategy";
   private static final String GPU_COLLAPSE = "gpu_collapse";
+  private static final String GPU_COLLAPSE_AUTO = "auto";
+  private static final String GPU_MIN_PARALLELISM = "gpu_min_parallelism";
+  private static final int DEFAULT_MIN_PARALLELISM = 4096;
+  private static final String GPU_MODULE_DATA = "gpu_module_data";
 
   private GpuDataStrategy _dataStrategy = GpuDataStrategy.PRESENT;
   private GpuLocalStrategy _localStrategy = GpuLocalStrategy.PRIVATE;
   private boolean _collapseStrategy = false;
+  private boolean _autoCollapse = false;
+  private int _minParallelism = DEFAULT_MIN_PARALLELISM;
+  private boolean _moduleData = false;
 
   /**
    * Constructs a GpuConfiguration object holding GPU configuration information.
@@ -34,8 +41,21 @@ public class GpuConfiguration {
           fromString(parameters.get(GPU_LOCAL_STRATEGY));
     }
     if(parameters.containsKey(GPU_COLLAPSE)) {
+      _autoCollapse =
+          GPU_COLLAPSE_AUTO.equalsIgnoreCase(parameters.get(GPU_COLLAPSE));
       _collapseStrategy = Boolean.parseBoolean(parameters.get(GPU_COLLAPSE));
     }
+    if(parameters.containsKey(GPU_MIN_PARALLELISM)) {
+      try {
+        _minParallelism =
+            Integer.parseInt(parameters.get(GPU_MIN_PARALLELISM).trim());
+      } catch(NumberFormatException ignored) {
+        _minParallelism = DEFAULT_MIN_PARALLELISM;
+      }
+    }
+    if(parameters.containsKey(GPU_MODULE_DATA)) {
+      _moduleData = Boolean.parseBoolean(parameters.get(GPU_MODULE_DATA));
+    }
   }
 
   /**
@@ -58,4 +78,28 @@ public class GpuConfiguration {
    * @return True if collapse strategy is on. False otherwise.
    */
   public boolean hasCollapseStrategy() { return _collapseStrategy; }
+
+  /**
+   * Check whether the collapse depth is decided for each kernel.
+   *
+   * @return True if the automatic collapse strategy is on. False otherwise.
+   */
+  public boolean hasAutoCollapse() { return _autoCollapse; }
+
+  /**
+   * Get the minimum number of iterations a kernel must expose before the
+   * automatic collapse strategy stops collapsing nested loops.
+   *
+   * @return Minimum parallelism. 4096 by default.
+   */
+  public int getMinParallelism() { return _minParallelism; }
+
+  /**
+   * Check whether the module arrays referenced in the parallelized
+   * subroutines are kept allocated on the device.
+   *
+   * @return True if module arrays are declared on the device. False by
+   * default.
+   */
+  public boolean hasModuleData() { return _moduleData; }
 }
@@ -17,12 +17,15 @@ import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.wani.language.ClawPragma;
 import claw.wani.transformation.internal.OpenAccContinuation;
+import claw.wani.transformation.internal.UpdateElimination;
 import claw.wani.transformation.ll.caching.Kcaching;
 import claw.wani.transformation.ll.directive.DirectivePrimitive;
 import claw.wani.transformation.ll.loop.*;
 import claw.wani.transformation.ll.utility.ArrayToFctCall;
+import claw.wani.transformation.ll.utility.CallToTable;
 import claw.wani.transformation.ll.utility.UtilityRemove;
 import claw.wani.transformation.sca.Parallelize;
 import claw.wani.transformation.sca.ParallelizeForward;
@@ -31,6 +34,7 @@ import claw.wani.x2t.configuration.GroupConfiguration;
 import org.w3c.dom.Element;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ClawTranslator stores all transformation groups applied during the
@@ -46,7 +50,7 @@ public class ClawTranslator implements Translator {
   // Hold cross-transformation elements
   private final Map<Element, Object> _crossTransformationTable;
   private final Map<ClawDirectiveKey, ClawPragma> _blockDirectives;
-  private int _transformationCounter = 0;
+  private final AtomicInteger _transformationCounter;
 
   /**
    * ClawTranslator ctor. Creates the transformation groups needed for the CLAW
@@ -58,6 +62,7 @@ public class ClawTranslator implements Translator {
      * entries with the insertion order.
      */
     _tGroups = new LinkedHashMap<>();
+    int threads = Configuration.get().getTransformationThreads();
     for(GroupConfiguration g : Configuration.get().getGroups()) {
       switch(g.getType()) {
         case DEPENDENT:
@@ -66,16 +71,23 @@ public class ClawTranslator implements Translator {
           break;
         case INDEPENDENT:
           _tGroups.put(g.getTransformationClass(),
-              new IndependentTransformationGroup(g.getName()));
+              new IndependentTransformationGroup(g.getName(), threads));
           break;
       }
     }
 
     // Internal transformations not specified by default configuration or user
+    _tGroups.put(UpdateElimination.class,
+        new IndependentTransformationGroup("internal-update-elimination",
+            threads));
     _tGroups.put(OpenAccContinuation.class,
-        new IndependentTransformationGroup("internal-open-acc-continuation"));
+        new IndependentTransformationGroup("internal-open-acc-continuation",
+            threads));
 
-    _crossTransformationTable = new HashMap<>();
+    // Independent transformations might be applied concurrently
+    _crossTransformationTable = Collections.synchronizedMap(
+        new HashMap<Element, Object>());
+    _transformationCounter = new AtomicInteger();
 
     _blockDirectives = new Hashtable<>();
   }
@@ -92,6 +104,9 @@ public class ClawTranslator implements Translator {
       case ARRAY_TO_CALL:
         addTransformation(xcodeml, new ArrayToFctCall(analyzedPragma));
         break;
+      case CALL_TO_TABLE:
+        addTransformation(xcodeml, new CallToTable(analyzedPragma));
+        break;
       case KCACHE:
         addTransformation(xcodeml, new Kcaching(analyzedPragma));
         break;
@@ -104,6 +119,9 @@ public class ClawTranslator implements Translator {
       case LOOP_EXTRACT:
         addTransformation(xcodeml, new LoopExtraction(analyzedPragma));
         break;
+      case LOOP_UNROLL:
+        addTransformation(xcodeml, new LoopUnroll(analyzedPragma));
+        break;
       case LOOP_HOIST:
         HandleBlockDirective(xcodeml, analyzedPragma);
         break;
@@ -148,6 +166,13 @@ public class ClawTranslator implements Translator {
     }
 
     reorderTransformations();
+
+    // Updates requested by forward transformations are generated at the end
+    if(_tGroups.containsKey(ParallelizeForward.class)
+        && _tGroups.get(ParallelizeForward.class).count() > 0)
+    {
+      addTransformation(xcodeml, new UpdateElimination());
+    }
   }
 
   /**
@@ -256,26 +281,28 @@ public class ClawTranslator implements Translator {
       }
 
       DirectedGraph<Transformation> dg = new DirectedGraph<>();
-      Map<String, List<Transformation>> fctMap = new HashMap<>();
+      // Definitions are resolved through the call graph during analysis so
+      // functions with the same name in different modules are kept apart
+      Map<FfunctionDefinition, List<Transformation>> fctMap = new HashMap<>();
 
       for(Transformation t : tg.getTransformations()) {
         ParallelizeForward p = (ParallelizeForward) t;
         dg.addNode(p);
-        if(fctMap.containsKey(p.getCallingFctName())) {
-          List<Transformation> tList = fctMap.get(p.getCallingFctName());
+        if(fctMap.containsKey(p.getCallingFctDef())) {
+          List<Transformation> tList = fctMap.get(p.getCallingFctDef());
           tList.add(p);
         } else {
           List<Transformation> tList = new ArrayList<>();
           tList.add(p);
-          fctMap.put(p.getCallingFctName(), tList);
+          fctMap.put(p.getCallingFctDef(), tList);
         }
       }
 
       for(Transformation t : tg.getTransformations()) {
         ParallelizeForward p = (ParallelizeForward) t;
-        if(p.getCalledFctName() != null) {
-          if(fctMap.containsKey(p.getCalledFctName())) {
-            List<Transformation> tList = fctMap.get(p.getCalledFctName());
+        if(p.getCalledFctDef() != null) {
+          if(fctMap.containsKey(p.getCalledFctDef())) {
+            List<Transformation> tList = fctMap.get(p.getCalledFctDef());
             for(Transformation end : tList) {
               dg.addEdge(p, end);
             }
@@ -371,7 +398,7 @@ public class ClawTranslator implements Translator {
    * @return Transformation counter value.
    */
   public int getNextTransformationCounter() {
-    return _transformationCounter++;
+    return _transformationCounter.getAndIncrement();
   }
 
   /**
@@ -381,10 +408,7 @@ public class ClawTranslator implements Translator {
    * @return The stored element if present. Null otherwise.
    */
   public Object hasElement(Xnode key) {
-    if(_crossTransformationTable.containsKey(key.element())) {
-      return _crossTransformationTable.get(key.element());
-    }
-    return null;
+    return _crossTransformationTable.get(key.element());
   }
 
   /**
@@ -395,9 +419,6 @@ public class ClawTranslator implements Translator {
    * @param value The element to be stored.
    */
   public void storeElement(Xnode key, Object value) {
-    if(_crossTransformationTable.containsKey(key.element())) {
-      _crossTransformationTable.remove(key.element());
-    }
     _crossTransformationTable.put(key.element(), value);
   }
 }
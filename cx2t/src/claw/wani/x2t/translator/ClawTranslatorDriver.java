@@ -184,7 +184,7 @@ public class ClawTranslatorDriver {
   public void transform() {
     try {
       if(!_canTransform) {
-        _translationUnit.write(_xcodemlOutputFile, ClawConstant.INDENT_OUTPUT);
+        writeTranslationUnit();
         return;
       }
 
@@ -215,13 +215,29 @@ public class ClawTranslatorDriver {
 
       if(_xcodemlOutputFile != null) {
         // Write transformed IR to file
-        _translationUnit.write(_xcodemlOutputFile, ClawConstant.INDENT_OUTPUT);
+        writeTranslationUnit();
       }
     } catch(Exception ex) {
       System.err.println("Transformation exception: " + ex.getMessage());
     }
   }
 
+  /**
+   * Write the translation unit to the output file in XML or binary format
+   * depending on the configuration.
+   *
+   * @throws IllegalTransformationException If the file cannot be written.
+   */
+  private void writeTranslationUnit()
+      throws IllegalTransformationException
+  {
+    if(Configuration.get().isBinaryIr()) {
+      _translationUnit.writeBinary(_xcodemlOutputFile);
+    } else {
+      _translationUnit.write(_xcodemlOutputFile, ClawConstant.INDENT_OUTPUT);
+    }
+  }
+
   /**
    * Print all the errors stored in the XcodeML object and abort the program.
    */
@@ -238,7 +254,8 @@ public class ClawTranslatorDriver {
   public void flush()
       throws IllegalTransformationException
   {
-    Context.get().getModuleCache().write(ClawConstant.INDENT_OUTPUT);
+    Context.get().getModuleCache().write(ClawConstant.INDENT_OUTPUT,
+        Configuration.get().isBinaryIr());
   }
 
   /**
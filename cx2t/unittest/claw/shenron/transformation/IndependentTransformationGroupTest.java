@@ -0,0 +1,237 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.shenron.transformation;
+
+import claw.shenron.translator.AnalyzedPragma;
+import claw.shenron.translator.Translator;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import helper.TestConstant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.TestCase.*;
+
+/**
+ * Test methods of the IndependentTransformationGroup class.
+ *
+ * @author clementval
+ */
+public class IndependentTransformationGroupTest {
+
+  @Test
+  public void sequentialTest() {
+    applyTest(1);
+  }
+
+  @Test
+  public void concurrentTest() {
+    applyTest(4);
+  }
+
+  @Test
+  public void failureTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    assertNotNull(xcodeml);
+    List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
+    assertEquals(2, fctDefs.size());
+
+    IndependentTransformationGroup group =
+        new IndependentTransformationGroup("test", 2);
+    List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    group.add(new DummyTransformation(createPragma(xcodeml, fctDefs.get(0)),
+        log, "ok", true));
+    group.add(new DummyTransformation(createPragma(xcodeml, fctDefs.get(1)),
+        log, "ko", true));
+    group.add(new DummyTransformation(createPragma(xcodeml, fctDefs.get(1)),
+        log, "skipped", true));
+
+    try {
+      group.applyTranslations(xcodeml, null);
+      fail();
+    } catch(IllegalTransformationException itex) {
+      assertEquals(42, itex.getStartLine());
+    } catch(Exception e) {
+      fail();
+    }
+    assertFalse(log.contains("skipped"));
+    assertEquals(1, group.getAppliedTransformationCount());
+  }
+
+  @Test
+  public void concurrentMutationTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    assertNotNull(xcodeml);
+    List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
+    assertEquals(2, fctDefs.size());
+    int types = xcodeml.getTypeTable().size();
+    int typeNodes = xcodeml.getTypeTable().children().size();
+    int decl0 = fctDefs.get(0).getDeclarationTable().count();
+    int decl1 = fctDefs.get(1).getDeclarationTable().count();
+
+    IndependentTransformationGroup group =
+        new IndependentTransformationGroup("test", 2);
+    List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    group.add(new MutatingTransformation(createPragma(xcodeml,
+        fctDefs.get(0)), log, "a", 200));
+    group.add(new MutatingTransformation(createPragma(xcodeml,
+        fctDefs.get(1)), log, "b", 200));
+
+    try {
+      group.applyTranslations(xcodeml, null);
+    } catch(Exception e) {
+      fail();
+    }
+
+    // Every mutation is visible in the tables and in the DOM
+    assertEquals(types + 400, xcodeml.getTypeTable().size());
+    assertEquals(typeNodes + 400, xcodeml.getTypeTable().children().size());
+    assertEquals(decl0 + 200, fctDefs.get(0).getDeclarationTable().count());
+    assertEquals(decl1 + 200, fctDefs.get(1).getDeclarationTable().count());
+    assertEquals(decl1 + 200,
+        fctDefs.get(1).getDeclarationTable().children().size());
+  }
+
+  private void applyTest(int parallelism) {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    assertNotNull(xcodeml);
+    List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
+    assertEquals(2, fctDefs.size());
+
+    IndependentTransformationGroup group =
+        new IndependentTransformationGroup("test", parallelism);
+    assertEquals(parallelism, group.getParallelism());
+
+    List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    group.add(new DummyTransformation(createPragma(xcodeml, fctDefs.get(0)),
+        log, "a1", true));
+    group.add(new DummyTransformation(createPragma(xcodeml, fctDefs.get(1)),
+        log, "b1", true));
+    group.add(new DummyTransformation(createPragma(xcodeml, fctDefs.get(0)),
+        log, "a2", true));
+    group.add(new DummyTransformation(createPragma(xcodeml, fctDefs.get(1)),
+        log, "b2", true));
+    group.add(new DummyTransformation(null, log, "global", false));
+
+    try {
+      group.applyTranslations(xcodeml, null);
+    } catch(Exception e) {
+      fail();
+    }
+
+    assertEquals(5, group.getAppliedTransformationCount());
+    assertEquals(5, log.size());
+    // Order is preserved inside a function definition
+    assertTrue(log.indexOf("a1") < log.indexOf("a2"));
+    assertTrue(log.indexOf("b1") < log.indexOf("b2"));
+    if(parallelism > 1) {
+      // Non function local transformations are applied first
+      assertEquals("global", log.get(0));
+    }
+  }
+
+  private AnalyzedPragma createPragma(XcodeProgram xcodeml,
+                                      FfunctionDefinition fctDef)
+  {
+    Xnode pragma = xcodeml.createNode(Xcode.F_PRAGMA_STATEMENT);
+    pragma.setValue("claw dummy");
+    fctDef.body().insert(pragma);
+    return new AnalyzedPragma(pragma) {
+    };
+  }
+
+  /**
+   * Transformation recording its application in a shared log.
+   */
+  private class DummyTransformation extends Transformation {
+
+    private final List<String> _log;
+    private final String _name;
+    private final boolean _local;
+
+    DummyTransformation(AnalyzedPragma pragma, List<String> log, String name,
+                        boolean local)
+    {
+      super(pragma);
+      _log = log;
+      _name = name;
+      _local = local;
+    }
+
+    @Override
+    public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+      return true;
+    }
+
+    @Override
+    public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                        Transformation other)
+    {
+      return false;
+    }
+
+    @Override
+    public boolean isFunctionLocal() {
+      return _local;
+    }
+
+    @Override
+    public void transform(XcodeProgram xcodeml, Translator translator,
+                          Transformation other)
+        throws Exception
+    {
+      if(_name.equals("ko")) {
+        setStartLine(42);
+        throw new IllegalTransformationException("dummy failure");
+      }
+      _log.add(_name);
+      transformed();
+    }
+  }
+
+  /**
+   * Transformation adding types to the shared type table and declarations to
+   * the declaration table of its function definition.
+   */
+  private class MutatingTransformation extends DummyTransformation {
+
+    private final String _prefix;
+    private final int _count;
+
+    MutatingTransformation(AnalyzedPragma pragma, List<String> log,
+                           String prefix, int count)
+    {
+      super(pragma, log, prefix, true);
+      _prefix = prefix;
+      _count = count;
+    }
+
+    @Override
+    public void transform(XcodeProgram xcodeml, Translator translator,
+                          Transformation other)
+        throws Exception
+    {
+      FfunctionDefinition fctDef = getDirective().getPragma().
+          findParentFunction();
+      for(int i = 0; i < _count; ++i) {
+        FbasicType type =
+            xcodeml.createBasicType(FortranType.INTEGER, Intent.NONE);
+        xcodeml.getTypeTable().add(type);
+        fctDef.getDeclarationTable().add(
+            xcodeml.createVarDecl(type.getType(), _prefix + i));
+      }
+      super.transform(xcodeml, translator, other);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.cost;
+
+import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
+import claw.tatsu.xcodeml.abstraction.PromotionInfo;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static helper.XmlHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the CostAnalysis class.
+ *
+ * @author clementval
+ */
+public class CostAnalysisTest {
+
+  private static String arrayRef(String type, String array) {
+    return XmlHelper.arrayRef("Freal", type, array, arrayIndex(intVar("i")));
+  }
+
+  private static String getArrayType(XcodeProgram xcodeml) {
+    String hash = xcodeml.getTypeTable().generateHash(FortranType.ARRAY);
+    FbasicType arrayType = xcodeml.createBasicType(hash,
+        FortranType.REAL.toString(), Intent.NONE);
+    arrayType.addDimension(xcodeml.createEmptyAssumedShaped());
+    xcodeml.getTypeTable().add(arrayType);
+    return hash;
+  }
+
+  @Test
+  public void costTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    String hash = getArrayType(xcodeml);
+
+    // a(i) = a(i) * b(i) + x / y = sqrt(b(i)) / k = k + 1
+    Xnode body = xcodeml.importNode(XmlHelper.createXnode("<body>" +
+        assign(arrayRef(hash, "a"), binary("plusExpr", "Freal",
+            binary("mulExpr", "Freal", arrayRef(hash, "a"),
+                arrayRef(hash, "b")), realVar("x"))) +
+        assign(realVar("y"), call("Freal", "sqrt", true, arrayRef(hash, "b"))) +
+        assign(intVar("k"), binary("plusExpr", "Fint", intVar("k"),
+            intConst(1))) + "</body>"));
+
+    CostAnalysis cost =
+        new CostAnalysis(xcodeml, Collections.singletonList(body));
+    assertEquals(3, cost.getFlops());
+    assertEquals(12, cost.getLoadedBytes());
+    assertEquals(4, cost.getStoredBytes());
+    assertEquals(3.0 / 16, cost.getArithmeticIntensity(), 1e-9);
+
+    // Costs of several regions are summed
+    cost = new CostAnalysis(xcodeml, Arrays.asList(body, body));
+    assertEquals(6, cost.getFlops());
+    assertEquals(32, cost.getLoadedBytes() + cost.getStoredBytes());
+
+    assertEquals(0, new CostAnalysis(xcodeml,
+        Collections.<Xnode>emptyList()).getArithmeticIntensity(), 0);
+  }
+
+  @Test
+  public void promotedMemoryTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    String hash = getArrayType(xcodeml);
+
+    PromotionInfo scalar = new PromotionInfo("s", 0, 2, hash);
+    scalar.setDimensions(Arrays.asList(
+        new DimensionDefinition("nproma", "1", "nproma"),
+        new DimensionDefinition("nz", "1", "60")));
+    PromotionInfo array = new PromotionInfo("t", 1, 2, hash);
+    array.setDimensions(Collections.singletonList(
+        new DimensionDefinition("c", "2", "5")));
+    PromotionInfo constant = new PromotionInfo("u", 0, 1, hash);
+    constant.setDimensions(Collections.singletonList(
+        new DimensionDefinition("d", "1", "10")));
+
+    assertEquals("40 + 240*nproma + 16*n(t)", CostAnalysis.getPromotedMemory(
+        xcodeml, Arrays.asList(scalar, array, constant)));
+    assertEquals("0", CostAnalysis.getPromotedMemory(xcodeml,
+        Collections.<PromotionInfo>emptyList()));
+    assertEquals(4, CostAnalysis.getElementSize(xcodeml, hash));
+    assertEquals(2 * 4, CostAnalysis.getElementSize(xcodeml,
+        FortranType.COMPLEX.toString()));
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.dependency;
+
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static helper.XmlHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the ReadWriteSet class.
+ *
+ * @author clementval
+ */
+public class ReadWriteSetTest {
+
+  // Array notation reference like a(lower:upper)
+  private static String arrayRef(String name, String lower, String upper) {
+    return XmlHelper.arrayRef("Freal", "Freal", name,
+        indexRange(lower, upper, null));
+  }
+
+  private static ReadWriteSet assign(String lhs, String rhs) {
+    return new ReadWriteSet(XmlHelper.createXnode(XmlHelper.assign(lhs, rhs)));
+  }
+
+  @Test
+  public void setsTest() {
+    // a(1:n) = b(1:n) + c
+    ReadWriteSet s1 = assign(arrayRef("a", intConst(1), realVar("n")),
+        binary("plusExpr", "Freal", arrayRef("b", intConst(1), realVar("n")),
+            realVar("c")));
+    assertEquals(Collections.singletonList("a"), s1.getWrittenVariables());
+    assertEquals(Arrays.asList("n", "b", "c"), s1.getReadVariables());
+    assertNotNull(s1.getStatement());
+  }
+
+  @Test
+  public void dependenceTest() {
+    String n = realVar("n");
+    String one = intConst(1);
+    String two = intConst(2);
+    // a(1:n) = b(1:n)
+    ReadWriteSet s1 = assign(arrayRef("a", one, n), arrayRef("b", one, n));
+    // c(1:n) = a(1:n) + 1
+    ReadWriteSet s2 = assign(arrayRef("c", one, n),
+        binary("plusExpr", "Freal", arrayRef("a", one, n), one));
+    // d(1:n) = a(2:n+1)
+    ReadWriteSet s3 = assign(arrayRef("d", one, n),
+        arrayRef("a", two, binary("plusExpr", "Freal", n, one)));
+    // e(1:n) = b(2:n+1)
+    ReadWriteSet s4 = assign(arrayRef("e", one, n),
+        arrayRef("b", two, binary("plusExpr", "Freal", n, one)));
+    // b(1:n) = a
+    ReadWriteSet s5 = assign(arrayRef("b", one, n), realVar("a"));
+
+    assertFalse(s2.isIndependent(s1));
+    assertTrue(s2.canBeFusedWith(s1));
+    // Reads a with an offset
+    assertFalse(s3.isIndependent(s1));
+    assertFalse(s3.canBeFusedWith(s1));
+    // Only reads
+    assertTrue(s4.isIndependent(s1));
+    assertTrue(s4.canBeFusedWith(s1));
+    assertTrue(s4.isIndependent(s3));
+    // Writes b read with an offset by s4 and reads the whole array a
+    assertFalse(s5.isIndependent(s4));
+    assertFalse(s5.canBeFusedWith(s4));
+    assertFalse(s5.canBeFusedWith(s1));
+  }
+}
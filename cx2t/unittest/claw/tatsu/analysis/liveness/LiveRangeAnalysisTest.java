@@ -0,0 +1,150 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.liveness;
+
+import helper.XmlHelper;
+import org.junit.Test;
+
+import static helper.XmlHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the LiveRangeAnalysis class.
+ *
+ * @author clementval
+ */
+public class LiveRangeAnalysisTest {
+
+  private static String ref(String name, String index) {
+    return arrayRef("Freal", "A1", name, arrayIndex(realVar(index)));
+  }
+
+  private static String slice(String name) {
+    return arrayRef("Freal", "A1", name,
+        "<indexRange is_assumed_shape=\"true\"></indexRange>");
+  }
+
+  private static String loop(String upper, String body) {
+    return doStmt(realVar("k"), intConst(1), realVar(upper), null, body);
+  }
+
+  private static String ifStmt(String thenBody, String elseBody) {
+    return XmlHelper.ifStmt(realVar("l"), thenBody, elseBody);
+  }
+
+  private static boolean isDefinedBeforeUse(String body, String name) {
+    return new LiveRangeAnalysis(
+        XmlHelper.createXnode("<body>" + body + "</body>")).
+        isDefinedBeforeUse(name);
+  }
+
+  @Test
+  public void scalarTest() {
+    String body = assign(realVar("c"), realVar("a")) +
+        assign(realVar("b"), realVar("c"));
+    assertTrue(isDefinedBeforeUse(body, "c"));
+    assertTrue(isDefinedBeforeUse(body, "unused"));
+
+    // Read before definition
+    body = assign(realVar("b"), realVar("c")) +
+        assign(realVar("c"), realVar("a"));
+    assertFalse(isDefinedBeforeUse(body, "c"));
+    body = assign(realVar("c"),
+        binary("plusExpr", "Freal", realVar("c"), realVar("a")));
+    assertFalse(isDefinedBeforeUse(body, "c"));
+
+    // Definition in both branches
+    body = ifStmt(assign(realVar("c"), realVar("a")),
+        assign(realVar("c"), realVar("b"))) +
+        assign(realVar("b"), realVar("c"));
+    assertTrue(isDefinedBeforeUse(body, "c"));
+
+    // Definition in one branch only
+    body = ifStmt(assign(realVar("c"), realVar("a")), null) +
+        assign(realVar("b"), realVar("c"));
+    assertFalse(isDefinedBeforeUse(body, "c"));
+    body = ifStmt(assign(realVar("c"), realVar("a")) +
+        assign(realVar("b"), realVar("c")),
+        null);
+    assertTrue(isDefinedBeforeUse(body, "c"));
+
+    // Definition in a loop that might not be executed
+    body = loop("nz", assign(realVar("c"), realVar("a"))) +
+        assign(realVar("b"), realVar("c"));
+    assertFalse(isDefinedBeforeUse(body, "c"));
+  }
+
+  @Test
+  public void arrayTest() {
+    // Elements defined and used in the same iteration space
+    String body = loop("nz", assign(ref("y", "k"), realVar("a"))) +
+        loop("nz", assign(realVar("b"),
+            binary("plusExpr", "Freal", ref("y", "k"), realVar("b"))));
+    assertTrue(isDefinedBeforeUse(body, "y"));
+
+    // Different iteration space
+    body = loop("nz", assign(ref("y", "k"), realVar("a"))) +
+        loop("n", assign(realVar("b"), ref("y", "k")));
+    assertFalse(isDefinedBeforeUse(body, "y"));
+
+    // Read before the definition in the same loop
+    body = loop("nz", assign(realVar("b"), ref("y", "k")) +
+        assign(ref("y", "k"), realVar("a")));
+    assertFalse(isDefinedBeforeUse(body, "y"));
+
+    // Whole array definition
+    body = assign(slice("y"), realVar("a")) +
+        loop("n", assign(realVar("b"), ref("y", "k")));
+    assertTrue(isDefinedBeforeUse(body, "y"));
+
+    // Whole array read
+    body = loop("nz", assign(ref("y", "k"), realVar("a"))) +
+        assign(realVar("b"), realVar("y"));
+    assertFalse(isDefinedBeforeUse(body, "y"));
+
+    // Used in unsupported statement
+    body = loop("nz", assign(ref("y", "k"), realVar("a"))) +
+        "<exprStatement>" + realVar("y") + "</exprStatement>";
+    assertFalse(isDefinedBeforeUse(body, "y"));
+  }
+
+  @Test
+  public void subscriptTest() {
+    // Subscript not written between the definition and the read
+    String body = assign(ref("y", "j"), realVar("a")) +
+        assign(realVar("b"), ref("y", "j"));
+    assertTrue(isDefinedBeforeUse(body, "y"));
+
+    // Subscript written between the definition and the read
+    body = assign(ref("y", "j"), realVar("a")) +
+        assign(realVar("j"), realVar("b")) +
+        assign(realVar("b"), ref("y", "j"));
+    assertFalse(isDefinedBeforeUse(body, "y"));
+    body = assign(ref("y", "j"), realVar("a")) +
+        loop("nz", assign(realVar("j"), realVar("k"))) +
+        assign(realVar("b"), ref("y", "j"));
+    assertFalse(isDefinedBeforeUse(body, "y"));
+    body = assign(ref("y", "j"), realVar("a")) +
+        "<exprStatement>" + realVar("j") + "</exprStatement>" +
+        assign(realVar("b"), ref("y", "j"));
+    assertFalse(isDefinedBeforeUse(body, "y"));
+
+    // Element of the subscript array written
+    body = assign(ref("y", "j"), realVar("a")) +
+        assign(ref("z", "j"), realVar("b")) +
+        assign(realVar("b"), ref("y", "j"));
+    assertTrue(isDefinedBeforeUse(body, "y"));
+
+    // Bound of the iteration space written between the loops
+    body = loop("nz", assign(ref("y", "k"), realVar("a"))) +
+        assign(realVar("nz"), realVar("b")) +
+        loop("nz", assign(realVar("b"), ref("y", "k")));
+    assertFalse(isDefinedBeforeUse(body, "y"));
+    body = loop("nz", assign(ref("y", "k"), realVar("a")) +
+        assign(realVar("nz"), realVar("b"))) +
+        loop("nz", assign(realVar("b"), ref("y", "k")));
+    assertFalse(isDefinedBeforeUse(body, "y"));
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.reduction;
+
+import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static helper.XmlHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the ReductionAnalysis class.
+ *
+ * @author clementval
+ */
+public class ReductionAnalysisTest {
+
+  private static ReductionOperator getOperator(String lhs, String rhs) {
+    Xnode stmt = XmlHelper.createXnode(assign(lhs, rhs));
+    return new AssignStatement(stmt.element()).getReductionOperator();
+  }
+
+  @Test
+  public void operatorTest() {
+    String s = realVar("s");
+    String a = realVar("a");
+    String b = realVar("b");
+    assertEquals(ReductionOperator.SUM,
+        getOperator(s, binary("plusExpr", "Freal", s, a)));
+    assertEquals(ReductionOperator.SUM,
+        getOperator(s, binary("plusExpr", "Freal", a, s)));
+    assertEquals(ReductionOperator.SUM,
+        getOperator(s, binary("minusExpr", "Freal", s, a)));
+    assertEquals(ReductionOperator.SUM, getOperator(s, binary("plusExpr",
+        "Freal", binary("minusExpr", "Freal", s, a), b)));
+    assertEquals(ReductionOperator.PRODUCT,
+        getOperator(s, binary("mulExpr", "Freal", a, s)));
+    assertEquals(ReductionOperator.MAX,
+        getOperator(s, call("Freal", "max", true, s, a)));
+    assertEquals(ReductionOperator.MIN,
+        getOperator(s, call("Freal", "min", true, a, s)));
+    assertEquals(ReductionOperator.AND,
+        getOperator(s, binary("logAndExpr", "Freal", s, a)));
+    assertEquals(ReductionOperator.OR,
+        getOperator(s, binary("logOrExpr", "Freal", s, a)));
+
+    // Not reductions
+    assertNull(getOperator(s, binary("minusExpr", "Freal", a, s)));
+    assertNull(getOperator(s, binary("mulExpr", "Freal", s, s)));
+    assertNull(getOperator(s, binary("plusExpr", "Freal", s,
+        binary("mulExpr", "Freal", s, a))));
+    assertNull(getOperator(s, binary("divExpr", "Freal", s, a)));
+    assertNull(getOperator(s, binary("plusExpr", "Freal", a, b)));
+    assertNull(getOperator(s, binary("plusExpr", "Freal",
+        binary("mulExpr", "Freal", s, a), b)));
+    assertNull(getOperator(s, call("Freal", "sqrt", true, s, a)));
+  }
+
+  @Test
+  public void analyzeTest() {
+    String s = realVar("s");
+    String m = realVar("m");
+    String p = realVar("p");
+    String t = realVar("t");
+    String l = realVar("l");
+    String a = realVar("a");
+    String body = "<body>" +
+        assign(s, binary("plusExpr", "Freal", s, a)) +
+        assign(s, binary("minusExpr", "Freal", s, realVar("b"))) +
+        assign(m, call("Freal", "max", true, m, a)) +
+        assign(p, binary("mulExpr", "Freal", p, a)) +
+        assign(p, binary("plusExpr", "Freal", p, a)) +
+        assign(t, binary("plusExpr", "Freal", t, a)) +
+        assign(realVar("c"), t) +
+        ifStmt(l, assign(l, binary("logAndExpr", "Freal", l, a)), null) +
+        "</body>";
+    Xnode region = XmlHelper.createXnode(body);
+    ReductionAnalysis analysis = new ReductionAnalysis(region);
+
+    Map<String, ReductionOperator> reductions = analysis.getReductions();
+    assertEquals(2, reductions.size());
+    assertEquals(ReductionOperator.SUM, reductions.get("s"));
+    assertEquals(ReductionOperator.MAX, reductions.get("m"));
+    assertTrue(analysis.isReduction("s"));
+    // Conflicting operators
+    assertFalse(analysis.isReduction("p"));
+    // Used outside of the reduction
+    assertFalse(analysis.isReduction("t"));
+    assertFalse(analysis.isReduction("l"));
+    assertEquals(2, analysis.getStatements("s").size());
+    assertTrue(analysis.getStatements("p").isEmpty());
+
+    Xnode maxStmt = region.matchAll(Xcode.F_ASSIGN_STATEMENT).get(2);
+    assertEquals(1, analysis.getReductions(maxStmt).size());
+    assertTrue(analysis.getReductions(maxStmt).containsKey("m"));
+    assertEquals(2, analysis.getReductions(region).size());
+
+    analysis.remove("m");
+    assertFalse(analysis.isReduction("m"));
+    assertTrue(analysis.getReductions(maxStmt).isEmpty());
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.directive.common;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import helper.TestConstant;
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the Directive class.
+ *
+ * @author clementval
+ */
+public class DirectiveTest {
+
+  @Test
+  public void generateModuleDataDeclarationsTest() {
+    Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
+    XcodeProgram xcodeml =
+        XcodeProgram.createFromFile(TestConstant.TEST_DECLARATIONS);
+    assertNotNull(xcodeml);
+    FmoduleDefinition modDef =
+        xcodeml.getGlobalDeclarationsTable().getModuleDefinition("mod1");
+    assertNotNull(modDef);
+    FfunctionDefinition fctDef = modDef.getFunctionDefinition("sub1");
+    assertNotNull(fctDef);
+
+    // Module array field
+    String hash = xcodeml.getTypeTable().generateHash(FortranType.ARRAY);
+    FbasicType arrayType = xcodeml.createBasicType(hash,
+        FortranType.REAL.toString(), Intent.NONE);
+    arrayType.addDimension(xcodeml.createEmptyAssumedShaped());
+    arrayType.setBooleanAttribute(Xattr.IS_ALLOCATABLE, true);
+    xcodeml.getTypeTable().add(arrayType);
+    modDef.getDeclarationTable().add(xcodeml.createVarDecl(hash, "field"));
+
+    // field(m) = v
+    fctDef.body().append(xcodeml.importNode(XmlHelper.createXnode(
+        "<FassignStatement><FarrayRef type=\"Freal\"><varRef type=\"" + hash +
+            "\"><Var type=\"" + hash + "\" scope=\"local\">field</Var>" +
+            "</varRef><arrayIndex><Var type=\"Fint\" scope=\"local\">m</Var>" +
+            "</arrayIndex></FarrayRef><Var type=\"Freal\" scope=\"local\">v" +
+            "</Var></FassignStatement>")));
+
+    List<String> vars =
+        Directive.generateModuleDataDeclarations(xcodeml, fctDef);
+    assertEquals(Collections.singletonList("field"), vars);
+    Xnode decl = modDef.getDeclarationTable().get("field");
+    Xnode pragma = decl.nextSibling();
+    assertNotNull(pragma);
+    assertEquals(Xcode.F_PRAGMA_STATEMENT, pragma.opcode());
+    assertEquals("acc declare create(field)", pragma.value());
+
+    // Directive is generated only once
+    assertEquals(vars,
+        Directive.generateModuleDataDeclarations(xcodeml, fctDef));
+    Xnode next = pragma.nextSibling();
+    assertTrue(next == null || next.opcode() != Xcode.F_PRAGMA_STATEMENT);
+  }
+}
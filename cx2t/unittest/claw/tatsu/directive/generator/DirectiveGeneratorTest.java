@@ -0,0 +1,135 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.directive.generator;
+
+import claw.tatsu.analysis.reduction.ReductionOperator;
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.wani.x2t.configuration.Configuration;
+import helper.TestConstant;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the data and reduction clauses and directives of the directive
+ * generators.
+ *
+ * @author clementval
+ */
+public class DirectiveGeneratorTest {
+
+  @Test
+  public void dataClauseTest() {
+    List<String> vars = Arrays.asList("q", "t");
+    List<String> none = Collections.emptyList();
+
+    Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
+    DirectiveGenerator generator = Context.get().getGenerator();
+    assertEquals("present(q,t)", generator.getPresentClause(vars));
+    assertEquals("pcreate(q,t)", generator.getCreateClause(vars));
+    assertArrayEquals(new String[]{"acc enter data copyin(q,t) create(z)"},
+        generator.getEnterDataDirective(vars, Collections.singletonList("z")));
+    assertArrayEquals(new String[]{"acc exit data delete(q,t)"},
+        generator.getExitDataDirective(none, vars));
+    assertNull(generator.getEnterDataDirective(none, none));
+    assertArrayEquals(new String[]{"acc declare create(q,t)"},
+        generator.getDeclareCreateDirective(vars));
+    assertNull(generator.getDeclareCreateDirective(none));
+
+    Context.init(CompilerDirective.OPENMP, Target.GPU, 80);
+    generator = Context.get().getGenerator();
+    assertEquals("map(present, alloc:q,t)", generator.getPresentClause(vars));
+    assertEquals("", generator.getPresentClause(none));
+    assertEquals("map(alloc:q,t)", generator.getCreateClause(vars));
+    assertArrayEquals(
+        new String[]{"omp target enter data map(to:q,t) map(alloc:z)"},
+        generator.getEnterDataDirective(vars, Collections.singletonList("z")));
+    assertArrayEquals(
+        new String[]{"omp target exit data map(from:z) map(release:q,t)"},
+        generator.getExitDataDirective(Collections.singletonList("z"), vars));
+    assertNull(generator.getExitDataDirective(null, none));
+    assertArrayEquals(new String[]{"omp declare target(q,t)"},
+        generator.getDeclareCreateDirective(vars));
+
+    Context.init(CompilerDirective.NONE, Target.CPU, 80);
+    generator = Context.get().getGenerator();
+    assertEquals("", generator.getPresentClause(vars));
+    assertNull(generator.getEnterDataDirective(vars, vars));
+    assertNull(generator.getDeclareCreateDirective(vars));
+  }
+
+  @Test
+  public void reductionClauseTest() {
+    Map<String, ReductionOperator> reductions = new LinkedHashMap<>();
+    reductions.put("s", ReductionOperator.SUM);
+    reductions.put("m", ReductionOperator.MAX);
+    reductions.put("t", ReductionOperator.SUM);
+
+    Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
+    DirectiveGenerator generator = Context.get().getGenerator();
+    assertEquals("reduction(+:s,t) reduction(max:m)",
+        generator.getReductionClauses(reductions));
+    assertEquals("reduction(+:s,t) reduction(max:m)",
+        generator.getLoopReductionClauses(reductions));
+    assertArrayEquals(
+        new String[]{"acc parallel private(i) reduction(+:s,t) " +
+            "reduction(max:m)"},
+        generator.getStartParallelDirective("private(i)", reductions));
+    assertArrayEquals(new String[]{"acc parallel"},
+        generator.getStartParallelDirective(null,
+            new LinkedHashMap<String, ReductionOperator>()));
+
+    Context.init(CompilerDirective.OPENMP, Target.GPU, 80);
+    generator = Context.get().getGenerator();
+    assertEquals("reduction(+:s,t) reduction(max:m)",
+        generator.getReductionClauses(reductions));
+    assertEquals("", generator.getLoopReductionClauses(reductions));
+
+    Context.init(CompilerDirective.OPENMP, Target.CPU, 80);
+    generator = Context.get().getGenerator();
+    assertEquals("reduction(+:s,t) reduction(max:m)",
+        generator.getLoopReductionClauses(reductions));
+    assertArrayEquals(new String[]{"omp parallel"},
+        generator.getStartParallelDirective(null, reductions));
+    assertArrayEquals(new String[]{"omp parallel private(a,b)"},
+        generator.getStartParallelDirective(
+            generator.getPrivateClause(Arrays.asList("a", "b")), reductions));
+
+    Context.init(CompilerDirective.NONE, Target.CPU, 80);
+    generator = Context.get().getGenerator();
+    assertEquals("", generator.getReductionClauses(reductions));
+  }
+
+  @Test
+  public void teamsClauseTest() {
+    try {
+      Configuration.get().load(TestConstant.TEST_CONFIG, null);
+    } catch(Exception e) {
+      fail();
+    }
+    Context.init(CompilerDirective.OPENMP, Target.GPU, 80);
+    DirectiveGenerator generator = Context.get().getGenerator();
+    assertArrayEquals(new String[]{"omp target",
+            "omp teams thread_limit(256) num_teams(65536)"},
+        generator.getStartParallelDirective(null));
+    assertArrayEquals(new String[]{"omp target",
+            "omp teams private(x) thread_limit(256) num_teams(65536)"},
+        generator.getStartParallelDirective(" private(x) "));
+
+    Map<String, ReductionOperator> reductions = new LinkedHashMap<>();
+    reductions.put("s", ReductionOperator.SUM);
+    assertArrayEquals(new String[]{"omp target map(tofrom:s)",
+            "omp teams reduction(+:s) thread_limit(256) num_teams(65536)"},
+        generator.getStartParallelDirective(null, reductions));
+  }
+}
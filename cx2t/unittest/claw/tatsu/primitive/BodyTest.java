@@ -0,0 +1,94 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.primitive;
+
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static helper.XmlHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the Body class.
+ *
+ * @author clementval
+ */
+public class BodyTest {
+
+  private static String arrayRef(String type, String array, String index) {
+    return XmlHelper.arrayRef("Freal", type, array, arrayIndex(intVar(index)));
+  }
+
+  @Test
+  public void scalarReplacementTest() throws IllegalTransformationException {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    String hash = xcodeml.getTypeTable().generateHash(FortranType.ARRAY);
+    FbasicType arrayType = xcodeml.createBasicType(hash,
+        FortranType.REAL.toString(), Intent.NONE);
+    arrayType.addDimension(xcodeml.createEmptyAssumedShaped());
+    xcodeml.getTypeTable().add(arrayType);
+
+    // a(i) = a(i) + b(i) / c(i) = a(i) + b(i) / d(j) = d(j) / x = e(i) + e(k)
+    // k = 1 / y = e(k) + e(k)
+    String a = arrayRef(hash, "a", "i");
+    String b = arrayRef(hash, "b", "i");
+    String ek = arrayRef(hash, "e", "k");
+    Xnode body = xcodeml.importNode(XmlHelper.createXnode("<body>" +
+        assign(a, binary("plusExpr", "Freal", a, b)) +
+        assign(arrayRef(hash, "c", "i"), binary("plusExpr", "Freal", a, b)) +
+        assign(arrayRef(hash, "d", "j"), arrayRef(hash, "d", "j")) +
+        assign(intVar("x"),
+            binary("plusExpr", "Freal", arrayRef(hash, "e", "i"), ek)) +
+        assign(intVar("k"), intConst(1)) +
+        assign(intVar("y"), binary("plusExpr", "Freal", ek, ek)) +
+        "</body>"));
+
+    List<String> scalars = Body.scalarReplacement(xcodeml, fctDef, body);
+    // a is read after being written, b is read twice, e(k) subscript changes
+    assertEquals(Arrays.asList("claw_scalar_0", "claw_scalar_1"), scalars);
+    assertTrue(fctDef.getDeclarationTable().contains("claw_scalar_0"));
+
+    List<Xnode> stmts = body.children();
+    assertEquals(9, stmts.size());
+    // Load a and b before the first statement
+    assertEquals("claw_scalar_0", stmts.get(0).child(Xnode.LHS).value());
+    assertEquals(Xcode.F_ARRAY_REF, stmts.get(0).child(Xnode.RHS).opcode());
+    assertEquals("claw_scalar_1", stmts.get(1).child(Xnode.LHS).value());
+    // a(i) = a(i) + b(i) uses the scalars
+    assertEquals("claw_scalar_0", stmts.get(2).child(Xnode.LHS).value());
+    assertEquals("claw_scalar_1",
+        stmts.get(2).child(Xnode.RHS).child(1).value());
+    // Store a after its last write
+    assertEquals(Xcode.F_ARRAY_REF, stmts.get(3).child(Xnode.LHS).opcode());
+    assertEquals("claw_scalar_0", stmts.get(3).child(Xnode.RHS).value());
+    assertEquals("claw_scalar_0",
+        stmts.get(4).child(Xnode.RHS).child(0).value());
+    // d(j) = d(j) is read only once
+    assertEquals(Xcode.F_ARRAY_REF, stmts.get(5).child(Xnode.LHS).opcode());
+    assertEquals(Xcode.F_ARRAY_REF,
+        stmts.get(8).child(Xnode.RHS).child(0).opcode());
+
+    // Other statements break the sequence
+    body = xcodeml.importNode(XmlHelper.createXnode("<body>" +
+        assign(intVar("x"), b) +
+        "<FpragmaStatement>acc loop</FpragmaStatement>" +
+        assign(intVar("y"), b) + "</body>"));
+    assertEquals(Collections.<String>emptyList(),
+        Body.scalarReplacement(xcodeml, fctDef, body));
+  }
+}
@@ -8,9 +8,12 @@ import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import helper.TestConstant;
+import helper.XmlHelper;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import static junit.framework.TestCase.*;
@@ -44,4 +47,38 @@ public class ConditionTest {
     assertTrue(Condition.dependsOn(condition, Collections.singleton("t")));
     assertFalse(Condition.dependsOn(condition, Collections.singleton("k")));
   }
+
+  @Test
+  public void isInvariantTest() {
+    // flag .and. t(k) > 0.0
+    Xnode condition = XmlHelper.createXnode("<condition>" +
+        "<logAndExpr type=\"Flogical\">" +
+        "<Var type=\"Flogical\" scope=\"local\">flag</Var>" +
+        "<logGTExpr type=\"Flogical\"><FarrayRef type=\"Freal\">" +
+        "<varRef type=\"Freal\"><Var type=\"Freal\" scope=\"local\">t</Var>" +
+        "</varRef><arrayIndex><Var type=\"Fint\" scope=\"local\">k</Var>" +
+        "</arrayIndex></FarrayRef>" +
+        "<FrealConstant type=\"Freal\">0.0</FrealConstant></logGTExpr>" +
+        "</logAndExpr></condition>");
+    assertTrue(Condition.isInvariant(condition,
+        Collections.<String>emptySet()));
+    assertTrue(Condition.isInvariant(condition,
+        new HashSet<>(Arrays.asList("i", "q"))));
+    assertFalse(Condition.isInvariant(condition, Collections.singleton("t")));
+    assertFalse(Condition.isInvariant(condition, Collections.singleton("k")));
+    assertFalse(Condition.isInvariant(condition,
+        Collections.singleton("flag")));
+    assertFalse(Condition.isInvariant(null, Collections.singleton("t")));
+
+    // Select case value calling a function
+    Xnode value = XmlHelper.createXnode("<value><functionCall type=\"Fint\">" +
+        "<name>get_mode</name><arguments></arguments></functionCall></value>");
+    assertFalse(Condition.isInvariant(value, Collections.<String>emptySet()));
+    value = XmlHelper.createXnode("<value><functionCall type=\"Fint\" " +
+        "is_intrinsic=\"true\"><name>abs</name><arguments>" +
+        "<Var type=\"Fint\" scope=\"local\">mode</Var></arguments>" +
+        "</functionCall></value>");
+    assertTrue(Condition.isInvariant(value, Collections.singleton("k")));
+    assertFalse(Condition.isInvariant(value, Collections.singleton("mode")));
+  }
 }
@@ -0,0 +1,70 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.primitive;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the Function class.
+ *
+ * @author clementval
+ */
+public class FunctionTest {
+
+  @Test
+  public void inlineTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
+    assertEquals(2, fctDefs.size());
+    FfunctionDefinition caller = fctDefs.get(0);
+    FfunctionDefinition callee = fctDefs.get(1);
+    Xnode fctCall = caller.body().matchDescendant(Xcode.FUNCTION_CALL);
+    assertNotNull(fctCall);
+
+    // istart and iend are initialized so implicitly saved
+    assertFalse(Function.canBeInlined(xcodeml, caller, fctCall, callee, 10));
+    for(String local : new String[]{"istart", "iend"}) {
+      callee.getDeclarationTable().get(local).
+          matchDirectDescendant(Xcode.VALUE).delete();
+    }
+    assertTrue(Function.canBeInlined(xcodeml, caller, fctCall, callee, 10));
+    // The do statement and its two print statements
+    assertFalse(Function.canBeInlined(xcodeml, caller, fctCall, callee, 2));
+    assertFalse(Function.canBeInlined(xcodeml, callee, fctCall, callee, 10));
+
+    Function.inline(xcodeml, caller, fctCall, callee);
+    assertNull(caller.body().matchDescendant(Xcode.FUNCTION_CALL));
+    Xnode doStmt = caller.body().matchDirectDescendant(Xcode.F_DO_STATEMENT);
+    assertNotNull(doStmt);
+    assertEquals("clawloop_i", Loop.extractInductionVariable(doStmt));
+    for(String local : new String[]{"clawloop_i", "clawloop_istart",
+        "clawloop_iend"})
+    {
+      assertTrue(caller.getSymbolTable().contains(local));
+      assertTrue(caller.getDeclarationTable().contains(local));
+    }
+
+    // Dummy arguments are replaced by the actual arguments
+    List<Xnode> varRefs = doStmt.matchAll(Xcode.VAR_REF);
+    assertEquals(2, varRefs.size());
+    assertEquals("value1", varRefs.get(0).firstChild().value());
+    assertEquals("A7fca03c07980", varRefs.get(0).getType());
+    assertEquals("A7fca03c07980", varRefs.get(0).firstChild().getType());
+    assertEquals("A7fca03c08230", varRefs.get(1).getType());
+
+    // Callee is left unchanged
+    assertEquals("i", Loop.extractInductionVariable(
+        callee.body().matchDirectDescendant(Xcode.F_DO_STATEMENT)));
+  }
+}
@@ -0,0 +1,352 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.primitive;
+
+import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.common.Xscope;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static helper.XmlHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the Loop class.
+ *
+ * @author clementval
+ */
+public class LoopTest {
+
+  private static Xnode loop(String lower, String upper, String step) {
+    return XmlHelper.createXnode(
+        doStmt(intVar("i"), lower, upper, step, ""));
+  }
+
+  @Test
+  public void iterationCountTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    FbasicType parameter =
+        xcodeml.createBasicType(FortranType.INTEGER, Intent.NONE);
+    parameter.setBooleanAttribute(Xattr.IS_PARAMETER, true);
+    xcodeml.getTypeTable().add(parameter);
+    FbasicType local = xcodeml.createBasicType(FortranType.INTEGER,
+        Intent.NONE);
+    xcodeml.getTypeTable().add(local);
+
+    FfunctionDefinition fctDef = XmlHelper.createXfunctionDefinitionFromString(
+        "<FfunctionDefinition><name type=\"Fint\">f</name><symbols>" +
+            "</symbols><declarations>" +
+            "<varDecl><name type=\"" + parameter.getType() + "\">nz</name>" +
+            "<value>" + intConst(60) + "</value></varDecl>" +
+            "<varDecl><name type=\"" + parameter.getType() + "\">nk</name>" +
+            "<value>" + intVar("nz") + "</value></varDecl>" +
+            "<varDecl><name type=\"" + local.getType() + "\">n</name>" +
+            "<value>" + intConst(10) + "</value></varDecl>" +
+            "</declarations><body></body></FfunctionDefinition>");
+
+    assertEquals(10, Loop.getIterationCount(xcodeml,
+        loop(intConst(1), intConst(10), null), fctDef));
+    assertEquals(5, Loop.getIterationCount(xcodeml,
+        loop(intConst(1), intConst(10), intConst(2)), fctDef));
+    assertEquals(0, Loop.getIterationCount(xcodeml,
+        loop(intConst(10), intConst(1), intConst(1)), fctDef));
+    assertEquals(4, Loop.getIterationCount(xcodeml,
+        loop(intConst(10), intConst(1), "<unaryMinusExpr type=\"Fint\">" +
+            intConst(3) + "</unaryMinusExpr>"), fctDef));
+
+    // Named constants
+    assertEquals(60, Loop.getIterationCount(xcodeml,
+        loop(intConst(1), intVar("nz"), intConst(1)), fctDef));
+    assertEquals(59, Loop.getIterationCount(xcodeml,
+        loop(intConst(2), intVar("nk"), intConst(1)), fctDef));
+
+    // Not known at compile time
+    assertEquals(-1, Loop.getIterationCount(xcodeml,
+        loop(intConst(1), intVar("n"), intConst(1)), fctDef));
+    assertEquals(-1, Loop.getIterationCount(xcodeml,
+        loop(intConst(1), intVar("nproma"), intConst(1)), fctDef));
+    assertEquals(-1, Loop.getIterationCount(xcodeml,
+        loop(intConst(1), intConst(10), intConst(0)), fctDef));
+    assertEquals(-1, Loop.getIterationCount(xcodeml, null, fctDef));
+
+    // Constant expressions
+    assertEquals(Integer.valueOf(60), Loop.evaluateConstant(xcodeml,
+        XmlHelper.createXnode(intVar("nk")), fctDef));
+    assertEquals(Integer.valueOf(-3), Loop.evaluateConstant(xcodeml,
+        XmlHelper.createXnode("<unaryMinusExpr type=\"Fint\">" +
+            intConst(3) + "</unaryMinusExpr>"), fctDef));
+    assertNull(Loop.evaluateConstant(xcodeml,
+        XmlHelper.createXnode(intVar("n")), fctDef));
+    assertNull(Loop.evaluateConstant(xcodeml, null, fctDef));
+  }
+
+  private static Xnode createLoop(XcodeProgram xcodeml, String induction,
+                                  String upper)
+  {
+    Xnode range = xcodeml.createNode(Xcode.INDEX_RANGE);
+    Xnode lowerBound = xcodeml.createNode(Xcode.LOWER_BOUND);
+    lowerBound.append(xcodeml.createIntConstant(1));
+    Xnode upperBound = xcodeml.createNode(Xcode.UPPER_BOUND);
+    upperBound.append(
+        xcodeml.createVar(FortranType.INTEGER, upper, Xscope.LOCAL));
+    range.append(lowerBound);
+    range.append(upperBound);
+    return xcodeml.createDoStmt(
+        xcodeml.createVar(FortranType.INTEGER, induction, Xscope.LOCAL), range);
+  }
+
+  private static Xnode createAssign(XcodeProgram xcodeml, String lhs,
+                                    String rhs)
+  {
+    Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    assign.append(xcodeml.createVar(FortranType.INTEGER, lhs, Xscope.LOCAL));
+    assign.append(xcodeml.createVar(FortranType.INTEGER, rhs, Xscope.LOCAL));
+    return assign;
+  }
+
+  @Test
+  public void unrollTest() throws IllegalTransformationException {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    Xnode body = xcodeml.createNode(Xcode.BODY);
+    Xnode loop = createLoop(xcodeml, "i", "n");
+    loop.body().append(createAssign(xcodeml, "x", "i"));
+    body.append(loop);
+
+    Loop.unroll(xcodeml, new NestedDoStatement(loop), 4);
+
+    // Main loop by blocks of 4 iterations followed by the remainder loop
+    assertEquals(2, body.children().size());
+    Xnode range = loop.matchDirectDescendant(Xcode.INDEX_RANGE);
+    assertEquals(Xcode.MINUS_EXPR,
+        range.matchDirectDescendant(Xcode.UPPER_BOUND).child(0).opcode());
+    assertEquals("4", range.matchDirectDescendant(Xcode.STEP).child(0).value());
+    List<Xnode> stmts = loop.body().children();
+    assertEquals(4, stmts.size());
+    assertEquals(Xcode.VAR, stmts.get(0).child(Xnode.RHS).opcode());
+    for(int i = 1; i < 4; ++i) {
+      Xnode index = stmts.get(i).child(Xnode.RHS);
+      assertEquals(Xcode.PLUS_EXPR, index.opcode());
+      assertEquals("i", index.child(Xnode.LHS).value());
+      assertEquals(String.valueOf(i), index.child(Xnode.RHS).value());
+    }
+    Xnode remainder = body.lastChild();
+    assertEquals(Xcode.F_DO_STATEMENT, remainder.opcode());
+    assertEquals(1, remainder.body().children().size());
+    assertEquals(Xcode.PLUS_EXPR, remainder.matchSeq(Xcode.INDEX_RANGE,
+        Xcode.LOWER_BOUND).child(0).opcode());
+
+    // Unroll-and-jam of the outer loop
+    body = xcodeml.createNode(Xcode.BODY);
+    Xnode outer = createLoop(xcodeml, "i", "n");
+    Xnode inner = createLoop(xcodeml, "k", "nz");
+    inner.body().append(createAssign(xcodeml, "x", "i"));
+    outer.body().append(inner);
+    body.append(outer);
+
+    Loop.unroll(xcodeml, new NestedDoStatement(outer, 2), 2);
+    assertEquals(2, body.children().size());
+    assertEquals(1, outer.body().children().size());
+    assertEquals(2, inner.body().children().size());
+    assertEquals(Xcode.PLUS_EXPR,
+        inner.body().lastChild().child(Xnode.RHS).opcode());
+    assertEquals(1, body.lastChild().body().firstChild().body().children()
+        .size());
+  }
+
+  private static String arrayRef(String array, List<String> inductions) {
+    String[] subscripts = new String[inductions.size()];
+    for(int i = 0; i < inductions.size(); ++i) {
+      subscripts[i] = arrayIndex(intVar(inductions.get(i)));
+    }
+    return XmlHelper.arrayRef("Fint", "Fint", array, subscripts);
+  }
+
+  @Test
+  public void strideOneOrderTest() throws IllegalTransformationException {
+    // C-style order: a(i,j,k) in do i / do j / do k
+    List<String> ijk = Arrays.asList("i", "j", "k");
+    Xnode outer = XmlHelper.createXnode(nest(ijk, intVar("n"),
+        assign(arrayRef("a", ijk), arrayRef("b", ijk))));
+    NestedDoStatement group = new NestedDoStatement(outer);
+    List<String> order = Loop.getStrideOneOrder(group);
+    assertEquals(Arrays.asList("k", "j", "i"), order);
+    Loop.reorder(group, order);
+    assertEquals(Arrays.asList("k", "j", "i"),
+        new NestedDoStatement(outer).getInductionVariables());
+
+    // Already stride-1
+    List<String> kji = Arrays.asList("k", "j", "i");
+    outer = XmlHelper.createXnode(nest(ijk, intVar("n"),
+        assign(arrayRef("a", kji), intVar("x"))));
+    assertEquals(ijk, Loop.getStrideOneOrder(new NestedDoStatement(outer)));
+
+    // Generic permutation of four nested do statements
+    List<String> ijkl = Arrays.asList("i", "j", "k", "l");
+    outer = XmlHelper.createXnode(nest(ijkl, intVar("n"),
+        assign(arrayRef("a", ijkl), intVar("x"))));
+    group = new NestedDoStatement(outer);
+    order = Loop.getStrideOneOrder(group);
+    assertEquals(Arrays.asList("l", "k", "j", "i"), order);
+    Loop.reorder(group, order);
+    assertEquals(Arrays.asList("l", "k", "j", "i"),
+        new NestedDoStatement(outer).getInductionVariables());
+  }
+
+  @Test
+  public void unswitchTest() throws IllegalTransformationException {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+
+    // do i / x = i / if(flag) then y = i else z = i / end do
+    Xnode body = XmlHelper.createXnode("<body>" +
+        nest(Collections.singletonList("i"), intVar("n"),
+            assign(intVar("x"), intVar("i")) + ifStmt(intVar("flag"),
+                assign(intVar("y"), intVar("i")),
+                assign(intVar("z"), intVar("i")))) + "</body>");
+    Xnode doStmt = body.firstChild();
+    Xnode ifStmt = doStmt.body().lastChild();
+    assertEquals(2, Loop.getBranchBodies(ifStmt).size());
+
+    Xnode newIf = Loop.unswitch(xcodeml, doStmt, ifStmt);
+    assertEquals(1, body.children().size());
+    assertEquals(Xcode.F_IF_STATEMENT, body.firstChild().opcode());
+    List<Xnode> bodies = Loop.getBranchBodies(newIf);
+    assertEquals(2, bodies.size());
+    String[] expected = {"y", "z"};
+    for(int i = 0; i < bodies.size(); ++i) {
+      assertEquals(1, bodies.get(i).children().size());
+      Xnode copy = bodies.get(i).firstChild();
+      assertEquals(Xcode.F_DO_STATEMENT, copy.opcode());
+      List<Xnode> stmts = copy.body().children();
+      assertEquals(2, stmts.size());
+      assertEquals("x", stmts.get(0).child(Xnode.LHS).value());
+      assertEquals(expected[i], stmts.get(1).child(Xnode.LHS).value());
+    }
+
+    // do i / select case(mode) case(1) y = i case default z = i / end do
+    body = XmlHelper.createXnode("<body>" +
+        nest(Collections.singletonList("i"), intVar("n"),
+            "<FselectCaseStatement><value>" + intVar("mode") + "</value>" +
+            "<FcaseLabel><value>" + intConst(1) + "</value><body>" +
+            assign(intVar("y"), intVar("i")) +
+            "</body></FcaseLabel><FcaseLabel><body>" +
+            assign(intVar("z"), intVar("i")) + "</body></FcaseLabel>" +
+            "</FselectCaseStatement>") + "</body>");
+    doStmt = body.firstChild();
+    Xnode select = Loop.unswitch(xcodeml, doStmt, doStmt.body().firstChild());
+    assertEquals(Xcode.F_SELECT_CASE_STATEMENT, body.firstChild().opcode());
+    bodies = Loop.getBranchBodies(select);
+    assertEquals(2, bodies.size());
+    for(int i = 0; i < bodies.size(); ++i) {
+      Xnode copy = bodies.get(i).firstChild();
+      assertEquals(1, copy.body().children().size());
+      assertEquals(expected[i],
+          copy.body().firstChild().child(Xnode.LHS).value());
+    }
+  }
+
+  @Test
+  public void mightFailTest() {
+    assertFalse(Loop.mightFail(null));
+    assertFalse(Loop.mightFail(XmlHelper.createXnode(
+        binary("plusExpr", "Fint", intVar("x"), intConst(1)))));
+    assertFalse(Loop.mightFail(XmlHelper.createXnode(
+        call("Freal", "abs", true, realVar("x")))));
+    assertTrue(Loop.mightFail(XmlHelper.createXnode(
+        binary("divExpr", "Freal", realVar("x"), realVar("y")))));
+    assertTrue(Loop.mightFail(XmlHelper.createXnode("<condition>" +
+        call("Freal", "sqrt", true, realVar("x")) + "</condition>")));
+    assertTrue(Loop.mightFail(XmlHelper.createXnode("<condition>" +
+        call("Freal", "f", false, realVar("x")) + "</condition>")));
+    assertTrue(Loop.mightFail(XmlHelper.createXnode("<condition>" +
+        arrayRef("a", Collections.singletonList("j")) + "</condition>")));
+  }
+
+  @Test
+  public void hoistInvariantExpressionsTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    String cd = binary("mulExpr", "Fint", intVar("c"), intVar("d"));
+
+    // do i
+    //   y = c * d + i / z = c * d / w = k / m / v = abs(e)
+    //   if(flag) then u = c * e
+    // end do
+    Xnode body = xcodeml.importNode(XmlHelper.createXnode("<body>" +
+        nest(Collections.singletonList("i"), intVar("n"),
+            assign(intVar("y"), binary("plusExpr", "Fint", cd, intVar("i"))) +
+                assign(intVar("z"), cd) +
+                assign(intVar("w"),
+                    binary("divExpr", "Fint", intVar("k"), intVar("m"))) +
+                assign(intVar("v"), call("Fint", "abs", true, intVar("e"))) +
+                ifStmt(intVar("flag"), assign(intVar("u"),
+                    binary("mulExpr", "Fint", intVar("c"), intVar("e"))),
+                    null)) + "</body>"));
+    Xnode doStmt = body.firstChild();
+
+    assertEquals(Arrays.asList("claw_invariant_0", "claw_invariant_1"),
+        Loop.hoistInvariantExpressions(xcodeml, fctDef, doStmt, doStmt));
+    assertEquals(3, body.children().size());
+    assertEquals("claw_invariant_0", body.child(0).child(Xnode.LHS).value());
+    assertEquals(Xcode.MUL_EXPR, body.child(0).child(Xnode.RHS).opcode());
+    assertEquals("claw_invariant_1", body.child(1).child(Xnode.LHS).value());
+    assertEquals(Xcode.FUNCTION_CALL, body.child(1).child(Xnode.RHS).opcode());
+    assertTrue(fctDef.getDeclarationTable().contains("claw_invariant_0"));
+    assertTrue(fctDef.getSymbolTable().contains("claw_invariant_1"));
+
+    List<Xnode> stmts = doStmt.body().children();
+    assertEquals("claw_invariant_0",
+        stmts.get(0).child(Xnode.RHS).firstChild().value());
+    assertEquals("claw_invariant_0", stmts.get(1).child(Xnode.RHS).value());
+    // Division might fail if the loop is not executed
+    assertEquals(Xcode.DIV_EXPR, stmts.get(2).child(Xnode.RHS).opcode());
+    assertEquals("claw_invariant_1", stmts.get(3).child(Xnode.RHS).value());
+    // Conditional statements are not evaluated at each iteration
+    Xnode conditional = stmts.get(4).matchDescendant(Xcode.F_ASSIGN_STATEMENT);
+    assertEquals(Xcode.MUL_EXPR, conditional.child(Xnode.RHS).opcode());
+
+    // Nothing invariant anymore
+    assertTrue(
+        Loop.hoistInvariantExpressions(xcodeml, fctDef, doStmt, doStmt).
+            isEmpty());
+  }
+
+  @Test
+  public void hoistFailingExpressionsTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    String stmts = assign(intVar("y"),
+        binary("divExpr", "Freal", intVar("c"), intVar("d"))) +
+        assign(intVar("z"), call("Freal", "sqrt", true, intVar("e")));
+
+    // do i = 1, n: the loop might not be executed
+    Xnode body = xcodeml.importNode(XmlHelper.createXnode("<body>" +
+        nest(Collections.singletonList("i"), intVar("n"), stmts) + "</body>"));
+    Xnode doStmt = body.firstChild();
+    assertTrue(Loop.hoistInvariantExpressions(xcodeml, fctDef, doStmt,
+        doStmt).isEmpty());
+
+    // do i = 1, 10: the loop is executed
+    doStmt.matchDescendant(Xcode.UPPER_BOUND).firstChild().
+        insertAfter(xcodeml.createIntConstant(10));
+    doStmt.matchDescendant(Xcode.UPPER_BOUND).firstChild().delete();
+    assertEquals(2, Loop.hoistInvariantExpressions(xcodeml, fctDef, doStmt,
+        doStmt).size());
+    assertEquals(Xcode.DIV_EXPR, body.child(0).child(Xnode.RHS).opcode());
+    assertEquals(Xcode.FUNCTION_CALL, body.child(1).child(Xnode.RHS).opcode());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.primitive;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.xcodeml.abstraction.TimingRegion;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the Timing class.
+ *
+ * @author clementval
+ */
+public class TimingTest {
+
+  private static void assertTimingCall(Xnode stmt, String routine, String id,
+                                       String line, String fctName)
+  {
+    assertNotNull(stmt);
+    assertEquals(Xcode.EXPR_STATEMENT, stmt.opcode());
+    Xnode fctCall = stmt.matchDirectDescendant(Xcode.FUNCTION_CALL);
+    assertNotNull(fctCall);
+    assertEquals(routine, fctCall.matchDirectDescendant(Xcode.NAME).value());
+    List<Xnode> args =
+        fctCall.matchDirectDescendant(Xcode.ARGUMENTS).children();
+    assertEquals(3, args.size());
+    assertEquals(id, args.get(0).value());
+    assertEquals(line, args.get(1).value());
+    assertEquals(fctName, args.get(2).value());
+  }
+
+  @Test
+  public void instrumentTest() {
+    Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
+    FfunctionDefinition caller = fctDefs.get(0);
+    FfunctionDefinition callee = fctDefs.get(1);
+    Xnode doStmt = callee.body().matchDirectDescendant(Xcode.F_DO_STATEMENT);
+    assertNotNull(doStmt);
+
+    assertTrue(Timing.instrument(xcodeml, doStmt, doStmt, doStmt.lineNo(),
+        "parallel loop"));
+    assertTimingCall(doStmt.prevSibling(), Timing.START_ROUTINE, "1", "19",
+        "clawloop");
+    assertTimingCall(doStmt.nextSibling(), Timing.STOP_ROUTINE, "1", "19",
+        "clawloop");
+    assertTrue(callee.getDeclarationTable().contains(Timing.MODULE_NAME));
+    assertTrue(callee.getSymbolTable().contains(Timing.START_ROUTINE));
+    assertTrue(callee.getSymbolTable().contains(Timing.STOP_ROUTINE));
+
+    // Statements nested in a parallel region are not instrumented
+    doStmt.insertBefore(xcodeml.createPragma("acc parallel loop", 80).get(0));
+    Xnode print = doStmt.body().firstChild();
+    assertFalse(Timing.instrument(xcodeml, print, print, print.lineNo(),
+        "parallel"));
+
+    // Line of the function is used if the region has none
+    Xnode exprStmt = caller.body().matchDirectDescendant(Xcode.EXPR_STATEMENT);
+    assertNotNull(exprStmt);
+    assertTrue(Timing.instrument(xcodeml, exprStmt, exprStmt, 0, "forward"));
+    assertTimingCall(exprStmt.prevSibling(), Timing.START_ROUTINE, "2", "3",
+        "loop_extract");
+
+    // Functions called from the device are not instrumented
+    callee.body().insert(xcodeml.createPragma("acc routine seq", 80).get(0));
+    Xnode stopCall = doStmt.nextSibling();
+    assertFalse(Timing.instrument(xcodeml, stopCall, stopCall, 0, "parallel"));
+
+    List<TimingRegion> regions = Context.get().getTimingRegions();
+    assertEquals(2, regions.size());
+    assertEquals("clawloop", regions.get(0).getRoutine());
+    assertEquals(19, regions.get(0).getLineNo());
+    assertEquals("parallel loop", regions.get(0).getKind());
+    assertEquals(2, regions.get(1).getId());
+    assertEquals("forward", regions.get(1).getKind());
+  }
+}
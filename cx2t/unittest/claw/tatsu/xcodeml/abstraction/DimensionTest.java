@@ -4,6 +4,7 @@
  */
 package claw.tatsu.xcodeml.abstraction;
 
+import claw.tatsu.common.Target;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
@@ -92,4 +93,23 @@ public class DimensionTest {
     assertEquals(Xcode.VAR, upperNode.firstChild().opcode());
     assertEquals("nend", upperNode.firstChild().value());
   }
+
+  @Test
+  public void targetInsertionPositionTest() {
+    assertEquals(InsertionPosition.BEFORE,
+        InsertionPosition.forTarget(Target.GPU));
+    assertEquals(InsertionPosition.AFTER,
+        InsertionPosition.forTarget(Target.CPU));
+    assertEquals(InsertionPosition.AFTER,
+        InsertionPosition.forTarget(Target.ARM));
+    assertEquals(InsertionPosition.BEFORE, InsertionPosition.forTarget(null));
+
+    PromotionInfo info = new PromotionInfo("a");
+    info.readDimensionsFromString("nproma(1:nend),:");
+    assertEquals(InsertionPosition.BEFORE,
+        info.getDimensions().get(0).getInsertionPosition());
+    info.getDimensions().get(0).
+        setInsertionPosition(InsertionPosition.forTarget(Target.CPU));
+    assertEquals(":,nproma(1:nend)", info.getFormattedDimensions());
+  }
 }
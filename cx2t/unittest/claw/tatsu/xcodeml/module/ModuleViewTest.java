@@ -0,0 +1,95 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.primitive.Xmod;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
+import helper.TestConstant;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test features of the ModuleView and ModuleCache classes.
+ *
+ * @author clementval
+ */
+public class ModuleViewTest {
+
+  private static final String MODULE_FILE =
+      TestConstant.TEST_MODULE_DIR + "/mo_view.xmod";
+
+  @Test
+  public void lazyIndexTest() {
+    assertTrue(new File(MODULE_FILE).exists());
+    ModuleView view =
+        new ModuleView("mo_view", TestConstant.TEST_MODULE_DIR, MODULE_FILE);
+    assertEquals("mo_view", view.getName());
+    assertEquals(MODULE_FILE, view.getFile());
+
+    // Index is built without materializing the module
+    assertTrue(view.contains("compute_column"));
+    assertTrue(view.contains("nproma"));
+    assertFalse(view.contains("unknown"));
+    assertEquals("F7fca03c08d80", view.getType("compute_column"));
+    assertEquals(3, view.typeCount());
+    assertFalse(view.isLoaded());
+
+    // Only the function type entry is read
+    FfunctionType fctType = view.getFunctionType("compute_column");
+    assertNotNull(fctType);
+    assertEquals("F7fca03c08d80", fctType.getType());
+    assertEquals(2, fctType.getParameters().size());
+    assertEquals("t", fctType.getParameters().get(0).value());
+    assertEquals("q", fctType.getParameters().get(1).value());
+    assertNull(view.getFunctionType("nproma"));
+    assertNull(view.getFunctionType("unknown"));
+    assertFalse(view.isLoaded());
+
+    // Full module is materialized on demand
+    FortranModule module = view.getModule();
+    assertNotNull(module);
+    assertTrue(view.isLoaded());
+    assertSame(module, view.getModule());
+    assertEquals(3, module.getTypeTable().size());
+    FfunctionType loaded = view.getFunctionType("compute_column");
+    assertNotNull(loaded);
+    assertSame(module.getTypeTable().getFunctionType("F7fca03c08d80"),
+        loaded);
+  }
+
+  @Test
+  public void cacheTest() {
+    Context.init(CompilerDirective.NONE, Target.CPU, 80);
+    ModuleCache cache = Context.get().getModuleCache();
+    cache.addSearchPath(TestConstant.TEST_MODULE_DIR);
+
+    FortranModule module = Xmod.find("mo_view");
+    assertNotNull(module);
+    assertSame(module, Xmod.find("mo_view"));
+    assertSame(cache.getView("mo_view", TestConstant.TEST_MODULE_DIR,
+        TestConstant.TEST_MODULE_DIR + "/mo_view.xmod"),
+        cache.getView("mo_view", TestConstant.TEST_MODULE_DIR,
+            TestConstant.TEST_MODULE_DIR + "/mo_view.xmod"));
+    assertNull(Xmod.find("mo_unknown"));
+    assertNull(Xmod.findClawView("mo_view"));
+
+    // Unmodified modules are not written back
+    cache.add("mo_view", module);
+    assertFalse(module.isModified());
+    try {
+      cache.write(2);
+    } catch(Exception e) {
+      fail();
+    }
+    assertFalse(new File(module.getFullPath()).exists());
+  }
+}
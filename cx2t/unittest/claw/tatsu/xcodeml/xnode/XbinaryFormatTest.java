@@ -0,0 +1,92 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import helper.TestConstant;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test features of the XbinaryFormat class.
+ *
+ * @author clementval
+ */
+public class XbinaryFormatTest {
+
+  @Test
+  public void roundTripTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    assertNotNull(xcodeml);
+    assertFalse(XbinaryFormat.isBinary(TestConstant.TEST_DATA));
+
+    File output = null;
+    try {
+      output = File.createTempFile("claw_binary", ".xml");
+      xcodeml.writeBinary(output.getAbsolutePath());
+      assertTrue(XbinaryFormat.isBinary(output.getAbsolutePath()));
+
+      XcodeProgram binary =
+          XcodeProgram.createFromFile(output.getAbsolutePath());
+      assertNotNull(binary);
+      assertEquals(xcodeml.getAllFctDef().size(),
+          binary.getAllFctDef().size());
+      assertEquals(xcodeml.getTypeTable().size(),
+          binary.getTypeTable().size());
+      assertEquals(xcodeml.getGlobalSymbolsTable().size(),
+          binary.getGlobalSymbolsTable().size());
+      assertEquals(xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT).size(),
+          binary.matchAll(Xcode.F_PRAGMA_STATEMENT).size());
+
+      // Same content is read back, only indentation is dropped
+      Document fromXml = XnodeUtil.readFile(TestConstant.TEST_DATA);
+      Document fromBinary = XnodeUtil.readFile(output.getAbsolutePath());
+      assertNotNull(fromXml);
+      assertNotNull(fromBinary);
+      assertEquals(
+          fromXml.getDocumentElement().getTextContent().replaceAll("\\s", ""),
+          fromBinary.getDocumentElement().getTextContent().
+              replaceAll("\\s", ""));
+      assertEquals(fromXml.getElementsByTagName("*").getLength(),
+          fromBinary.getElementsByTagName("*").getLength());
+    } catch(Exception e) {
+      fail();
+    } finally {
+      if(output != null) {
+        assertTrue(output.delete());
+      }
+    }
+  }
+
+  @Test
+  public void invalidInputTest() {
+    try {
+      XbinaryFormat.read(ByteBuffer.wrap(new byte[]{'X', 'C', 'M', 'B'}));
+      fail();
+    } catch(IOException ignored) {
+    }
+
+    try {
+      XcodeProgram xcodeml =
+          XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+      assertNotNull(xcodeml);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      XbinaryFormat.write(xcodeml.getDocument(), out);
+      byte[] bytes = out.toByteArray();
+      // Truncated stream is rejected
+      XbinaryFormat.read(ByteBuffer.wrap(bytes, 0, bytes.length / 2));
+      fail();
+    } catch(IOException ignored) {
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.directive.common.Directive;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import helper.TestConstant;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test features of the XcallGraph class.
+ *
+ * @author clementval
+ */
+public class XcallGraphTest {
+
+  @Test
+  public void callTreeTest() {
+    Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    assertNotNull(xcodeml);
+    XcallGraph callGraph = xcodeml.getCallGraph();
+    assertSame(callGraph, xcodeml.getCallGraph());
+
+    FfunctionDefinition main = callGraph.getDefinition(null, "loop_extract");
+    FfunctionDefinition clawloop = callGraph.getDefinition(main, "clawloop");
+    assertNotNull(main);
+    assertNotNull(clawloop);
+    assertNull(callGraph.getDefinition(main, "unknown"));
+    assertNull(callGraph.getDefinition(main, null));
+
+    List<Xnode> calls = callGraph.getCalls(main);
+    assertEquals(1, calls.size());
+    assertEquals("clawloop", XcallGraph.getCalledName(calls.get(0)));
+    assertNull(XcallGraph.getCalledName(main));
+    assertEquals(1, callGraph.getCallees(main).size());
+    assertEquals(clawloop, callGraph.getCallees(main).get(0));
+    assertTrue(callGraph.getCallees(clawloop).isEmpty());
+
+    // Add a new function called from clawloop
+    FfunctionDefinition extra = clawloop.cloneNode();
+    extra.name().setValue("extra");
+    clawloop.insertAfter(extra);
+    assertNull(callGraph.getDefinition(clawloop, "extra"));
+    callGraph.add(extra);
+    assertEquals(extra, callGraph.getDefinition(clawloop, "extra"));
+
+    Xnode exprStmt = xcodeml.createNode(Xcode.EXPR_STATEMENT);
+    exprStmt.append(xcodeml.createFctCall("Fvoid", "extra", "Fvoid"));
+    clawloop.body().append(exprStmt);
+
+    List<FfunctionDefinition> tree = callGraph.getCallTree(main);
+    assertEquals(2, tree.size());
+    assertEquals(clawloop, tree.get(0));
+    assertEquals(extra, tree.get(1));
+
+    // Routine directives are generated once for the whole call tree
+    Directive.generateRoutineDirectives(xcodeml, main);
+    Directive.generateRoutineDirectives(xcodeml, main);
+    assertEquals(1, countRoutineDirectives(clawloop));
+    assertEquals(1, countRoutineDirectives(extra));
+    assertEquals(0, countRoutineDirectives(main));
+  }
+
+  private int countRoutineDirectives(FfunctionDefinition fctDef) {
+    int count = 0;
+    for(Xnode pragma : fctDef.body().matchAll(Xcode.F_PRAGMA_STATEMENT)) {
+      if(pragma.value().contains("routine")) {
+        ++count;
+      }
+    }
+    return count;
+  }
+}
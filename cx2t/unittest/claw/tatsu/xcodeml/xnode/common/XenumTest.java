@@ -195,6 +195,13 @@ public class XenumTest {
       Xcode code = Xcode.fromString(rep);
       assertEquals(opcode, code);
     }
+    // Matching falls back to lower case
+    assertEquals(Xcode.F_DO_STATEMENT, Xcode.fromString("fdostatement"));
+    assertEquals(Xcode.F_DO_STATEMENT, Xcode.fromString("FDOSTATEMENT"));
+    assertEquals(Xcode.NONE, Xcode.fromString(null));
+    assertEquals(Xcode.NONE, Xcode.fromString("dummy"));
+    assertEquals(Xattr.IS_INSERTED,
+        Xattr.fromString(Xname.ATTR_IS_INSERTED.toUpperCase()));
   }
 
   @Test
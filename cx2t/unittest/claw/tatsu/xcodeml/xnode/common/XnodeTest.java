@@ -307,4 +307,26 @@ public class XnodeTest {
     assertEquals(0, matches1.size());
     assertEquals(0, matches2.size());
   }
+
+  @Test
+  public void matchedOpcodeTest() {
+    XcodeProgram xcodeml =
+        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT2);
+    assertNotNull(xcodeml);
+
+    // Matched nodes carry the opcode used to find them
+    for(Xnode assign : xcodeml.matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      assertEquals(Xcode.F_ASSIGN_STATEMENT, assign.opcode());
+      assertEquals(Xcode.F_ASSIGN_STATEMENT,
+          new Xnode(assign.element()).opcode());
+    }
+    Xnode fctDef = xcodeml.matchDescendant(Xcode.F_FUNCTION_DEFINITION);
+    assertNotNull(fctDef);
+    assertEquals(Xcode.F_FUNCTION_DEFINITION, fctDef.opcode());
+    Xnode body = fctDef.matchSeq(Xcode.BODY);
+    assertNotNull(body);
+    assertEquals(Xcode.BODY, body.opcode());
+    assertEquals(Xcode.F_FUNCTION_DEFINITION,
+        body.matchAncestor(Xcode.F_FUNCTION_DEFINITION).opcode());
+  }
 }
@@ -0,0 +1,124 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import helper.TestConstant;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test features of the XsymbolIndex class.
+ *
+ * @author clementval
+ */
+public class XsymbolIndexTest {
+
+  @Test
+  public void sharedTablesTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    assertNotNull(xcodeml);
+    List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
+    assertEquals(2, fctDefs.size());
+    FfunctionDefinition fctDef = fctDefs.get(0);
+
+    // Same wrapper from any node of the function
+    Xnode stmt = fctDef.body().firstChild();
+    assertNotNull(stmt);
+    assertSame(fctDef, stmt.findParentFunction());
+    assertSame(fctDef, xcodeml.getAllFctDef().get(0));
+    assertSame(fctDef, XsymbolIndex.getFunctionDefinition(fctDef));
+
+    // Tables are shared with new wrappers
+    FfunctionDefinition other = new FfunctionDefinition(fctDef);
+    assertSame(fctDef.getSymbolTable(), other.getSymbolTable());
+    assertSame(fctDef.getDeclarationTable(), other.getDeclarationTable());
+
+    // Values are not copied when the table is unchanged
+    List<Xnode> decls = fctDef.getDeclarationTable().values();
+    assertSame(decls, fctDef.getDeclarationTable().values());
+    int nbDecl = decls.size();
+    int nbId = fctDef.getSymbolTable().size();
+
+    xcodeml.createIdAndDecl("new_var", FortranType.INTEGER,
+        XstorageClass.F_LOCAL, other, DeclarationPosition.FIRST);
+    assertEquals(nbId + 1, stmt.findParentFunction().getSymbolTable().size());
+    assertTrue(fctDef.getSymbolTable().contains("new_var"));
+    assertTrue(fctDef.getDeclarationTable().contains("new_var"));
+    assertEquals(nbDecl + 1, fctDef.getDeclarationTable().values().size());
+
+    // Indexed nodes are the nodes of the DOM
+    Xid id = fctDef.getSymbolTable().get("new_var");
+    Xnode decl = fctDef.getDeclarationTable().get("new_var");
+    assertEquals(fctDef.matchSeq(Xcode.SYMBOLS).element(),
+        id.element().getParentNode());
+    assertEquals(fctDef.matchSeq(Xcode.DECLARATIONS).element(),
+        decl.element().getParentNode());
+
+    // Replaced declaration is updated in the index
+    Xnode newDecl = xcodeml.createVarDecl(FortranType.REAL, "new_var");
+    fctDef.getDeclarationTable().replace(newDecl, "new_var");
+    assertSame(newDecl, fctDef.getDeclarationTable().get("new_var"));
+    assertEquals(nbDecl + 1, fctDef.getDeclarationTable().count());
+  }
+
+  @Test
+  public void documentScopeTest() {
+    XcodeProgram xcodeml1 = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    XcodeProgram xcodeml2 = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    assertNotNull(xcodeml1);
+    assertNotNull(xcodeml2);
+    FfunctionDefinition fctDef1 = xcodeml1.getAllFctDef().get(0);
+    FfunctionDefinition fctDef2 = xcodeml2.getAllFctDef().get(0);
+
+    // Each document has its own index
+    assertNotSame(fctDef1, fctDef2);
+    assertNotSame(fctDef1.getDeclarationTable(),
+        fctDef2.getDeclarationTable());
+    assertSame(fctDef1, xcodeml1.getAllFctDef().get(0));
+    assertSame(fctDef2, xcodeml2.getAllFctDef().get(0));
+  }
+
+  @Test
+  public void directModificationTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    assertNotNull(xcodeml);
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    XdeclTable declTable = fctDef.getDeclarationTable();
+    XsymbolTable symbolTable = fctDef.getSymbolTable();
+    int nbDecl = declTable.count();
+    int nbId = symbolTable.size();
+    assertTrue(nbDecl > 0);
+    assertTrue(nbId > 0);
+
+    // Declaration deleted directly in the DOM
+    Xnode first = declTable.values().get(0);
+    String name = first.matchSeq(Xcode.NAME).value();
+    first.delete();
+    assertFalse(declTable.contains(name));
+    assertEquals(nbDecl - 1, declTable.count());
+    assertEquals(nbDecl - 1, declTable.values().size());
+
+    // Declaration inserted directly in the DOM
+    Xnode decl = xcodeml.createVarDecl(FortranType.INTEGER, "direct_var");
+    declTable.values().get(0).insertBefore(decl);
+    assertTrue(declTable.contains("direct_var"));
+    assertEquals(decl.element(), declTable.get("direct_var").element());
+    assertEquals(nbDecl, declTable.count());
+
+    // Symbol deleted directly in the DOM
+    Xnode id = fctDef.matchSeq(Xcode.SYMBOLS).firstChild();
+    String idName = new Xid(id).getName();
+    id.delete();
+    assertFalse(symbolTable.contains(idName));
+    assertNull(symbolTable.get(idName));
+    assertEquals(nbId - 1, symbolTable.size());
+  }
+}
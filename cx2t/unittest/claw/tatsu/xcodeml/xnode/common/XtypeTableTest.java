@@ -8,6 +8,13 @@ import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.fortran.*;
 import helper.XmlHelper;
 import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.Assert.*;
 
@@ -151,4 +158,61 @@ public class XtypeTableTest {
     assertEquals(13, charHash.length());
     assertTrue(charHash.startsWith("C"));
   }
+
+  @Test
+  public void concurrentAddTest() {
+    final XtypeTable typeTable =
+        XmlHelper.createXtypeTableFromString(basicTypeTable);
+    assertNotNull(typeTable);
+
+    final int nbThreads = 4;
+    final int nbTypes = 100;
+    final Set<String> hashes =
+        Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    final Document doc = typeTable.element().getOwnerDocument();
+    List<Thread> threads = new ArrayList<>();
+    for(int t = 0; t < nbThreads; ++t) {
+      // Nodes are created upfront as node creation is not thread-safe
+      final List<Xnode> types = new ArrayList<>();
+      for(int i = 0; i < nbTypes; ++i) {
+        types.add(new Xnode(doc.createElement(Xcode.F_BASIC_TYPE.code())));
+      }
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for(Xnode type : types) {
+            String hash = typeTable.generateHash(FortranType.INTEGER);
+            hashes.add(hash);
+            type.setType(hash);
+            typeTable.add(type);
+          }
+        }
+      }));
+    }
+    for(Thread t : threads) {
+      t.start();
+    }
+    try {
+      for(Thread t : threads) {
+        t.join();
+      }
+    } catch(InterruptedException e) {
+      fail();
+    }
+
+    int total = 4 + nbThreads * nbTypes;
+    assertEquals(nbThreads * nbTypes, hashes.size());
+    assertEquals(total, typeTable.size());
+
+    // Emission order is the insertion order
+    List<Xnode> children = typeTable.children();
+    assertEquals(total, children.size());
+    int i = 0;
+    for(Xnode type : typeTable.values()) {
+      assertEquals(children.get(i++).getType(), type.getType());
+    }
+    for(String hash : hashes) {
+      assertNotNull(typeTable.getBasicType(hash));
+    }
+  }
 }
@@ -184,9 +184,34 @@ public class ClawPragmaTest {
             "parallel acc(loop)", null, true, "loop",
         Collections.singletonList(Target.CPU));
 
+    // Automatic stride-1 ordering
+    ClawPragma l = analyzeValidClawLoopInterchange("claw loop-interchange auto",
+        null, false, null, null);
+    assertNotNull(l);
+    assertTrue(l.hasAutoClause());
+    l = analyzeValidClawLoopInterchange("claw loop-interchange auto " +
+        "target(cpu) parallel", null, true, null,
+        Collections.singletonList(Target.CPU));
+    assertNotNull(l);
+    assertTrue(l.hasAutoClause());
+    l = analyzeValidClawLoopInterchange("claw loop-interchange (i,j,k)",
+        Arrays.asList("i", "j", "k"), false, null, null);
+    assertNotNull(l);
+    assertFalse(l.hasAutoClause());
+
+    // Clause keywords used as variable names
+    l = analyzeValidClawLoopInterchange("claw loop-interchange (jam,k)",
+        Arrays.asList("jam", "k"), false, null, null);
+    assertNotNull(l);
+    assertFalse(l.hasAutoClause());
+    analyzeValidClawLoopInterchange("claw loop-interchange (auto,factor)",
+        Arrays.asList("auto", "factor"), false, null, null);
+
     // Invalid directives
     analyzeInvalidClawLanguage("claw loop-interchange ()");
     analyzeInvalidClawLanguage("claw loop-interchange (i,j,k) group");
+    analyzeInvalidClawLanguage("claw loop-interchange auto (i,j,k)");
+    analyzeInvalidClawLanguage("claw loop-interchange auto auto");
   }
 
   /**
@@ -194,11 +219,13 @@ public class ClawPragmaTest {
    *
    * @param raw     Raw string value of the CLAW directive to be analyzed.
    * @param indexes List of indexes to be found if any.
+   * @return The analyzed directive. Null if the analysis failed.
    */
-  private void analyzeValidClawLoopInterchange(String raw,
-                                               List<String> indexes,
-                                               boolean parallel, String acc,
-                                               List<Target> targets)
+  private ClawPragma analyzeValidClawLoopInterchange(String raw,
+                                                     List<String> indexes,
+                                                     boolean parallel,
+                                                     String acc,
+                                                     List<Target> targets)
   {
     try {
       Xnode p = XmlHelper.createXpragma();
@@ -230,10 +257,11 @@ public class ClawPragmaTest {
       }
 
       assertTargets(l, targets);
-
+      return l;
     } catch(IllegalDirectiveException idex) {
       fail();
     }
+    return null;
   }
 
   /**
@@ -619,9 +647,26 @@ public class ClawPragmaTest {
         Arrays.asList("var1", "var2"), null, true, true,
         Collections.singletonList(Target.GPU));
 
+    // auto clause
+    analyzeValidKcache("claw kcache auto", null, null, false, false, null);
+    analyzeValidKcache("claw kcache auto private target(gpu)", null, null,
+        false, true, Collections.singletonList(Target.GPU));
+
+    // Clause keywords used as variable names
+    analyzeValidKcache("claw kcache data(factor) offset(0)",
+        Collections.singletonList("factor"), Collections.singletonList(0),
+        false, false, null);
+    analyzeValidKcache("claw kcache data(auto) offset(0)",
+        Collections.singletonList("auto"), Collections.singletonList(0),
+        false, false, null);
+    analyzeValidKcache("claw kcache data(jam,var1) init",
+        Arrays.asList("jam", "var1"), null, true, false, null);
+
     // Invalid directives
     analyzeInvalidClawLanguage("claw k cache ");
     analyzeInvalidClawLanguage("claw k-cache");
+    analyzeInvalidClawLanguage("claw kcache auto data(var1)");
+    analyzeInvalidClawLanguage("claw kcache auto offset(0,1)");
   }
 
   /**
@@ -644,6 +689,7 @@ public class ClawPragmaTest {
       Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
       ClawPragma l = ClawPragma.analyze(p);
       assertEquals(ClawDirective.KCACHE, l.getDirective());
+      assertEquals(data == null, l.hasAutoClause());
       if(data != null) {
         assertTrue(l.hasDataClause());
         assertEquals(data.size(), l.getDataClauseValues().size());
@@ -1005,6 +1051,57 @@ public class ClawPragmaTest {
     }
   }
 
+  /**
+   * Test various input for the CLAW call-to-table directive.
+   */
+  @Test
+  public void callToTableTest() {
+    // Valid directives
+    analyzeValidCallToTable("claw call-to-table esat(200:350)", "esat",
+        200, 350, null);
+    analyzeValidCallToTable("claw call-to-table f(1:10) target(cpu)", "f",
+        1, 10, Collections.singletonList(Target.CPU));
+
+    // Invalid directives
+    analyzeInvalidClawLanguage("claw call-to-table ");
+    analyzeInvalidClawLanguage("claw call-to-table esat");
+    analyzeInvalidClawLanguage("claw call-to-table esat(200)");
+    analyzeInvalidClawLanguage("claw call-to-table esat(200:350");
+  }
+
+  /**
+   * Assert the result for valid CLAW call-to-table directive
+   *
+   * @param raw     Raw string value of the CLAW directive to be analyzed.
+   * @param fctName Function name to be checked.
+   * @param lower   Lower bound of the table range.
+   * @param upper   Upper bound of the table range.
+   * @param targets Expected targets.
+   */
+  private void analyzeValidCallToTable(String raw, String fctName,
+                                       int lower, int upper,
+                                       List<Target> targets)
+  {
+    try {
+      Xnode p = XmlHelper.createXpragma();
+      p.setValue(raw);
+      Configuration.get().init(CompilerDirective.OPENACC, Target.GPU);
+      Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
+      ClawPragma l = ClawPragma.analyze(p);
+      assertEquals(ClawDirective.CALL_TO_TABLE, l.getDirective());
+      assertEquals(fctName, l.getFctName());
+      assertEquals(1, l.getDimensionValues().size());
+      assertEquals(lower, l.getDimensionValues().get(0).getLowerBound().
+          getIntValue());
+      assertEquals(upper, l.getDimensionValues().get(0).getUpperBound().
+          getIntValue());
+      assertTargets(l, targets);
+    } catch(IllegalDirectiveException idex) {
+      System.err.print(idex.getMessage());
+      fail();
+    }
+  }
+
   /**
    * Test !$claw nodep directive
    */
@@ -1519,7 +1616,7 @@ public class ClawPragmaTest {
   public void errorHandlingTest() {
     analyzeErrors("claw loop-fusion group(g", 1);
     analyzeErrors("claw loop-fusion group", 1);
-    analyzeErrors("claw loop", 17);
+    analyzeErrors("claw loop", 19);
   }
 
   private void analyzeErrors(String pragma, int nbExpectedToken) {
@@ -1564,4 +1661,50 @@ public class ClawPragmaTest {
     analyzeValidSimpleClaw("claw if-extract", ClawDirective.IF_EXTRACT,
         false, null);
   }
+
+  /**
+   * Test various input for the CLAW loop-unroll directive.
+   */
+  @Test
+  public void loopUnrollTest() {
+    // Valid directives
+    analyzeValidLoopUnroll("claw loop-unroll factor(4)", 4, false, null);
+    analyzeValidLoopUnroll("claw loop-unroll factor(2) jam", 2, true, null);
+    analyzeValidLoopUnroll("claw loop-unroll factor(8) target(cpu) jam", 8,
+        true, Collections.singletonList(Target.CPU));
+
+    // Invalid directives
+    analyzeInvalidClawLanguage("claw loop-unroll");
+    analyzeInvalidClawLanguage("claw loop-unroll jam");
+    analyzeInvalidClawLanguage("claw loop-unroll factor(n)");
+    analyzeInvalidClawLanguage("claw loop-unroll factor(2) jam jam");
+  }
+
+  /**
+   * Assert the result for valid CLAW loop-unroll directive
+   *
+   * @param raw     Raw string value of the CLAW directive to be analyzed.
+   * @param factor  Expected unroll factor.
+   * @param jam     Expected jam clause flag.
+   * @param targets Expected targets.
+   */
+  private void analyzeValidLoopUnroll(String raw, int factor, boolean jam,
+                                      List<Target> targets)
+  {
+    try {
+      Xnode p = XmlHelper.createXpragma();
+      p.setValue(raw);
+      Configuration.get().init(CompilerDirective.OPENACC, Target.GPU);
+      Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
+      ClawPragma l = ClawPragma.analyze(p);
+      assertEquals(ClawDirective.LOOP_UNROLL, l.getDirective());
+      assertTrue(l.hasFactorClause());
+      assertEquals(factor, l.getFactorValue());
+      assertEquals(jam, l.hasJamClause());
+      assertTargets(l, targets);
+    } catch(IllegalDirectiveException idex) {
+      System.err.println(idex.getMessage());
+      fail();
+    }
+  }
 }
@@ -0,0 +1,161 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.internal;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.translator.ClawTranslator;
+import helper.XmlHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static helper.XmlHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the UpdateElimination class.
+ *
+ * @author clementval
+ */
+public class UpdateEliminationTest {
+
+  private static final String DEVICE = "acc update device(q(:,:))";
+  private static final String HOST = "acc update host(q(:,:))";
+
+  private static String call(String name, boolean intrinsic, String arg) {
+    return XmlHelper.call("Freal", name, intrinsic, realVar(arg));
+  }
+
+  private static String loop(String body) {
+    return doStmt(intVar("i"), intConst(1), intVar("n"), null, body);
+  }
+
+  private static String forward() {
+    return "<exprStatement>" + call("compute", false, "q") +
+        "</exprStatement>";
+  }
+
+  @Before
+  public void setUp() {
+    Context.init(CompilerDirective.OPENACC, Target.GPU, 80);
+    Configuration.get().init(CompilerDirective.OPENACC, Target.GPU);
+  }
+
+  /**
+   * Generate the updates of the forward calls of a body.
+   *
+   * @param stmts Statements of the body.
+   * @return Value of the pragmas and names of the calls in body order.
+   */
+  private static List<String> process(String stmts) {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    Xnode body = xcodeml.importNode(
+        XmlHelper.createXnode("<body>" + stmts + "</body>"));
+    ClawTranslator translator = new ClawTranslator();
+    List<String> q = Collections.singletonList("q(:,:)");
+    for(Xnode stmt : body.children()) {
+      Xnode fctCall = stmt.matchDirectDescendant(Xcode.FUNCTION_CALL);
+      if(fctCall != null
+          && "compute".equals(fctCall.matchSeq(Xcode.NAME).value()))
+      {
+        translator.storeElement(stmt, new UpdateRequest(q, q, q));
+      }
+    }
+    new UpdateElimination().processBody(xcodeml, translator, body);
+
+    List<String> result = new ArrayList<>();
+    for(Xnode stmt : body.children()) {
+      if(stmt.opcode() == Xcode.F_PRAGMA_STATEMENT) {
+        result.add(stmt.value());
+      } else if(stmt.opcode() == Xcode.EXPR_STATEMENT) {
+        result.add(stmt.matchDescendant(Xcode.NAME).value());
+      } else {
+        result.add(stmt.opcode().code());
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void getBaseNameTest() {
+    assertEquals("q", UpdateElimination.getBaseName("q(:,:)"));
+    assertEquals("q", UpdateElimination.getBaseName("Q"));
+    assertEquals("a", UpdateElimination.getBaseName("a%b(:)"));
+    assertEquals("t", UpdateElimination.getBaseName(" t (1:nz)"));
+  }
+
+  @Test
+  public void coherentTest() {
+    // Assignment of another variable keeps the device copy coherent
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "FassignStatement", "compute", HOST),
+        process(forward() + assign(realVar("a"), realVar("b")) + forward()));
+
+    // Loop without call not referencing the variable
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "FdoStatement", "compute", HOST),
+        process(forward() + loop(assign(realVar("a"), realVar("i"))) +
+            forward()));
+  }
+
+  @Test
+  public void hostWriteTest() {
+    // Host assignment of the variable between the calls
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "FassignStatement", DEVICE, "compute", HOST),
+        process(forward() + assign(realVar("q"), realVar("b")) + forward()));
+
+    // Host write in a loop
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "FdoStatement", DEVICE, "compute", HOST),
+        process(forward() + loop(assign(realVar("q"), realVar("i"))) +
+            forward()));
+  }
+
+  @Test
+  public void callTest() {
+    // Function call in an assignment might write the variable
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "FassignStatement", DEVICE, "compute", HOST),
+        process(forward() + assign(realVar("a"), call("f", false, "b")) +
+            forward()));
+
+    // Intrinsic call does not
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "FassignStatement", "compute", HOST),
+        process(forward() + assign(realVar("a"), call("sqrt", true, "b")) +
+            forward()));
+
+    // Subroutine call not referencing the variable
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "init", DEVICE, "compute", HOST),
+        process(forward() + "<exprStatement>" + call("init", false, "b") +
+            "</exprStatement>" + forward()));
+
+    // Call nested in a loop
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "FdoStatement", DEVICE, "compute", HOST),
+        process(forward() + loop("<exprStatement>" +
+            call("init", false, "b") + "</exprStatement>") + forward()));
+  }
+
+  @Test
+  public void unknownStatementTest() {
+    assertEquals(Arrays.asList(DEVICE, "compute", HOST,
+        "FreadStatement", DEVICE, "compute", HOST),
+        process(forward() + "<FreadStatement>" + realVar("b") +
+            "</FreadStatement>" + forward()));
+  }
+}
@@ -16,6 +16,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
 import java.io.StringReader;
+import java.util.List;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -130,4 +131,192 @@ public class XmlHelper {
     assertNotNull(n);
     return n;
   }
+
+  /**
+   * Create the XcodeML fragment of a local variable.
+   *
+   * @param type Type of the variable.
+   * @param name Name of the variable.
+   * @return Var element.
+   */
+  public static String var(String type, String name) {
+    return "<Var type=\"" + type + "\" scope=\"local\">" + name + "</Var>";
+  }
+
+  /**
+   * Create the XcodeML fragment of a local integer variable.
+   *
+   * @param name Name of the variable.
+   * @return Var element.
+   */
+  public static String intVar(String name) {
+    return var(Xname.TYPE_F_INT, name);
+  }
+
+  /**
+   * Create the XcodeML fragment of a local real variable.
+   *
+   * @param name Name of the variable.
+   * @return Var element.
+   */
+  public static String realVar(String name) {
+    return var(Xname.TYPE_F_REAL, name);
+  }
+
+  /**
+   * Create the XcodeML fragment of an integer constant.
+   *
+   * @param value Value of the constant.
+   * @return FintConstant element.
+   */
+  public static String intConst(int value) {
+    return "<FintConstant type=\"" + Xname.TYPE_F_INT + "\">" + value +
+        "</FintConstant>";
+  }
+
+  /**
+   * Create the XcodeML fragment of a binary expression.
+   *
+   * @param opcode Element name of the expression (plusExpr, mulExpr ...).
+   * @param type   Type of the expression.
+   * @param lhs    Left hand side operand.
+   * @param rhs    Right hand side operand.
+   * @return Binary expression element.
+   */
+  public static String binary(String opcode, String type, String lhs,
+                              String rhs)
+  {
+    return "<" + opcode + " type=\"" + type + "\">" + lhs + rhs + "</" +
+        opcode + ">";
+  }
+
+  /**
+   * Create the XcodeML fragment of an assignment.
+   *
+   * @param lhs Left hand side of the assignment.
+   * @param rhs Right hand side of the assignment.
+   * @return FassignStatement element.
+   */
+  public static String assign(String lhs, String rhs) {
+    return "<FassignStatement>" + lhs + rhs + "</FassignStatement>";
+  }
+
+  /**
+   * Create the XcodeML fragment of an array reference.
+   *
+   * @param type       Type of the array element.
+   * @param arrayType  Type of the array.
+   * @param array      Name of the array.
+   * @param subscripts Subscripts of the reference (arrayIndex or indexRange).
+   * @return FarrayRef element.
+   */
+  public static String arrayRef(String type, String arrayType, String array,
+                                String... subscripts)
+  {
+    StringBuilder xml = new StringBuilder("<FarrayRef type=\"" + type +
+        "\"><varRef type=\"" + arrayType + "\">" + var(arrayType, array) +
+        "</varRef>");
+    for(String subscript : subscripts) {
+      xml.append(subscript);
+    }
+    return xml.append("</FarrayRef>").toString();
+  }
+
+  /**
+   * Create the XcodeML fragment of an array index subscript.
+   *
+   * @param expr Index expression.
+   * @return arrayIndex element.
+   */
+  public static String arrayIndex(String expr) {
+    return "<arrayIndex>" + expr + "</arrayIndex>";
+  }
+
+  /**
+   * Create the XcodeML fragment of an index range.
+   *
+   * @param lower Lower bound expression.
+   * @param upper Upper bound expression.
+   * @param step  Step expression. No step if null.
+   * @return indexRange element.
+   */
+  public static String indexRange(String lower, String upper, String step) {
+    return "<indexRange><lowerBound>" + lower + "</lowerBound><upperBound>" +
+        upper + "</upperBound>" +
+        (step == null ? "" : "<step>" + step + "</step>") + "</indexRange>";
+  }
+
+  /**
+   * Create the XcodeML fragment of a do statement.
+   *
+   * @param induction Induction variable.
+   * @param lower     Lower bound expression.
+   * @param upper     Upper bound expression.
+   * @param step      Step expression. No step if null.
+   * @param body      Statements of the body.
+   * @return FdoStatement element.
+   */
+  public static String doStmt(String induction, String lower, String upper,
+                              String step, String body)
+  {
+    return "<FdoStatement>" + induction + indexRange(lower, upper, step) +
+        "<body>" + body + "</body></FdoStatement>";
+  }
+
+  /**
+   * Create the XcodeML fragment of perfectly nested do statements iterating
+   * from 1 to upper with a step of 1.
+   *
+   * @param inductions Integer induction variables from the outer loop.
+   * @param upper      Upper bound expression of all loops.
+   * @param body       Statements of the inner loop.
+   * @return Outer FdoStatement element.
+   */
+  public static String nest(List<String> inductions, String upper,
+                            String body)
+  {
+    String xml = body;
+    for(int i = inductions.size() - 1; i >= 0; --i) {
+      xml = doStmt(intVar(inductions.get(i)), intConst(1), upper, intConst(1),
+          xml);
+    }
+    return xml;
+  }
+
+  /**
+   * Create the XcodeML fragment of an if statement.
+   *
+   * @param condition Condition expression.
+   * @param thenBody  Statements of the then block.
+   * @param elseBody  Statements of the else block. No else block if null.
+   * @return FifStatement element.
+   */
+  public static String ifStmt(String condition, String thenBody,
+                              String elseBody)
+  {
+    return "<FifStatement><condition>" + condition + "</condition><then>" +
+        "<body>" + thenBody + "</body></then>" + (elseBody == null ? "" :
+        "<else><body>" + elseBody + "</body></else>") + "</FifStatement>";
+  }
+
+  /**
+   * Create the XcodeML fragment of a function call.
+   *
+   * @param type      Return type of the function.
+   * @param name      Name of the function.
+   * @param intrinsic True if the function is an intrinsic.
+   * @param arguments Arguments of the call.
+   * @return functionCall element.
+   */
+  public static String call(String type, String name, boolean intrinsic,
+                            String... arguments)
+  {
+    StringBuilder xml = new StringBuilder("<functionCall type=\"" + type +
+        "\"" + (intrinsic ? " is_intrinsic=\"true\"" : "") + "><name>" +
+        name + "</name><arguments>");
+    for(String argument : arguments) {
+      xml.append(argument);
+    }
+    return xml.append("</arguments></functionCall>").toString();
+  }
 }
@@ -0,0 +1,122 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+!
+! @author clementval
+! @brief  Timing runtime called by the regions instrumented with the --timing
+!         option of the CLAW Compiler. Regions are identified by their id and
+!         the name of the routine holding them. The source location of each id
+!         is written in the .regions file next to the transformation report.
+!         Calls are done from the host outside of the parallel regions.
+!         Accumulated timings are printed by claw_timing_report. Link
+!         claw_timing_stub.f90 instead of this file to disable the timing.
+
+module claw_timing
+  implicit none
+  private
+
+  public :: claw_timing_start, claw_timing_stop, claw_timing_report
+
+  integer, parameter :: max_regions = 1024
+  integer, parameter :: max_name = 64
+
+  type timing_region
+    integer :: id = 0
+    integer :: line = 0
+    character(len=max_name) :: routine = ''
+    logical :: running = .false.
+    integer :: calls = 0
+    integer(kind=8) :: start = 0
+    integer(kind=8) :: total = 0
+    integer(kind=8) :: minimum = huge(0_8)
+    integer(kind=8) :: maximum = 0
+  end type timing_region
+
+  type(timing_region), save :: regions(max_regions)
+  integer, save :: nb_regions = 0
+
+contains
+
+  ! Start the timer of a region
+  subroutine claw_timing_start(region_id, line, routine)
+    integer, intent(in) :: region_id, line
+    character(len=*), intent(in) :: routine
+    integer :: idx
+
+    idx = find_region(region_id, line, routine)
+    if(idx > 0) then
+      regions(idx)%running = .true.
+      call system_clock(regions(idx)%start)
+    end if
+  end subroutine claw_timing_start
+
+  ! Stop the timer of a region and accumulate the elapsed time
+  subroutine claw_timing_stop(region_id, line, routine)
+    integer, intent(in) :: region_id, line
+    character(len=*), intent(in) :: routine
+    integer :: idx
+    integer(kind=8) :: crt, elapsed
+
+    call system_clock(crt)
+    idx = find_region(region_id, line, routine)
+    if(idx <= 0) return
+    if(.not. regions(idx)%running) return
+    elapsed = crt - regions(idx)%start
+    regions(idx)%running = .false.
+    regions(idx)%calls = regions(idx)%calls + 1
+    regions(idx)%total = regions(idx)%total + elapsed
+    regions(idx)%minimum = min(regions(idx)%minimum, elapsed)
+    regions(idx)%maximum = max(regions(idx)%maximum, elapsed)
+  end subroutine claw_timing_stop
+
+  ! Print the accumulated timings in seconds on the given unit (default 6)
+  subroutine claw_timing_report(unit)
+    integer, intent(in), optional :: unit
+    integer :: out, i
+    integer(kind=8) :: rate
+    real(kind=8) :: scale
+
+    out = 6
+    if(present(unit)) out = unit
+    call system_clock(count_rate=rate)
+    scale = 1.0d0 / real(rate, 8)
+
+    write(out, '(a)') 'CLAW timing report (seconds)'
+    write(out, '(a6,1x,a32,1x,a8,1x,a10,3(1x,a12))') 'id', 'routine', &
+      'line', 'calls', 'total', 'min', 'max'
+    do i = 1, nb_regions
+      if(regions(i)%calls == 0) cycle
+      write(out, '(i6,1x,a32,1x,i8,1x,i10,3(1x,es12.4))') regions(i)%id, &
+        regions(i)%routine, regions(i)%line, regions(i)%calls, &
+        regions(i)%total * scale, regions(i)%minimum * scale, &
+        regions(i)%maximum * scale
+    end do
+  end subroutine claw_timing_report
+
+  ! Find the entry of a region. The entry is created at the first call.
+  ! Return 0 if the maximum number of regions is reached.
+  integer function find_region(region_id, line, routine)
+    integer, intent(in) :: region_id, line
+    character(len=*), intent(in) :: routine
+    integer :: i
+
+    do i = 1, nb_regions
+      if(regions(i)%id == region_id .and. regions(i)%routine == routine) then
+        find_region = i
+        return
+      end if
+    end do
+
+    if(nb_regions >= max_regions) then
+      find_region = 0
+      return
+    end if
+    nb_regions = nb_regions + 1
+    regions(nb_regions)%id = region_id
+    regions(nb_regions)%line = line
+    regions(nb_regions)%routine = routine
+    find_region = nb_regions
+  end function find_region
+
+end module claw_timing
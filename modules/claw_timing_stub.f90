@@ -0,0 +1,33 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+!
+! @author clementval
+! @brief  No-op version of the claw_timing module. Linked instead of
+!         claw_timing.f90, the code instrumented with the --timing option of
+!         the CLAW Compiler runs without measurement.
+
+module claw_timing
+  implicit none
+  private
+
+  public :: claw_timing_start, claw_timing_stop, claw_timing_report
+
+contains
+
+  subroutine claw_timing_start(region_id, line, routine)
+    integer, intent(in) :: region_id, line
+    character(len=*), intent(in) :: routine
+  end subroutine claw_timing_start
+
+  subroutine claw_timing_stop(region_id, line, routine)
+    integer, intent(in) :: region_id, line
+    character(len=*), intent(in) :: routine
+  end subroutine claw_timing_stop
+
+  subroutine claw_timing_report(unit)
+    integer, intent(in), optional :: unit
+  end subroutine claw_timing_report
+
+end module claw_timing
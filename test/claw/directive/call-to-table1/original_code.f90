@@ -0,0 +1,36 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+! Simple program to test the call-to-table directive
+!
+
+MODULE mo_table
+  INTEGER, PARAMETER :: tmin = 1
+CONTAINS
+  PURE FUNCTION f(i)
+    INTEGER, INTENT(IN) :: i
+    REAL :: f
+    f = 0.5 * i
+  END FUNCTION f
+
+  SUBROUTINE compute(r, k)
+    INTEGER, PARAMETER :: tmax = 10
+    REAL, INTENT(OUT) :: r(10)
+    INTEGER, INTENT(IN) :: k
+    INTEGER :: i
+
+    !$claw call-to-table f(tmin:tmax)
+    DO i = 1, 10
+      r(i) = f(i) + f(k)
+    END DO
+    r(1) = r(1) + f(20) + f(tmax)
+  END SUBROUTINE compute
+END MODULE mo_table
+
+PROGRAM claw_test
+  USE mo_table, ONLY: compute
+  REAL :: r(10)
+  CALL compute(r, 3)
+  PRINT *, SUM(r)
+END PROGRAM claw_test
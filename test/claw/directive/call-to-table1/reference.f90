@@ -0,0 +1,43 @@
+MODULE mo_table
+ INTEGER , PARAMETER :: tmin = 1
+ REAL :: claw_table_f ( 1 : 10 )
+!$acc declare create(claw_table_f)
+ LOGICAL :: claw_table_f_ready = .FALSE.
+
+CONTAINS
+ PURE FUNCTION f ( i )
+  INTEGER , INTENT(IN) :: i
+  REAL :: f
+
+  f = 0.5 * i
+ END FUNCTION f
+
+ SUBROUTINE compute ( r , k )
+  INTEGER , PARAMETER :: tmax = 10
+  REAL , INTENT(OUT) :: r ( 1 : 10 )
+  INTEGER , INTENT(IN) :: k
+  INTEGER :: i
+  INTEGER :: claw_table_f_idx
+
+  IF ( ( .NOT. claw_table_f_ready ) ) THEN
+   DO claw_table_f_idx = 1 , 10 , 1
+    claw_table_f ( claw_table_f_idx ) = f ( claw_table_f_idx )
+   END DO
+!$acc update device(claw_table_f)
+   claw_table_f_ready = .TRUE.
+  END IF
+  DO i = 1 , 10 , 1
+   r ( i ) = claw_table_f ( i ) + f ( k )
+  END DO
+  r ( 1 ) = r ( 1 ) + f ( 20 ) + claw_table_f ( tmax )
+ END SUBROUTINE compute
+
+END MODULE mo_table
+
+PROGRAM claw_test
+ USE mo_table , ONLY: compute
+ REAL :: r ( 1 : 10 )
+
+ CALL compute ( r , 3 )
+ PRINT * , sum ( r )
+END PROGRAM claw_test
@@ -0,0 +1,38 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+! Simple program to test the kcache directive with the auto clause
+!
+
+PROGRAM claw_test
+  INTEGER :: istart = 0
+  INTEGER :: iend = 10
+  INTEGER :: jstart = 0
+  INTEGER :: jend = 20
+  CALL kcache(istart,iend,jstart,jend)
+END PROGRAM claw_test
+
+SUBROUTINE kcache(istart,iend,jstart,jend)
+  INTEGER, INTENT(IN) :: istart, iend, jstart, jend
+  INTEGER :: i,j
+  REAL(KIND=8), DIMENSION(istart:iend,jstart:jend) :: array6, array7, array8, &
+                                                      array9
+
+  DO i = istart, iend
+    DO j = jstart, jend
+      array7(i,j) = 1.0 * j
+      array9(i,j) = 2.0 * i
+    END DO
+  END DO
+
+  DO i = istart, iend
+    DO j = jstart+1, jend-1
+      !$claw kcache auto
+      array6(i,j) = array7(i,j-1) + array7(i,j) + array7(i,j+1)
+      array8(i,j) = array7(i,j) * array9(i,j) + array9(i,j)
+    END DO
+  END DO
+  PRINT*, SUM(array6)
+  PRINT*, SUM(array8)
+END SUBROUTINE kcache
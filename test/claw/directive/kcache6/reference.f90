@@ -0,0 +1,50 @@
+PROGRAM claw_test
+ INTEGER :: istart = 0
+ INTEGER :: iend = 10
+ INTEGER :: jstart = 0
+ INTEGER :: jend = 20
+
+ CALL kcache ( istart , iend , jstart , jend )
+END PROGRAM claw_test
+
+SUBROUTINE kcache ( istart , iend , jstart , jend )
+ INTEGER , INTENT(IN) :: istart
+ INTEGER , INTENT(IN) :: iend
+ INTEGER , INTENT(IN) :: jstart
+ INTEGER , INTENT(IN) :: jend
+ INTEGER :: i
+ INTEGER :: j
+ REAL ( KIND= 8 ) :: array6 ( istart : iend , jstart : jend )
+ REAL ( KIND= 8 ) :: array7 ( istart : iend , jstart : jend )
+ REAL ( KIND= 8 ) :: array8 ( istart : iend , jstart : jend )
+ REAL ( KIND= 8 ) :: array9 ( istart : iend , jstart : jend )
+
+ REAL ( KIND= 8 ) :: array7_k_m1
+ REAL ( KIND= 8 ) :: array7_k__
+ REAL ( KIND= 8 ) :: array7_k_p1
+ REAL ( KIND= 8 ) :: array9_k__
+
+ DO i = istart , iend , 1
+  DO j = jstart , jend , 1
+   array7 ( i , j ) = 1.0 * j
+   array9 ( i , j ) = 2.0 * i
+  END DO
+ END DO
+ DO i = istart , iend , 1
+  DO j = jstart + 1 , jend - 1 , 1
+   IF ( j == jstart + 1 ) THEN
+    array7_k_m1 = array7 ( i , j - 1 )
+    array7_k__ = array7 ( i , j )
+   END IF
+   array9_k__ = array9 ( i , j )
+   array7_k_p1 = array7 ( i , j + 1 )
+   array6 ( i , j ) = array7_k_m1 + array7_k__ + array7_k_p1
+   array8 ( i , j ) = array7_k__ * array9_k__ + array9_k__
+   array7_k_m1 = array7_k__
+   array7_k__ = array7_k_p1
+  END DO
+ END DO
+ PRINT * , sum ( array6 )
+ PRINT * , sum ( array8 )
+END SUBROUTINE kcache
+
@@ -0,0 +1,64 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+! Simple program to test the automatic loop unswitching. The condition of the
+! second loop can be modified by the internal procedure called in the loop.
+! The condition of the third loop references an array element that might be
+! out of bounds and the loop might not be executed. The fourth loop is always
+! executed.
+!
+
+PROGRAM claw_test
+  CALL unswitch(.TRUE., 10)
+END PROGRAM claw_test
+
+SUBROUTINE unswitch(flag, n)
+  LOGICAL, INTENT(IN) :: flag
+  INTEGER, INTENT(IN) :: n
+  INTEGER :: i, m
+  LOGICAL :: local
+  REAL :: a(n), b(n), c(5)
+
+  DO i = 1, n
+    IF(flag) THEN
+      a(i) = 1.0 * i
+    ELSE
+      a(i) = 2.0 * i
+    END IF
+  END DO
+
+  local = .TRUE.
+  DO i = 1, n
+    IF(local) THEN
+      b(i) = a(i)
+    ELSE
+      b(i) = 0.0
+    END IF
+    CALL toggle()
+  END DO
+
+  m = n - 10
+  DO i = 1, m
+    IF(a(m) > 0.0) THEN
+      b(i) = 1.0
+    ELSE
+      b(i) = 0.0
+    END IF
+  END DO
+
+  DO i = 1, 5
+    IF(a(n) > 0.0) THEN
+      c(i) = 1.0
+    ELSE
+      c(i) = 0.0
+    END IF
+  END DO
+  PRINT*, SUM(a)
+  PRINT*, SUM(b)
+  PRINT*, SUM(c)
+CONTAINS
+  SUBROUTINE toggle()
+    local = .NOT. local
+  END SUBROUTINE toggle
+END SUBROUTINE unswitch
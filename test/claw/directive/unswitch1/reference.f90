@@ -0,0 +1,62 @@
+PROGRAM claw_test
+
+ CALL unswitch ( .TRUE. , 10 )
+END PROGRAM claw_test
+
+SUBROUTINE unswitch ( flag , n )
+ LOGICAL , INTENT(IN) :: flag
+ INTEGER , INTENT(IN) :: n
+ INTEGER :: i
+ INTEGER :: m
+ LOGICAL :: local
+ REAL :: a ( 1 : n )
+ REAL :: b ( 1 : n )
+ REAL :: c ( 1 : 5 )
+
+ IF ( flag ) THEN
+  DO i = 1 , n , 1
+   a ( i ) = 1.0 * i
+  END DO
+ ELSE
+  DO i = 1 , n , 1
+   a ( i ) = 2.0 * i
+  END DO
+ END IF
+ local = .TRUE.
+ DO i = 1 , n , 1
+  IF ( local ) THEN
+   b ( i ) = a ( i )
+  ELSE
+   b ( i ) = 0.0
+  END IF
+  CALL toggle ( )
+ END DO
+ m = n - 10
+ DO i = 1 , m , 1
+  IF ( a ( m ) > 0.0 ) THEN
+   b ( i ) = 1.0
+  ELSE
+   b ( i ) = 0.0
+  END IF
+ END DO
+ IF ( a ( n ) > 0.0 ) THEN
+  DO i = 1 , 5 , 1
+   c ( i ) = 1.0
+  END DO
+ ELSE
+  DO i = 1 , 5 , 1
+   c ( i ) = 0.0
+  END DO
+ END IF
+ PRINT * , sum ( a )
+ PRINT * , sum ( b )
+ PRINT * , sum ( c )
+CONTAINS
+ SUBROUTINE toggle ( )
+
+
+  local = ( .NOT. local )
+ END SUBROUTINE toggle
+
+END SUBROUTINE unswitch
+
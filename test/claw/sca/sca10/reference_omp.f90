@@ -13,6 +13,7 @@ CONTAINS
   REAL :: c
   INTEGER :: proma
 
+!$omp target data map(present, alloc:t,q)
 !$omp target
 !$omp teams thread_limit(256) num_teams(65536)
 !$omp distribute dist_schedule(static, 256)
@@ -27,6 +28,7 @@ CONTAINS
 !$omp end distribute
 !$omp end teams
 !$omp end target
+!$omp end target data
  END SUBROUTINE compute_column
 
  SUBROUTINE compute_column_public ( nz , q , t , nproma )
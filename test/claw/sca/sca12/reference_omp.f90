@@ -12,6 +12,7 @@ CONTAINS
   INTEGER :: r
   INTEGER :: proma
 
+!$omp target data map(present, alloc:t,q)
 !$omp target
 !$omp teams thread_limit(256) num_teams(65536)
 !$omp distribute dist_schedule(static, 256)
@@ -26,6 +27,7 @@ CONTAINS
 !$omp end distribute
 !$omp end teams
 !$omp end target
+!$omp end target data
  END FUNCTION compute_column
 
  SUBROUTINE compute ( nz , b , q , t , nproma )
@@ -27,7 +27,7 @@ CONTAINS
   IF ( ( .NOT. allocated ( y ) ) ) THEN
    ALLOCATE ( y ( nproma , nz ) )
   END IF
-!$omp target data map(alloc:y)
+!$omp target data map(present, alloc:t,q,s) map(alloc:y)
 !$omp target
 !$omp teams thread_limit(256) num_teams(65536)
 !$omp distribute dist_schedule(static, 256)
@@ -19,6 +19,7 @@ CONTAINS
   INTEGER :: jkp1
   INTEGER :: jl
 
+!$omp target data map(present, alloc:aa,bb)
 !$omp target
 !$omp teams thread_limit(256) num_teams(65536)
 !$omp distribute dist_schedule(static, 256)
@@ -35,6 +36,7 @@ CONTAINS
 !$omp end distribute
 !$omp end teams
 !$omp end target
+!$omp end target data
  END SUBROUTINE rhs_bksub
 
 END MODULE mod1
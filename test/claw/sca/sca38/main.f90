@@ -0,0 +1,32 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+! Test the CLAW abstraction model with a scalar accumulated over the columns.
+!
+
+PROGRAM test_abstraction38
+  USE mo_column, ONLY: compute_column
+  REAL, DIMENSION(20,60) :: q, t  ! Fields as declared in the whole model
+  REAL :: s                       ! Sum over all the columns
+  INTEGER :: nproma, nz           ! Size of array fields
+  INTEGER :: p                    ! Loop index
+
+  nproma = 20
+  nz = 60
+  s = 0.0
+
+  DO p = 1, nproma
+    q(p,1) = 0.0
+    t(p,1) = 0.0
+  END DO
+
+  !$claw parallelize forward create update
+  DO p = 1, nproma
+    CALL compute_column(nz, q(p,:), t(p,:), s)
+  END DO
+
+  PRINT*,SUM(q)
+  PRINT*,SUM(t)
+  PRINT*,s
+END PROGRAM test_abstraction38
@@ -0,0 +1,34 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+
+MODULE mo_column
+  IMPLICIT NONE
+CONTAINS
+  ! Compute only one column
+  SUBROUTINE compute_column(nz, q, t, s)
+    IMPLICIT NONE
+
+    INTEGER, INTENT(IN)   :: nz   ! Size of the array field
+    REAL, INTENT(INOUT)   :: t(:) ! Field declared as one column only
+    REAL, INTENT(INOUT)   :: q(:) ! Field declared as one column only
+    REAL, INTENT(INOUT)   :: s    ! Sum accumulated over all the columns
+    INTEGER :: k                  ! Loop index
+    REAL :: c                     ! Coefficient
+
+    !$claw define dimension proma(1:nproma) &
+    !$claw parallelize
+
+    c = 5.345
+    DO k = 2, nz
+      t(k) = c * k
+      q(k) = q(k - 1)  + t(k) * c
+    END DO
+    q(nz) = q(nz) * c
+    ! Reduction depending on a promoted field
+    s = s + q(nz)
+    ! Reduction not depending on any promoted field
+    s = s + c
+  END SUBROUTINE compute_column
+END MODULE mo_column
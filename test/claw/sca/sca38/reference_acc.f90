@@ -0,0 +1,34 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , s , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  REAL , INTENT(INOUT) :: s
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+!$acc data present(t,q)
+!$acc parallel reduction(+:s)
+!$acc loop gang vector reduction(+:s)
+  DO proma = 1 , nproma , 1
+   c = 5.345
+!$acc loop seq
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+    q ( proma , k ) = q ( proma , k - 1 ) + t ( proma , k ) * c
+   END DO
+   q ( proma , nz ) = q ( proma , nz ) * c
+   s = s + q ( proma , nz )
+   s = s + c
+  END DO
+!$acc end parallel
+!$acc end data
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
@@ -0,0 +1,48 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , s , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  REAL , INTENT(INOUT) :: s
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+!$omp parallel
+  c = 5.345
+  DO k = 2 , nz , 1
+!$omp do
+   DO proma = 1 , nproma , 1
+    t ( proma , k ) = c * k
+   END DO
+!$omp end do
+!$omp do
+   DO proma = 1 , nproma , 1
+    q ( proma , k ) = q ( proma , k - 1 ) + t ( proma , k ) * c
+   END DO
+!$omp end do
+  END DO
+!$omp do
+  DO proma = 1 , nproma , 1
+   q ( proma , nz ) = q ( proma , nz ) * c
+  END DO
+!$omp end do
+!$omp do reduction(+:s)
+  DO proma = 1 , nproma , 1
+   s = s + q ( proma , nz )
+  END DO
+!$omp end do
+!$omp do reduction(+:s)
+  DO proma = 1 , nproma , 1
+   s = s + c
+  END DO
+!$omp end do
+!$omp end parallel
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
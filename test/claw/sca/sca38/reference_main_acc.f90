@@ -0,0 +1,26 @@
+PROGRAM test_abstraction38
+ USE mo_column , ONLY: compute_column
+ REAL :: q ( 1 : 20 , 1 : 60 )
+ REAL :: t ( 1 : 20 , 1 : 60 )
+ REAL :: s
+ INTEGER :: nproma
+ INTEGER :: nz
+ INTEGER :: p
+
+ nproma = 20
+ nz = 60
+ s = 0.0
+ DO p = 1 , nproma , 1
+  q ( p , 1 ) = 0.0
+  t ( p , 1 ) = 0.0
+ END DO
+!$acc data pcreate(q(:,:),t(:,:))
+!$acc update device(q(:,:),t(:,:))
+ CALL compute_column ( nz , q ( : , : ) , t ( : , : ) , s , nproma = nproma )
+!$acc update host(q(:,:),t(:,:))
+!$acc end data
+ PRINT * , sum ( q )
+ PRINT * , sum ( t )
+ PRINT * , s
+END PROGRAM test_abstraction38
+
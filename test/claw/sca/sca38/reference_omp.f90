@@ -0,0 +1,36 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , s , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  REAL , INTENT(INOUT) :: s
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+!$omp target data map(present, alloc:t,q)
+!$omp target map(tofrom:s)
+!$omp teams reduction(+:s) thread_limit(256) num_teams(65536)
+!$omp distribute dist_schedule(static, 256)
+  DO proma = 1 , nproma , 1
+   c = 5.345
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+    q ( proma , k ) = q ( proma , k - 1 ) + t ( proma , k ) * c
+   END DO
+   q ( proma , nz ) = q ( proma , nz ) * c
+   s = s + q ( proma , nz )
+   s = s + c
+  END DO
+!$omp end distribute
+!$omp end teams
+!$omp end target
+!$omp end target data
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
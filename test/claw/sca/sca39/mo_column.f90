@@ -0,0 +1,45 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+
+MODULE mo_column
+  IMPLICIT NONE
+CONTAINS
+  ! Compute only one column
+  SUBROUTINE compute_column(nz, q, t)
+    IMPLICIT NONE
+
+    INTEGER, INTENT(IN)   :: nz   ! Size of the array field
+    REAL, INTENT(INOUT)   :: t(:) ! Field declared as one column only
+    REAL, INTENT(INOUT)   :: q(:) ! Field declared as one column only
+    REAL :: y(nz)                 ! Defined before use in each column
+    REAL :: w(2)                  ! Subscript written between def and use
+    INTEGER :: k                  ! Loop index
+    INTEGER :: j                  ! Subscript
+    REAL :: c                     ! Coefficient
+
+    ! CLAW definition
+
+    ! Define one dimension that will be added to the variables defined in the
+    ! data clause.
+    ! Apply the parallelization transformation on this subroutine.
+
+    !$claw define dimension proma(1:nproma) &
+    !$claw parallelize
+
+    c = 5.345
+    DO k = 2, nz
+      t(k) = c * k
+      y(k) = t(k) * c
+    END DO
+    DO k = 2, nz
+      q(k) = q(k - 1) + y(k)
+    END DO
+    j = 2
+    w(1) = c
+    w(j) = c * 2.0
+    j = 1
+    q(nz) = q(nz) * w(j)
+  END SUBROUTINE compute_column
+END MODULE mo_column
@@ -0,0 +1,42 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  REAL :: y ( 1 : nz )
+  REAL :: w ( 1 : nproma , 1 : 2 )
+  INTEGER :: k
+  INTEGER :: j
+  REAL :: c
+  INTEGER :: proma
+
+!$acc data present(t,q) pcreate(w)
+!$acc parallel
+!$acc loop gang vector private(y)
+  DO proma = 1 , nproma , 1
+   c = 5.345
+!$acc loop seq
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+    y ( k ) = t ( proma , k ) * c
+   END DO
+!$acc loop seq
+   DO k = 2 , nz , 1
+    q ( proma , k ) = q ( proma , k - 1 ) + y ( k )
+   END DO
+   j = 2
+   w ( proma , 1 ) = c
+   w ( proma , j ) = c * 2.0
+   j = 1
+   q ( proma , nz ) = q ( proma , nz ) * w ( proma , j )
+  END DO
+!$acc end parallel
+!$acc end data
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
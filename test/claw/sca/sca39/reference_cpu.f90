@@ -0,0 +1,41 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  REAL :: y ( 1 : nproma , 1 : nz )
+  REAL :: w ( 1 : 2 )
+  INTEGER :: k
+  INTEGER :: j
+  REAL :: c
+  INTEGER :: proma
+
+  c = 5.345
+  DO k = 2 , nz , 1
+   DO proma = 1 , nproma , 1
+    t ( proma , k ) = c * k
+   END DO
+   DO proma = 1 , nproma , 1
+    y ( proma , k ) = t ( proma , k ) * c
+   END DO
+  END DO
+  DO k = 2 , nz , 1
+   DO proma = 1 , nproma , 1
+    q ( proma , k ) = q ( proma , k - 1 ) + y ( proma , k )
+   END DO
+  END DO
+  j = 2
+  w ( 1 ) = c
+  w ( j ) = c * 2.0
+  j = 1
+  DO proma = 1 , nproma , 1
+   q ( proma , nz ) = q ( proma , nz ) * w ( j )
+  END DO
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
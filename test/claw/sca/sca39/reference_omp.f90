@@ -0,0 +1,43 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  REAL :: y ( 1 : nz )
+  REAL :: w ( 1 : nproma , 1 : 2 )
+  INTEGER :: k
+  INTEGER :: j
+  REAL :: c
+  INTEGER :: proma
+
+!$omp target data map(present, alloc:t,q) map(alloc:w)
+!$omp target
+!$omp teams thread_limit(256) num_teams(65536)
+!$omp distribute dist_schedule(static, 256) private(y)
+  DO proma = 1 , nproma , 1
+   c = 5.345
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+    y ( k ) = t ( proma , k ) * c
+   END DO
+   DO k = 2 , nz , 1
+    q ( proma , k ) = q ( proma , k - 1 ) + y ( k )
+   END DO
+   j = 2
+   w ( proma , 1 ) = c
+   w ( proma , j ) = c * 2.0
+   j = 1
+   q ( proma , nz ) = q ( proma , nz ) * w ( proma , j )
+  END DO
+!$omp end distribute
+!$omp end teams
+!$omp end target
+!$omp end target data
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
@@ -0,0 +1,31 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+!$acc data present(t,q)
+!$acc parallel
+!$acc loop gang vector
+  DO proma = 1 , nproma , 1
+   c = 5.345
+!$acc loop seq
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+    q ( proma , k ) = q ( proma , k ) + t ( proma , k ) * sqrt ( c )
+   END DO
+   q ( proma , nz ) = q ( proma , nz ) + c * c
+  END DO
+!$acc end parallel
+!$acc end data
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
@@ -0,0 +1,41 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+  REAL :: claw_invariant_0
+  REAL :: claw_invariant_1
+
+!$omp parallel private(claw_invariant_0,claw_invariant_1)
+  c = 5.345
+  DO k = 2 , nz , 1
+   claw_invariant_0 = c * k
+!$omp do
+   DO proma = 1 , nproma , 1
+    t ( proma , k ) = claw_invariant_0
+   END DO
+!$omp end do
+!$omp do
+   DO proma = 1 , nproma , 1
+    q ( proma , k ) = q ( proma , k ) + t ( proma , k ) * sqrt ( c )
+   END DO
+!$omp end do
+  END DO
+  claw_invariant_1 = c * c
+!$omp do
+  DO proma = 1 , nproma , 1
+   q ( proma , nz ) = q ( proma , nz ) + claw_invariant_1
+  END DO
+!$omp end do
+!$omp end parallel
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
@@ -0,0 +1,39 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+  REAL :: claw_scalar_0
+  REAL :: claw_scalar_1
+
+!$omp target data map(present, alloc:t,q)
+!$omp target
+!$omp teams thread_limit(256) num_teams(65536)
+!$omp distribute dist_schedule(static, 256) private(claw_scalar_0,claw_scalar_1)
+  DO proma = 1 , nproma , 1
+   c = 5.345
+   DO k = 2 , nz , 1
+    claw_scalar_0 = c * k
+    t ( proma , k ) = claw_scalar_0
+    claw_scalar_1 = q ( proma , k )
+    claw_scalar_1 = claw_scalar_1 + claw_scalar_0 * c
+    claw_scalar_1 = claw_scalar_1 * claw_scalar_1
+    q ( proma , k ) = claw_scalar_1
+   END DO
+   q ( proma , nz ) = q ( proma , nz ) * c
+  END DO
+!$omp end distribute
+!$omp end teams
+!$omp end target
+!$omp end target data
+ END SUBROUTINE compute_column
+
+END MODULE mo_column
+
@@ -0,0 +1,49 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+
+MODULE mo_column
+  IMPLICIT NONE
+CONTAINS
+  ! Compute only one column
+  SUBROUTINE compute(nz, q, t)
+    IMPLICIT NONE
+    INTEGER, INTENT(IN)   :: nz   ! Size of the array field
+    REAL, INTENT(INOUT)   :: t(:) ! Field declared as one column only
+    REAL, INTENT(INOUT)   :: q(:) ! Field declared as one column only
+    INTEGER :: k                  ! Loop index
+    REAL :: c                     ! Coefficient
+
+    !$claw define dimension proma(1:nproma) &
+    !$claw parallelize
+
+    c = 5.345
+    DO k = 2, nz
+      t(k) = c * k
+    END DO
+    q(nz) = q(nz) * c
+  END SUBROUTINE compute
+
+  ! Inlined on CPU. The parallelized body is kept in its routine on GPU.
+  SUBROUTINE compute_inline(nz, q, t)
+    IMPLICIT NONE
+    INTEGER, INTENT(IN)   :: nz   ! Size of the array field
+    REAL, INTENT(INOUT)   :: t(:) ! Field declared as one column only
+    REAL, INTENT(INOUT)   :: q(:) ! Field declared as one column only
+
+    !$claw parallelize forward
+    CALL compute(nz, q, t)
+  END SUBROUTINE compute_inline
+
+  ! Never inlined as the data movement is attached to the call
+  SUBROUTINE compute_update(nz, q, t)
+    IMPLICIT NONE
+    INTEGER, INTENT(IN)   :: nz   ! Size of the array field
+    REAL, INTENT(INOUT)   :: t(:) ! Field declared as one column only
+    REAL, INTENT(INOUT)   :: q(:) ! Field declared as one column only
+
+    !$claw parallelize forward create update
+    CALL compute_inline(nz, q, t)
+  END SUBROUTINE compute_update
+END MODULE mo_column
@@ -0,0 +1,54 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+!$acc data present(t,q)
+!$acc parallel
+!$acc loop gang vector
+  DO proma = 1 , nproma , 1
+   c = 5.345
+!$acc loop seq
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+   END DO
+   q ( proma , nz ) = q ( proma , nz ) * c
+  END DO
+!$acc end parallel
+!$acc end data
+ END SUBROUTINE compute
+
+ SUBROUTINE compute_inline ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+
+  CALL compute ( nz , q , t , nproma = nproma )
+ END SUBROUTINE compute_inline
+
+ SUBROUTINE compute_update ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+
+!$acc data pcreate(q,t)
+!$acc update device(q,t)
+  CALL compute_inline ( nz , q , t , nproma = nproma )
+!$acc update host(q,t)
+!$acc end data
+ END SUBROUTINE compute_update
+
+END MODULE mo_column
+
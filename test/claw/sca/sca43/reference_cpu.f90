@@ -0,0 +1,57 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+  c = 5.345
+  DO k = 2 , nz , 1
+   DO proma = 1 , nproma , 1
+    t ( proma , k ) = c * k
+   END DO
+  END DO
+  DO proma = 1 , nproma , 1
+   q ( proma , nz ) = q ( proma , nz ) * c
+  END DO
+ END SUBROUTINE compute
+
+ SUBROUTINE compute_inline ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: compute_k
+  REAL :: compute_c
+  INTEGER :: compute_proma
+
+  compute_c = 5.345
+  DO compute_k = 2 , nz , 1
+   DO compute_proma = 1 , nproma , 1
+    t ( compute_proma , compute_k ) = compute_c * compute_k
+   END DO
+  END DO
+  DO compute_proma = 1 , nproma , 1
+   q ( compute_proma , nz ) = q ( compute_proma , nz ) * compute_c
+  END DO
+ END SUBROUTINE compute_inline
+
+ SUBROUTINE compute_update ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+
+  CALL compute_inline ( nz , q , t , nproma = nproma )
+ END SUBROUTINE compute_update
+
+END MODULE mo_column
+
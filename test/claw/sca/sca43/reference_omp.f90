@@ -0,0 +1,56 @@
+MODULE mo_column
+
+CONTAINS
+ SUBROUTINE compute ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+!$omp target data map(present, alloc:t,q)
+!$omp target
+!$omp teams thread_limit(256) num_teams(65536)
+!$omp distribute dist_schedule(static, 256)
+  DO proma = 1 , nproma , 1
+   c = 5.345
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+   END DO
+   q ( proma , nz ) = q ( proma , nz ) * c
+  END DO
+!$omp end distribute
+!$omp end teams
+!$omp end target
+!$omp end target data
+ END SUBROUTINE compute
+
+ SUBROUTINE compute_inline ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+
+  CALL compute ( nz , q , t , nproma = nproma )
+ END SUBROUTINE compute_inline
+
+ SUBROUTINE compute_update ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+
+!$omp target data map(alloc:q,t)
+!$omp target update to(q,t)
+  CALL compute_inline ( nz , q , t , nproma = nproma )
+!$omp target update from(q,t)
+!$omp end target data
+ END SUBROUTINE compute_update
+
+END MODULE mo_column
+
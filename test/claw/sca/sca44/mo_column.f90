@@ -0,0 +1,41 @@
+!
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+
+MODULE mo_column
+  IMPLICIT NONE
+  REAL :: s                       ! Sum accumulated over all the columns
+CONTAINS
+  ! Compute only one column
+  SUBROUTINE compute_column(nz, q, t)
+    IMPLICIT NONE
+
+    INTEGER, INTENT(IN)   :: nz   ! Size of the array field
+    REAL, INTENT(INOUT)   :: t(:) ! Field declared as one column only
+    REAL, INTENT(INOUT)   :: q(:) ! Field declared as one column only
+    INTEGER :: k                  ! Loop index
+    REAL :: c                     ! Coefficient
+
+    !$claw define dimension proma(1:nproma) &
+    !$claw parallelize
+
+    c = 5.345
+    DO k = 2, nz
+      t(k) = c * k
+      q(k) = q(k - 1)  + t(k) * c
+    END DO
+    ! Accumulation of a module variable also used by the callee
+    s = s + c
+    CALL reset_sum()
+  END SUBROUTINE compute_column
+
+  ! Reset the sum once it is too large
+  SUBROUTINE reset_sum()
+    IMPLICIT NONE
+
+    IF (s > 100.0) THEN
+      s = 0.0
+    END IF
+  END SUBROUTINE reset_sum
+END MODULE mo_column
@@ -0,0 +1,41 @@
+MODULE mo_column
+ REAL :: s
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+!$acc data present(t,q)
+!$acc parallel
+!$acc loop gang vector
+  DO proma = 1 , nproma , 1
+   c = 5.345
+!$acc loop seq
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+    q ( proma , k ) = q ( proma , k - 1 ) + t ( proma , k ) * c
+   END DO
+   s = s + c
+   CALL reset_sum ( )
+  END DO
+!$acc end parallel
+!$acc end data
+ END SUBROUTINE compute_column
+
+ SUBROUTINE reset_sum ( )
+
+!$acc routine seq
+  IF ( s > 100.0 ) THEN
+   s = 0.0
+  END IF
+ END SUBROUTINE reset_sum
+
+END MODULE mo_column
+
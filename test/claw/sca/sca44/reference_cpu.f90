@@ -0,0 +1,36 @@
+MODULE mo_column
+ REAL :: s
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+  c = 5.345
+  DO k = 2 , nz , 1
+   DO proma = 1 , nproma , 1
+    t ( proma , k ) = c * k
+   END DO
+   DO proma = 1 , nproma , 1
+    q ( proma , k ) = q ( proma , k - 1 ) + t ( proma , k ) * c
+   END DO
+  END DO
+  s = s + c
+  CALL reset_sum ( )
+ END SUBROUTINE compute_column
+
+ SUBROUTINE reset_sum ( )
+
+  IF ( s > 100.0 ) THEN
+   s = 0.0
+  END IF
+ END SUBROUTINE reset_sum
+
+END MODULE mo_column
+
@@ -0,0 +1,44 @@
+MODULE mo_column
+ REAL :: s
+
+CONTAINS
+ SUBROUTINE compute_column ( nz , q , t , nproma )
+  INTEGER , INTENT(IN) :: nproma
+
+  INTEGER , INTENT(IN) :: nz
+  REAL , INTENT(INOUT) :: t ( : , : )
+  REAL , INTENT(INOUT) :: q ( : , : )
+  INTEGER :: k
+  REAL :: c
+  INTEGER :: proma
+
+!$omp target data map(present, alloc:t,q)
+!$omp target
+!$omp teams thread_limit(256) num_teams(65536)
+!$omp distribute dist_schedule(static, 256)
+  DO proma = 1 , nproma , 1
+   c = 5.345
+   DO k = 2 , nz , 1
+    t ( proma , k ) = c * k
+    q ( proma , k ) = q ( proma , k - 1 ) + t ( proma , k ) * c
+   END DO
+   s = s + c
+   CALL reset_sum ( )
+  END DO
+!$omp end distribute
+!$omp end teams
+!$omp end target
+!$omp end target data
+ END SUBROUTINE compute_column
+
+ SUBROUTINE reset_sum ( )
+
+!$omp declare target
+!$omp single
+  IF ( s > 100.0 ) THEN
+   s = 0.0
+  END IF
+ END SUBROUTINE reset_sum
+
+END MODULE mo_column
+